@@ -126,6 +126,7 @@ public class Constants {
 		DESC_JMX_HTTP_HOST = "Host or IP used to replace jmx http large data set URL host fields.  Not usually needed. Use with caution.\n      Environment Variable: " + ENV_JMX_HTTP_HOST,
 		DESC_JMX_HTTP_PORT = "Port used to replace jmx http large data set URL port fields.  Not usually needed. Use with caution.\n      Environment Variable: " + ENV_JMX_HTTP_PORT,
 		DESC_NOCONSOLE = "Flag to indicate not to prompt for password (can still redirect from stdin or use environment variable for password.",
+		DESC_TIMINGS = "Flag to print the time spent in each JMX and http call of a command to stderr",
 		DESC_LOGLEVEL = "Logging level [ fatal | error | warn | info | debug | trace ]\n      Environment Variable: " + ENV_LOGLEVEL,
 		DESC_LOGDIR = "Logging direcotry.  If not set or empty log to stdout.\n      Environment Variable: " + ENV_LOGDIR
 	;
@@ -71,6 +71,7 @@ import streams.jmx.client.commands.SnapshotJobs;
 import streams.jmx.client.commands.Version;
 import streams.jmx.client.httpclient.WebClient;
 import streams.jmx.client.httpclient.WebClientImpl;
+import streams.jmx.client.jmx.JmxCallStats;
 import streams.jmx.client.jmx.JmxConnectionPool;
 import streams.jmx.client.jmx.JmxServiceContext;
 import streams.jmx.client.jmx.JmxTrustManager;
@@ -95,6 +96,7 @@ public class Main {
 	private JmxConnectionPool connectionPool;
 	private WebClient webClient;
 	private JmxServiceContext jmxContext = null;
+	private JmxCallStats callStats = null;
 
 
 	//@SuppressWarnings("unused")
@@ -238,7 +240,9 @@ public class Main {
 		if (commandMap.containsKey(parsedCommand)) {
 			LOGGER.debug("Executing single command: " + parsedCommand);
 			Command matchedCommand = commandMap.get(parsedCommand);
+			resetTimings();
 			CommandResult result = matchedCommand.execute();
+			printTimings();
 			if (result != null) {
 				if (result.getOutput() != null) {
 					System.out.println(result.getOutput());
@@ -348,7 +352,9 @@ public class Main {
 						timeToQuit = true;
 					} else if (commandMap.containsKey(parsedCommand)) {
 						Command matchedCommand = commandMap.get(parsedCommand);
+						resetTimings();
 						CommandResult result = matchedCommand.execute();
+						printTimings();
 						if (result != null) {
 							if (result.getOutput() != null) {
 								ObjectMapper mapper = new ObjectMapper();
@@ -400,6 +406,10 @@ public class Main {
 	private void initJmxContext() {
 		connectionPool = new JmxConnectionPool(config.getJmxUrl(), config.getX509Cert(), config.getUser(),
 		config.getPassword(), config.getSslOption(), retryInitialConnection);
+		if (config.isTimings()) {
+			callStats = new JmxCallStats();
+			connectionPool.setCallStats(callStats);
+		}
 
 		TrustManager[] trustManagers = null;
 		KeyStore ks = null;
@@ -447,6 +457,9 @@ public class Main {
 		// In the process of moving between approaches to https connections
 		// Sending trustManagers for old one and ks for new apache httpclient apporach
 		webClient = new WebClientImpl(config.getSslOption(), trustManagers, ks);
+		if (callStats != null) {
+			webClient = callStats.instrument(webClient, WebClient.class);
+		}
 
 		this.jmxContext = new JmxServiceContext() {
 			public MXBeanSourceProvider getBeanSourceProvider() {
@@ -462,6 +475,20 @@ public class Main {
 
 
 
+	// --timings: only report the calls made by the command itself
+	private void resetTimings() {
+		if (callStats != null) {
+			callStats.reset();
+		}
+	}
+
+	// stderr so that the command output can still be parsed
+	private void printTimings() {
+		if (callStats != null) {
+			System.err.println(callStats.report());
+		}
+	}
+
 	// If we cannot connect to the JMX Server at least once shutdown
 	// Once started, we allow for reconnection attempts, but if this fails
 	// it usually means the credentials or url are incorrect and should get
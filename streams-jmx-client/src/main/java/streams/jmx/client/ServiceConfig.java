@@ -92,6 +92,9 @@ public class ServiceConfig {
     @Parameter(names = "--noconsole", description = Constants.DESC_NOCONSOLE, order = 13)
     private boolean hasNoConsole = false;
 
+    @Parameter(names = "--timings", description = Constants.DESC_TIMINGS, order = 14)
+    private boolean timings = false;
+
     public String getPassword(boolean hasConsole) {
         // Choose the appropriate JCommander console implementation to use
         Console console = null;
@@ -182,6 +185,14 @@ public class ServiceConfig {
         this.hasNoConsole = hasNoConsole;
     }
 
+    public boolean isTimings() {
+        return timings;
+    }
+
+    public void setTimings(boolean timings) {
+        this.timings = timings;
+    }
+
     public void setTruststore(String path) {
         truststore = path;
     }
@@ -316,6 +327,8 @@ public class ServiceConfig {
         result.append("loglevel: " + getLoglevel());
         result.append(newline);
         result.append("logdir: " + getLogdir());
+        result.append(newline);
+        result.append("timings: " + isTimings());
         return result.toString();
     }
      
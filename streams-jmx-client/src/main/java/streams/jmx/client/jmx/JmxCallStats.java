@@ -0,0 +1,225 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.jmx.client.jmx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * JmxCallStats
+ * Per interface, per method call statistics for the Streams JMX service:
+ *   * call count and errors (exceptions thrown by the call)
+ *   * latency histogram (fixed buckets) and total time
+ *   * payload size, the length of String results (snapshot urls and http responses)
+ * Beans returned by an instrumented MXBeanSource (and any other interface,
+ * e.g. the WebClient) are wrapped in a proxy that records each call.
+ * Recording only uses LongAdders and an AtomicLongArray so concurrent
+ * calls do not contend on a lock.
+ * Used by the --timings option to report where a command spent its time.
+ */
+public class JmxCallStats {
+
+    /* Upper bounds (seconds) of the latency buckets, +Inf is implied */
+    public static final double[] LATENCY_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60 };
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, MethodStats>> byInterface =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<Method, MethodStats>>();
+
+    public MXBeanSource instrument(MXBeanSource beanSource) {
+        return new MXBeanSourceDecorator(beanSource) {
+            @Override
+            protected <T> T decorate(T bean, Class<T> beanInterface) {
+                return instrument(bean, beanInterface);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T instrument(final T target, final Class<T> targetInterface) {
+        if (target == null) {
+            return null;
+        }
+        final ConcurrentMap<Method, MethodStats> methodStats = statsFor(targetInterface);
+        return (T)Proxy.newProxyInstance(targetInterface.getClassLoader(), new Class<?>[] { targetInterface },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return method.invoke(target, args);
+                        }
+                        MethodStats stats = methodStats.get(method);
+                        if (stats == null) {
+                            stats = new MethodStats(targetInterface.getSimpleName(), method.getName());
+                            MethodStats existing = methodStats.putIfAbsent(method, stats);
+                            if (existing != null) {
+                                stats = existing;
+                            }
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            Object result = method.invoke(target, args);
+                            stats.record(System.nanoTime() - start, result, false);
+                            return result;
+                        } catch (InvocationTargetException e) {
+                            stats.record(System.nanoTime() - start, null, true);
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    /* Snapshot of the methods called so far, ordered by interface and method name */
+    public List<MethodStats> getMethodStats() {
+        List<MethodStats> result = new ArrayList<MethodStats>();
+        for (ConcurrentMap<Method, MethodStats> methods : byInterface.values()) {
+            result.addAll(methods.values());
+        }
+        Collections.sort(result, new Comparator<MethodStats>() {
+            @Override
+            public int compare(MethodStats a, MethodStats b) {
+                int c = a.getInterfaceName().compareTo(b.getInterfaceName());
+                return (c != 0 ? c : a.getMethodName().compareTo(b.getMethodName()));
+            }
+        });
+        return result;
+    }
+
+    /* Forget all statistics, beans obtained after this start from zero */
+    public void reset() {
+        byInterface.clear();
+    }
+
+    /* One line per method: calls, errors, total and average milliseconds, payload characters */
+    public String report() {
+        StringBuilder result = new StringBuilder();
+        String newline = System.getProperty("line.separator");
+
+        result.append(String.format("%-48s %8s %8s %12s %12s %14s", "call", "calls", "errors", "total(ms)", "avg(ms)", "payload"));
+        long totalNanos = 0;
+        for (MethodStats stats : getMethodStats()) {
+            long calls = stats.getCalls();
+            result.append(newline);
+            result.append(String.format("%-48s %8d %8d %12.1f %12.1f %14d",
+                    stats.getInterfaceName() + "." + stats.getMethodName(), calls, stats.getErrors(),
+                    stats.getTotalSeconds() * 1000, (calls == 0 ? 0 : stats.getTotalSeconds() * 1000 / calls),
+                    stats.getPayloadBytes()));
+            totalNanos += stats.getTotalNanos();
+        }
+        result.append(newline);
+        result.append(String.format("%-48s %8s %8s %12.1f", "total", "", "", totalNanos / 1e6));
+        return result.toString();
+    }
+
+    private ConcurrentMap<Method, MethodStats> statsFor(Class<?> targetInterface) {
+        ConcurrentMap<Method, MethodStats> methods = byInterface.get(targetInterface);
+        if (methods == null) {
+            methods = new ConcurrentHashMap<Method, MethodStats>();
+            ConcurrentMap<Method, MethodStats> existing = byInterface.putIfAbsent(targetInterface, methods);
+            if (existing != null) {
+                methods = existing;
+            }
+        }
+        return methods;
+    }
+
+    public static class MethodStats {
+        private final String interfaceName;
+        private final String methodName;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder payloadBytes = new LongAdder();
+        // Non cumulative, index LATENCY_BUCKETS.length is +Inf
+        private final AtomicLongArray buckets = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+        MethodStats(String interfaceName, String methodName) {
+            this.interfaceName = interfaceName;
+            this.methodName = methodName;
+        }
+
+        void record(long nanos, Object result, boolean error) {
+            calls.increment();
+            totalNanos.add(nanos);
+            if (error) {
+                errors.increment();
+            }
+            if (result instanceof CharSequence) {
+                payloadBytes.add(((CharSequence)result).length());
+            }
+            double seconds = nanos / 1e9;
+            int i = 0;
+            while (i < LATENCY_BUCKETS.length && seconds > LATENCY_BUCKETS[i]) {
+                i++;
+            }
+            buckets.incrementAndGet(i);
+        }
+
+        public String getInterfaceName() {
+            return interfaceName;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public double getTotalSeconds() {
+            return totalNanos.sum() / 1e9;
+        }
+
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getPayloadBytes() {
+            return payloadBytes.sum();
+        }
+
+        /* Cumulative counts for each LATENCY_BUCKETS bound followed by +Inf */
+        public long[] getCumulativeBuckets() {
+            long[] cumulative = new long[buckets.length()];
+            long sum = 0;
+            for (int i = 0; i < cumulative.length; i++) {
+                sum += buckets.get(i);
+                cumulative[i] = sum;
+            }
+            return cumulative;
+        }
+    }
+}
@@ -78,6 +78,7 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
     private String X509Cert = null;
     private boolean retryConnections = false;
     private List<MXBeanSourceProviderListener> providerListeners = new ArrayList<MXBeanSourceProviderListener>();
+    private volatile JmxCallStats callStats = null;
     final private String provider = "com.ibm.streams.management";
 
     // Create a constructor that will allow the pool to be constructed for use
@@ -128,6 +129,15 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
                 this.password, this.provider).getStreamsBeanSource();
     }
 
+    /* Applies to bean sources created after this is set, so set it before the first connection */
+    public void setCallStats(JmxCallStats callStats) {
+        this.callStats = callStats;
+    }
+
+    public JmxCallStats getCallStats() {
+        return callStats;
+    }
+
     @Override
     public void addBeanSourceProviderListener(MXBeanSourceProviderListener listener) {
         synchronized(providerListeners) {
@@ -342,6 +352,10 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
                     getConnectionNotificationListener(), null, null);
             mBeanServerConnection = mConnector.getMBeanServerConnection();
             mStreamsBeanSource = new MXBeanSourceImpl(mBeanServerConnection);
+            JmxCallStats stats = callStats;
+            if (stats != null) {
+                mStreamsBeanSource = stats.instrument(mStreamsBeanSource);
+            }
 
             LOGGER.trace("***** initNetworkConnection, Created JMX ConnectonID: "
                     + mConnectionId);
@@ -0,0 +1,111 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.jmx.client.jmx;
+
+import javax.management.MBeanServerConnection;
+
+import com.ibm.streams.management.instance.InstanceMXBean;
+import com.ibm.streams.management.job.JobMXBean;
+import com.ibm.streams.management.job.OperatorInputPortMXBean;
+import com.ibm.streams.management.job.OperatorMXBean;
+import com.ibm.streams.management.job.OperatorOutputPortMXBean;
+import com.ibm.streams.management.job.PeInputPortMXBean;
+import com.ibm.streams.management.job.PeMXBean;
+import com.ibm.streams.management.job.PeOutputPortMXBean;
+import com.ibm.streams.management.resource.ResourceMXBean;
+
+/**
+ * MXBeanSource that delegates to another source and lets subclasses wrap
+ * every bean proxy it returns (e.g. timing or rate limiting).
+ */
+public abstract class MXBeanSourceDecorator implements MXBeanSource {
+
+    private final MXBeanSource delegate;
+
+    protected MXBeanSourceDecorator(MXBeanSource delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Wraps a bean returned by the delegate.
+     * 
+     * @param bean
+     *            the bean proxy returned by the delegate, may be null
+     * @param beanInterface
+     *            the MXBean interface the bean implements
+     * @return the wrapped bean
+     */
+    protected abstract <T> T decorate(T bean, Class<T> beanInterface);
+
+    public MXBeanSource getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public MBeanServerConnection getMBeanServerConnection() {
+        return delegate.getMBeanServerConnection();
+    }
+
+    @Override
+    public JobMXBean getJobBean(String instanceId, String jobId) {
+        return decorate(delegate.getJobBean(instanceId, jobId), JobMXBean.class);
+    }
+
+    @Override
+    public PeMXBean getPeBean(String instanceId, String peId) {
+        return decorate(delegate.getPeBean(instanceId, peId), PeMXBean.class);
+    }
+
+    @Override
+    public InstanceMXBean getInstanceBean(String instanceId) {
+        return decorate(delegate.getInstanceBean(instanceId), InstanceMXBean.class);
+    }
+
+    @Override
+    public ResourceMXBean getResourceBean(String instanceId, String resourceId) {
+        return decorate(delegate.getResourceBean(instanceId, resourceId), ResourceMXBean.class);
+    }
+
+    @Override
+    public OperatorMXBean getOperatorMXBean(String instanceId, String jobId, String operator) {
+        return decorate(delegate.getOperatorMXBean(instanceId, jobId, operator), OperatorMXBean.class);
+    }
+
+    @Override
+    public OperatorInputPortMXBean getOperatorInputPortMXBean(String instanceId, String jobId,
+            String operator, int indexWithinOperator) {
+        return decorate(delegate.getOperatorInputPortMXBean(instanceId, jobId, operator, indexWithinOperator),
+                OperatorInputPortMXBean.class);
+    }
+
+    @Override
+    public OperatorOutputPortMXBean getOperatorOutputPortMXBean(String instanceId, String jobId,
+            String operator, int indexWithinOperator) {
+        return decorate(delegate.getOperatorOutputPortMXBean(instanceId, jobId, operator, indexWithinOperator),
+                OperatorOutputPortMXBean.class);
+    }
+
+    @Override
+    public PeInputPortMXBean getPeInputPortMXBean(String instanceId, String peId, int indexWithinPe) {
+        return decorate(delegate.getPeInputPortMXBean(instanceId, peId, indexWithinPe), PeInputPortMXBean.class);
+    }
+
+    @Override
+    public PeOutputPortMXBean getPeOutputPortMXBean(String instanceId, String peId, int indexWithinPe) {
+        return decorate(delegate.getPeOutputPortMXBean(instanceId, peId, indexWithinPe), PeOutputPortMXBean.class);
+    }
+}
@@ -0,0 +1,65 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import streams.metric.exporter.streamstracker.job.JobMap;
+
+/*
+ * ExpositionBenchmark
+ *
+ * Rendering of the /metrics text exposition (what PrometheusResource does on
+ * a scrape) with every job of the payload exported.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExpositionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class RegistryState {
+		@Setup(Level.Trial)
+		public void setup(PayloadState payload) {
+			JobMap jobMap = new JobMap(SyntheticPayloads.INSTANCE_NAME);
+			jobMap.updateSnapshots(PayloadState.parse(payload.snapshotsJson));
+			JSONObject metrics = PayloadState.parse(payload.metricsJson[0]);
+			jobMap.updateMetrics(metrics);
+			jobMap.refreshJobs();
+		}
+	}
+
+	@Benchmark
+	public int scrape(RegistryState state) throws IOException {
+		StringWriter writer = new StringWriter();
+		TextFormat.write004(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+		return writer.getBuffer().length();
+	}
+}
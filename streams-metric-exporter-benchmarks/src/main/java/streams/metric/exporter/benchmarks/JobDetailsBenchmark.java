@@ -0,0 +1,72 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import streams.metric.exporter.streamstracker.job.JobDetails;
+
+/*
+ * JobDetailsBenchmark
+ *
+ * JobDetails.refresh() of a single job: remove and recreate the exported
+ * job metrics, then set every pe, port, connection and operator metric.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JobDetailsBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class JobState {
+		JobDetails job;
+		JSONObject[] metrics;
+		int iteration = 0;
+
+		@Setup(Level.Trial)
+		public void setup(PayloadState payload) {
+			JSONObject snapshot = firstJob(PayloadState.parse(payload.snapshotsJson));
+			job = new JobDetails(SyntheticPayloads.INSTANCE_NAME, (String) snapshot.get("id"), (String) snapshot.get("name"));
+			job.setJobSnapshot(snapshot);
+			metrics = new JSONObject[payload.metricsJson.length];
+			for (int i = 0; i < metrics.length; i++) {
+				metrics[i] = firstJob(PayloadState.parse(payload.metricsJson[i]));
+			}
+		}
+
+		private static JSONObject firstJob(JSONObject all) {
+			return (JSONObject) ((JSONArray) all.get("jobs")).get(0);
+		}
+	}
+
+	@Benchmark
+	public JobDetails refresh(JobState state) {
+		state.job.setJobMetrics(state.metrics[state.iteration++ % state.metrics.length]);
+		state.job.refresh();
+		return state.job;
+	}
+}
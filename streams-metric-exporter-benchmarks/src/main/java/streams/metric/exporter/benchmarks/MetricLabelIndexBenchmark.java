@@ -0,0 +1,73 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporters;
+import streams.metric.exporter.streamstracker.job.JobMap;
+
+/*
+ * MetricLabelIndexBenchmark
+ *
+ * Removal of all the series of one job (removeAllChildStreamsMetrics, which
+ * is MetricLabelIndex.removeWithChildren for the gauge store) with every job
+ * of the payload exported.  The series are recreated before each invocation,
+ * so use SingleShotTime with enough iterations rather than throughput.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MetricLabelIndexBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class IndexState {
+		MetricsExporter exporter;
+		JobMap jobMap;
+		JSONObject metrics;
+
+		@Setup(Level.Trial)
+		public void setup(PayloadState payload) {
+			exporter = MetricsExporters.getExporter();
+			jobMap = new JobMap(SyntheticPayloads.INSTANCE_NAME);
+			jobMap.updateSnapshots(PayloadState.parse(payload.snapshotsJson));
+			metrics = PayloadState.parse(payload.metricsJson[0]);
+		}
+
+		@Setup(Level.Invocation)
+		public void populate() {
+			jobMap.updateMetrics(metrics);
+			jobMap.refreshJobs();
+		}
+	}
+
+	@Benchmark
+	public MetricsExporter removeWithChildren(IndexState state) {
+		state.exporter.removeAllChildStreamsMetrics(SyntheticPayloads.INSTANCE_NAME, SyntheticPayloads.jobName(0));
+		return state.exporter;
+	}
+}
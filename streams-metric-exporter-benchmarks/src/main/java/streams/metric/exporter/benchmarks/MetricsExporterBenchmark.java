@@ -0,0 +1,85 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+import streams.metric.exporter.metrics.MetricsExporters;
+
+/*
+ * MetricsExporterBenchmark
+ *
+ * getStreamsMetric(...).set(value) for existing operator port series, the
+ * innermost call of every job refresh.  One invocation sets every operator
+ * port series of the payload shape.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MetricsExporterBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SeriesState {
+		MetricsExporter exporter;
+		String[][] labelValues;
+
+		@Setup(Level.Trial)
+		public void setup(PayloadState payload) {
+			exporter = MetricsExporters.getExporter();
+			int series = payload.jobs * payload.pes * payload.operators * payload.ports;
+			labelValues = new String[series][];
+			int s = 0;
+			for (int j = 0; j < payload.jobs; j++) {
+				for (int p = 0; p < payload.pes; p++) {
+					for (int o = 0; o < payload.operators; o++) {
+						for (int i = 0; i < payload.ports; i++) {
+							labelValues[s++] = new String[] { SyntheticPayloads.INSTANCE_NAME, SyntheticPayloads.jobName(j),
+									payload.payloads.getResource(j, p), payload.payloads.peId(j, p), "Pe" + p + "_Op" + o,
+									"spl.relational::Functor", "Op" + o + "_in" + i };
+						}
+					}
+				}
+			}
+			// Create the series so the benchmark measures the steady state lookup and set
+			for (String[] labels : labelValues) {
+				exporter.getStreamsMetric("nTuplesProcessed", StreamsObjectType.OPERATOR_INPUTPORT, labels).set(0);
+			}
+		}
+	}
+
+	@Benchmark
+	public void getAndSet(SeriesState state, Blackhole blackhole) {
+		double value = 0;
+		for (String[] labels : state.labelValues) {
+			MetricsExporter.Metric metric = state.exporter.getStreamsMetric("nTuplesProcessed",
+					StreamsObjectType.OPERATOR_INPUTPORT, labels);
+			metric.set(value++);
+			blackhole.consume(metric);
+		}
+	}
+}
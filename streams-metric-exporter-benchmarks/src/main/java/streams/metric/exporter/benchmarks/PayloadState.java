@@ -0,0 +1,83 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import streams.metric.exporter.metrics.MetricsExporters;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter.MetricStore;
+
+/*
+ * PayloadState
+ *
+ * Benchmark state shared by the pipeline benchmarks: the synthetic payload
+ * shape and the metric store.  The metric store can only be chosen before
+ * the exporter is first used, which is fine because JMH runs every parameter
+ * combination in its own forked JVM.
+ */
+@State(Scope.Benchmark)
+public class PayloadState {
+
+	@Param({ "10" })
+	public int jobs;
+
+	@Param({ "10" })
+	public int pes;
+
+	@Param({ "5" })
+	public int operators;
+
+	@Param({ "2" })
+	public int ports;
+
+	@Param({ "columnar", "gauge" })
+	public String store;
+
+	public SyntheticPayloads payloads;
+	public String snapshotsJson;
+	public String[] metricsJson;
+
+	@Setup(Level.Trial)
+	public void setupPayloads() {
+		PrometheusMetricsExporter.setMetricStore(MetricStore.valueOf(store.toUpperCase()));
+		MetricsExporters.getExporter();
+
+		payloads = new SyntheticPayloads(jobs, pes, operators, ports);
+		snapshotsJson = payloads.snapshots();
+		// A few different metric payloads so the values change from one invocation to the next
+		metricsJson = new String[4];
+		for (int i = 0; i < metricsJson.length; i++) {
+			metricsJson[i] = payloads.metrics(i);
+		}
+	}
+
+	public static JSONObject parse(String json) {
+		try {
+			return (JSONObject) new JSONParser().parse(json);
+		} catch (ParseException e) {
+			throw new IllegalStateException("Synthetic payload did not parse: " + e.getMessage(), e);
+		}
+	}
+}
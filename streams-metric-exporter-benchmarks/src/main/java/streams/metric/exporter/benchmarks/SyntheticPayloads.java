@@ -0,0 +1,317 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/*
+ * SyntheticPayloads
+ *
+ * Deterministic all jobs snapshot and metrics payloads in the format returned
+ * by the Streams JMX http server (InstanceMXBean snapshotJobs and
+ * snapshotJobMetrics), sized by jobs x pes x operators x ports:
+ *   * jobs       jobs in the instance
+ *   * pes        pes per job
+ *   * operators  operators per pe
+ *   * ports      input and output ports per operator and per pe, each pe
+ *                output port has one connection
+ * The same parameters and seed always produce the same payloads.
+ * Payloads can also be produced for any set of job numbers and pes can be
+ * restarted, which bumps their launch count and moves them to the next
+ * resource, so a simulated instance can add, remove and restart things.
+ */
+public class SyntheticPayloads {
+
+	public static final String INSTANCE_NAME = "BenchInstance";
+	public static final int RESOURCES = 8;
+
+	private static final String[] PE_METRICS = { "nCpuMilliseconds", "nResidentMemoryConsumption",
+			"nMemoryConsumption", "nProcessorsUsed", "nTupleBytesProcessed" };
+	private static final String[] PORT_METRICS = { "nTuplesProcessed", "nTupleBytesProcessed", "nFinalPunctsProcessed" };
+	private static final String[] CONNECTION_METRICS = { "congestionFactor", "nTuplesTransmitted", "nTupleBytesTransmitted" };
+	private static final String[] OPERATOR_METRICS = { "nExceptionsCaughtTotal", "relativeOperatorCost" };
+	private static final String[] OPERATOR_PORT_METRICS = { "nTuplesProcessed", "nTuplesSubmitted", "queueSize" };
+
+	private final int jobs;
+	private final int pes;
+	private final int operators;
+	private final int ports;
+	private final long seed;
+	private final String instanceName;
+
+	// peid -> launch count, only for pes that have been restarted
+	private final Map<String, Long> launchCounts = new ConcurrentHashMap<String, Long>();
+
+	public SyntheticPayloads(int jobs, int pes, int operators, int ports) {
+		this(INSTANCE_NAME, jobs, pes, operators, ports, 42L);
+	}
+
+	public SyntheticPayloads(String instanceName, int jobs, int pes, int operators, int ports, long seed) {
+		this.instanceName = instanceName;
+		this.jobs = jobs;
+		this.pes = pes;
+		this.operators = operators;
+		this.ports = ports;
+		this.seed = seed;
+	}
+
+	public static String jobId(int job) {
+		return Integer.toString(job);
+	}
+
+	public static String jobName(int job) {
+		return "bench::Job_" + job;
+	}
+
+	public static String resourceId(int resource) {
+		return "resource_" + resource;
+	}
+
+	public String peId(int job, int pe) {
+		return Integer.toString(job * pes + pe);
+	}
+
+	public long getLaunchCount(int job, int pe) {
+		Long launchCount = launchCounts.get(peId(job, pe));
+		return (launchCount == null ? 1L : launchCount);
+	}
+
+	/* A restarted pe comes back on the next resource */
+	public String getResource(int job, int pe) {
+		return resourceId((int)((pe + getLaunchCount(job, pe) - 1) % RESOURCES));
+	}
+
+	/* Returns the new launch count */
+	public synchronized long restartPe(int job, int pe) {
+		long launchCount = getLaunchCount(job, pe) + 1;
+		launchCounts.put(peId(job, pe), launchCount);
+		return launchCount;
+	}
+
+	public int getPes() {
+		return pes;
+	}
+
+	public int getOperators() {
+		return operators;
+	}
+
+	public int getPorts() {
+		return ports;
+	}
+
+	/* Snapshot (topology) of all jobs, as returned by snapshotJobs */
+	public String snapshots() {
+		return snapshots(allJobs());
+	}
+
+	/* Snapshot (topology) of the given jobs */
+	@SuppressWarnings("unchecked")
+	public String snapshots(Collection<Integer> jobNumbers) {
+		JSONArray jobArray = new JSONArray();
+		for (int j : jobNumbers) {
+			jobArray.add(jobSnapshot(j));
+		}
+		JSONObject all = new JSONObject();
+		all.put("jobs", jobArray);
+		return all.toJSONString();
+	}
+
+	/* Metrics of all jobs, as returned by snapshotJobMetrics.  iteration varies the values */
+	public String metrics(int iteration) {
+		return metrics(allJobs(), iteration);
+	}
+
+	/* Metrics of the given jobs */
+	@SuppressWarnings("unchecked")
+	public String metrics(Collection<Integer> jobNumbers, int iteration) {
+		Random random = new Random(seed + iteration);
+		JSONArray jobArray = new JSONArray();
+		for (int j : jobNumbers) {
+			jobArray.add(jobMetrics(j, random));
+		}
+		JSONObject all = new JSONObject();
+		all.put("jobs", jobArray);
+		return all.toJSONString();
+	}
+
+	/************************* Internal Methods *************************/
+
+	private List<Integer> allJobs() {
+		List<Integer> jobNumbers = new ArrayList<Integer>(jobs);
+		for (int j = 0; j < jobs; j++) {
+			jobNumbers.add(j);
+		}
+		return jobNumbers;
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject jobSnapshot(int job) {
+		JSONObject jobObject = new JSONObject();
+		jobObject.put("id", jobId(job));
+		jobObject.put("name", jobName(job));
+		jobObject.put("instance", instanceName);
+		jobObject.put("status", "running");
+		jobObject.put("health", "healthy");
+		jobObject.put("submitTime", 1500000000000L + job);
+
+		JSONArray peArray = new JSONArray();
+		for (int p = 0; p < pes; p++) {
+			JSONObject pe = new JSONObject();
+			pe.put("id", peId(job, p));
+			pe.put("resource", getResource(job, p));
+			pe.put("status", "running");
+			pe.put("health", "healthy");
+			pe.put("launchCount", getLaunchCount(job, p));
+
+			JSONArray inputPorts = new JSONArray();
+			JSONArray outputPorts = new JSONArray();
+			for (int i = 0; i < ports; i++) {
+				JSONObject input = new JSONObject();
+				input.put("indexWithinPE", (long)i);
+				inputPorts.add(input);
+
+				JSONObject output = new JSONObject();
+				output.put("indexWithinPE", (long)i);
+				JSONArray connections = new JSONArray();
+				JSONObject connection = new JSONObject();
+				connection.put("id", connectionId(job, p, i));
+				connections.add(connection);
+				output.put("connections", connections);
+				outputPorts.add(output);
+			}
+			pe.put("inputPorts", inputPorts);
+			pe.put("outputPorts", outputPorts);
+
+			JSONArray operatorArray = new JSONArray();
+			for (int o = 0; o < operators; o++) {
+				JSONObject operator = new JSONObject();
+				operator.put("name", operatorName(p, o));
+				operator.put("operatorKind", "spl.relational::Functor");
+				operator.put("inputPorts", operatorPorts(o, "in"));
+				operator.put("outputPorts", operatorPorts(o, "out"));
+				operatorArray.add(operator);
+			}
+			pe.put("operators", operatorArray);
+			peArray.add(pe);
+		}
+		jobObject.put("pes", peArray);
+		return jobObject;
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONArray operatorPorts(int operator, String direction) {
+		JSONArray portArray = new JSONArray();
+		for (int i = 0; i < ports; i++) {
+			JSONObject port = new JSONObject();
+			port.put("indexWithinOperator", (long)i);
+			port.put("name", "Op" + operator + "_" + direction + i);
+			portArray.add(port);
+		}
+		return portArray;
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject jobMetrics(int job, Random random) {
+		JSONObject jobObject = new JSONObject();
+		jobObject.put("id", jobId(job));
+
+		JSONArray peArray = new JSONArray();
+		for (int p = 0; p < pes; p++) {
+			JSONObject pe = new JSONObject();
+			pe.put("id", peId(job, p));
+			pe.put("metrics", metricArray(PE_METRICS, random));
+
+			JSONArray inputPorts = new JSONArray();
+			JSONArray outputPorts = new JSONArray();
+			for (int i = 0; i < ports; i++) {
+				JSONObject input = new JSONObject();
+				input.put("indexWithinPE", (long)i);
+				input.put("metrics", metricArray(PORT_METRICS, random));
+				inputPorts.add(input);
+
+				JSONObject output = new JSONObject();
+				output.put("indexWithinPE", (long)i);
+				output.put("metrics", metricArray(PORT_METRICS, random));
+				JSONArray connections = new JSONArray();
+				JSONObject connection = new JSONObject();
+				connection.put("id", connectionId(job, p, i));
+				connection.put("metrics", metricArray(CONNECTION_METRICS, random));
+				connections.add(connection);
+				output.put("connections", connections);
+				outputPorts.add(output);
+			}
+			pe.put("inputPorts", inputPorts);
+			pe.put("outputPorts", outputPorts);
+
+			JSONArray operatorArray = new JSONArray();
+			for (int o = 0; o < operators; o++) {
+				JSONObject operator = new JSONObject();
+				operator.put("name", operatorName(p, o));
+				operator.put("metrics", metricArray(OPERATOR_METRICS, random));
+				operator.put("inputPorts", operatorPortMetrics(random));
+				operator.put("outputPorts", operatorPortMetrics(random));
+				operatorArray.add(operator);
+			}
+			pe.put("operators", operatorArray);
+			peArray.add(pe);
+		}
+		jobObject.put("pes", peArray);
+		return jobObject;
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONArray operatorPortMetrics(Random random) {
+		JSONArray portArray = new JSONArray();
+		for (int i = 0; i < ports; i++) {
+			JSONObject port = new JSONObject();
+			port.put("indexWithinOperator", (long)i);
+			port.put("metrics", metricArray(OPERATOR_PORT_METRICS, random));
+			portArray.add(port);
+		}
+		return portArray;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONArray metricArray(String[] names, Random random) {
+		JSONArray metricArray = new JSONArray();
+		for (String name : names) {
+			JSONObject metric = new JSONObject();
+			metric.put("name", name);
+			// congestionFactor is a percentage, the rest are counters
+			metric.put("value", (name.equals("congestionFactor") ? (long)random.nextInt(101) : (long)random.nextInt(1000000)));
+			metricArray.add(metric);
+		}
+		return metricArray;
+	}
+
+	private String connectionId(int job, int pe, int port) {
+		return peId(job, pe) + "_" + port;
+	}
+
+	private static String operatorName(int pe, int operator) {
+		return "Pe" + pe + "_Op" + operator;
+	}
+}
@@ -0,0 +1,97 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import streams.metric.exporter.streamstracker.job.JobMap;
+
+/*
+ * UpdateAllJobsBenchmark
+ *
+ * The per refresh job pipeline of StreamsInstanceTracker without the JMX
+ * calls: parse the all jobs payloads, apply them to the JobMap and refresh
+ * the exported metrics of every job.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UpdateAllJobsBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class JobMapState {
+		JobMap jobMap;
+		JSONObject snapshots;
+		JSONObject[] metrics;
+		int iteration = 0;
+
+		@Setup(Level.Trial)
+		public void setup(PayloadState payload) {
+			jobMap = new JobMap(SyntheticPayloads.INSTANCE_NAME);
+			snapshots = PayloadState.parse(payload.snapshotsJson);
+			metrics = new JSONObject[payload.metricsJson.length];
+			for (int i = 0; i < metrics.length; i++) {
+				metrics[i] = PayloadState.parse(payload.metricsJson[i]);
+			}
+			jobMap.updateSnapshots(snapshots);
+		}
+
+		JSONObject nextMetrics() {
+			return metrics[iteration++ % metrics.length];
+		}
+	}
+
+	/* updateAllJobSnapshots: parse and apply to the known jobs */
+	@Benchmark
+	public JobMap updateAllJobSnapshots(PayloadState payload, JobMapState state) {
+		state.jobMap.updateSnapshots(PayloadState.parse(payload.snapshotsJson));
+		return state.jobMap;
+	}
+
+	/* updateAllJobMetrics: parse and hand to each job */
+	@Benchmark
+	public JobMap updateAllJobMetrics(PayloadState payload, JobMapState state) {
+		state.jobMap.updateMetrics(PayloadState.parse(payload.metricsJson[state.iteration++ % payload.metricsJson.length]));
+		return state.jobMap;
+	}
+
+	/* refreshAllJobs: already parsed payloads, exported metrics only */
+	@Benchmark
+	public JobMap refreshAllJobs(JobMapState state) {
+		state.jobMap.updateMetrics(state.nextMetrics());
+		state.jobMap.refreshJobs();
+		return state.jobMap;
+	}
+
+	/* One full refresh cycle of the job pipeline */
+	@Benchmark
+	public JobMap fullCycle(PayloadState payload, JobMapState state) {
+		state.jobMap.updateSnapshots(PayloadState.parse(payload.snapshotsJson));
+		state.jobMap.updateMetrics(PayloadState.parse(payload.metricsJson[state.iteration++ % payload.metricsJson.length]));
+		state.jobMap.refreshJobs();
+		return state.jobMap;
+	}
+}
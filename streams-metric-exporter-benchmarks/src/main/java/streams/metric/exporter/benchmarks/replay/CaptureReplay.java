@@ -0,0 +1,224 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.replay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+import streams.metric.exporter.Constants;
+import streams.metric.exporter.ServiceConfig;
+import streams.metric.exporter.metrics.FixedBucketHistogram;
+import streams.metric.exporter.metrics.MetricsExporters;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter.MetricStore;
+import streams.metric.exporter.streamstracker.RefreshStatistics;
+import streams.metric.exporter.streamstracker.RefreshStatistics.Phase;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+import streams.metric.exporter.streamstracker.StreamsInstanceTrackerRegistry;
+import streams.metric.exporter.streamstracker.capture.CapturedPayload;
+import streams.metric.exporter.streamstracker.capture.PayloadCaptureReader;
+
+/*
+ * CaptureReplay
+ *
+ * Feeds a capture recorded by the exporter (--capturedir) through the real
+ * StreamsInstanceTracker refresh path.  Snapshots records replace the
+ * snapshot served to the tracker, each metrics record triggers one tracker
+ * refresh that retrieves the latest snapshot and those metrics, just as the
+ * refresh that recorded them did.  JMX and HTTP are replaced by
+ * ReplayServiceContext, so the time reported is the exporter's own
+ * processing of the payloads.
+ *
+ * --pace fast      refresh back to back (regression test)
+ * --pace recorded  wait between refreshes as long as the capture did
+ */
+public class CaptureReplay {
+
+	public static class ReplayConfig {
+		@Parameter(description = "<capture directory of one instance, or one segment file>", required = true)
+		private List<String> capture = new ArrayList<String>();
+
+		@Parameter(names = "--help", description = "Display command line arguments", help = true)
+		private boolean help;
+
+		@Parameter(names = "--pace", description = "fast (back to back) or recorded (original timing)")
+		private String pace = "fast";
+
+		@Parameter(names = "--loops", description = "Times to replay the capture")
+		private int loops = 1;
+
+		@Parameter(names = "--metricstore", description = "Exporter metric store (columnar|gauge)")
+		private String metricStore = "columnar";
+	}
+
+	private final ReplayConfig config;
+	private final Path capture;
+	private final boolean recordedPace;
+	private final ReplayServiceContext context = new ReplayServiceContext();
+
+	private final List<Long> refreshNanos = new ArrayList<Long>();
+	private long recordedNanos = 0;
+	private long recordedRefreshes = 0;
+	private long skipped = 0;
+
+	public CaptureReplay(ReplayConfig config) {
+		this.config = config;
+		this.capture = Paths.get(config.capture.get(0));
+		this.recordedPace = config.pace.equalsIgnoreCase("recorded");
+	}
+
+	public void run() throws Exception {
+		PrometheusMetricsExporter.setMetricStore(MetricStore.valueOf(config.metricStore.toUpperCase()));
+		MetricsExporters.getExporter();
+
+		String instanceName = instanceName();
+		StreamsInstanceTrackerRegistry.initInstanceTrackers(context, Collections.singleton(instanceName),
+				Constants.NO_REFRESH, "TLSv1.2", new ServiceConfig());
+
+		StreamsInstanceTracker tracker = null;
+		long wallStart = System.nanoTime();
+		for (int loop = 0; loop < config.loops; loop++) {
+			PayloadCaptureReader reader = new PayloadCaptureReader(capture);
+			try {
+				long firstTimestamp = -1;
+				long loopStart = System.nanoTime();
+				long pendingNanos = 0; // recorded jmx and http time of the refresh being replayed
+				CapturedPayload payload;
+				while ((payload = reader.next()) != null) {
+					if (firstTimestamp < 0) {
+						firstTimestamp = payload.getTimestamp();
+					}
+					pendingNanos += payload.getJmxNanos() + payload.getHttpNanos();
+					if (payload.getType() == RefreshStatistics.Payload.SNAPSHOTS) {
+						context.setSnapshots(payload.getPayload());
+						continue;
+					}
+					if (!context.hasSnapshots()) {
+						// Capture started between the snapshots and metrics of a refresh
+						skipped++;
+						pendingNanos = 0;
+						continue;
+					}
+					context.setMetrics(payload.getPayload());
+					if (recordedPace) {
+						long waitMs = (payload.getTimestamp() - firstTimestamp) - (System.nanoTime() - loopStart) / 1000000;
+						if (waitMs > 0) {
+							Thread.sleep(waitMs);
+						}
+					}
+
+					long start = System.nanoTime();
+					if (tracker == null) {
+						// The first lookup does the refresh itself (NO_REFRESH)
+						tracker = StreamsInstanceTrackerRegistry.getInstanceTracker(instanceName);
+					} else {
+						tracker.refresh();
+					}
+					refreshNanos.add(System.nanoTime() - start);
+					recordedNanos += pendingNanos;
+					recordedRefreshes++;
+					pendingNanos = 0;
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		long wallNanos = System.nanoTime() - wallStart;
+
+		report(instanceName, tracker, wallNanos);
+		StreamsInstanceTrackerRegistry.shutdown();
+	}
+
+	public static void main(String[] args) throws Exception {
+		ReplayConfig config = new ReplayConfig();
+		JCommander jc = new JCommander(config);
+		jc.setProgramName("CaptureReplay");
+		try {
+			jc.parse(args);
+			if (!config.pace.matches("(?i)fast|recorded")) {
+				throw new ParameterException("--pace must be fast or recorded: " + config.pace);
+			}
+			if (config.loops < 1) {
+				throw new ParameterException("--loops must be at least 1");
+			}
+		} catch (ParameterException e) {
+			System.out.println(e.getLocalizedMessage());
+			jc.usage();
+			System.exit(1);
+		}
+		if (config.help) {
+			jc.usage();
+			System.exit(0);
+		}
+		new CaptureReplay(config).run();
+	}
+
+	/************************* Internal Methods *************************/
+
+	private String instanceName() throws IOException {
+		PayloadCaptureReader reader = new PayloadCaptureReader(capture);
+		try {
+			if (reader.next() == null || reader.getInstanceName() == null) {
+				throw new IOException("Capture " + capture + " has no payloads");
+			}
+			return reader.getInstanceName();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void report(String instanceName, StreamsInstanceTracker tracker, long wallNanos) {
+		System.out.println("capture:  " + capture + " (instance " + instanceName + ")");
+		System.out.println(String.format("replayed: %d refreshes in %.1f s, pace %s, %d loop(s), %d metrics payloads skipped",
+				refreshNanos.size(), wallNanos / 1e9, config.pace, config.loops, skipped));
+		if (refreshNanos.isEmpty()) {
+			return;
+		}
+		List<Long> sorted = new ArrayList<Long>(refreshNanos);
+		Collections.sort(sorted);
+		long total = 0;
+		for (long nanos : sorted) {
+			total += nanos;
+		}
+		System.out.println(String.format("%12s %12s %12s %12s %12s %14s",
+				"refresh_ms", "mean", "p50", "p95", "max", "recorded_io_ms"));
+		System.out.println(String.format("%12s %12.2f %12.2f %12.2f %12.2f %14.2f", "",
+				total / 1e6 / sorted.size(),
+				sorted.get(sorted.size() / 2) / 1e6,
+				sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(sorted.size() * 0.95) - 1)) / 1e6,
+				sorted.get(sorted.size() - 1) / 1e6,
+				recordedNanos / 1e6 / recordedRefreshes));
+
+		RefreshStatistics stats = tracker.getRefreshStatistics();
+		System.out.println("phase mean ms:");
+		for (Phase phase : Phase.values()) {
+			FixedBucketHistogram histogram = stats.getPhaseSeconds(phase);
+			long[] counts = histogram.getCumulativeCounts();
+			long count = counts[counts.length - 1];
+			System.out.println(String.format("  %-18s %10.2f", phase,
+					(count > 0 ? histogram.getSum() * 1000 / count : Double.NaN)));
+		}
+	}
+}
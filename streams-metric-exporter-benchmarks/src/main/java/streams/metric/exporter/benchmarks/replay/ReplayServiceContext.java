@@ -0,0 +1,162 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.replay;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import com.ibm.streams.management.instance.InstanceMXBean;
+
+import streams.metric.exporter.httpclient.WebClient;
+import streams.metric.exporter.httpclient.WebClientException;
+import streams.metric.exporter.jmx.JmxServiceContext;
+import streams.metric.exporter.jmx.MXBeanSource;
+import streams.metric.exporter.jmx.MXBeanSourceProvider;
+import streams.metric.exporter.jmx.MXBeanSourceProviderListener;
+
+/*
+ * ReplayServiceContext
+ *
+ * JmxServiceContext that serves captured payloads instead of talking to a
+ * Streams domain.  The instance bean is always running and healthy with no
+ * resources, its snapshotJobs and snapshotJobMetrics calls return fixed
+ * URIs, and the web client answers those URIs with whatever payloads the
+ * replay driver set last.  Everything else the tracker does with the
+ * payloads is the real code.
+ */
+public class ReplayServiceContext implements JmxServiceContext {
+
+	static final String SNAPSHOTS_URI = "replay://snapshots";
+	static final String METRICS_URI = "replay://metrics";
+
+	// Start time never changes so the tracker never sees a restart
+	private static final Long START_TIME = Long.valueOf(0);
+
+	private final MXBeanSource beanSource;
+	private final WebClient webClient = new ReplayWebClient();
+
+	private volatile String snapshots = null;
+	private volatile String metrics = null;
+
+	public ReplayServiceContext() {
+		final InstanceMXBean instance = proxy(InstanceMXBean.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("getStatus")) {
+					return InstanceMXBean.Status.RUNNING;
+				} else if (name.equals("retrieveJobHealthSummary")) {
+					return InstanceMXBean.JobHealthSummary.HEALTHY;
+				} else if (name.equals("getStartTime")) {
+					return START_TIME;
+				} else if (name.equals("getResources")) {
+					return Collections.emptySet();
+				} else if (name.equals("retrieveResourceMetrics")) {
+					return Collections.emptyMap();
+				} else if (name.equals("snapshotJobs")) {
+					return SNAPSHOTS_URI;
+				} else if (name.equals("snapshotJobMetrics")) {
+					return METRICS_URI;
+				}
+				return objectMethod(proxy, method, args);
+			}
+		});
+		this.beanSource = proxy(MXBeanSource.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getInstanceBean")) {
+					return instance;
+				}
+				return objectMethod(proxy, method, args);
+			}
+		});
+	}
+
+	public void setSnapshots(String snapshots) {
+		this.snapshots = snapshots;
+	}
+
+	public boolean hasSnapshots() {
+		return snapshots != null;
+	}
+
+	public void setMetrics(String metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public MXBeanSourceProvider getBeanSourceProvider() {
+		return new MXBeanSourceProvider() {
+			@Override
+			public MXBeanSource getBeanSource() {
+				return beanSource;
+			}
+
+			@Override
+			public void addBeanSourceProviderListener(MXBeanSourceProviderListener listener) {
+				// The replayed connection never changes
+			}
+		};
+	}
+
+	@Override
+	public WebClient getWebClient() {
+		return webClient;
+	}
+
+	/************************* Internal Methods *************************/
+
+	private class ReplayWebClient implements WebClient {
+		@Override
+		public String get(String fromUri) throws WebClientException {
+			String payload = null;
+			if (SNAPSHOTS_URI.equals(fromUri)) {
+				payload = snapshots;
+			} else if (METRICS_URI.equals(fromUri)) {
+				payload = metrics;
+			}
+			if (payload == null) {
+				throw new WebClientException("No captured payload to replay for " + fromUri);
+			}
+			return payload;
+		}
+
+		@Override
+		public String get(String fromUri, String host, String port) throws WebClientException {
+			return get(fromUri);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+	}
+
+	private static Object objectMethod(Object proxy, Method method, Object[] args) {
+		String name = method.getName();
+		if (name.equals("hashCode")) {
+			return System.identityHashCode(proxy);
+		} else if (name.equals("equals")) {
+			return proxy == args[0];
+		} else if (name.equals("toString")) {
+			return "replay " + method.getDeclaringClass().getSimpleName();
+		}
+		throw new UnsupportedOperationException(method.getName() + " is not available when replaying a capture");
+	}
+}
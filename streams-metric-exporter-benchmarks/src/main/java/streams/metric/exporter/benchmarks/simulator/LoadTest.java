@@ -0,0 +1,255 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.ParametersDelegate;
+
+import streams.metric.exporter.Launcher;
+
+/*
+ * LoadTest
+ *
+ * Runs the real exporter (Launcher) end to end against a StreamsSimulator in
+ * the same JVM and grows the simulated instance through a list of job
+ * counts.  For each stage it reports:
+ *   * refresh latency   mean of streams_exporter_refresh_phase_seconds{phase="total"}
+ *   * scrape latency    client side time of GET /metrics
+ *   * heap              used heap after a gc, exporter and simulator together
+ * Churn (--churninterval) keeps running through all the stages.
+ */
+public class LoadTest {
+
+	public static class LoadTestConfig {
+		@ParametersDelegate
+		private SimulatorConfig simulator = new SimulatorConfig();
+
+		@Parameter(names = "--stages", description = "Comma separated job counts to grow the instance through")
+		private String stages = "10,50,100,200";
+
+		@Parameter(names = "--exporterport", description = "Port of the exporter under test")
+		private int exporterPort = 25599;
+
+		@Parameter(names = "--refresh", description = "Exporter refresh rate in seconds, 0 refreshes on each scrape")
+		private int refresh = 0;
+
+		@Parameter(names = "--metricstore", description = "Exporter metric store (columnar|gauge)")
+		private String metricStore = "columnar";
+
+		@Parameter(names = "--loglevel", description = "Exporter log level")
+		private String loglevel = "warn";
+
+		@Parameter(names = "--warmup", description = "Scrapes before measuring each stage")
+		private int warmup = 3;
+
+		@Parameter(names = "--scrapes", description = "Measured scrapes per stage")
+		private int scrapes = 10;
+
+		@Parameter(names = "--scrapeinterval", description = "Milliseconds between scrapes")
+		private long scrapeInterval = 1000;
+	}
+
+	private final LoadTestConfig config;
+	private final StreamsSimulator simulator;
+	private final String metricsUrl;
+
+	public LoadTest(LoadTestConfig config, StreamsSimulator simulator) {
+		this.config = config;
+		this.simulator = simulator;
+		this.metricsUrl = "http://localhost:" + config.exporterPort + "/metrics";
+	}
+
+	public void run() throws Exception {
+		System.out.println(String.format("%8s %8s %10s %12s %12s %12s %12s %12s %10s",
+				"jobs", "pes", "series", "snapshot_kb", "metrics_kb", "refresh_ms", "scrape_p50", "scrape_max", "heap_mb"));
+		for (int jobs : parseStages(config.stages)) {
+			simulator.setJobs(jobs);
+			for (int i = 0; i < config.warmup; i++) {
+				scrape();
+				Thread.sleep(config.scrapeInterval);
+			}
+
+			String text = scrape().text;
+			double refreshSum = sampleValue(text, "streams_exporter_refresh_phase_seconds_sum", "phase=\"total\"");
+			double refreshCount = sampleValue(text, "streams_exporter_refresh_phase_seconds_count", "phase=\"total\"");
+
+			List<Long> scrapeNanos = new ArrayList<Long>();
+			for (int i = 0; i < config.scrapes; i++) {
+				Thread.sleep(config.scrapeInterval);
+				Scrape scrape = scrape();
+				scrapeNanos.add(scrape.nanos);
+				text = scrape.text;
+			}
+			Collections.sort(scrapeNanos);
+
+			double refreshes = sampleValue(text, "streams_exporter_refresh_phase_seconds_count", "phase=\"total\"") - refreshCount;
+			double refreshSeconds = sampleValue(text, "streams_exporter_refresh_phase_seconds_sum", "phase=\"total\"") - refreshSum;
+
+			System.gc();
+			long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+			System.out.println(String.format("%8d %8d %10.0f %12d %12d %12.1f %12.1f %12.1f %10d",
+					simulator.getInstance().getJobCount(),
+					simulator.getInstance().getJobCount() * config.simulator.getPes(),
+					sampleValue(text, "streams_exporter_series", null),
+					simulator.getHttpsServer().getLastSnapshotBytes() / 1024,
+					simulator.getHttpsServer().getLastMetricsBytes() / 1024,
+					(refreshes > 0 ? refreshSeconds * 1000 / refreshes : Double.NaN),
+					scrapeNanos.get(scrapeNanos.size() / 2) / 1e6,
+					scrapeNanos.get(scrapeNanos.size() - 1) / 1e6,
+					heapUsed / (1024 * 1024)));
+		}
+		if (config.simulator.getChurnInterval() > 0) {
+			System.out.println(String.format("churn: jobs added %d, jobs removed %d, pe restarts %d",
+					simulator.getInstance().getJobsAdded(), simulator.getInstance().getJobsRemoved(),
+					simulator.getInstance().getPeRestarts()));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestConfig config = new LoadTestConfig();
+		JCommander jc = new JCommander(config);
+		jc.setProgramName("LoadTest");
+		try {
+			jc.parse(args);
+			if (config.scrapes < 1) {
+				throw new ParameterException("--scrapes must be at least 1");
+			}
+			parseStages(config.stages);
+		} catch (ParameterException e) {
+			System.out.println(e.getLocalizedMessage());
+			jc.usage();
+			System.exit(1);
+		}
+		if (config.simulator.isHelp()) {
+			jc.usage();
+			System.exit(0);
+		}
+
+		StreamsSimulator simulator = new StreamsSimulator(config.simulator);
+		simulator.start();
+
+		// The real exporter, started the same way as from the command line
+		Launcher.main(new String[] {
+				"-j", simulator.getJmxUrl(),
+				"-i", config.simulator.getInstanceName(),
+				"-u", "simulator", "--password", "simulator",
+				"--jmxssloption", config.simulator.getSslProtocol(),
+				"-h", "localhost", "-p", Integer.toString(config.exporterPort),
+				"-r", Integer.toString(config.refresh),
+				"--metricstore", config.metricStore,
+				"-l", config.loglevel });
+
+		int exitCode = 0;
+		try {
+			new LoadTest(config, simulator).run();
+		} catch (Exception e) {
+			System.out.println("Load test failed: " + e);
+			exitCode = 1;
+		} finally {
+			simulator.stop();
+		}
+		// The exporter has no shutdown api, exit to stop it
+		System.exit(exitCode);
+	}
+
+	/************************* Internal Methods *************************/
+
+	private static class Scrape {
+		final String text;
+		final long nanos;
+
+		Scrape(String text, long nanos) {
+			this.text = text;
+			this.nanos = nanos;
+		}
+	}
+
+	private Scrape scrape() throws IOException {
+		long start = System.nanoTime();
+		HttpURLConnection conn = (HttpURLConnection) new URL(metricsUrl).openConnection();
+		try {
+			conn.setRequestMethod("GET");
+			if (conn.getResponseCode() != 200) {
+				throw new IOException("GET " + metricsUrl + " returned " + conn.getResponseCode());
+			}
+			InputStream in = conn.getInputStream();
+			try {
+				String text = new String(readFully(in), StandardCharsets.UTF_8);
+				return new Scrape(text, System.nanoTime() - start);
+			} finally {
+				in.close();
+			}
+		} finally {
+			conn.disconnect();
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[65536];
+		int len;
+		while ((len = in.read(buffer)) > -1) {
+			out.write(buffer, 0, len);
+		}
+		return out.toByteArray();
+	}
+
+	/* Sum of the samples with the name whose labels contain labelMatch (any labels if null) */
+	static double sampleValue(String text, String name, String labelMatch) {
+		double sum = 0;
+		for (String line : text.split("\n")) {
+			if (!line.startsWith(name)) {
+				continue;
+			}
+			String rest = line.substring(name.length());
+			if (!(rest.startsWith("{") || rest.startsWith(" "))) {
+				continue; // longer metric name with the same prefix
+			}
+			if (labelMatch != null && !rest.contains(labelMatch)) {
+				continue;
+			}
+			sum += Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+		}
+		return sum;
+	}
+
+	private static List<Integer> parseStages(String stages) {
+		List<Integer> jobs = new ArrayList<Integer>();
+		try {
+			for (String stage : stages.split(",")) {
+				jobs.add(Integer.parseInt(stage.trim()));
+			}
+		} catch (NumberFormatException e) {
+			throw new ParameterException("--stages must be a comma separated list of job counts: " + stages);
+		}
+		return jobs;
+	}
+}
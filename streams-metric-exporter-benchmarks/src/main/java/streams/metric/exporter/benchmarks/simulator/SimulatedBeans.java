@@ -0,0 +1,264 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.simulator;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import com.ibm.streams.management.Metric;
+import com.ibm.streams.management.ObjectNameBuilder;
+import com.ibm.streams.management.instance.InstanceMXBean;
+import com.ibm.streams.management.job.JobMXBean;
+import com.ibm.streams.management.job.PeMXBean;
+import com.ibm.streams.management.resource.ResourceMXBean;
+
+import streams.metric.exporter.benchmarks.SyntheticPayloads;
+
+/*
+ * SimulatedBeans
+ *
+ * Registers fake InstanceMXBean, ResourceMXBean, JobMXBean and PeMXBean
+ * implementations under the Streams object names.  The Streams interfaces
+ * are large, so each bean is a proxy that answers the operations the
+ * exporter and the jmx client use and throws UnsupportedOperationException
+ * for the rest.  Job and pe beans follow the jobs of the instance, sync()
+ * after the simulated instance changes.
+ */
+public class SimulatedBeans {
+
+	private static final String[] RESOURCE_METRICS = { "cpuSpeed", "loadAverage", "memoryFree", "memoryTotal",
+			"numberCpus", "networkRx", "networkTx" };
+
+	private final MBeanServer mbeanServer;
+	private final SimulatedInstance instance;
+	private final SnapshotHttpsServer httpsServer;
+
+	// job number -> job and pe object names
+	private final Map<Integer, List<ObjectName>> registeredJobs = new HashMap<Integer, List<ObjectName>>();
+
+	public SimulatedBeans(MBeanServer mbeanServer, SimulatedInstance instance, SnapshotHttpsServer httpsServer) {
+		this.mbeanServer = mbeanServer;
+		this.instance = instance;
+		this.httpsServer = httpsServer;
+	}
+
+	/* Operation implementation of a simulated bean */
+	interface Operation {
+		Object invoke(Object[] args) throws Exception;
+	}
+
+	public void registerInstance() throws JMException {
+		Map<String, Operation> operations = new HashMap<String, Operation>();
+		operations.put("getName", constant(instance.getName()));
+		operations.put("getStatus", constant(InstanceMXBean.Status.RUNNING));
+		operations.put("getStartTime", constant(instance.getStartTime()));
+		operations.put("retrieveJobHealthSummary", constant(InstanceMXBean.JobHealthSummary.HEALTHY));
+		operations.put("getResources", new Operation() {
+			public Object invoke(Object[] args) {
+				return resourceIds();
+			}
+		});
+		operations.put("getJobs", new Operation() {
+			public Object invoke(Object[] args) {
+				Set<String> jobIds = new HashSet<String>();
+				for (int job : instance.getJobNumbers()) {
+					jobIds.add(SyntheticPayloads.jobId(job));
+				}
+				return jobIds;
+			}
+		});
+		operations.put("snapshotJobs", new Operation() {
+			public Object invoke(Object[] args) {
+				return httpsServer.getSnapshotsUrl();
+			}
+		});
+		operations.put("snapshotJobMetrics", new Operation() {
+			public Object invoke(Object[] args) {
+				return httpsServer.getMetricsUrl();
+			}
+		});
+		operations.put("retrieveResourceMetrics", new Operation() {
+			public Object invoke(Object[] args) {
+				Map<String, Set<Metric>> metrics = new HashMap<String, Set<Metric>>();
+				for (String resourceId : resourceIds()) {
+					metrics.put(resourceId, resourceMetrics());
+				}
+				return metrics;
+			}
+		});
+		register(InstanceMXBean.class, operations, ObjectNameBuilder.instance(instance.getName()));
+
+		for (int r = 0; r < SyntheticPayloads.RESOURCES; r++) {
+			registerResource(SyntheticPayloads.resourceId(r), r == 0);
+		}
+	}
+
+	/* Register beans of new jobs and unregister beans of removed jobs */
+	public synchronized void sync() throws JMException {
+		Set<Integer> current = new HashSet<Integer>(instance.getJobNumbers());
+		for (Integer job : new ArrayList<Integer>(registeredJobs.keySet())) {
+			if (!current.contains(job)) {
+				for (ObjectName name : registeredJobs.remove(job)) {
+					if (mbeanServer.isRegistered(name)) {
+						mbeanServer.unregisterMBean(name);
+					}
+				}
+			}
+		}
+		for (Integer job : current) {
+			if (!registeredJobs.containsKey(job)) {
+				registeredJobs.put(job, registerJob(job));
+			}
+		}
+	}
+
+	/************************* Internal Methods *************************/
+
+	private void registerResource(final String resourceId, boolean serviceResource) throws JMException {
+		Map<String, Operation> operations = new HashMap<String, Operation>();
+		operations.put("getId", constant(resourceId));
+		operations.put("getDisplayName", constant(resourceId));
+		operations.put("getIpAddress", constant("127.0.0.1"));
+		operations.put("getStatus", constant(ResourceMXBean.Status.RUNNING));
+		operations.put("isApplicationResource", constant(true));
+		operations.put("isServiceResource", constant(serviceResource));
+		operations.put("retrieveMetrics", new Operation() {
+			public Object invoke(Object[] args) {
+				return resourceMetrics();
+			}
+		});
+		register(ResourceMXBean.class, operations, ObjectNameBuilder.resource(instance.getName(), resourceId));
+	}
+
+	private List<ObjectName> registerJob(final int job) throws JMException {
+		final SyntheticPayloads payloads = instance.getPayloads();
+		final String jobId = SyntheticPayloads.jobId(job);
+		List<ObjectName> names = new ArrayList<ObjectName>();
+
+		Set<String> peIds = new HashSet<String>();
+		for (int p = 0; p < payloads.getPes(); p++) {
+			peIds.add(payloads.peId(job, p));
+		}
+
+		Map<String, Operation> operations = new HashMap<String, Operation>();
+		operations.put("getId", constant(jobId));
+		operations.put("getName", constant(SyntheticPayloads.jobName(job)));
+		operations.put("getInstance", constant(instance.getName()));
+		operations.put("getStatus", constant(JobMXBean.Status.RUNNING));
+		operations.put("getHealth", constant(JobMXBean.Health.HEALTHY));
+		operations.put("getSubmitTime", constant(instance.getStartTime()));
+		operations.put("getPes", constant(peIds));
+		ObjectName jobName = ObjectNameBuilder.job(instance.getName(), jobId);
+		register(JobMXBean.class, operations, jobName);
+		names.add(jobName);
+
+		for (int p = 0; p < payloads.getPes(); p++) {
+			final int pe = p;
+			operations = new HashMap<String, Operation>();
+			operations.put("getId", constant(payloads.peId(job, pe)));
+			operations.put("getJob", constant(jobId));
+			operations.put("getInstance", constant(instance.getName()));
+			operations.put("getIndexWithinJob", constant(pe));
+			operations.put("getStatus", constant(PeMXBean.Status.RUNNING));
+			operations.put("getHealth", constant(PeMXBean.Health.HEALTHY));
+			operations.put("getLaunchCount", new Operation() {
+				public Object invoke(Object[] args) {
+					return (int) payloads.getLaunchCount(job, pe);
+				}
+			});
+			operations.put("getResource", new Operation() {
+				public Object invoke(Object[] args) {
+					return payloads.getResource(job, pe);
+				}
+			});
+			ObjectName peName = ObjectNameBuilder.pe(instance.getName(), payloads.peId(job, pe));
+			register(PeMXBean.class, operations, peName);
+			names.add(peName);
+		}
+		return names;
+	}
+
+	private <T> void register(Class<T> beanInterface, Map<String, Operation> operations, ObjectName name)
+			throws JMException {
+		T bean = beanInterface.cast(Proxy.newProxyInstance(beanInterface.getClassLoader(),
+				new Class<?>[] { beanInterface }, new OperationHandler(name, operations)));
+		mbeanServer.registerMBean(new StandardMBean(bean, beanInterface, true), name);
+	}
+
+	private static Set<String> resourceIds() {
+		Set<String> resourceIds = new HashSet<String>();
+		for (int r = 0; r < SyntheticPayloads.RESOURCES; r++) {
+			resourceIds.add(SyntheticPayloads.resourceId(r));
+		}
+		return resourceIds;
+	}
+
+	private static Set<Metric> resourceMetrics() {
+		Set<Metric> metrics = new HashSet<Metric>();
+		long now = System.currentTimeMillis();
+		for (int m = 0; m < RESOURCE_METRICS.length; m++) {
+			metrics.add(new SimulatedMetric(RESOURCE_METRICS[m], (now / 1000) % 1000 + m));
+		}
+		return metrics;
+	}
+
+	private static Operation constant(final Object value) {
+		return new Operation() {
+			public Object invoke(Object[] args) {
+				return value;
+			}
+		};
+	}
+
+	private static class OperationHandler implements InvocationHandler {
+		private final ObjectName name;
+		private final Map<String, Operation> operations;
+
+		OperationHandler(ObjectName name, Map<String, Operation> operations) {
+			this.name = name;
+			this.operations = operations;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				if (method.getName().equals("equals")) {
+					return proxy == args[0];
+				} else if (method.getName().equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				}
+				return "Simulated " + name;
+			}
+			Operation operation = operations.get(method.getName());
+			if (operation == null) {
+				throw new UnsupportedOperationException(method.getName() + " is not simulated by " + name);
+			}
+			return operation.invoke(args);
+		}
+	}
+}
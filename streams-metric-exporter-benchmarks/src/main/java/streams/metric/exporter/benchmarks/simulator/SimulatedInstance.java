@@ -0,0 +1,142 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import streams.metric.exporter.benchmarks.SyntheticPayloads;
+
+/*
+ * SimulatedInstance
+ *
+ * State of a simulated Streams instance: the running jobs (by job number),
+ * their shape and pe launch counts, and the payloads served for
+ * snapshotJobs and snapshotJobMetrics.  Scale and churn change the state,
+ * the beans and the https server read it.
+ */
+public class SimulatedInstance {
+
+	private final String name;
+	private final SyntheticPayloads payloads;
+	private final Random random;
+	private final long startTime = System.currentTimeMillis();
+
+	private final TreeSet<Integer> jobNumbers = new TreeSet<Integer>();
+	private int nextJob = 0;
+	private int metricsIteration = 0;
+
+	private long jobsAdded = 0;
+	private long jobsRemoved = 0;
+	private long peRestarts = 0;
+
+	public SimulatedInstance(String name, int jobs, int pes, int operators, int ports, long seed) {
+		this.name = name;
+		this.payloads = new SyntheticPayloads(name, 0, pes, operators, ports, seed);
+		this.random = new Random(seed);
+		setJobs(jobs);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public SyntheticPayloads getPayloads() {
+		return payloads;
+	}
+
+	public synchronized List<Integer> getJobNumbers() {
+		return new ArrayList<Integer>(jobNumbers);
+	}
+
+	public synchronized int getJobCount() {
+		return jobNumbers.size();
+	}
+
+	public synchronized long getJobsAdded() {
+		return jobsAdded;
+	}
+
+	public synchronized long getJobsRemoved() {
+		return jobsRemoved;
+	}
+
+	public synchronized long getPeRestarts() {
+		return peRestarts;
+	}
+
+	/* Grow by submitting new jobs or shrink by cancelling the oldest jobs */
+	public synchronized void setJobs(int jobs) {
+		while (jobNumbers.size() < jobs) {
+			addJob();
+		}
+		while (jobNumbers.size() > jobs) {
+			removeJob(jobNumbers.first());
+		}
+	}
+
+	/* Replace random jobs with newly submitted ones and restart random pes */
+	public synchronized void churn(int jobsReplaced, int pesRestarted) {
+		for (int i = 0; i < jobsReplaced && !jobNumbers.isEmpty(); i++) {
+			removeJob(randomJob());
+			addJob();
+		}
+		if (payloads.getPes() > 0) {
+			for (int i = 0; i < pesRestarted && !jobNumbers.isEmpty(); i++) {
+				payloads.restartPe(randomJob(), random.nextInt(payloads.getPes()));
+				peRestarts++;
+			}
+		}
+	}
+
+	/* Document served for the url returned by snapshotJobs */
+	public String snapshotJobs() {
+		return payloads.snapshots(getJobNumbers());
+	}
+
+	/* Document served for the url returned by snapshotJobMetrics, values change on every call */
+	public String snapshotJobMetrics() {
+		int iteration;
+		synchronized (this) {
+			iteration = metricsIteration++;
+		}
+		return payloads.metrics(getJobNumbers(), iteration);
+	}
+
+	/************************* Internal Methods *************************/
+
+	private void addJob() {
+		jobNumbers.add(nextJob++);
+		jobsAdded++;
+	}
+
+	private void removeJob(int job) {
+		jobNumbers.remove(job);
+		jobsRemoved++;
+	}
+
+	private int randomJob() {
+		List<Integer> current = new ArrayList<Integer>(jobNumbers);
+		return current.get(random.nextInt(current.size()));
+	}
+}
@@ -0,0 +1,89 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.simulator;
+
+import com.ibm.streams.management.Metric;
+import com.ibm.streams.management.ThroughputRates;
+import com.ibm.streams.management.ValueDistribution;
+
+/*
+ * SimulatedMetric
+ *
+ * Resource metric returned by retrieveResourceMetrics.  A plain class rather
+ * than a proxy because the MXBean layer puts it in a Set.
+ */
+public class SimulatedMetric implements Metric {
+
+	private final String name;
+	private final long value;
+	private final long lastTimeRetrieved = System.currentTimeMillis();
+
+	public SimulatedMetric(String name, long value) {
+		this.name = name;
+		this.value = value;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return "Simulated metric " + name;
+	}
+
+	public Kind getMetricKind() {
+		return Kind.GAUGE;
+	}
+
+	public Type getMetricType() {
+		return Type.SYSTEM;
+	}
+
+	public ValueType getValueType() {
+		return ValueType.LONG;
+	}
+
+	public ThroughputRates getThroughputRates() {
+		return null;
+	}
+
+	public ValueDistribution getValueDistribution() {
+		return null;
+	}
+
+	public long getLastTimeRetrieved() {
+		return lastTimeRetrieved;
+	}
+
+	public double getValueAsDouble() {
+		return value;
+	}
+
+	public long getValueAsLong() {
+		return value;
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof SimulatedMetric && ((SimulatedMetric) obj).name.equals(name));
+	}
+}
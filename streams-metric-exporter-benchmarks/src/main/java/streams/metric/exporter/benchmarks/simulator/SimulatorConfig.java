@@ -0,0 +1,133 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.simulator;
+
+import com.beust.jcommander.Parameter;
+
+/*
+ * SimulatorConfig
+ *
+ * Command line options of the simulated Streams instance, shared by the
+ * standalone StreamsSimulator and the LoadTest.
+ */
+public class SimulatorConfig {
+
+	@Parameter(names = "--help", description = "Display command line arguments", help = true)
+	private boolean help;
+
+	@Parameter(names = "--instance", description = "Name of the simulated Streams instance")
+	private String instanceName = "StreamsInstance";
+
+	@Parameter(names = "--jobs", description = "Jobs running in the simulated instance")
+	private int jobs = 10;
+
+	@Parameter(names = "--pes", description = "PEs per job")
+	private int pes = 10;
+
+	@Parameter(names = "--operators", description = "Operators per PE")
+	private int operators = 5;
+
+	@Parameter(names = "--ports", description = "Input and output ports per PE and per operator")
+	private int ports = 2;
+
+	@Parameter(names = "--seed", description = "Seed of the generated payloads and churn")
+	private long seed = 42L;
+
+	@Parameter(names = "--simhost", description = "Host the simulated JMX and https servers listen on")
+	private String host = "localhost";
+
+	@Parameter(names = "--jmxport", description = "Port of the simulated JMX (RMI) server")
+	private int jmxPort = 9975;
+
+	@Parameter(names = "--httpport", description = "Port of the simulated https snapshot server, 0 for any free port")
+	private int httpPort = 0;
+
+	@Parameter(names = "--sslprotocol", description = "SSL protocol of the simulated https snapshot server")
+	private String sslProtocol = "TLSv1.2";
+
+	@Parameter(names = "--churninterval", description = "Seconds between churn events, 0 for no churn")
+	private int churnInterval = 0;
+
+	@Parameter(names = "--jobchurn", description = "Jobs replaced (cancelled and a new one submitted) per churn event")
+	private int jobChurn = 1;
+
+	@Parameter(names = "--perestarts", description = "PEs restarted per churn event, a restarted PE moves to the next resource")
+	private int peRestarts = 5;
+
+	public boolean isHelp() {
+		return help;
+	}
+
+	public String getInstanceName() {
+		return instanceName;
+	}
+
+	public int getJobs() {
+		return jobs;
+	}
+
+	public int getPes() {
+		return pes;
+	}
+
+	public int getOperators() {
+		return operators;
+	}
+
+	public int getPorts() {
+		return ports;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getJmxPort() {
+		return jmxPort;
+	}
+
+	public int getHttpPort() {
+		return httpPort;
+	}
+
+	public String getSslProtocol() {
+		return sslProtocol;
+	}
+
+	public int getChurnInterval() {
+		return churnInterval;
+	}
+
+	public int getJobChurn() {
+		return jobChurn;
+	}
+
+	public int getPeRestarts() {
+		return peRestarts;
+	}
+
+	@Override
+	public String toString() {
+		return "instance: " + instanceName + ", jobs: " + jobs + ", pes: " + pes + ", operators: " + operators
+				+ ", ports: " + ports + ", churn every " + churnInterval + "s (jobs: " + jobChurn + ", pe restarts: "
+				+ peRestarts + ")";
+	}
+}
@@ -0,0 +1,192 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.simulator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/*
+ * SnapshotHttpsServer
+ *
+ * Stands in for the https server of the Streams JMX service that serves the
+ * documents behind the urls returned by snapshotJobs and snapshotJobMetrics.
+ * Documents are generated from the simulated instance when they are fetched.
+ *
+ * The certificate is a self signed one created with keytool in a temporary
+ * keystore, issued to the same name as the Streams JMX certificate so the
+ * exporter's default JmxTrustManager accepts it.
+ */
+public class SnapshotHttpsServer {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + SnapshotHttpsServer.class.getName());
+
+	static final String STREAMS_JMX_CERT_DNAME = "CN=www.ibm.com,OU=SWG,O=IBM,L=Rochester,ST=MN,C=US";
+	private static final String KEYSTORE_PASSWORD = "simulator";
+	private static final String SNAPSHOTS_PATH = "/streams/rest/snapshots/jobs";
+	private static final String METRICS_PATH = "/streams/rest/snapshots/metrics";
+
+	private final SimulatedInstance instance;
+	private final String host;
+	private final int port;
+	private final String sslProtocol;
+	private HttpsServer server;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong bytesServed = new AtomicLong();
+	private volatile long lastSnapshotBytes = 0;
+	private volatile long lastMetricsBytes = 0;
+
+	public SnapshotHttpsServer(SimulatedInstance instance, String host, int port, String sslProtocol) {
+		this.instance = instance;
+		this.host = host;
+		this.port = port;
+		this.sslProtocol = sslProtocol;
+	}
+
+	public void start() throws IOException {
+		SSLContext sslContext;
+		try {
+			sslContext = SSLContext.getInstance(sslProtocol);
+			sslContext.init(createKeyManagerFactory().getKeyManagers(), null, null);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Could not initialize the simulator https server SSL context", e);
+		}
+
+		server = HttpsServer.create(new InetSocketAddress(host, port), 0);
+		server.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+		server.createContext(SNAPSHOTS_PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				lastSnapshotBytes = respond(exchange, instance.snapshotJobs());
+			}
+		});
+		server.createContext(METRICS_PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				lastMetricsBytes = respond(exchange, instance.snapshotJobMetrics());
+			}
+		});
+		server.setExecutor(Executors.newFixedThreadPool(4));
+		server.start();
+		LOGGER.info("Simulator https server listening on {}", getBaseUrl());
+	}
+
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	public String getSnapshotsUrl() {
+		return getBaseUrl() + SNAPSHOTS_PATH;
+	}
+
+	public String getMetricsUrl() {
+		return getBaseUrl() + METRICS_PATH;
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getBytesServed() {
+		return bytesServed.get();
+	}
+
+	public long getLastSnapshotBytes() {
+		return lastSnapshotBytes;
+	}
+
+	public long getLastMetricsBytes() {
+		return lastMetricsBytes;
+	}
+
+	/************************* Internal Methods *************************/
+
+	private String getBaseUrl() {
+		return "https://" + host + ":" + server.getAddress().getPort();
+	}
+
+	private long respond(HttpExchange exchange, String document) throws IOException {
+		byte[] body = document.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(body);
+		} finally {
+			out.close();
+		}
+		requests.incrementAndGet();
+		bytesServed.addAndGet(body.length);
+		return body.length;
+	}
+
+	private KeyManagerFactory createKeyManagerFactory() throws IOException, GeneralSecurityException {
+		File keystoreFile = File.createTempFile("streams-simulator", ".jks");
+		keystoreFile.delete();
+		keystoreFile.deleteOnExit();
+
+		String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+		ProcessBuilder pb = new ProcessBuilder(keytool, "-genkeypair", "-noprompt", "-alias", "simulator",
+				"-keyalg", "RSA", "-keysize", "2048", "-validity", "30", "-dname", STREAMS_JMX_CERT_DNAME,
+				"-storetype", "JKS", "-keystore", keystoreFile.getAbsolutePath(),
+				"-storepass", KEYSTORE_PASSWORD, "-keypass", KEYSTORE_PASSWORD);
+		pb.redirectErrorStream(true);
+		Process keytoolProcess = pb.start();
+		try {
+			InputStream output = keytoolProcess.getInputStream();
+			while (output.read() >= 0) {
+				// drain
+			}
+			if (keytoolProcess.waitFor() != 0) {
+				throw new IOException("keytool failed to create the simulator certificate, exit code " + keytoolProcess.exitValue());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while creating the simulator certificate", e);
+		}
+
+		KeyStore keystore = KeyStore.getInstance("JKS");
+		FileInputStream in = new FileInputStream(keystoreFile);
+		try {
+			keystore.load(in, KEYSTORE_PASSWORD.toCharArray());
+		} finally {
+			in.close();
+		}
+		KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		kmf.init(keystore, KEYSTORE_PASSWORD.toCharArray());
+		return kmf;
+	}
+}
@@ -0,0 +1,200 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.benchmarks.simulator;
+
+import java.io.IOException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXAuthenticator;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.security.auth.Subject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
+/*
+ * StreamsSimulator
+ *
+ * A local stand in for a Streams 5 instance: an MBeanServer with simulated
+ * Streams beans behind an RMI JMX connector, and an https server with the
+ * snapshotJobs and snapshotJobMetrics documents.  Any user and password are
+ * accepted.  Optionally jobs are replaced and pes restarted on an interval.
+ *
+ * Run standalone and point an exporter at the printed JMX url, or use
+ * LoadTest to run the exporter in the same JVM.
+ */
+public class StreamsSimulator {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + StreamsSimulator.class.getName());
+
+	private final SimulatorConfig config;
+	private final SimulatedInstance instance;
+
+	private SnapshotHttpsServer httpsServer;
+	private SimulatedBeans beans;
+	private Registry registry;
+	private JMXConnectorServer connectorServer;
+	private ScheduledExecutorService churnScheduler;
+
+	public StreamsSimulator(SimulatorConfig config) {
+		this.config = config;
+		this.instance = new SimulatedInstance(config.getInstanceName(), config.getJobs(), config.getPes(),
+				config.getOperators(), config.getPorts(), config.getSeed());
+	}
+
+	public void start() throws IOException, JMException {
+		httpsServer = new SnapshotHttpsServer(instance, config.getHost(), config.getHttpPort(), config.getSslProtocol());
+		httpsServer.start();
+
+		MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+		beans = new SimulatedBeans(mbeanServer, instance, httpsServer);
+		beans.registerInstance();
+		beans.sync();
+
+		// Registry and connector share the port so only one port needs to be known
+		registry = LocateRegistry.createRegistry(config.getJmxPort());
+		String hostPort = config.getHost() + ":" + config.getJmxPort();
+		JMXServiceURL url = new JMXServiceURL("service:jmx:rmi://" + hostPort + "/jndi/rmi://" + hostPort + "/jmxrmi");
+		Map<String, Object> env = new HashMap<String, Object>();
+		env.put(JMXConnectorServer.AUTHENTICATOR, new JMXAuthenticator() {
+			public Subject authenticate(Object credentials) {
+				return new Subject();
+			}
+		});
+		connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(url, env, mbeanServer);
+		connectorServer.start();
+		LOGGER.info("Simulator JMX server listening on {}", getJmxUrl());
+
+		if (config.getChurnInterval() > 0) {
+			churnScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "StreamsSimulator-churn");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			churnScheduler.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					churn(config.getJobChurn(), config.getPeRestarts());
+				}
+			}, config.getChurnInterval(), config.getChurnInterval(), TimeUnit.SECONDS);
+		}
+	}
+
+	public void stop() {
+		if (churnScheduler != null) {
+			churnScheduler.shutdownNow();
+		}
+		if (connectorServer != null) {
+			try {
+				connectorServer.stop();
+			} catch (IOException e) {
+				LOGGER.warn("Error stopping the simulator JMX server: {}", e.getMessage());
+			}
+		}
+		if (registry != null) {
+			try {
+				UnicastRemoteObject.unexportObject(registry, true);
+			} catch (NoSuchObjectException e) {
+				// already gone
+			}
+		}
+		if (httpsServer != null) {
+			httpsServer.stop();
+		}
+	}
+
+	public String getJmxUrl() {
+		return connectorServer.getAddress().toString();
+	}
+
+	public SimulatedInstance getInstance() {
+		return instance;
+	}
+
+	public SnapshotHttpsServer getHttpsServer() {
+		return httpsServer;
+	}
+
+	/* Grow or shrink the instance to the number of jobs */
+	public void setJobs(int jobs) throws JMException {
+		instance.setJobs(jobs);
+		beans.sync();
+	}
+
+	public void churn(int jobsReplaced, int pesRestarted) {
+		instance.churn(jobsReplaced, pesRestarted);
+		try {
+			beans.sync();
+		} catch (JMException e) {
+			LOGGER.warn("Error updating the simulated job beans after churn: {}", e.getMessage());
+		}
+	}
+
+	public static void main(String[] args) {
+		SimulatorConfig config = new SimulatorConfig();
+		JCommander jc = new JCommander(config);
+		jc.setProgramName("StreamsSimulator");
+		try {
+			jc.parse(args);
+		} catch (ParameterException e) {
+			System.out.println(e.getLocalizedMessage());
+			jc.usage();
+			System.exit(1);
+		}
+		if (config.isHelp()) {
+			jc.usage();
+			System.exit(0);
+		}
+
+		final StreamsSimulator simulator = new StreamsSimulator(config);
+		try {
+			simulator.start();
+		} catch (Exception e) {
+			System.out.println("Streams simulator failed to start: " + e);
+			simulator.stop();
+			System.exit(1);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				simulator.stop();
+			}
+		});
+
+		System.out.println("Streams simulator STARTED, " + config);
+		System.out.println("  JMX url: " + simulator.getJmxUrl());
+		System.out.println("  Exporter options: -j " + simulator.getJmxUrl() + " -i " + config.getInstanceName()
+				+ " -u simulator --password simulator");
+		// The RMI and https server threads keep the JVM running until it is killed
+	}
+}
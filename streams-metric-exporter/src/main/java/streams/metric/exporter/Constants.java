@@ -39,7 +39,35 @@ public class Constants {
 		ENV_SERVER_KEYSTORE = "STREAMS_EXPORTER_SERVER_KEYSTORE",
 		ENV_SERVER_KEYSTORE_PWD = "STREAMS_EXPORTER_SERVER_KEYSTORE_PWD",
 		ENV_LOGLEVEL = "STREAMS_EXPORTER_LOGLEVEL",
-		ENV_LOGDIR = "STREAMS_EXPORTER_LOGDIR"
+		ENV_LOGDIR = "STREAMS_EXPORTER_LOGDIR",
+		ENV_METRIC_STORE = "STREAMS_EXPORTER_METRIC_STORE",
+		ENV_REMOTE_WRITE_URL = "STREAMS_EXPORTER_REMOTE_WRITE_URL",
+		ENV_REMOTE_WRITE_WAL = "STREAMS_EXPORTER_REMOTE_WRITE_WAL",
+		ENV_REMOTE_WRITE_SHARDS = "STREAMS_EXPORTER_REMOTE_WRITE_SHARDS",
+		ENV_REMOTE_WRITE_WAL_MAX = "STREAMS_EXPORTER_REMOTE_WRITE_WAL_MAX",
+		ENV_ELASTICSEARCH_URL = "STREAMS_EXPORTER_ELASTICSEARCH_URL",
+		ENV_ELASTICSEARCH_INDEX = "STREAMS_EXPORTER_ELASTICSEARCH_INDEX",
+		ENV_INFLUX_URL = "STREAMS_EXPORTER_INFLUX_URL",
+		ENV_INFLUX_FLUSH_SIZE = "STREAMS_EXPORTER_INFLUX_FLUSH_SIZE",
+		ENV_JMX_READ_RATE = "STREAMS_EXPORTER_JMX_READ_RATE",
+		ENV_JMX_SNAPSHOT_RATE = "STREAMS_EXPORTER_JMX_SNAPSHOT_RATE",
+		ENV_JMX_THROTTLE_WAIT = "STREAMS_EXPORTER_JMX_THROTTLE_WAIT",
+		ENV_CAPTURE_DIR = "STREAMS_EXPORTER_CAPTURE_DIR",
+		ENV_CAPTURE_SEGMENT_MB = "STREAMS_EXPORTER_CAPTURE_SEGMENT_MB",
+		ENV_CAPTURE_MAX_SEGMENTS = "STREAMS_EXPORTER_CAPTURE_MAX_SEGMENTS",
+		ENV_WARM_START_DIR = "STREAMS_EXPORTER_WARM_START_DIR",
+		ENV_WARM_START_INTERVAL = "STREAMS_EXPORTER_WARM_START_INTERVAL",
+		ENV_LIVENESS_TIMEOUT = "STREAMS_EXPORTER_LIVENESS_TIMEOUT",
+		ENV_SERVER_SELECTOR_THREADS = "STREAMS_EXPORTER_SERVER_SELECTOR_THREADS",
+		ENV_SERVER_WORKER_THREADS = "STREAMS_EXPORTER_SERVER_WORKER_THREADS",
+		ENV_SERVER_HEAVY_THREADS = "STREAMS_EXPORTER_SERVER_HEAVY_THREADS",
+		ENV_SERVER_MAX_QUEUED = "STREAMS_EXPORTER_SERVER_MAX_QUEUED",
+		ENV_SERVER_KEEP_ALIVE_SECONDS = "STREAMS_EXPORTER_SERVER_KEEP_ALIVE_SECONDS",
+		ENV_SERVER_KEEP_ALIVE_REQUESTS = "STREAMS_EXPORTER_SERVER_KEEP_ALIVE_REQUESTS",
+		ENV_SERVER_COMPRESSION_MIN_SIZE = "STREAMS_EXPORTER_SERVER_COMPRESSION_MIN_SIZE",
+		ENV_HTTP_ENGINE = "STREAMS_EXPORTER_HTTP_ENGINE",
+		ENV_METRIC_PROFILES = "STREAMS_EXPORTER_METRIC_PROFILES",
+		ENV_RETAIN_RAW_JSON = "STREAMS_EXPORTER_RETAIN_RAW_JSON"
 	;
 	
 
@@ -61,7 +89,35 @@ public class Constants {
 		DEFAULT_SERVER_KEYSTORE = null,
 		DEFAULT_SERVER_KEYSTORE_PWD = null,
 		DEFAULT_LOGLEVEL = "info",
-		DEFAULT_LOGDIR = ""
+		DEFAULT_LOGDIR = "",
+		DEFAULT_METRIC_STORE = "columnar",
+		DEFAULT_REMOTE_WRITE_URL = null,
+		DEFAULT_REMOTE_WRITE_WAL = "remote-write-wal",
+		DEFAULT_REMOTE_WRITE_SHARDS = "2",
+		DEFAULT_REMOTE_WRITE_WAL_MAX = "10000",
+		DEFAULT_ELASTICSEARCH_URL = null,
+		DEFAULT_ELASTICSEARCH_INDEX = "streams-metrics",
+		DEFAULT_INFLUX_URL = null,
+		DEFAULT_INFLUX_FLUSH_SIZE = "65536",
+		DEFAULT_JMX_READ_RATE = "0",
+		DEFAULT_JMX_SNAPSHOT_RATE = "0",
+		DEFAULT_JMX_THROTTLE_WAIT = "1000",
+		DEFAULT_CAPTURE_DIR = null,
+		DEFAULT_CAPTURE_SEGMENT_MB = "64",
+		DEFAULT_CAPTURE_MAX_SEGMENTS = "16",
+		DEFAULT_WARM_START_DIR = null,
+		DEFAULT_WARM_START_INTERVAL = "300",
+		DEFAULT_LIVENESS_TIMEOUT = "300",
+		DEFAULT_SERVER_SELECTOR_THREADS = "0",
+		DEFAULT_SERVER_WORKER_THREADS = "0",
+		DEFAULT_SERVER_HEAVY_THREADS = "2",
+		DEFAULT_SERVER_MAX_QUEUED = "0",
+		DEFAULT_SERVER_KEEP_ALIVE_SECONDS = "30",
+		DEFAULT_SERVER_KEEP_ALIVE_REQUESTS = "256",
+		DEFAULT_SERVER_COMPRESSION_MIN_SIZE = "2048",
+		DEFAULT_HTTP_ENGINE = "jersey",
+		DEFAULT_METRIC_PROFILES = null,
+		DEFAULT_RETAIN_RAW_JSON = "false"
 	;
 	
 	public static final String indent = "       ";
@@ -70,7 +126,7 @@ public class Constants {
 		DESC_HELP = "Display command line arguments",
 		DESC_VERSION = "Display version information",
 		DESC_JMXCONNECT = "JMX Connection URL (e.g. service:jmx:jmxmp://localhost:9975). Supports comma-separated list for failover.\n      Environment Variable: " + ENV_JMXCONNECT,
-		DESC_INSTANCE_ID = "Streams instance name.  Only used if Instance List not provided.\n      Environment Variable: " + ENV_INSTANCE_ID,
+		DESC_INSTANCE_ID = "Streams instance name, or comma separated list of instance names to track in this exporter\n      Environment Variable: " + ENV_INSTANCE_ID,
 		DESC_HOST = "Listen Host or IP address for this service (e.g. localhost)\n      Environment Variable: " + ENV_HOST,
 		DESC_PORT = "Listen Port for this service\n      Environment Variable: " + ENV_PORT,
 		DESC_WEBPATH = "Base URI prefix (e.g. /someprefix)\n      Environment Variable: " + ENV_WEBPATH,
@@ -87,16 +143,61 @@ public class Constants {
 		DESC_SERVER_KEYSTORE = "Java keystore containing server certificate and key to identify server side of this application\n      Environment Variable: " + ENV_SERVER_KEYSTORE,
 		DESC_SERVER_KEYSTORE_PWD = "Passphrase to java keystore.  Passphrase of keystore and key (if it has one) must match\n      Environment Variable: " + ENV_SERVER_KEYSTORE_PWD,
 		DESC_LOGLEVEL = "Logging level [ fatal | error | warn | info | debug | trace ]\n      Environment Variable: " + ENV_LOGLEVEL,
-		DESC_LOGDIR = "Logging direcotry.  If not set or empty log to stdout.\n     Environment Variable: " + ENV_LOGDIR
+		DESC_LOGDIR = "Logging direcotry.  If not set or empty log to stdout.\n     Environment Variable: " + ENV_LOGDIR,
+		DESC_METRIC_STORE = "Prometheus metric store [ columnar | gauge ].  columnar keeps values in a compact collector, gauge uses one simpleclient Gauge child per series\n      Environment Variable: " + ENV_METRIC_STORE,
+		DESC_REMOTE_WRITE_URL = "Prometheus remote write URL (e.g. http://prometheus:9090/api/v1/write).  If set, changed samples are pushed after each refresh.  Requires a refresh rate.\n      Environment Variable: " + ENV_REMOTE_WRITE_URL,
+		DESC_REMOTE_WRITE_WAL = "Directory for the remote write write-ahead log.  Unsent batches are kept here while the receiver is unavailable\n      Environment Variable: " + ENV_REMOTE_WRITE_WAL,
+		DESC_REMOTE_WRITE_WAL_MAX = "Maximum number of unsent batches (up to 2000 samples each) kept in the remote write write-ahead log per shard.  When it is full the oldest batch is dropped and counted in streams_exporter_remote_write_dropped_batches_total.  Batches are not synced to disk, they survive a restart of the exporter but not a crash of the host\n      Environment Variable: " + ENV_REMOTE_WRITE_WAL_MAX,
+		DESC_REMOTE_WRITE_SHARDS = "Number of parallel remote write senders\n      Environment Variable: " + ENV_REMOTE_WRITE_SHARDS,
+		DESC_ELASTICSEARCH_URL = "Elasticsearch URL (e.g. http://localhost:9200).  If set, one document per streams object is indexed after each refresh.  Requires a refresh rate.\n      Environment Variable: " + ENV_ELASTICSEARCH_URL,
+		DESC_ELASTICSEARCH_INDEX = "Elasticsearch index for metric documents\n      Environment Variable: " + ENV_ELASTICSEARCH_INDEX,
+		DESC_INFLUX_URL = "Influx line protocol endpoint: tcp://host:port, udp://host:port or http://host:port/write?db=name.  If set, metrics are streamed as line protocol on each refresh\n      Environment Variable: " + ENV_INFLUX_URL,
+		DESC_INFLUX_FLUSH_SIZE = "Bytes of line protocol buffered before a write (udp is limited to 65000)\n      Environment Variable: " + ENV_INFLUX_FLUSH_SIZE,
+		DESC_JMX_READ_RATE = "JMX attribute reads and small operations allowed per second, 0 for no limit\n      Environment Variable: " + ENV_JMX_READ_RATE,
+		DESC_JMX_SNAPSHOT_RATE = "JMX snapshot operations (snapshotJobs, snapshotJobMetrics) allowed per second, 0 for no limit.  Throttled snapshots keep the previous results\n      Environment Variable: " + ENV_JMX_SNAPSHOT_RATE,
+		DESC_JMX_THROTTLE_WAIT = "Maximum milliseconds a JMX call waits for the rate limit before it is throttled\n      Environment Variable: " + ENV_JMX_THROTTLE_WAIT,
+		DESC_CAPTURE_DIR = "Directory to record the raw job snapshot and metrics payloads into for offline replay, one subdirectory per instance.  Capture is off when not set\n      Environment Variable: " + ENV_CAPTURE_DIR,
+		DESC_CAPTURE_SEGMENT_MB = "Size in megabytes (compressed) at which a capture segment file is closed and a new one started\n      Environment Variable: " + ENV_CAPTURE_SEGMENT_MB,
+		DESC_CAPTURE_MAX_SEGMENTS = "Number of capture segment files kept per instance, the oldest is deleted when exceeded\n      Environment Variable: " + ENV_CAPTURE_MAX_SEGMENTS,
+		DESC_WARM_START_DIR = "Directory to persist the job topology of each instance in.  At startup the first refresh exports fully labeled job metrics from it without a deep job snapshot.  Off when not set\n      Environment Variable: " + ENV_WARM_START_DIR,
+		DESC_WARM_START_INTERVAL = "Seconds between saves of the warm start job topology, it is also saved on shutdown\n      Environment Variable: " + ENV_WARM_START_INTERVAL,
+		DESC_LIVENESS_TIMEOUT = "Seconds a refresh may run, or (with a refresh rate) go without completing, before /live reports the exporter as stalled.  At least 3 refresh periods are allowed\n      Environment Variable: " + ENV_LIVENESS_TIMEOUT,
+		DESC_SERVER_SELECTOR_THREADS = "HTTP server selector (kernel) threads, 0 for the Grizzly default of one per processor\n      Environment Variable: " + ENV_SERVER_SELECTOR_THREADS,
+		DESC_SERVER_WORKER_THREADS = "HTTP server worker threads, 0 for the Grizzly default\n      Environment Variable: " + ENV_SERVER_WORKER_THREADS,
+		DESC_SERVER_HEAVY_THREADS = "Threads serving the heavy endpoints (/metrics, /prometheus, /instance/metrics, /instance/snapshots) apart from the worker threads, 0 to serve them on the worker threads\n      Environment Variable: " + ENV_SERVER_HEAVY_THREADS,
+		DESC_SERVER_MAX_QUEUED = "Requests queued for the worker threads, and for the heavy threads, before new ones are refused, 0 for no limit\n      Environment Variable: " + ENV_SERVER_MAX_QUEUED,
+		DESC_SERVER_KEEP_ALIVE_SECONDS = "Seconds an idle keep-alive connection is kept open, -1 for no timeout\n      Environment Variable: " + ENV_SERVER_KEEP_ALIVE_SECONDS,
+		DESC_SERVER_KEEP_ALIVE_REQUESTS = "Requests served on a keep-alive connection before it is closed, -1 for no limit, 0 to disable keep-alive\n      Environment Variable: " + ENV_SERVER_KEEP_ALIVE_REQUESTS,
+		DESC_SERVER_COMPRESSION_MIN_SIZE = "Smallest response in bytes that is gzip compressed for clients that accept it, 0 to disable compression\n      Environment Variable: " + ENV_SERVER_COMPRESSION_MIN_SIZE,
+		DESC_HTTP_ENGINE = "HTTP server for the REST endpoints [ jersey | lite ].  lite serves the same endpoints on the JDK http server without Jersey, for a faster start and a smaller heap\n      Environment Variable: " + ENV_HTTP_ENGINE,
+		DESC_METRIC_PROFILES = "Named metric selections served as /metrics/{profile}, name:query pairs separated by ; (e.g. fast:level=instance,job;detail:level=pe,operator&job=Main)\n      Environment Variable: " + ENV_METRIC_PROFILES,
+		DESC_RETAIN_RAW_JSON = "Debugging aid: keep the last raw snapshot and metrics json of every job so trace logging of job details can include them.  Costs memory in proportion to the size of the jobs\n      Environment Variable: " + ENV_RETAIN_RAW_JSON
 	;
 	
 	public static final String
 	    INVALID_SERVER_PROTOCOL = "%s is not a valid protocol.  Valid values include [http|https]",
 	    INVALID_REFRESHRATE = "%s is not a valid refresh rate.  Must be positive integer or 0 for no automatic refresh",
-	    INVALID_LOGLEVEL = "%s is not a valid loglevel.  Valid values include [ fatal | error | warn | info | debug | trace ]"
+	    INVALID_LOGLEVEL = "%s is not a valid loglevel.  Valid values include [ fatal | error | warn | info | debug | trace ]",
+	    INVALID_METRIC_STORE = "%s is not a valid metric store.  Valid values include [ columnar | gauge ]",
+	    INVALID_REMOTE_WRITE_SHARDS = "%s is not a valid number of remote write shards.  Must be a positive integer",
+	    INVALID_REMOTE_WRITE_WAL_MAX = "%s is not a valid remote write log size.  Must be a positive integer",
+	    INVALID_INFLUX_FLUSH_SIZE = "%s is not a valid influx flush size.  Must be a positive integer",
+	    INVALID_JMX_RATE = "%s is not a valid jmx rate.  Must be 0 (no limit) or a positive number of calls per second",
+	    INVALID_JMX_THROTTLE_WAIT = "%s is not a valid jmx throttle wait.  Must be 0 or a positive number of milliseconds",
+	    INVALID_CAPTURE_SEGMENT_MB = "%s is not a valid capture segment size.  Must be a positive number of megabytes",
+	    INVALID_CAPTURE_MAX_SEGMENTS = "%s is not a valid number of capture segments.  Must be 1 or more",
+	    INVALID_WARM_START_INTERVAL = "%s is not a valid warm start interval.  Must be a positive number of seconds",
+	    INVALID_LIVENESS_TIMEOUT = "%s is not a valid liveness timeout.  Must be a positive number of seconds",
+	    INVALID_SERVER_THREADS = "%s is not a valid number of server threads.  Must be 0 (default) or a positive integer",
+	    INVALID_SERVER_MAX_QUEUED = "%s is not a valid server queue limit.  Must be 0 (no limit) or a positive integer",
+	    INVALID_SERVER_KEEP_ALIVE = "%s is not a valid keep-alive setting.  Must be -1 or more",
+	    INVALID_SERVER_COMPRESSION_MIN_SIZE = "%s is not a valid compression size.  Must be 0 (disabled) or a positive number of bytes",
+	    INVALID_HTTP_ENGINE = "%s is not a valid http engine.  Valid values include [ jersey | lite ]",
+	    INVALID_METRIC_PROFILES = "%s is not a valid metric profile list.  %s"
 	;
 	
 	public static final int NO_REFRESH = 0;
+	public static final int MAX_REFRESH_THREADS = 4;
 	public static final String LOG_APPENDER_NAME = "STREAMSEXPORTER";
 	public static final String LOG_FILENAME = "StreamsMetricExporter.log";
 	public static final String LOG_PATTERN_LAYOUT = "%d{ISO8601} - %-5p [%t:%C{1}@%L] - %m%n";
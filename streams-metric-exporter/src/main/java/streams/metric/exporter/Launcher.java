@@ -19,8 +19,11 @@ package streams.metric.exporter;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
@@ -36,16 +39,35 @@ import org.slf4j.bridge.SLF4JBridgeHandler;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 
+import io.prometheus.client.hotspot.DefaultExports;
+
+import streams.metric.exporter.elasticsearch.ElasticsearchMetricsExporter;
 import streams.metric.exporter.error.StreamsTrackerException;
 import streams.metric.exporter.httpclient.WebClient;
 import streams.metric.exporter.httpclient.WebClientImpl;
+import streams.metric.exporter.influx.InfluxLineProtocolExporter;
+import streams.metric.exporter.jmx.JmxCallStats;
 import streams.metric.exporter.jmx.JmxConnectionPool;
+import streams.metric.exporter.jmx.JmxRateLimiter;
 import streams.metric.exporter.jmx.JmxServiceContext;
 import streams.metric.exporter.jmx.JmxTrustManager;
 import streams.metric.exporter.jmx.MXBeanSource;
 import streams.metric.exporter.jmx.MXBeanSourceProvider;
+import streams.metric.exporter.metrics.MetricsExporters;
+import streams.metric.exporter.prometheus.JmxCallStatsCollector;
+import streams.metric.exporter.prometheus.JmxConnectionCollector;
+import streams.metric.exporter.prometheus.JmxRateLimiterCollector;
+import streams.metric.exporter.prometheus.MetricSelector;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+import streams.metric.exporter.prometheus.StartupCollector;
+import streams.metric.exporter.remotewrite.RemoteWriter;
+import streams.metric.exporter.rest.HttpEngine;
+import streams.metric.exporter.rest.LiteRestServer;
 import streams.metric.exporter.rest.RestServer;
-import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+import streams.metric.exporter.stream.MetricUpdateStream;
+import streams.metric.exporter.streamstracker.StreamsInstanceRefreshListener;
+import streams.metric.exporter.streamstracker.StreamsInstanceTrackerRegistry;
+import streams.metric.exporter.streamstracker.job.JobDetails;
 
 import java.io.FileInputStream;
 
@@ -64,9 +86,11 @@ public class Launcher {
 	private JmxServiceContext jmxContext = null;
 
 	private ServiceConfig config = null;
-	@SuppressWarnings("unused")
-	static private StreamsInstanceTracker instanceTracker = null;
 	static private RestServer restServer = null;
+	static private LiteRestServer liteRestServer = null;
+	static private RemoteWriter remoteWriter = null;
+	static private ElasticsearchMetricsExporter elasticsearchExporter = null;
+	static private InfluxLineProtocolExporter influxExporter = null;
 
 	public Launcher(ServiceConfig config) {
 		
@@ -75,6 +99,23 @@ public class Launcher {
 		LOGGER.debug("****** Create JMX Connection Pool...");
 		connectionPool = new JmxConnectionPool(config.getJmxUrl(), config.getX509Cert(), config.getUser(),
 				config.getPassword(), config.getSslOption(), retryInitialConnection);
+		new JmxConnectionCollector(connectionPool).register();
+		new StartupCollector().register();
+		// JVM metrics (memory, gc, threads, ...) next to the exporter's own metrics
+		DefaultExports.initialize();
+
+		JmxCallStats callStats = new JmxCallStats();
+		connectionPool.setCallStats(callStats);
+		new JmxCallStatsCollector(callStats).register();
+
+		JmxRateLimiter rateLimiter = new JmxRateLimiter(config.getJmxReadRate(), config.getJmxSnapshotRate(),
+				config.getJmxThrottleWait());
+		if (rateLimiter.isEnabled()) {
+			LOGGER.info("JMX rate limit: reads/sec {}, snapshots/sec {}, max wait {} ms",
+					config.getJmxReadRate(), config.getJmxSnapshotRate(), config.getJmxThrottleWait());
+			connectionPool.setRateLimiter(rateLimiter);
+			new JmxRateLimiterCollector(rateLimiter).register();
+		}
 
 		TrustManager[] trustManagers = null;
 
@@ -118,7 +159,8 @@ public class Launcher {
 			}
 		}
 
-		webClient = new WebClientImpl(config.getSslOption(), trustManagers);
+		// Time the http download of snapshots the same way as the JMX calls
+		webClient = callStats.instrument(new WebClientImpl(config.getSslOption(), trustManagers), WebClient.class);
 
 		this.jmxContext = new JmxServiceContext() {
 			public MXBeanSourceProvider getBeanSourceProvider() {
@@ -131,12 +173,60 @@ public class Launcher {
 		};
 	}
 
+	/*
+	 * Everything that waits on the Streams JMX service runs here, on its own
+	 * thread, so the REST server (and /live, /ready) answers from the start.
+	 */
+	private void startInBackground() {
+		long phaseStart = System.nanoTime();
+		StartupStatus.setCurrentPhase(StartupStatus.Phase.JMX_CONNECT);
+		if (!checkValidJMXConnection()) {
+			LOGGER.error("Initial JMX Connection failed.  Exporter will report not live.");
+			System.out.println("Initial JMX Connection failed.  See log for details.");
+			System.out.println("  Check status of Streams Domain and JMX Service");
+			System.out.println("  Check JMX url and connection credentials");
+			StartupStatus.failed("initial JMX connection failed");
+			return;
+		}
+		StartupStatus.recordPhase(StartupStatus.Phase.JMX_CONNECT, System.nanoTime() - phaseStart);
+
+		phaseStart = System.nanoTime();
+		StartupStatus.setCurrentPhase(StartupStatus.Phase.TRACKERS);
+		// The remote writer listens to the trackers, so it must exist before their first refresh
+		if (!startRemoteWriter()) {
+			LOGGER.error("Startup of Remote Writer FAILED, Exiting Program.");
+			System.out.println("Startup of Remote Writer FAILED, Exiting Program.");
+			stopRestServer();
+			System.exit(1);
+		}
+		if (!startStreamsInstanceTracker()) {
+			LOGGER.error("Startup of Streams Metric Exporter FAILED, Exiting Program.");
+			System.out.println("Startup of Streams Metric Exporter FAILED, Exiting Program.");
+			stopRestServer();
+			System.exit(1);
+		}
+		StartupStatus.recordPhase(StartupStatus.Phase.TRACKERS, System.nanoTime() - phaseStart);
+		StartupStatus.trackersStarted();
+
+		if (config.getRefreshRateSeconds() == Constants.NO_REFRESH) {
+			// Refreshes are on demand, do the first one now rather than on the first scrape
+			try {
+				StreamsInstanceTrackerRegistry.getInstanceTrackers();
+			} catch (StreamsTrackerException e) {
+				LOGGER.warn("Initial refresh failed: {}", e.getLocalizedMessage());
+			}
+		}
+	}
+
 	private boolean startRestServer() {
 		LOGGER.debug("*******************************************");
 		LOGGER.debug("****** Creating and starting HTTP Server...");
 		try {
-			restServer = new RestServer(config.getHost(), config.getPort(), config.getWebPath(),
-					config.getServerProtocol(), config.getServerKeystore(), config.getServerKeystorePwd());
+			if (config.getHttpEngine() == HttpEngine.LITE) {
+				liteRestServer = new LiteRestServer(config);
+			} else {
+				restServer = new RestServer(config);
+			}
 		} catch (Exception e) {
 			LOGGER.error("Error starting REST Server: HTTP Server failed to start", e);
 			return false;
@@ -145,6 +235,15 @@ public class Launcher {
 		return true;
 	}
 
+	private void stopRestServer() {
+		if (restServer != null) {
+			restServer.stopServer();
+		}
+		if (liteRestServer != null) {
+			liteRestServer.stopServer();
+		}
+	}
+
 	// If we cannot connect to the JMX Server at least once shutdown
 	// Once started, we allow for reconnection attempts, but if this fails
 	// it usually means the credentials or url are incorrect and should get
@@ -159,8 +258,13 @@ public class Launcher {
 			MXBeanSource streamsBeanSource = connectionPool.getBeanSource();
 			LOGGER.debug("...Connected");
 		} catch (IOException e) {
-			LOGGER.error("Inital JMX Connection Failed: ", e);
-			success = false;
+			if (connectionPool.isReconnecting()) {
+				// Not fatal, attempts continue in the background and the tracker waits for them
+				LOGGER.warn("Inital JMX Connection Failed, retrying in the background: {}", e.getMessage());
+			} else {
+				LOGGER.error("Inital JMX Connection Failed: ", e);
+				success = false;
+			}
 		}
 		return success;
 	}
@@ -175,15 +279,42 @@ public class Launcher {
 			sw.start();
 		}
 
+		if (!createElasticsearchExporter() || !createInfluxExporter()) {
+			return false;
+		}
+
+		// Attached before the first refresh is scheduled
+		List<StreamsInstanceRefreshListener> refreshListeners = new ArrayList<StreamsInstanceRefreshListener>();
+		if (elasticsearchExporter != null) {
+			refreshListeners.add(elasticsearchExporter);
+		}
+		if (influxExporter != null) {
+			refreshListeners.add(influxExporter);
+		}
+		if (remoteWriter != null) {
+			refreshListeners.add(remoteWriter);
+		}
+		// Idle unless /instance/stream has subscribers
+		refreshListeners.add(MetricUpdateStream.getInstance());
+
 		try {
-			instanceTracker = StreamsInstanceTracker.initInstanceTracker(jmxContext, config.getInstanceName(),
-					config.getRefreshRateSeconds(), config.getSslOption(), config);
+			StreamsInstanceTrackerRegistry.initInstanceTrackers(jmxContext, config.getInstanceNames(),
+					config.getRefreshRateSeconds(), config.getSslOption(), config, refreshListeners);
 		} catch (StreamsTrackerException e) {
 			LOGGER.error(
 					"Error starting StreamsInstanceTracker: Could not construct the StreamsInstanceTracker: {}", e.getLocalizedMessage());
 			return false;
 		}
 
+		if (config.getWarmStartDir() != null && !config.getWarmStartDir().isEmpty()) {
+			Runtime.getRuntime().addShutdownHook(new Thread("WarmStartSave") {
+				@Override
+				public void run() {
+					StreamsInstanceTrackerRegistry.saveWarmStart();
+				}
+			});
+		}
+
 		if (LOGGER.isDebugEnabled()) {
 			sw.stop();
 			LOGGER.debug("Timing for initial startup of StreamsInstanceTracker (milliseconds): " + sw.getTime());
@@ -193,6 +324,56 @@ public class Launcher {
 		return true;
 	}
 	
+	// Additional exporters must be added before the tracker asks for the metrics exporter
+	private boolean createElasticsearchExporter() {
+		if (config.getElasticsearchUrl() == null || config.getElasticsearchUrl().isEmpty()) {
+			return true;
+		}
+		LOGGER.debug("****** Creating Elasticsearch exporter...");
+		try {
+			elasticsearchExporter = new ElasticsearchMetricsExporter(config.getElasticsearchUrl(), config.getElasticsearchIndex());
+		} catch (MalformedURLException e) {
+			LOGGER.error("Error creating Elasticsearch exporter: {}", e.getLocalizedMessage());
+			return false;
+		}
+		MetricsExporters.addExporter(elasticsearchExporter);
+		return true;
+	}
+
+	private boolean createInfluxExporter() {
+		if (config.getInfluxUrl() == null || config.getInfluxUrl().isEmpty()) {
+			return true;
+		}
+		LOGGER.debug("****** Creating Influx line protocol exporter...");
+		try {
+			influxExporter = new InfluxLineProtocolExporter(config.getInfluxUrl(), config.getInfluxFlushSize());
+		} catch (IOException e) {
+			LOGGER.error("Error creating Influx exporter: {}", e.getLocalizedMessage());
+			return false;
+		}
+		MetricsExporters.addExporter(influxExporter);
+		return true;
+	}
+
+	private boolean startRemoteWriter() {
+		if (config.getRemoteWriteUrl() == null || config.getRemoteWriteUrl().isEmpty()) {
+			return true;
+		}
+		LOGGER.debug("*********************************************");
+		LOGGER.debug("****** Creating and starting Remote Writer...");
+		try {
+			remoteWriter = new RemoteWriter(config.getRemoteWriteUrl(), config.getRemoteWriteWal(),
+					config.getRemoteWriteShards(), config.getRemoteWriteWalMax(), config.getRefreshRateSeconds() * 1000L);
+		} catch (IOException e) {
+			LOGGER.error("Error starting Remote Writer: Could not create write-ahead log in {}: {}",
+					config.getRemoteWriteWal(), e.getLocalizedMessage());
+			return false;
+		}
+		remoteWriter.start();
+		LOGGER.debug("...Remote Writer started.");
+		return true;
+	}
+	
 	private static boolean setupLogging(String loglevel, String logdir) {
 		// Set the log level
 		org.apache.log4j.Logger logger = org.apache.log4j.Logger.getRootLogger();
@@ -291,27 +472,29 @@ public class Launcher {
 
 		LOGGER.debug("*** Configuration ***\n" + config);
 
-		Launcher launcher = new Launcher(config);
-		if (launcher.checkValidJMXConnection()) {
-			if (launcher.startRestServer()) {
-				if (! launcher.startStreamsInstanceTracker()) {
-					LOGGER.error("Startup of Streams Metric Exporter FAILED, Exiting Program.");
-					System.out.println("Startup of Streams Metric Exporter FAILED, Exiting Program.");
-					restServer.stopServer();
-					System.exit(1);
-				}
-			} else {
-				LOGGER.error("Startup of HTTP Server FAILED, Exiting Program.");
-				System.out.println("Startup of HTTP Server FAILED, Exiting Program.");
-				System.exit(1);
-			}
-		} else {
-			LOGGER.error("Initial JMX Connection failed.  Exiting Program.");
-			System.out.println("Initial JMX Connection failed.  See log for details.");
-			System.out.println("  Check status of Streams Domain and JMX Service");
-			System.out.println("  Check JMX url and connection credentials");
+		// Must be chosen before anything asks for the metrics exporter
+		PrometheusMetricsExporter.setMetricStore(config.getMetricStore());
+		MetricSelector.setProfiles(config.getMetricProfiles());
+		JobDetails.setRetainRawJson(config.isRetainRawJson());
+
+		final Launcher launcher = new Launcher(config);
+		long phaseStart = System.nanoTime();
+		StartupStatus.setCurrentPhase(StartupStatus.Phase.REST_SERVER);
+		if (!launcher.startRestServer()) {
+			LOGGER.error("Startup of HTTP Server FAILED, Exiting Program.");
+			System.out.println("Startup of HTTP Server FAILED, Exiting Program.");
+			System.exit(1);
 		}
-		
+		StartupStatus.recordPhase(StartupStatus.Phase.REST_SERVER, System.nanoTime() - phaseStart);
+
+		// JMX connection, trackers and the first refresh complete in the background, see /ready
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				launcher.startInBackground();
+			}
+		}, "ExporterStartup").start();
+
 		System.out.println("************************************************************");
 		System.out.println(Version.getImplementationTitle() + " " + Version.getImplementationVersion() + " STARTED");
 		System.out.println("************************************************************");
@@ -16,6 +16,10 @@
 
 package streams.metric.exporter;
 
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Set;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.beust.jcommander.JCommander;
@@ -27,12 +31,20 @@ import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import streams.metric.exporter.cli.ServerProtocolValidator;
+import streams.metric.exporter.cli.InstanceListConverter;
 import streams.metric.exporter.cli.LoglevelValidator;
 import streams.metric.exporter.rest.Protocol;
 import streams.metric.exporter.cli.FileExistsValidator;
 import streams.metric.exporter.cli.DirectoryExistsValidator;
 import streams.metric.exporter.cli.RefreshRateValidator;
 import streams.metric.exporter.cli.ServerProtocolConverter;
+import streams.metric.exporter.cli.HttpEngineConverter;
+import streams.metric.exporter.cli.HttpEngineValidator;
+import streams.metric.exporter.cli.MetricStoreValidator;
+import streams.metric.exporter.cli.MetricStoreConverter;
+import streams.metric.exporter.prometheus.MetricSelector;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter.MetricStore;
+import streams.metric.exporter.rest.HttpEngine;
 
 public class ServiceConfig {
 	
@@ -119,6 +131,90 @@ public class ServiceConfig {
     @Parameter(names = "--logdir", description = Constants.DESC_LOGDIR, required = false, validateWith = DirectoryExistsValidator.class)
     private String logdir = getEnvDefault(Constants.ENV_LOGDIR, Constants.DEFAULT_LOGDIR);
     
+    @Parameter(names = "--metricstore", description = Constants.DESC_METRIC_STORE, required = false, validateWith = MetricStoreValidator.class)
+    private String metricStore = getEnvDefault(Constants.ENV_METRIC_STORE, Constants.DEFAULT_METRIC_STORE);
+
+    @Parameter(names = "--remotewriteurl", description = Constants.DESC_REMOTE_WRITE_URL, required = false)
+    private String remoteWriteUrl = getEnvDefault(Constants.ENV_REMOTE_WRITE_URL, Constants.DEFAULT_REMOTE_WRITE_URL);
+
+    @Parameter(names = "--remotewritewal", description = Constants.DESC_REMOTE_WRITE_WAL, required = false)
+    private String remoteWriteWal = getEnvDefault(Constants.ENV_REMOTE_WRITE_WAL, Constants.DEFAULT_REMOTE_WRITE_WAL);
+
+    @Parameter(names = "--remotewriteshards", description = Constants.DESC_REMOTE_WRITE_SHARDS, required = false)
+    private int remoteWriteShards = Integer.parseInt(getEnvDefault(Constants.ENV_REMOTE_WRITE_SHARDS, Constants.DEFAULT_REMOTE_WRITE_SHARDS));
+
+    @Parameter(names = "--remotewritewalmax", description = Constants.DESC_REMOTE_WRITE_WAL_MAX, required = false)
+    private int remoteWriteWalMax = Integer.parseInt(getEnvDefault(Constants.ENV_REMOTE_WRITE_WAL_MAX, Constants.DEFAULT_REMOTE_WRITE_WAL_MAX));
+
+    @Parameter(names = "--elasticsearchurl", description = Constants.DESC_ELASTICSEARCH_URL, required = false)
+    private String elasticsearchUrl = getEnvDefault(Constants.ENV_ELASTICSEARCH_URL, Constants.DEFAULT_ELASTICSEARCH_URL);
+
+    @Parameter(names = "--elasticsearchindex", description = Constants.DESC_ELASTICSEARCH_INDEX, required = false)
+    private String elasticsearchIndex = getEnvDefault(Constants.ENV_ELASTICSEARCH_INDEX, Constants.DEFAULT_ELASTICSEARCH_INDEX);
+
+    @Parameter(names = "--influxurl", description = Constants.DESC_INFLUX_URL, required = false)
+    private String influxUrl = getEnvDefault(Constants.ENV_INFLUX_URL, Constants.DEFAULT_INFLUX_URL);
+
+    @Parameter(names = "--influxflushsize", description = Constants.DESC_INFLUX_FLUSH_SIZE, required = false)
+    private int influxFlushSize = Integer.parseInt(getEnvDefault(Constants.ENV_INFLUX_FLUSH_SIZE, Constants.DEFAULT_INFLUX_FLUSH_SIZE));
+
+    @Parameter(names = "--jmxreadrate", description = Constants.DESC_JMX_READ_RATE, required = false)
+    private double jmxReadRate = Double.parseDouble(getEnvDefault(Constants.ENV_JMX_READ_RATE, Constants.DEFAULT_JMX_READ_RATE));
+
+    @Parameter(names = "--jmxsnapshotrate", description = Constants.DESC_JMX_SNAPSHOT_RATE, required = false)
+    private double jmxSnapshotRate = Double.parseDouble(getEnvDefault(Constants.ENV_JMX_SNAPSHOT_RATE, Constants.DEFAULT_JMX_SNAPSHOT_RATE));
+
+    @Parameter(names = "--jmxthrottlewait", description = Constants.DESC_JMX_THROTTLE_WAIT, required = false)
+    private long jmxThrottleWait = Long.parseLong(getEnvDefault(Constants.ENV_JMX_THROTTLE_WAIT, Constants.DEFAULT_JMX_THROTTLE_WAIT));
+
+    @Parameter(names = "--capturedir", description = Constants.DESC_CAPTURE_DIR, required = false)
+    private String captureDir = getEnvDefault(Constants.ENV_CAPTURE_DIR, Constants.DEFAULT_CAPTURE_DIR);
+
+    @Parameter(names = "--capturesegmentmb", description = Constants.DESC_CAPTURE_SEGMENT_MB, required = false)
+    private int captureSegmentMb = Integer.parseInt(getEnvDefault(Constants.ENV_CAPTURE_SEGMENT_MB, Constants.DEFAULT_CAPTURE_SEGMENT_MB));
+
+    @Parameter(names = "--capturemaxsegments", description = Constants.DESC_CAPTURE_MAX_SEGMENTS, required = false)
+    private int captureMaxSegments = Integer.parseInt(getEnvDefault(Constants.ENV_CAPTURE_MAX_SEGMENTS, Constants.DEFAULT_CAPTURE_MAX_SEGMENTS));
+
+    @Parameter(names = "--warmstartdir", description = Constants.DESC_WARM_START_DIR, required = false)
+    private String warmStartDir = getEnvDefault(Constants.ENV_WARM_START_DIR, Constants.DEFAULT_WARM_START_DIR);
+
+    @Parameter(names = "--warmstartinterval", description = Constants.DESC_WARM_START_INTERVAL, required = false)
+    private int warmStartInterval = Integer.parseInt(getEnvDefault(Constants.ENV_WARM_START_INTERVAL, Constants.DEFAULT_WARM_START_INTERVAL));
+
+    @Parameter(names = "--livenesstimeout", description = Constants.DESC_LIVENESS_TIMEOUT, required = false)
+    private int livenessTimeout = Integer.parseInt(getEnvDefault(Constants.ENV_LIVENESS_TIMEOUT, Constants.DEFAULT_LIVENESS_TIMEOUT));
+
+    @Parameter(names = "--httpengine", description = Constants.DESC_HTTP_ENGINE, required = false, validateWith = HttpEngineValidator.class)
+    private String httpEngine = getEnvDefault(Constants.ENV_HTTP_ENGINE, Constants.DEFAULT_HTTP_ENGINE);
+
+    @Parameter(names = "--serverselectorthreads", description = Constants.DESC_SERVER_SELECTOR_THREADS, required = false)
+    private int serverSelectorThreads = Integer.parseInt(getEnvDefault(Constants.ENV_SERVER_SELECTOR_THREADS, Constants.DEFAULT_SERVER_SELECTOR_THREADS));
+
+    @Parameter(names = "--serverworkerthreads", description = Constants.DESC_SERVER_WORKER_THREADS, required = false)
+    private int serverWorkerThreads = Integer.parseInt(getEnvDefault(Constants.ENV_SERVER_WORKER_THREADS, Constants.DEFAULT_SERVER_WORKER_THREADS));
+
+    @Parameter(names = "--serverheavythreads", description = Constants.DESC_SERVER_HEAVY_THREADS, required = false)
+    private int serverHeavyThreads = Integer.parseInt(getEnvDefault(Constants.ENV_SERVER_HEAVY_THREADS, Constants.DEFAULT_SERVER_HEAVY_THREADS));
+
+    @Parameter(names = "--servermaxqueued", description = Constants.DESC_SERVER_MAX_QUEUED, required = false)
+    private int serverMaxQueued = Integer.parseInt(getEnvDefault(Constants.ENV_SERVER_MAX_QUEUED, Constants.DEFAULT_SERVER_MAX_QUEUED));
+
+    @Parameter(names = "--serverkeepaliveseconds", description = Constants.DESC_SERVER_KEEP_ALIVE_SECONDS, required = false)
+    private int serverKeepAliveSeconds = Integer.parseInt(getEnvDefault(Constants.ENV_SERVER_KEEP_ALIVE_SECONDS, Constants.DEFAULT_SERVER_KEEP_ALIVE_SECONDS));
+
+    @Parameter(names = "--serverkeepaliverequests", description = Constants.DESC_SERVER_KEEP_ALIVE_REQUESTS, required = false)
+    private int serverKeepAliveRequests = Integer.parseInt(getEnvDefault(Constants.ENV_SERVER_KEEP_ALIVE_REQUESTS, Constants.DEFAULT_SERVER_KEEP_ALIVE_REQUESTS));
+
+    @Parameter(names = "--servercompressionminsize", description = Constants.DESC_SERVER_COMPRESSION_MIN_SIZE, required = false)
+    private int serverCompressionMinSize = Integer.parseInt(getEnvDefault(Constants.ENV_SERVER_COMPRESSION_MIN_SIZE, Constants.DEFAULT_SERVER_COMPRESSION_MIN_SIZE));
+
+    @Parameter(names = "--retainrawjson", description = Constants.DESC_RETAIN_RAW_JSON, required = false)
+    private boolean retainRawJson = Boolean.parseBoolean(getEnvDefault(Constants.ENV_RETAIN_RAW_JSON, Constants.DEFAULT_RETAIN_RAW_JSON));
+
+    @Parameter(names = "--metricprofiles", description = Constants.DESC_METRIC_PROFILES, required = false)
+    private String metricProfiles = getEnvDefault(Constants.ENV_METRIC_PROFILES, Constants.DEFAULT_METRIC_PROFILES);
+    
     
     public String getPassword(boolean hasConsole) {
         // Choose the appropriate JCommander console implementation to use
@@ -192,6 +288,11 @@ public class ServiceConfig {
     public void setInstanceName(String instanceName) {
     		this.instanceName = instanceName;
     }
+
+    // Instance names in the order given, --instance accepts a comma separated list
+    public Set<String> getInstanceNames() {
+    		return InstanceListConverter.convertInstanceList(instanceName);
+    }
     
     public String getUser() {
         return user;
@@ -312,17 +413,241 @@ public class ServiceConfig {
 		this.logdir = logdir;
 	}
 
+	public void setMetricStore(String metricStore) {
+		this.metricStore = metricStore;
+	}
+
+	public void setHttpEngine(String httpEngine) {
+		this.httpEngine = httpEngine;
+	}
+
+	public String getRemoteWriteUrl() {
+		return remoteWriteUrl;
+	}
+
+	public void setRemoteWriteUrl(String remoteWriteUrl) {
+		this.remoteWriteUrl = remoteWriteUrl;
+	}
+
+	public String getRemoteWriteWal() {
+		return remoteWriteWal;
+	}
+
+	public void setRemoteWriteWal(String remoteWriteWal) {
+		this.remoteWriteWal = remoteWriteWal;
+	}
+
+	public int getRemoteWriteShards() {
+		return remoteWriteShards;
+	}
+
+	public void setRemoteWriteShards(int remoteWriteShards) {
+		this.remoteWriteShards = remoteWriteShards;
+	}
+
+	public int getRemoteWriteWalMax() {
+		return remoteWriteWalMax;
+	}
+
+	public void setRemoteWriteWalMax(int remoteWriteWalMax) {
+		this.remoteWriteWalMax = remoteWriteWalMax;
+	}
+
+	public String getElasticsearchUrl() {
+		return elasticsearchUrl;
+	}
+
+	public void setElasticsearchUrl(String elasticsearchUrl) {
+		this.elasticsearchUrl = elasticsearchUrl;
+	}
+
+	public String getElasticsearchIndex() {
+		return elasticsearchIndex;
+	}
+
+	public void setElasticsearchIndex(String elasticsearchIndex) {
+		this.elasticsearchIndex = elasticsearchIndex;
+	}
+
+	public String getInfluxUrl() {
+		return influxUrl;
+	}
+
+	public void setInfluxUrl(String influxUrl) {
+		this.influxUrl = influxUrl;
+	}
+
+	public int getInfluxFlushSize() {
+		return influxFlushSize;
+	}
+
+	public void setInfluxFlushSize(int influxFlushSize) {
+		this.influxFlushSize = influxFlushSize;
+	}
+
+	public double getJmxReadRate() {
+		return jmxReadRate;
+	}
+
+	public void setJmxReadRate(double jmxReadRate) {
+		this.jmxReadRate = jmxReadRate;
+	}
+
+	public double getJmxSnapshotRate() {
+		return jmxSnapshotRate;
+	}
+
+	public void setJmxSnapshotRate(double jmxSnapshotRate) {
+		this.jmxSnapshotRate = jmxSnapshotRate;
+	}
+
+	public long getJmxThrottleWait() {
+		return jmxThrottleWait;
+	}
+
+	public void setJmxThrottleWait(long jmxThrottleWait) {
+		this.jmxThrottleWait = jmxThrottleWait;
+	}
+
+	public String getCaptureDir() {
+		return captureDir;
+	}
+
+	public void setCaptureDir(String captureDir) {
+		this.captureDir = captureDir;
+	}
+
+	public int getCaptureSegmentMb() {
+		return captureSegmentMb;
+	}
+
+	public void setCaptureSegmentMb(int captureSegmentMb) {
+		this.captureSegmentMb = captureSegmentMb;
+	}
+
+	public int getCaptureMaxSegments() {
+		return captureMaxSegments;
+	}
+
+	public void setCaptureMaxSegments(int captureMaxSegments) {
+		this.captureMaxSegments = captureMaxSegments;
+	}
+
+	public String getWarmStartDir() {
+		return warmStartDir;
+	}
+
+	public void setWarmStartDir(String warmStartDir) {
+		this.warmStartDir = warmStartDir;
+	}
+
+	public int getWarmStartInterval() {
+		return warmStartInterval;
+	}
+
+	public void setWarmStartInterval(int warmStartInterval) {
+		this.warmStartInterval = warmStartInterval;
+	}
+
+	public int getLivenessTimeout() {
+		return livenessTimeout;
+	}
+
+	public void setLivenessTimeout(int livenessTimeout) {
+		this.livenessTimeout = livenessTimeout;
+	}
+
+	public int getServerSelectorThreads() {
+		return serverSelectorThreads;
+	}
+
+	public void setServerSelectorThreads(int serverSelectorThreads) {
+		this.serverSelectorThreads = serverSelectorThreads;
+	}
+
+	public int getServerWorkerThreads() {
+		return serverWorkerThreads;
+	}
+
+	public void setServerWorkerThreads(int serverWorkerThreads) {
+		this.serverWorkerThreads = serverWorkerThreads;
+	}
+
+	public int getServerHeavyThreads() {
+		return serverHeavyThreads;
+	}
+
+	public void setServerHeavyThreads(int serverHeavyThreads) {
+		this.serverHeavyThreads = serverHeavyThreads;
+	}
+
+	public int getServerMaxQueued() {
+		return serverMaxQueued;
+	}
+
+	public void setServerMaxQueued(int serverMaxQueued) {
+		this.serverMaxQueued = serverMaxQueued;
+	}
+
+	public int getServerKeepAliveSeconds() {
+		return serverKeepAliveSeconds;
+	}
+
+	public void setServerKeepAliveSeconds(int serverKeepAliveSeconds) {
+		this.serverKeepAliveSeconds = serverKeepAliveSeconds;
+	}
+
+	public int getServerKeepAliveRequests() {
+		return serverKeepAliveRequests;
+	}
+
+	public void setServerKeepAliveRequests(int serverKeepAliveRequests) {
+		this.serverKeepAliveRequests = serverKeepAliveRequests;
+	}
+
+	public int getServerCompressionMinSize() {
+		return serverCompressionMinSize;
+	}
+
+	public void setServerCompressionMinSize(int serverCompressionMinSize) {
+		this.serverCompressionMinSize = serverCompressionMinSize;
+	}
+
+	public boolean isRetainRawJson() {
+		return retainRawJson;
+	}
+
+	public void setRetainRawJson(boolean retainRawJson) {
+		this.retainRawJson = retainRawJson;
+	}
+
+	public String getMetricProfiles() {
+		return metricProfiles;
+	}
+
+	public void setMetricProfiles(String metricProfiles) {
+		this.metricProfiles = metricProfiles;
+	}
+
 	// Validated values.  Cannot just use jcommander because we now accept environment variables
 	public Protocol getServerProtocol() throws ParameterException {
 		return ServerProtocolConverter.convertProtocol(serverProtocol);
 	}
 	
+	public MetricStore getMetricStore() throws ParameterException {
+		return MetricStoreConverter.convertMetricStore(metricStore);
+	}
+
+	public HttpEngine getHttpEngine() throws ParameterException {
+		return HttpEngineConverter.convertHttpEngine(httpEngine);
+	}
+	
 	public void validateConfig() throws ParameterException {
 		if (getJmxUrl() == null) {
 			throw new ParameterException(
 					"JMX URL must be specified.  Please use parameter (-j or --jmxUrl) or environment variable: " + Constants.ENV_JMXCONNECT);
 		}
-		if (getInstanceName() == null) {
+		if (getInstanceName() == null || getInstanceNames().isEmpty()) {
 			throw new ParameterException(
 					"Streams instance name must be specified.  Please use parameter (-i or --instance) or environment variable: " + Constants.ENV_INSTANCE_ID);
 		}
@@ -334,6 +659,97 @@ public class ServiceConfig {
 		}
 		if (!LoglevelValidator.isValid(loglevel)) {
 			throw new ParameterException(String.format(Constants.INVALID_LOGLEVEL, loglevel));
+		}
+		if (!HttpEngineValidator.isValid(httpEngine)) {
+			throw new ParameterException(String.format(Constants.INVALID_HTTP_ENGINE, httpEngine));
+		}
+		if (!MetricStoreValidator.isValid(metricStore)) {
+			throw new ParameterException(String.format(Constants.INVALID_METRIC_STORE, metricStore));
+		}
+		if (remoteWriteUrl != null && !remoteWriteUrl.isEmpty()) {
+			if (refreshRateSeconds == Constants.NO_REFRESH) {
+				throw new ParameterException(
+						"Remote write (--remotewriteurl) requires an automatic refresh rate.  Please use parameter (-r or --refresh) or environment variable: " + Constants.ENV_REFRESHRATE);
+			}
+			if (getMetricStore() != MetricStore.COLUMNAR) {
+				throw new ParameterException(
+						"Remote write (--remotewriteurl) requires the columnar metric store (--metricstore columnar or environment variable: " + Constants.ENV_METRIC_STORE + ")");
+			}
+			if (remoteWriteShards < 1) {
+				throw new ParameterException(String.format(Constants.INVALID_REMOTE_WRITE_SHARDS, remoteWriteShards));
+			}
+			if (remoteWriteWalMax < 1) {
+				throw new ParameterException(String.format(Constants.INVALID_REMOTE_WRITE_WAL_MAX, remoteWriteWalMax));
+			}
+			try {
+				new URL(remoteWriteUrl);
+			} catch (MalformedURLException e) {
+				throw new ParameterException("Invalid remote write URL(" + remoteWriteUrl + "): " + e.getMessage());
+			}
+		}
+		if (elasticsearchUrl != null && !elasticsearchUrl.isEmpty()) {
+			if (refreshRateSeconds == Constants.NO_REFRESH) {
+				throw new ParameterException(
+						"Elasticsearch (--elasticsearchurl) requires an automatic refresh rate.  Please use parameter (-r or --refresh) or environment variable: " + Constants.ENV_REFRESHRATE);
+			}
+			try {
+				new URL(elasticsearchUrl);
+			} catch (MalformedURLException e) {
+				throw new ParameterException("Invalid Elasticsearch URL(" + elasticsearchUrl + "): " + e.getMessage());
+			}
+		}
+		if (influxUrl != null && !influxUrl.isEmpty()) {
+			if (influxFlushSize < 1) {
+				throw new ParameterException(String.format(Constants.INVALID_INFLUX_FLUSH_SIZE, influxFlushSize));
+			}
+			if (!influxUrl.matches("(?i)(tcp|udp|https?)://.+")) {
+				throw new ParameterException("Invalid influx URL(" + influxUrl + ").  Must start with tcp://, udp://, http:// or https://");
+			}
+		}
+		if (jmxReadRate < 0) {
+			throw new ParameterException(String.format(Constants.INVALID_JMX_RATE, jmxReadRate));
+		}
+		if (jmxSnapshotRate < 0) {
+			throw new ParameterException(String.format(Constants.INVALID_JMX_RATE, jmxSnapshotRate));
+		}
+		if (jmxThrottleWait < 0) {
+			throw new ParameterException(String.format(Constants.INVALID_JMX_THROTTLE_WAIT, jmxThrottleWait));
+		}
+		if (captureDir != null && !captureDir.isEmpty()) {
+			if (captureSegmentMb < 1) {
+				throw new ParameterException(String.format(Constants.INVALID_CAPTURE_SEGMENT_MB, captureSegmentMb));
+			}
+			if (captureMaxSegments < 1) {
+				throw new ParameterException(String.format(Constants.INVALID_CAPTURE_MAX_SEGMENTS, captureMaxSegments));
+			}
+		}
+		if (warmStartDir != null && !warmStartDir.isEmpty() && warmStartInterval < 1) {
+			throw new ParameterException(String.format(Constants.INVALID_WARM_START_INTERVAL, warmStartInterval));
+		}
+		if (livenessTimeout < 1) {
+			throw new ParameterException(String.format(Constants.INVALID_LIVENESS_TIMEOUT, livenessTimeout));
+		}
+		for (int threads : new int[] { serverSelectorThreads, serverWorkerThreads, serverHeavyThreads }) {
+			if (threads < 0) {
+				throw new ParameterException(String.format(Constants.INVALID_SERVER_THREADS, threads));
+			}
+		}
+		if (serverMaxQueued < 0) {
+			throw new ParameterException(String.format(Constants.INVALID_SERVER_MAX_QUEUED, serverMaxQueued));
+		}
+		if (serverKeepAliveSeconds < -1) {
+			throw new ParameterException(String.format(Constants.INVALID_SERVER_KEEP_ALIVE, serverKeepAliveSeconds));
+		}
+		if (serverKeepAliveRequests < -1) {
+			throw new ParameterException(String.format(Constants.INVALID_SERVER_KEEP_ALIVE, serverKeepAliveRequests));
+		}
+		if (serverCompressionMinSize < 0) {
+			throw new ParameterException(String.format(Constants.INVALID_SERVER_COMPRESSION_MIN_SIZE, serverCompressionMinSize));
+		}
+		try {
+			MetricSelector.parseProfiles(metricProfiles);
+		} catch (IllegalArgumentException e) {
+			throw new ParameterException(String.format(Constants.INVALID_METRIC_PROFILES, metricProfiles, e.getMessage()));
 		}		
         if ((user == null || getPassword() == null) && this.getX509Cert() == null) {
             throw new ParameterException(
@@ -409,6 +825,62 @@ public class ServiceConfig {
         result.append("loglevel: " + getLoglevel());
         result.append(newline);
         result.append("logdir: " + getLogdir());
+        result.append(newline);
+        result.append("metricstore: " + getMetricStore().toString());
+        result.append(newline);
+        result.append("remotewriteurl: " + getRemoteWriteUrl());
+        result.append(newline);
+        result.append("remotewritewal: " + getRemoteWriteWal());
+        result.append(newline);
+        result.append("remotewriteshards: " + getRemoteWriteShards());
+        result.append(newline);
+        result.append("remotewritewalmax: " + getRemoteWriteWalMax());
+        result.append(newline);
+        result.append("elasticsearchurl: " + getElasticsearchUrl());
+        result.append(newline);
+        result.append("elasticsearchindex: " + getElasticsearchIndex());
+        result.append(newline);
+        result.append("influxurl: " + getInfluxUrl());
+        result.append(newline);
+        result.append("influxflushsize: " + getInfluxFlushSize());
+        result.append(newline);
+        result.append("jmxreadrate: " + getJmxReadRate());
+        result.append(newline);
+        result.append("jmxsnapshotrate: " + getJmxSnapshotRate());
+        result.append(newline);
+        result.append("jmxthrottlewait: " + getJmxThrottleWait());
+        result.append(newline);
+        result.append("capturedir: " + getCaptureDir());
+        result.append(newline);
+        result.append("capturesegmentmb: " + getCaptureSegmentMb());
+        result.append(newline);
+        result.append("capturemaxsegments: " + getCaptureMaxSegments());
+        result.append(newline);
+        result.append("warmstartdir: " + getWarmStartDir());
+        result.append(newline);
+        result.append("warmstartinterval: " + getWarmStartInterval());
+        result.append(newline);
+        result.append("livenesstimeout: " + getLivenessTimeout());
+        result.append(newline);
+        result.append("httpengine: " + getHttpEngine().toString());
+        result.append(newline);
+        result.append("serverselectorthreads: " + getServerSelectorThreads());
+        result.append(newline);
+        result.append("serverworkerthreads: " + getServerWorkerThreads());
+        result.append(newline);
+        result.append("serverheavythreads: " + getServerHeavyThreads());
+        result.append(newline);
+        result.append("servermaxqueued: " + getServerMaxQueued());
+        result.append(newline);
+        result.append("serverkeepaliveseconds: " + getServerKeepAliveSeconds());
+        result.append(newline);
+        result.append("serverkeepaliverequests: " + getServerKeepAliveRequests());
+        result.append(newline);
+        result.append("servercompressionminsize: " + getServerCompressionMinSize());
+        result.append(newline);
+        result.append("metricprofiles: " + getMetricProfiles());
+        result.append(newline);
+        result.append("retainrawjson: " + isRetainRawJson());
         return result.toString();
     }
      
@@ -0,0 +1,151 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.streamstracker.StreamsInstanceRefreshListener;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+import streams.metric.exporter.streamstracker.StreamsInstanceTrackerRegistry;
+
+/*
+ * StartupStatus
+ *
+ * Progress of the background startup (JMX connection, trackers, first
+ * refresh) and the checks behind the /ready and /live endpoints.
+ *   * ready   every instance has completed a full refresh, stays ready after that
+ *   * live    startup has not failed and no tracker has stalled: a refresh has
+ *             not been running for longer than the liveness timeout and, with
+ *             a refresh rate, one has completed within the timeout
+ * The liveness timeout is at least 3 refresh periods.
+ */
+public final class StartupStatus {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + StartupStatus.class.getName());
+
+	public enum Phase {
+		REST_SERVER, JMX_CONNECT, TRACKERS, FIRST_REFRESH, TOTAL;
+
+		@Override
+		public String toString() {
+			return name().toLowerCase();
+		}
+	}
+
+	private static final long startNanos = System.nanoTime();
+	private static final Map<Phase, Double> phaseSeconds = new EnumMap<Phase, Double>(Phase.class);
+	private static volatile String currentPhase = "starting";
+	private static volatile String failure = null;
+	private static volatile boolean ready = false;
+	private static long trackersStartedNanos = 0;
+
+	private StartupStatus() {}
+
+	public static synchronized void recordPhase(Phase phase, long nanos) {
+		phaseSeconds.put(phase, nanos / 1e9);
+	}
+
+	public static synchronized Map<Phase, Double> getPhaseSeconds() {
+		return Collections.unmodifiableMap(new EnumMap<Phase, Double>(phaseSeconds));
+	}
+
+	public static void setCurrentPhase(Phase phase) {
+		currentPhase = phase.toString();
+	}
+
+	public static String getCurrentPhase() {
+		return currentPhase;
+	}
+
+	/* Startup cannot continue, the exporter is reported as not live */
+	public static void failed(String reason) {
+		failure = reason;
+		currentPhase = "failed";
+	}
+
+	public static String getFailure() {
+		return failure;
+	}
+
+	/* Called once the trackers exist, readiness is then checked after every refresh */
+	public static void trackersStarted() {
+		synchronized (StartupStatus.class) {
+			trackersStartedNanos = System.nanoTime();
+		}
+		currentPhase = Phase.FIRST_REFRESH.toString();
+		StreamsInstanceTrackerRegistry.addRefreshListener(new StreamsInstanceRefreshListener() {
+			@Override
+			public void refreshCompleted(StreamsInstanceTracker tracker) {
+				checkReady();
+			}
+		});
+		// The first refresh may have completed before the listener was added
+		checkReady();
+	}
+
+	public static boolean isReady() {
+		return ready;
+	}
+
+	/* Returns null if live, otherwise why not */
+	public static String checkLive() {
+		if (failure != null) {
+			return "startup failed: " + failure;
+		}
+		ServiceConfig config = StreamsInstanceTrackerRegistry.getConfig();
+		if (config == null) {
+			return null; // trackers not created yet, startup is still making progress
+		}
+		long timeoutMs = Math.max(config.getLivenessTimeout(), 3L * config.getRefreshRateSeconds()) * 1000;
+		long now = System.currentTimeMillis();
+		for (StreamsInstanceTracker tracker : StreamsInstanceTrackerRegistry.getInstanceTrackersNoRefresh()) {
+			String instanceName = tracker.getInstanceInfo().getInstanceName();
+			long started = tracker.getRefreshStartedAt();
+			if (started > 0 && now - started > timeoutMs) {
+				return "refresh of instance " + instanceName + " has been running for " + (now - started) / 1000 + " seconds";
+			}
+			if (tracker.getRefreshRateSeconds() != Constants.NO_REFRESH) {
+				long last = Math.max(tracker.getLastRefreshCompletedAt(), tracker.getCreatedAt());
+				if (now - last > timeoutMs) {
+					return "no refresh of instance " + instanceName + " completed for " + (now - last) / 1000 + " seconds";
+				}
+			}
+		}
+		return null;
+	}
+
+	private static synchronized void checkReady() {
+		if (ready) {
+			return;
+		}
+		for (StreamsInstanceTracker tracker : StreamsInstanceTrackerRegistry.getInstanceTrackersNoRefresh()) {
+			if (tracker.getState().getLastGoodRefresh() == null) {
+				return;
+			}
+		}
+		long now = System.nanoTime();
+		phaseSeconds.put(Phase.FIRST_REFRESH, (now - trackersStartedNanos) / 1e9);
+		phaseSeconds.put(Phase.TOTAL, (now - startNanos) / 1e9);
+		ready = true;
+		currentPhase = "ready";
+		LOGGER.info("Exporter ready, {} seconds after start", String.format("%.1f", (now - startNanos) / 1e9));
+	}
+}
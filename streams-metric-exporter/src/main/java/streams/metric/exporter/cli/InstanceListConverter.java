@@ -16,15 +16,15 @@
 
 package streams.metric.exporter.cli;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import com.beust.jcommander.IStringConverter;
 import com.beust.jcommander.ParameterException;
 
 /**
- * IParameterValidator that verifies that a parameter value is a filesystem path
- * that points to an existing file.
+ * IStringConverter that converts a comma separated list of instance names
+ * into a set, keeping the order they were given in.
  */
 public class InstanceListConverter implements IStringConverter<Set<String>> {
 
@@ -36,10 +36,10 @@ public class InstanceListConverter implements IStringConverter<Set<String>> {
     public static Set<String> convertInstanceList(String instanceList) throws ParameterException {
     	
 	    	String [] instances = instanceList.split(",");
-	    	Set<String> instanceSet = new HashSet<>();
+	    	Set<String> instanceSet = new LinkedHashSet<>();
 	    	for (String instance : instances) {
-	    		if (instance.length() > 0) {
-	    			instanceSet.add(instance);
+	    		if (instance.trim().length() > 0) {
+	    			instanceSet.add(instance.trim());
 	    		}
 	    	}
 	    	return instanceSet;
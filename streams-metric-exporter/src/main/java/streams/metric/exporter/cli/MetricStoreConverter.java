@@ -0,0 +1,46 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.cli;
+
+import com.beust.jcommander.IStringConverter;
+import com.beust.jcommander.ParameterException;
+
+import streams.metric.exporter.Constants;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter.MetricStore;
+
+/**
+ * IStringConverter that converts a parameter value into a MetricStore.
+ */
+public class MetricStoreConverter implements IStringConverter<MetricStore> {
+
+    @Override
+    public MetricStore convert(String value) throws ParameterException {
+    	return convertMetricStore(value);
+    }
+    
+    public static MetricStore convertMetricStore(String value) throws ParameterException {
+    	
+    	if (value.equalsIgnoreCase(MetricStore.GAUGE.toString())) {
+    		return MetricStore.GAUGE;
+    	} else if (value.equalsIgnoreCase(MetricStore.COLUMNAR.toString())) {
+    		return MetricStore.COLUMNAR;
+    	} else {
+            throw new ParameterException(String.format(Constants.INVALID_METRIC_STORE, value));
+        }
+    }
+    
+}
@@ -0,0 +1,287 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.elasticsearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * ElasticsearchBulkSender
+ *
+ * Collects NDJSON action/document pairs into _bulk requests.  A request is
+ * sent when it reaches maxDocs or maxBytes, or when flushIntervalMs passes
+ * with a partial batch.  At most maxInFlight requests are outstanding; when
+ * the cluster is slow the caller waits up to ACQUIRE_TIMEOUT_MS for a request
+ * to complete, which is the backpressure, and then drops (and counts) the
+ * batch.  The monitor only guards the batch being filled, full batches are
+ * compressed and handed to the senders after it is released, so add() on the
+ * refresh thread never waits on the flush thread or a slow cluster for long.
+ */
+class ElasticsearchBulkSender {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + ElasticsearchBulkSender.class.getName());
+
+	static final int TIMEOUT_MS = 30000;
+	static final int MAX_RETRIES = 5;
+	static final long MIN_BACKOFF_MS = 500;
+	static final long ACQUIRE_TIMEOUT_MS = 1000;
+
+	private final URL bulkUrl;
+	private final int maxDocs;
+	private final int maxBytes;
+	private final Semaphore inFlight;
+	private final ExecutorService senders;
+	private final ScheduledExecutorService flusher;
+
+	private ByteArrayOutputStream batch;
+	private int batchDocs = 0;
+	private long lastFlush = System.currentTimeMillis();
+
+	private final AtomicLong sentDocs = new AtomicLong();
+	private final AtomicLong failedDocs = new AtomicLong();
+	private final AtomicLong droppedDocs = new AtomicLong();
+	private final int maxInFlight;
+
+	ElasticsearchBulkSender(URL bulkUrl, int maxDocs, int maxBytes, int maxInFlight, final long flushIntervalMs) {
+		this.bulkUrl = bulkUrl;
+		this.maxDocs = maxDocs;
+		this.maxBytes = maxBytes;
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight);
+		this.senders = Executors.newFixedThreadPool(maxInFlight, r -> {
+			Thread t = new Thread(r, "ElasticsearchBulk");
+			t.setDaemon(true);
+			return t;
+		});
+		this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ElasticsearchFlush");
+			t.setDaemon(true);
+			return t;
+		});
+		this.batch = new ByteArrayOutputStream(Math.min(maxBytes, 1024 * 1024));
+		this.flusher.scheduleWithFixedDelay(() -> {
+			PendingBatch due = null;
+			synchronized (ElasticsearchBulkSender.this) {
+				if (batchDocs > 0 && System.currentTimeMillis() - lastFlush >= flushIntervalMs) {
+					due = takeBatch();
+				}
+			}
+			send(due);
+		}, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	/* Adds one action line and document line, both without the trailing newline */
+	void add(byte[] action, byte[] document) {
+		PendingBatch full = null;
+		PendingBatch fullAfter = null;
+		synchronized (this) {
+			if (batchDocs > 0 && batch.size() + action.length + document.length + 2 > maxBytes) {
+				full = takeBatch();
+			}
+			batch.write(action, 0, action.length);
+			batch.write('\n');
+			batch.write(document, 0, document.length);
+			batch.write('\n');
+			batchDocs++;
+			if (batchDocs >= maxDocs) {
+				fullAfter = takeBatch();
+			}
+		}
+		send(full);
+		send(fullAfter);
+	}
+
+	void flush() {
+		PendingBatch pending;
+		synchronized (this) {
+			pending = takeBatch();
+		}
+		send(pending);
+	}
+
+	/* Swaps out the batch being filled, null if it is empty */
+	private PendingBatch takeBatch() {
+		if (batchDocs == 0) {
+			return null;
+		}
+		PendingBatch pending = new PendingBatch(batch, batchDocs);
+		batch = new ByteArrayOutputStream(Math.min(maxBytes, 1024 * 1024));
+		batchDocs = 0;
+		lastFlush = System.currentTimeMillis();
+		return pending;
+	}
+
+	/* Called without the monitor held */
+	private void send(PendingBatch pending) {
+		if (pending == null) {
+			return;
+		}
+		final int docs = pending.docs;
+		final byte[] body;
+		try {
+			body = gzip(pending.data);
+		} catch (IOException e) {
+			LOGGER.error("Unable to compress elasticsearch bulk request: {}", e.getMessage());
+			failedDocs.addAndGet(docs);
+			return;
+		}
+
+		// Backpressure: wait a bounded time for an in flight request to finish
+		boolean acquired;
+		try {
+			acquired = inFlight.tryAcquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+		if (!acquired) {
+			LOGGER.warn("Elasticsearch is not keeping up ({} requests in flight), dropping a bulk request of {} documents", maxInFlight, docs);
+			droppedDocs.addAndGet(docs);
+			return;
+		}
+		senders.execute(() -> {
+			try {
+				sendWithRetry(body, docs);
+			} finally {
+				inFlight.release();
+			}
+		});
+	}
+
+	void stop() {
+		flush();
+		flusher.shutdown();
+		senders.shutdown();
+	}
+
+	long getSentDocs() {
+		return sentDocs.get();
+	}
+
+	long getFailedDocs() {
+		return failedDocs.get();
+	}
+
+	long getDroppedDocs() {
+		return droppedDocs.get();
+	}
+
+	int getInFlight() {
+		return maxInFlight - inFlight.availablePermits();
+	}
+
+	private void sendWithRetry(byte[] body, int docs) {
+		long backoff = MIN_BACKOFF_MS;
+		for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+			int status;
+			String response = null;
+			try {
+				HttpURLConnection conn = (HttpURLConnection) bulkUrl.openConnection();
+				conn.setRequestMethod("POST");
+				conn.setDoOutput(true);
+				conn.setConnectTimeout(TIMEOUT_MS);
+				conn.setReadTimeout(TIMEOUT_MS);
+				conn.setFixedLengthStreamingMode(body.length);
+				conn.setRequestProperty("Content-Type", "application/x-ndjson");
+				conn.setRequestProperty("Content-Encoding", "gzip");
+				OutputStream out = conn.getOutputStream();
+				try {
+					out.write(body);
+				} finally {
+					out.close();
+				}
+				status = conn.getResponseCode();
+				response = readAll(status < 400 ? conn.getInputStream() : conn.getErrorStream());
+			} catch (IOException e) {
+				LOGGER.debug("Elasticsearch bulk request to {} failed: {}", bulkUrl, e.getMessage());
+				status = -1;
+			}
+
+			if (status >= 200 && status < 300) {
+				// Item level failures are reported with a 200 and "errors":true
+				if (response != null && response.contains("\"errors\":true")) {
+					LOGGER.warn("Elasticsearch bulk request completed with item errors");
+					LOGGER.debug("Elasticsearch bulk response: {}", response);
+				}
+				sentDocs.addAndGet(docs);
+				return;
+			}
+			if (status >= 400 && status < 500 && status != 429) {
+				LOGGER.error("Elasticsearch rejected bulk request with HTTP status {}: {}", status, response);
+				break;
+			}
+			LOGGER.debug("Elasticsearch bulk status {}, attempt {} of {}, retrying in {} ms", status, attempt, MAX_RETRIES, backoff);
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				break;
+			}
+			backoff *= 2;
+		}
+		LOGGER.error("Elasticsearch bulk request of {} documents failed, discarding", docs);
+		failedDocs.addAndGet(docs);
+	}
+
+	private static final class PendingBatch {
+		final ByteArrayOutputStream data;
+		final int docs;
+
+		PendingBatch(ByteArrayOutputStream data, int docs) {
+			this.data = data;
+			this.docs = docs;
+		}
+	}
+
+	private static byte[] gzip(ByteArrayOutputStream uncompressed) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.size() / 4 + 64);
+		GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+		uncompressed.writeTo(gzip);
+		gzip.close();
+		return compressed.toByteArray();
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+		if (in == null) {
+			return null;
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,213 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.elasticsearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.streamstracker.StreamsInstanceRefreshListener;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+
+/*
+ * ElasticsearchMetricsExporter
+ *
+ * Collects the metrics set during a refresh into one document per streams
+ * object (instance, resource, job, pe, port, operator) and, when the refresh
+ * completes, indexes them with the _bulk API:
+ *   { "@timestamp": ..., "type": "operator", "instancename": ..., "jobname": ...,
+ *     "metrics": { "nTuplesProcessed": 10, ... } }
+ */
+public class ElasticsearchMetricsExporter extends MetricsExporter implements StreamsInstanceRefreshListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + ElasticsearchMetricsExporter.class.getName());
+
+	static final int MAX_BULK_DOCS = 1000;
+	static final int MAX_BULK_BYTES = 5 * 1024 * 1024;
+	static final int MAX_IN_FLIGHT = 2;
+	static final long FLUSH_INTERVAL_MS = 5000;
+
+	private final ElasticsearchBulkSender sender;
+	private final byte[] indexAction;
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	// Documents of the refresh in progress: type -> label values -> metrics
+	private Map<StreamsObjectType, Map<List<String>, Map<String, Double>>> documents = newDocuments();
+
+	public ElasticsearchMetricsExporter(String url, String index) throws MalformedURLException {
+		String base = (url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+		this.sender = new ElasticsearchBulkSender(new URL(base + "/_bulk"), MAX_BULK_DOCS, MAX_BULK_BYTES, MAX_IN_FLIGHT, FLUSH_INTERVAL_MS);
+		this.indexAction = indexAction(index);
+	}
+
+	/* {"index":{"_index":<index>}} with the index name escaped by the json generator */
+	private byte[] indexAction(String index) {
+		ByteArrayOutputStream action = new ByteArrayOutputStream(64);
+		try {
+			JsonGenerator json = jsonFactory.createGenerator(action, JsonEncoding.UTF8);
+			json.writeStartObject();
+			json.writeObjectFieldStart("index");
+			json.writeStringField("_index", index);
+			json.writeEndObject();
+			json.writeEndObject();
+			json.close();
+		} catch (IOException e) {
+			// Writing to a byte array does not fail
+			throw new IllegalStateException(e);
+		}
+		return action.toByteArray();
+	}
+
+	public void stop() {
+		sender.stop();
+	}
+
+	public void createStreamsMetric(String metricName, StreamsObjectType type, String description) {
+		// Documents are schemaless, nothing to create
+	}
+
+	public Metric getStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		return new ElasticsearchMetric(metricName, type, labelValues);
+	}
+
+	public synchronized void removeStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		Map<String, Double> document = documents.get(type).get(Arrays.asList(labelValues));
+		if (document != null) {
+			document.remove(metricName);
+		}
+	}
+
+	/* Drops documents not yet sent for removed objects, already indexed documents are history */
+	public synchronized void removeAllChildStreamsMetrics(String... labelValues) {
+		List<String> prefix = Arrays.asList(labelValues);
+		for (Map<List<String>, Map<String, Double>> typeDocuments : documents.values()) {
+			Iterator<List<String>> it = typeDocuments.keySet().iterator();
+			while (it.hasNext()) {
+				List<String> labels = it.next();
+				if (labels.size() >= prefix.size() && labels.subList(0, prefix.size()).equals(prefix)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void refreshCompleted(StreamsInstanceTracker tracker) {
+		// Only take the documents of this instance, other instances may be part way through a refresh
+		String instanceName = tracker.getInstanceInfo().getInstanceName();
+		Map<StreamsObjectType, Map<List<String>, Map<String, Double>>> completed = newDocuments();
+		synchronized (this) {
+			for (Map.Entry<StreamsObjectType, Map<List<String>, Map<String, Double>>> typeEntry : documents.entrySet()) {
+				Iterator<Map.Entry<List<String>, Map<String, Double>>> it = typeEntry.getValue().entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<List<String>, Map<String, Double>> entry = it.next();
+					if (!entry.getKey().isEmpty() && entry.getKey().get(0).equals(instanceName)) {
+						completed.get(typeEntry.getKey()).put(entry.getKey(), entry.getValue());
+						it.remove();
+					}
+				}
+			}
+		}
+		ByteArrayOutputStream documentBuffer = new ByteArrayOutputStream(1024);
+		String timestamp = Instant.ofEpochMilli(System.currentTimeMillis()).toString();
+		int count = 0;
+		for (Map.Entry<StreamsObjectType, Map<List<String>, Map<String, Double>>> typeEntry : completed.entrySet()) {
+			StreamsObjectType type = typeEntry.getKey();
+			for (Map.Entry<List<String>, Map<String, Double>> entry : typeEntry.getValue().entrySet()) {
+				try {
+					sender.add(indexAction, toDocument(documentBuffer, timestamp, type, entry.getKey(), entry.getValue()));
+					count++;
+				} catch (IOException e) {
+					LOGGER.error("Unable to create elasticsearch document: {}", e.getMessage());
+				}
+			}
+		}
+		sender.flush();
+		LOGGER.debug("Queued {} elasticsearch documents ({} sent, {} failed, {} dropped, {} requests in flight)",
+				count, sender.getSentDocs(), sender.getFailedDocs(), sender.getDroppedDocs(), sender.getInFlight());
+	}
+
+	/* The document buffer is reused for every document of a refresh */
+	private byte[] toDocument(ByteArrayOutputStream documentBuffer, String timestamp, StreamsObjectType type, List<String> labelValues,
+			Map<String, Double> metrics) throws IOException {
+		documentBuffer.reset();
+		JsonGenerator json = jsonFactory.createGenerator(documentBuffer, JsonEncoding.UTF8);
+		json.writeStartObject();
+		json.writeStringField("@timestamp", timestamp);
+		json.writeStringField("type", type.name().toLowerCase());
+		String[] labelNames = type.metricLabelNames();
+		for (int i = 0; i < labelNames.length && i < labelValues.size(); i++) {
+			json.writeStringField(labelNames[i], labelValues.get(i));
+		}
+		json.writeObjectFieldStart("metrics");
+		for (Map.Entry<String, Double> metric : metrics.entrySet()) {
+			json.writeNumberField(metric.getKey(), metric.getValue());
+		}
+		json.writeEndObject();
+		json.writeEndObject();
+		json.close();
+		return documentBuffer.toByteArray();
+	}
+
+	private synchronized void setMetric(StreamsObjectType type, List<String> labelValues, String name, double val) {
+		Map<List<String>, Map<String, Double>> typeDocuments = documents.get(type);
+		Map<String, Double> document = typeDocuments.get(labelValues);
+		if (document == null) {
+			document = new LinkedHashMap<String, Double>();
+			typeDocuments.put(labelValues, document);
+		}
+		document.put(name, val);
+	}
+
+	private static Map<StreamsObjectType, Map<List<String>, Map<String, Double>>> newDocuments() {
+		Map<StreamsObjectType, Map<List<String>, Map<String, Double>>> newDocuments =
+				new EnumMap<StreamsObjectType, Map<List<String>, Map<String, Double>>>(StreamsObjectType.class);
+		for (StreamsObjectType type : StreamsObjectType.values()) {
+			newDocuments.put(type, new HashMap<List<String>, Map<String, Double>>());
+		}
+		return newDocuments;
+	}
+
+	class ElasticsearchMetric extends MetricsExporter.Metric {
+		private final StreamsObjectType type;
+
+		protected ElasticsearchMetric(String name, StreamsObjectType type, String[] labelValues) {
+			super(name, Arrays.asList(labelValues));
+			this.type = type;
+		}
+
+		public void set(double val) {
+			setMetric(type, labelValues, name, val);
+		}
+	}
+}
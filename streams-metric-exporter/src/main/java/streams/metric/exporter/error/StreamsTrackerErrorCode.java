@@ -30,6 +30,14 @@ public enum StreamsTrackerErrorCode {
             "The specified streams instance was not found in the Streams domain"), 
     JOB_NOT_FOUND(
             12, "Specified Streams job was not found in the Streams instance"),
+    PE_NOT_FOUND(
+            13, "Specified Streams pe was not found in the Streams job"),
+    INVALID_OBJECT_TYPE(
+            14, "Specified Streams object type is not known"),
+    INVALID_METRIC_SELECTOR(
+            15, "Specified metric selection (level, job or family) is not valid"),
+    METRIC_PROFILE_NOT_FOUND(
+            16, "Specified metric profile is not configured"),
 
     STREAMS_MONITOR_UNAVAILABLE(50,
             "The Streams Monitor has not been created and initialized."), 
@@ -41,6 +49,10 @@ public enum StreamsTrackerErrorCode {
             "The Metrics for all jobs is not available at this time.  Either the JMX Connection or the Instance is not avaiable."), 
     ALL_SNAPSHOTS_NOT_AVAILABLE(53,
     "The Snapshots for all jobs is not available at thjis time.  Either the JMX Connection or the Instance is not available."),
+    METRICS_DELTA_NOT_AVAILABLE(54,
+            "Metric deltas are only available with the columnar metric store."),
+    METRICS_STREAM_LIMIT(55,
+            "The maximum number of metric stream subscribers has been reached."),
 
     OTHER_ERROR(99, "Unspecified Error Code");
 
@@ -0,0 +1,225 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.influx;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.streamstracker.StreamsInstanceRefreshListener;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+
+/*
+ * InfluxLineProtocolExporter
+ *
+ * Streams every metric set during a refresh to an influx line protocol
+ * endpoint.  The measurement is the streams object type (e.g.
+ * streams_operator_ip), tags are the label names of the type and the field
+ * is the streams metric name.  Points are encoded straight into a buffer
+ * when they are set.  Whenever the buffer reaches the flush size, and at the
+ * end of every refresh, it is swapped into a bounded queue that the
+ * InfluxSender thread writes to the endpoint, so a slow endpoint never holds
+ * up a refresh.  When the queue is full the batch is dropped and counted.
+ * Written buffers are recycled.
+ */
+public class InfluxLineProtocolExporter extends MetricsExporter implements StreamsInstanceRefreshListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + InfluxLineProtocolExporter.class.getName());
+
+	static final int QUEUE_CAPACITY = 16;
+
+	private final InfluxTransport transport;
+	private final int flushSize;
+	private final Map<StreamsObjectType, String> measurements = new EnumMap<StreamsObjectType, String>(StreamsObjectType.class);
+
+	// Buffer being filled, guarded by this
+	private LineProtocolBuffer buffer;
+	private long pendingPoints = 0;
+
+	private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(QUEUE_CAPACITY);
+	private final BlockingQueue<LineProtocolBuffer> spare = new ArrayBlockingQueue<LineProtocolBuffer>(QUEUE_CAPACITY + 1);
+	private final Thread sender;
+	private volatile boolean running = true;
+
+	private final AtomicLong writtenPoints = new AtomicLong();
+	private final AtomicLong droppedPoints = new AtomicLong();
+
+	public InfluxLineProtocolExporter(String url, int flushSize) throws IOException {
+		this.transport = InfluxTransport.create(url);
+		int max = transport.maxBatchBytes();
+		this.flushSize = (max > 0 ? Math.min(flushSize, max) : flushSize);
+		this.buffer = newBuffer();
+		for (StreamsObjectType type : StreamsObjectType.values()) {
+			String prefix = getStreamsMetricFullName("", type);
+			measurements.put(type, prefix.endsWith("_") ? prefix.substring(0, prefix.length() - 1) : prefix);
+		}
+		this.sender = new Thread(this::sendQueued, "InfluxSender");
+		this.sender.setDaemon(true);
+		this.sender.start();
+	}
+
+	/* Queues what is buffered and waits a little for the sender to write it */
+	public void stop() {
+		synchronized (this) {
+			flush();
+		}
+		running = false;
+		try {
+			sender.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		transport.close();
+	}
+
+	public long getWrittenPoints() {
+		return writtenPoints.get();
+	}
+
+	public long getDroppedPoints() {
+		return droppedPoints.get();
+	}
+
+	public void createStreamsMetric(String metricName, StreamsObjectType type, String description) {
+		// Nothing to create, measurements and fields are implicit
+	}
+
+	public Metric getStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		return new InfluxMetric(metricName, type, labelValues);
+	}
+
+	public void removeStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		// Points already written are history
+	}
+
+	public void removeAllChildStreamsMetrics(String... labelValues) {
+		// Points already written are history
+	}
+
+	@Override
+	public synchronized void refreshCompleted(StreamsInstanceTracker tracker) {
+		flush();
+		LOGGER.debug("Influx points written: {}, dropped: {}", writtenPoints.get(), droppedPoints.get());
+	}
+
+	private synchronized void point(StreamsObjectType type, String[] labelValues, String field, double value) {
+		int before = buffer.lastLineEnd();
+		buffer.point(measurements.get(type), type.metricLabelNames(), labelValues, field, value,
+				System.currentTimeMillis() * 1000000L);
+		pendingPoints++;
+		if (buffer.length() >= flushSize) {
+			int max = transport.maxBatchBytes();
+			if (max > 0 && buffer.length() > max && before > 0) {
+				// Datagram limit: send the complete lines before this point, keep this point for the next batch
+				flushPrefix(before);
+			} else {
+				flush();
+			}
+		}
+	}
+
+	/* Hands the buffer to the sender thread and continues with a spare one */
+	private void flush() {
+		if (buffer.length() == 0) {
+			return;
+		}
+		enqueue(buffer, buffer.length(), pendingPoints);
+		pendingPoints = 0;
+	}
+
+	/* Hands the complete lines before end to the sender thread, the rest moves to a spare buffer */
+	private void flushPrefix(int end) {
+		byte[] remainder = Arrays.copyOfRange(buffer.array(), end, buffer.length());
+		enqueue(buffer, end, pendingPoints - 1);
+		buffer.append(remainder);
+		pendingPoints = 1;
+	}
+
+	/* Leaves an empty buffer in place of the full one */
+	private void enqueue(LineProtocolBuffer full, int length, long points) {
+		if (queue.offer(new Batch(full, length, points))) {
+			buffer = newBuffer();
+		} else {
+			LOGGER.warn("Influx endpoint is not keeping up, dropping {} points", points);
+			droppedPoints.addAndGet(points);
+			full.reset();
+		}
+	}
+
+	private LineProtocolBuffer newBuffer() {
+		LineProtocolBuffer recycled = spare.poll();
+		return (recycled != null ? recycled : new LineProtocolBuffer(flushSize + 1024));
+	}
+
+	/* InfluxSender thread, runs until stop() and the queue is drained */
+	private void sendQueued() {
+		while (running || !queue.isEmpty()) {
+			Batch batch;
+			try {
+				batch = queue.poll(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (batch == null) {
+				continue;
+			}
+			try {
+				transport.write(batch.buffer.array(), 0, batch.length);
+				writtenPoints.addAndGet(batch.points);
+			} catch (IOException e) {
+				LOGGER.warn("Unable to write {} influx points: {}", batch.points, e.getMessage());
+			}
+			batch.buffer.reset();
+			spare.offer(batch.buffer);
+		}
+	}
+
+	private static final class Batch {
+		final LineProtocolBuffer buffer;
+		final int length;
+		final long points;
+
+		Batch(LineProtocolBuffer buffer, int length, long points) {
+			this.buffer = buffer;
+			this.length = length;
+			this.points = points;
+		}
+	}
+
+	class InfluxMetric extends MetricsExporter.Metric {
+		private final StreamsObjectType type;
+		private final String[] labelArray;
+
+		protected InfluxMetric(String name, StreamsObjectType type, String[] labelValues) {
+			super(name, Arrays.asList(labelValues));
+			this.type = type;
+			this.labelArray = labelValues;
+		}
+
+		public void set(double val) {
+			point(type, labelArray, name, val);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.influx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+
+/*
+ * InfluxTransport
+ *
+ * Where line protocol batches are written, chosen by the url scheme:
+ *   tcp://host:port      raw lines over a socket (e.g. telegraf socket_listener)
+ *   udp://host:port      one datagram per batch (influxdb udp listener)
+ *   http(s)://host:port/write?db=streams&precision=ns
+ */
+abstract class InfluxTransport {
+
+	static final int TIMEOUT_MS = 30000;
+
+	abstract void write(byte[] bytes, int offset, int length) throws IOException;
+
+	/* Largest batch the transport can take, 0 if unlimited */
+	int maxBatchBytes() {
+		return 0;
+	}
+
+	void close() {
+	}
+
+	static InfluxTransport create(String url) throws IOException {
+		URI uri = URI.create(url);
+		String scheme = (uri.getScheme() == null ? "" : uri.getScheme().toLowerCase());
+		switch (scheme) {
+		case "tcp":
+			return new Tcp(new InetSocketAddress(uri.getHost(), uri.getPort()));
+		case "udp":
+			return new Udp(new InetSocketAddress(uri.getHost(), uri.getPort()));
+		case "http":
+		case "https":
+			return new Http(uri.toURL());
+		default:
+			throw new IOException("Unsupported influx url scheme: " + url + ", use tcp://, udp:// or http(s)://");
+		}
+	}
+
+	static class Tcp extends InfluxTransport {
+		private final InetSocketAddress address;
+		private Socket socket = null;
+		private OutputStream out = null;
+
+		Tcp(InetSocketAddress address) {
+			this.address = address;
+		}
+
+		@Override
+		void write(byte[] bytes, int offset, int length) throws IOException {
+			try {
+				if (socket == null) {
+					socket = new Socket();
+					socket.connect(address, TIMEOUT_MS);
+					socket.setSoTimeout(TIMEOUT_MS);
+					out = socket.getOutputStream();
+				}
+				out.write(bytes, offset, length);
+				out.flush();
+			} catch (IOException e) {
+				// reconnect on the next write
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		void close() {
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+				}
+			}
+			socket = null;
+			out = null;
+		}
+	}
+
+	static class Udp extends InfluxTransport {
+		static final int MAX_DATAGRAM = 65000;
+		private final InetSocketAddress address;
+		private final DatagramSocket socket;
+
+		Udp(InetSocketAddress address) throws IOException {
+			this.address = address;
+			this.socket = new DatagramSocket();
+		}
+
+		@Override
+		void write(byte[] bytes, int offset, int length) throws IOException {
+			socket.send(new DatagramPacket(bytes, offset, length, address));
+		}
+
+		@Override
+		int maxBatchBytes() {
+			return MAX_DATAGRAM;
+		}
+
+		@Override
+		void close() {
+			socket.close();
+		}
+	}
+
+	static class Http extends InfluxTransport {
+		private final URL url;
+
+		Http(URL url) {
+			this.url = url;
+		}
+
+		@Override
+		void write(byte[] bytes, int offset, int length) throws IOException {
+			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+			conn.setRequestMethod("POST");
+			conn.setDoOutput(true);
+			conn.setConnectTimeout(TIMEOUT_MS);
+			conn.setReadTimeout(TIMEOUT_MS);
+			conn.setFixedLengthStreamingMode(length);
+			conn.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+			OutputStream out = conn.getOutputStream();
+			try {
+				out.write(bytes, offset, length);
+			} finally {
+				out.close();
+			}
+			int status = conn.getResponseCode();
+			InputStream in = (status < 400 ? conn.getInputStream() : conn.getErrorStream());
+			if (in != null) {
+				byte[] buffer = new byte[1024];
+				while (in.read(buffer) >= 0) { }
+				in.close();
+			}
+			if (status < 200 || status >= 300) {
+				throw new IOException("HTTP status " + status + " from " + url);
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.influx;
+
+import java.util.Arrays;
+
+/*
+ * LineProtocolBuffer
+ *
+ * Growable byte buffer that encodes influx line protocol directly from the
+ * metric callback arguments, so no String is built per point:
+ *   measurement,tag1=v1,tag2=v2 field=value timestamp\n
+ * The buffer is reused between flushes.
+ */
+class LineProtocolBuffer {
+
+	private byte[] bytes;
+	private int length = 0;
+	private int lastLineEnd = 0;
+
+	LineProtocolBuffer(int initialCapacity) {
+		bytes = new byte[initialCapacity];
+	}
+
+	int length() {
+		return length;
+	}
+
+	byte[] array() {
+		return bytes;
+	}
+
+	/* End of the last complete line, UDP splits datagrams here */
+	int lastLineEnd() {
+		return lastLineEnd;
+	}
+
+	void reset() {
+		length = 0;
+		lastLineEnd = 0;
+	}
+
+	/* Appends complete lines (e.g. left over from a split batch) */
+	void append(byte[] lines) {
+		ensure(lines.length);
+		System.arraycopy(lines, 0, bytes, length, lines.length);
+		length += lines.length;
+		lastLineEnd = length;
+	}
+
+	void point(String measurement, String[] tagNames, String[] tagValues, String field, double value, long timestampNanos) {
+		escaped(measurement, false);
+		for (int i = 0; i < tagNames.length && i < tagValues.length; i++) {
+			String tagValue = tagValues[i];
+			// empty tag values are not allowed by the protocol
+			if (tagValue == null || tagValue.isEmpty()) {
+				continue;
+			}
+			put((byte)',');
+			escaped(tagNames[i], true);
+			put((byte)'=');
+			escaped(tagValue, true);
+		}
+		put((byte)' ');
+		escaped(field, true);
+		put((byte)'=');
+		number(value);
+		put((byte)' ');
+		number(timestampNanos);
+		put((byte)'\n');
+		lastLineEnd = length;
+	}
+
+	/* Measurements escape comma and space, tag keys, tag values and field keys also escape equals */
+	private void escaped(String s, boolean escapeEquals) {
+		int n = s.length();
+		for (int i = 0; i < n; i++) {
+			char c = s.charAt(i);
+			if (c == ',' || c == ' ' || (escapeEquals && c == '=')) {
+				put((byte)'\\');
+				put((byte)c);
+			} else if (c < 0x80) {
+				put((byte)c);
+			} else if (c < 0x800) {
+				put((byte)(0xC0 | (c >> 6)));
+				put((byte)(0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < n) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				put((byte)(0xF0 | (cp >> 18)));
+				put((byte)(0x80 | ((cp >> 12) & 0x3F)));
+				put((byte)(0x80 | ((cp >> 6) & 0x3F)));
+				put((byte)(0x80 | (cp & 0x3F)));
+			} else {
+				put((byte)(0xE0 | (c >> 12)));
+				put((byte)(0x80 | ((c >> 6) & 0x3F)));
+				put((byte)(0x80 | (c & 0x3F)));
+			}
+		}
+	}
+
+	/* Streams metrics are almost always whole numbers, write those without going through a String */
+	private void number(double value) {
+		long whole = (long)value;
+		if (whole == value && Math.abs(whole) < 1_000_000_000_000_000L) {
+			number(whole);
+		} else {
+			String s = Double.toString(value);
+			for (int i = 0; i < s.length(); i++) {
+				put((byte)s.charAt(i));
+			}
+		}
+	}
+
+	private void number(long value) {
+		if (value == Long.MIN_VALUE) {
+			// cannot be negated, never a real timestamp or metric
+			value = Long.MIN_VALUE + 1;
+		}
+		if (value < 0) {
+			put((byte)'-');
+			value = -value;
+		}
+		int digits = 1;
+		for (long v = value / 10; v > 0; v /= 10) {
+			digits++;
+		}
+		ensure(digits);
+		int pos = length + digits;
+		do {
+			bytes[--pos] = (byte)('0' + (value % 10));
+			value /= 10;
+		} while (value > 0);
+		length += digits;
+	}
+
+	private void put(byte b) {
+		ensure(1);
+		bytes[length++] = b;
+	}
+
+	private void ensure(int extra) {
+		if (length + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+		}
+	}
+}
@@ -0,0 +1,179 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.jmx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import streams.metric.exporter.metrics.FixedBucketHistogram;
+
+/*
+ * JmxCallStats
+ * Per interface, per method call statistics for the Streams JMX service:
+ *   * call count and errors (exceptions thrown by the call)
+ *   * latency histogram (fixed buckets) and total time
+ *   * payload size, the length of String results (snapshot urls and http responses)
+ * Beans returned by an instrumented MXBeanSource (and any other interface,
+ * e.g. the WebClient) are wrapped in a proxy that records each call.
+ * Recording only uses LongAdders and a FixedBucketHistogram so concurrent
+ * refreshes do not contend on a lock.
+ */
+public class JmxCallStats {
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, MethodStats>> byInterface =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<Method, MethodStats>>();
+
+    public MXBeanSource instrument(MXBeanSource beanSource) {
+        return new MXBeanSourceDecorator(beanSource) {
+            @Override
+            protected <T> T decorate(T bean, Class<T> beanInterface) {
+                return instrument(bean, beanInterface);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T instrument(final T target, final Class<T> targetInterface) {
+        if (target == null) {
+            return null;
+        }
+        final ConcurrentMap<Method, MethodStats> methodStats = statsFor(targetInterface);
+        return (T)Proxy.newProxyInstance(targetInterface.getClassLoader(), new Class<?>[] { targetInterface },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return method.invoke(target, args);
+                        }
+                        MethodStats stats = methodStats.get(method);
+                        if (stats == null) {
+                            stats = new MethodStats(targetInterface.getSimpleName(), method.getName());
+                            MethodStats existing = methodStats.putIfAbsent(method, stats);
+                            if (existing != null) {
+                                stats = existing;
+                            }
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            Object result = method.invoke(target, args);
+                            stats.record(System.nanoTime() - start, result, false);
+                            return result;
+                        } catch (InvocationTargetException e) {
+                            stats.record(System.nanoTime() - start, null, true);
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    /* Snapshot of the methods called so far, ordered by interface and method name */
+    public List<MethodStats> getMethodStats() {
+        List<MethodStats> result = new ArrayList<MethodStats>();
+        for (ConcurrentMap<Method, MethodStats> methods : byInterface.values()) {
+            result.addAll(methods.values());
+        }
+        Collections.sort(result, new Comparator<MethodStats>() {
+            @Override
+            public int compare(MethodStats a, MethodStats b) {
+                int c = a.getInterfaceName().compareTo(b.getInterfaceName());
+                return (c != 0 ? c : a.getMethodName().compareTo(b.getMethodName()));
+            }
+        });
+        return result;
+    }
+
+    private ConcurrentMap<Method, MethodStats> statsFor(Class<?> targetInterface) {
+        ConcurrentMap<Method, MethodStats> methods = byInterface.get(targetInterface);
+        if (methods == null) {
+            methods = new ConcurrentHashMap<Method, MethodStats>();
+            ConcurrentMap<Method, MethodStats> existing = byInterface.putIfAbsent(targetInterface, methods);
+            if (existing != null) {
+                methods = existing;
+            }
+        }
+        return methods;
+    }
+
+    public static class MethodStats {
+        private final String interfaceName;
+        private final String methodName;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder payloadBytes = new LongAdder();
+        private final FixedBucketHistogram latency = new FixedBucketHistogram(FixedBucketHistogram.LATENCY_BUCKETS);
+
+        MethodStats(String interfaceName, String methodName) {
+            this.interfaceName = interfaceName;
+            this.methodName = methodName;
+        }
+
+        void record(long nanos, Object result, boolean error) {
+            calls.increment();
+            totalNanos.add(nanos);
+            if (error) {
+                errors.increment();
+            }
+            if (result instanceof CharSequence) {
+                payloadBytes.add(((CharSequence)result).length());
+            }
+            latency.observeNanos(nanos);
+        }
+
+        public String getInterfaceName() {
+            return interfaceName;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public double getTotalSeconds() {
+            return totalNanos.sum() / 1e9;
+        }
+
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+        }
+
+        public long getPayloadBytes() {
+            return payloadBytes.sum();
+        }
+
+        public FixedBucketHistogram getLatency() {
+            return latency;
+        }
+    }
+}
@@ -21,6 +21,12 @@ import java.net.UnknownHostException;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -62,10 +68,29 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
     private static final Logger LOGGER = LoggerFactory.getLogger("root."
             + JmxConnectionPool.class.getName());
 
-    // Delay for attempting jmx reconnection in seconds
-    private static final int reconnectionDelay = 10;
-    // Delay for attempting initial JMX connection if first attempt fails
-    private static final int startRetryDelay = 30;
+    // Reconnection delay doubles on each failed attempt from initial up to max (milliseconds)
+    // and is jittered so that several exporters do not reconnect in lockstep
+    private static final long initialReconnectDelay = 1000;
+    private static final long maxReconnectDelay = 60000;
+
+    // One thread makes every reconnection attempt of every pool
+    private static final ScheduledExecutorService reconnectExecutor = Executors
+            .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JMXReconnection");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /* State of a pooled connection */
+    public enum ConnectionState {
+        CONNECTING,     // initial attempt in progress
+        CONNECTED,
+        RECONNECTING,   // lost or never connected, attempts scheduled with backoff
+        DISCONNECTED    // stopped or failed without retry
+    }
 
     // private final Map<ConnectorKey, JMXConnector> connectors = new
     // HashMap<ConnectorKey, JMXConnector>();
@@ -78,6 +103,8 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
     private String X509Cert = null;
     private boolean retryConnections = false;
     private List<MXBeanSourceProviderListener> providerListeners = new ArrayList<MXBeanSourceProviderListener>();
+    private volatile JmxRateLimiter rateLimiter = null;
+    private volatile JmxCallStats callStats = null;
     final private String provider = "com.ibm.streams.management";
 
     // Create a constructor that will allow the pool to be constructed for use
@@ -128,6 +155,47 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
                 this.password, this.provider).getStreamsBeanSource();
     }
 
+    /* Applies to bean sources created after this is set, so set it before the first connection */
+    public void setRateLimiter(JmxRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public JmxRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /* Applies to bean sources created after this is set, so set it before the first connection */
+    public void setCallStats(JmxCallStats callStats) {
+        this.callStats = callStats;
+    }
+
+    public JmxCallStats getCallStats() {
+        return callStats;
+    }
+
+    /* True if any connection is waiting for a scheduled reconnection attempt */
+    public boolean isReconnecting() {
+        synchronized (connectors) {
+            for (PooledJmxConnection connector : connectors.values()) {
+                if (connector.getState() == ConnectionState.RECONNECTING) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /* Point in time status of each pooled connection, used for the exporter metrics */
+    public List<JmxConnectionStatus> getConnectionStatus() {
+        List<JmxConnectionStatus> status = new ArrayList<JmxConnectionStatus>();
+        synchronized (connectors) {
+            for (PooledJmxConnection connector : connectors.values()) {
+                status.add(connector.getStatus());
+            }
+        }
+        return status;
+    }
+
     @Override
     public void addBeanSourceProviderListener(MXBeanSourceProviderListener listener) {
         synchronized(providerListeners) {
@@ -137,6 +205,19 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
 
     // ************* Internal Methods ********************
 
+    // Timing is applied inside rate limiting so that it only measures the JMX call itself
+    private MXBeanSource decorate(MXBeanSource beanSource) {
+        JmxCallStats stats = callStats;
+        if (stats != null) {
+            beanSource = stats.instrument(beanSource);
+        }
+        JmxRateLimiter limiter = rateLimiter;
+        if (limiter != null) {
+            beanSource = limiter.limit(beanSource);
+        }
+        return beanSource;
+    }
+
     // ** Get a connection from the pool or create it if it does not exist
 
     private PooledJmxConnection getConnection(String jmxUri, String x509Cert,
@@ -156,14 +237,18 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
             if (connector == null) {
                 connector = new PooledJmxConnection(key, jmxUri, x509Cert,
                         username, password, provider, sslOption);
-                connector.doStart();
-                connectors.put(key, connector);
-            } else {
-                if (!connector.isActive()) {
-
-                    // Attempt to restart the connection
+                try {
                     connector.doStart();
+                } finally {
+                    // Keep it if connected or retrying in the background, otherwise the next call starts over
+                    if (connector.getState() != ConnectionState.DISCONNECTED) {
+                        connectors.put(key, connector);
+                    }
                 }
+            } else if (!connector.isActive()) {
+                // Do not wait on a connection that is being re-established
+                throw new IOException("JMX connection to " + jmxUri + " is " + connector.getState()
+                        + ", next attempt in " + connector.getStatus().getNextAttemptMillis() + " ms");
             }
 
             return connector;
@@ -230,6 +315,18 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
         private String x509Cert = null;
         private String provider = null;
 
+        // Connection state machine, changed while holding this connection
+        // volatile so status can be read without waiting on a connection attempt
+        private volatile ConnectionState state = ConnectionState.CONNECTING;
+        private volatile int consecutiveFailures = 0;
+        private volatile long attempts = 0;
+        private volatile long failures = 0;
+        private volatile long reconnects = 0;
+        private volatile Long disconnectedSince = null;
+        private volatile long lastTimeToReconnect = 0;
+        private volatile long nextAttempt = 0;
+        private ScheduledFuture<?> pendingReconnect = null;
+
         public PooledJmxConnection(ConnectorKey connectorKey, String jmxUri,
                 String x509Cert, String user, String password, String provider, String protocol) {
             this.mConnectorKey = connectorKey;
@@ -241,59 +338,64 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
             this.protocol = protocol;
         }
 
-        public void doStart() throws IOException, SecurityException {
-            boolean canRetry = true;
-            boolean needToRetry = true;
-            // Loop until success or throws an error because cannot retry
-            while (canRetry && needToRetry) {
-                needToRetry = false;
-                try {
-                    initNetworkConnection();
-                } catch (UnknownHostException e) {
-                    LOGGER.error("Unknown Host in JMX URL: {}", this.jmxUri);
-                    throw e;
-                } catch (MalformedURLException e) {
-                    LOGGER.error("Malformed JMX URL: {}", this.jmxUri);
-                    throw e;
-                } catch (IOException e) {
-                    LOGGER.warn(
-                            "Failed initial connection to JMX Server {}. Verify port number and ensure it is running.",
-                            this.jmxUri);
-                    System.out.println("*** e: " + e);
-                    e.printStackTrace();
-
-                    if (!retryConnections) {
-                        throw e;
-                    } else {
-                        canRetry = true;
-                        needToRetry = true;
-                    }
-
-                } catch (SecurityException e) {
-                    LOGGER.error("Initial JMX connection ({}) failed for security reasons, check username, password, or x509certificates",this.jmxUri);
-                    LOGGER.trace("  SecurityException e:" + e);
-
-                    throw e;
-                } catch (Exception e) {
-                    LOGGER.error("Intial JMX connection ({}) failed for unknown reason.  Not trying again",this.jmxUri);
-                    LOGGER.info("  Exception e: " + e);
-                    e.printStackTrace();
-                    throw e;
+        /*
+         * One connection attempt on the caller's thread.  If it fails and
+         * connections can be retried, further attempts are scheduled in the
+         * background and the IOException is still thrown so the caller does not wait.
+         */
+        public synchronized void doStart() throws IOException, SecurityException {
+            try {
+                connect();
+            } catch (UnknownHostException e) {
+                LOGGER.error("Unknown Host in JMX URL: {}", this.jmxUri);
+                state = ConnectionState.DISCONNECTED;
+                throw e;
+            } catch (MalformedURLException e) {
+                LOGGER.error("Malformed JMX URL: {}", this.jmxUri);
+                state = ConnectionState.DISCONNECTED;
+                throw e;
+            } catch (IOException e) {
+                LOGGER.warn(
+                        "Failed initial connection to JMX Server {}. Verify port number and ensure it is running. => {}",
+                        this.jmxUri, e.getMessage());
+                if (!retryConnections) {
+                    state = ConnectionState.DISCONNECTED;
+                } else {
+                    scheduleReconnect();
                 }
+                throw e;
+            } catch (SecurityException e) {
+                LOGGER.error("Initial JMX connection ({}) failed for security reasons, check username, password, or x509certificates",this.jmxUri);
+                LOGGER.trace("  SecurityException e:" + e);
+                state = ConnectionState.DISCONNECTED;
+                throw e;
+            } catch (RuntimeException e) {
+                LOGGER.error("Intial JMX connection ({}) failed for unknown reason.  Not trying again",this.jmxUri);
+                LOGGER.info("  Exception e: " + e);
+                state = ConnectionState.DISCONNECTED;
+                throw e;
+            }
+        }
 
-                // If can retry, then wait a bit
-                if (needToRetry && canRetry) {
-                    LOGGER.info(
-                            "Retrying initial JMX connection in " + startRetryDelay + " seconds...");
-                    try {
-                        Thread.sleep(startRetryDelay * 1000);
-                    } catch (InterruptedException e) {
-                        LOGGER.error("JMX Retry Interupted.");
-                        throw new IOException(
-                                "JMX Initial Connection Retry Interupted");
-                    }
-                }
+        /* A connection attempt that keeps the state machine and counters up to date */
+        private void connect() throws IOException {
+            attempts++;
+            try {
+                initNetworkConnection();
+            } catch (IOException | RuntimeException e) {
+                failures++;
+                consecutiveFailures++;
+                throw e;
             }
+            if (disconnectedSince != null) {
+                lastTimeToReconnect = System.currentTimeMillis() - disconnectedSince;
+                reconnects++;
+                LOGGER.info("*** JMX Connection to {} re-established after {} ms and {} attempts",
+                        jmxUri, lastTimeToReconnect, consecutiveFailures);
+            }
+            disconnectedSince = null;
+            consecutiveFailures = 0;
+            state = ConnectionState.CONNECTED;
         }
 
         /*
@@ -341,7 +443,7 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
             mConnector.addConnectionNotificationListener(
                     getConnectionNotificationListener(), null, null);
             mBeanServerConnection = mConnector.getMBeanServerConnection();
-            mStreamsBeanSource = new MXBeanSourceImpl(mBeanServerConnection);
+            mStreamsBeanSource = decorate(new MXBeanSourceImpl(mBeanServerConnection));
 
             LOGGER.trace("***** initNetworkConnection, Created JMX ConnectonID: "
                     + mConnectionId);
@@ -349,34 +451,79 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
         }
 
         /**
-         * Schedules an attempt to re-initialize a lost connection after the
-         * reconnect delay
+         * Schedules an attempt to re-initialize a lost connection on the shared
+         * reconnect thread after a jittered exponential backoff delay
          */
-        protected void scheduleReconnect() {
-            TimerTask reconnector = new TimerTask() {
+        protected synchronized void scheduleReconnect() {
+            if (state == ConnectionState.DISCONNECTED) {
+                return; // stopped
+            }
+            if (pendingReconnect != null) {
+                return; // already scheduled, e.g. FAILED followed by CLOSED
+            }
+            if (disconnectedSince == null) {
+                disconnectedSince = System.currentTimeMillis();
+            }
+            state = ConnectionState.RECONNECTING;
+
+            long delay = backoffDelay(consecutiveFailures);
+            nextAttempt = System.currentTimeMillis() + delay;
+            LOGGER.info("*** Delaying JMX reconnection. Trying again in {} ms", delay);
+
+            pendingReconnect = reconnectExecutor.schedule(new Runnable() {
                 @Override
                 public void run() {
-                    try {
-                        initNetworkConnection();
-                    } catch (Exception e) {
-                        LOGGER.warn(
-                                "** Failed to reconnect to JMX Server {}. => {}", jmxUri, e.getMessage());
-                        scheduleReconnect();
-                    }
+                    reconnect();
                 }
-            };
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void reconnect() {
+            pendingReconnect = null;
+            if (state != ConnectionState.RECONNECTING) {
+                return;
+            }
+            try {
+                connect();
+            } catch (Exception e) {
+                LOGGER.warn(
+                        "** Failed to reconnect to JMX Server {}. => {}", jmxUri, e.getMessage());
+                scheduleReconnect();
+            }
+        }
 
-            LOGGER.info(
-                    "*** Delaying JMX reconnection. Trying again in " + reconnectionDelay + " seconds");
+        // Equal jitter: half of the backoff is fixed, the other half random
+        private long backoffDelay(int failures) {
+            long backoff = Math.min(maxReconnectDelay,
+                    initialReconnectDelay << Math.min(Math.max(failures - 1, 0), 16));
+            return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        }
 
-            // Create timer to automatically refresh the status and metrics
-            Timer timer = new Timer("JMXReconnection");
-            timer.schedule(reconnector, 1000 * reconnectionDelay);
+        public ConnectionState getState() {
+            return state;
+        }
 
+        public JmxConnectionStatus getStatus() {
+            long now = System.currentTimeMillis();
+            Long since = disconnectedSince;
+            return new JmxConnectionStatus(jmxUri, state, attempts, failures, reconnects,
+                    lastTimeToReconnect,
+                    (since == null ? 0 : now - since),
+                    (state == ConnectionState.RECONNECTING ? Math.max(nextAttempt - now, 0) : 0));
         }
 
         // Stop/Destroy the connection
         public void doStop() {
+            synchronized (this) {
+                state = ConnectionState.DISCONNECTED;
+                if (pendingReconnect != null) {
+                    pendingReconnect.cancel(false);
+                    pendingReconnect = null;
+                }
+            }
+            if (mConnector == null) {
+                return; // never connected
+            }
             try {
                 removeNotificationListener();
                 mConnector.close();
@@ -388,7 +535,7 @@ public class JmxConnectionPool implements MXBeanSourceProvider {
 
         // Validate the connection is still alive
         public boolean isActive() {
-            return true;
+            return state == ConnectionState.CONNECTED;
         }
 
         @SuppressWarnings("unused")
@@ -0,0 +1,82 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.jmx;
+
+/*
+ * JmxConnectionStatus
+ * Point in time status of a pooled JMX connection
+ */
+public class JmxConnectionStatus {
+    private final String jmxUri;
+    private final JmxConnectionPool.ConnectionState state;
+    private final long attempts;
+    private final long failures;
+    private final long reconnects;
+    private final long lastTimeToReconnectMillis;
+    private final long disconnectedMillis;
+    private final long nextAttemptMillis;
+
+    public JmxConnectionStatus(String jmxUri, JmxConnectionPool.ConnectionState state,
+            long attempts, long failures, long reconnects, long lastTimeToReconnectMillis,
+            long disconnectedMillis, long nextAttemptMillis) {
+        this.jmxUri = jmxUri;
+        this.state = state;
+        this.attempts = attempts;
+        this.failures = failures;
+        this.reconnects = reconnects;
+        this.lastTimeToReconnectMillis = lastTimeToReconnectMillis;
+        this.disconnectedMillis = disconnectedMillis;
+        this.nextAttemptMillis = nextAttemptMillis;
+    }
+
+    public String getJmxUri() {
+        return jmxUri;
+    }
+
+    public JmxConnectionPool.ConnectionState getState() {
+        return state;
+    }
+
+    /* Connection attempts made, initial and reconnects */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    /* Number of times a lost connection was re-established */
+    public long getReconnects() {
+        return reconnects;
+    }
+
+    /* How long the last outage lasted, 0 if never reconnected */
+    public long getLastTimeToReconnectMillis() {
+        return lastTimeToReconnectMillis;
+    }
+
+    /* How long the current outage has lasted, 0 if connected */
+    public long getDisconnectedMillis() {
+        return disconnectedMillis;
+    }
+
+    /* Time until the next scheduled attempt, 0 if none is scheduled */
+    public long getNextAttemptMillis() {
+        return nextAttemptMillis;
+    }
+}
@@ -0,0 +1,124 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.jmx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * JmxRateLimiter
+ * Limits the rate of calls into the Streams JMX service with two token buckets:
+ *   * snapshot operations (snapshotJobs, snapshotJobMetrics, ...) that make the
+ *     server build a large payload
+ *   * everything else (attribute reads and small operations)
+ * MXBean proxies handed out by the MXBeanSource are wrapped so every call
+ * takes a token from the matching bucket first.  A rate of 0 disables that bucket.
+ */
+public class JmxRateLimiter {
+    private static final Logger LOGGER = LoggerFactory.getLogger("root."
+            + JmxRateLimiter.class.getName());
+
+    // Seconds worth of tokens that can be used in a burst (e.g. all instances refreshing together)
+    private static final double BURST_SECONDS = 10;
+
+    private final TokenBucket readBucket;
+    private final TokenBucket snapshotBucket;
+    private final long maxWaitMillis;
+
+    public JmxRateLimiter(double readsPerSecond, double snapshotsPerSecond, long maxWaitMillis) {
+        this.readBucket = newBucket("read", readsPerSecond);
+        this.snapshotBucket = newBucket("snapshot", snapshotsPerSecond);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public boolean isEnabled() {
+        return (readBucket != null || snapshotBucket != null);
+    }
+
+    /* null if that bucket is disabled */
+    public TokenBucket getReadBucket() {
+        return readBucket;
+    }
+
+    public TokenBucket getSnapshotBucket() {
+        return snapshotBucket;
+    }
+
+    /* Wraps every bean the source returns, see limit(bean, beanInterface) */
+    public MXBeanSource limit(MXBeanSource beanSource) {
+        if (!isEnabled()) {
+            return beanSource;
+        }
+        return new MXBeanSourceDecorator(beanSource) {
+            @Override
+            protected <T> T decorate(T bean, Class<T> beanInterface) {
+                return limit(bean, beanInterface);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T limit(final T bean, Class<T> beanInterface) {
+        if (!isEnabled() || bean == null) {
+            return bean;
+        }
+        return (T)Proxy.newProxyInstance(beanInterface.getClassLoader(), new Class<?>[] { beanInterface },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getDeclaringClass() != Object.class) {
+                            acquire(method.getName());
+                        }
+                        try {
+                            return method.invoke(bean, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    private void acquire(String methodName) throws JmxThrottledException {
+        TokenBucket bucket = (methodName.startsWith("snapshot") ? snapshotBucket : readBucket);
+        if (bucket == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = bucket.acquire(maxWaitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            LOGGER.debug("JMX call {} throttled, no {} token within {} ms", methodName, bucket.getName(), maxWaitMillis);
+            throw new JmxThrottledException("JMX call " + methodName + " throttled by the " + bucket.getName() + " rate limit");
+        }
+    }
+
+    private static TokenBucket newBucket(String name, double perSecond) {
+        if (perSecond <= 0) {
+            return null;
+        }
+        return new TokenBucket(name, perSecond, Math.max(1, Math.ceil(perSecond * BURST_SECONDS)));
+    }
+}
@@ -0,0 +1,32 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.jmx;
+
+import java.io.IOException;
+
+/*
+ * Thrown when a JMX call could not get a token from the JmxRateLimiter
+ * within the maximum wait.  An IOException so that existing JMX error
+ * handling applies, callers that have a previous result can keep using it.
+ */
+public class JmxThrottledException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public JmxThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,100 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.jmx;
+
+/*
+ * TokenBucket
+ * Tokens are added at a fixed rate up to the capacity, each call takes one.
+ * Callers wait at most maxWait for a token, and do not wait at all if the
+ * next token cannot arrive within that time.
+ */
+public class TokenBucket {
+    private final String name;
+    private final double tokensPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    /* Counters */
+    private long acquired = 0;
+    private long waited = 0;
+    private long rejected = 0;
+
+    public TokenBucket(String name, double tokensPerSecond, double capacity) {
+        this.name = name;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /* Returns false if no token became available within maxWaitMillis */
+    public boolean acquire(long maxWaitMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitMillis * 1000000L;
+        boolean hadToWait = false;
+        synchronized (this) {
+            while (true) {
+                long now = System.nanoTime();
+                refill(now);
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    acquired++;
+                    if (hadToWait) waited++;
+                    return true;
+                }
+                long untilNextToken = (long)Math.ceil((1 - tokens) / tokensPerNano);
+                if (now + untilNextToken > deadline) {
+                    rejected++;
+                    return false;
+                }
+                hadToWait = true;
+                // Other waiters may take the token first, so check again after the wait
+                long waitNanos = Math.max(untilNextToken, 1000000L);
+                wait(waitNanos / 1000000L, (int)(waitNanos % 1000000L));
+            }
+        }
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    public synchronized long getAcquired() {
+        return acquired;
+    }
+
+    /* Calls that got a token after waiting */
+    public synchronized long getWaited() {
+        return waited;
+    }
+
+    /* Calls that did not get a token within the maximum wait */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
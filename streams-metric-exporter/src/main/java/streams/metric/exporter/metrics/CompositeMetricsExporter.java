@@ -0,0 +1,92 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * CompositeMetricsExporter
+ *
+ * Fans every call out to a fixed list of exporters so Prometheus and any
+ * additional sinks (Elasticsearch, ...) see the same metrics.
+ */
+public class CompositeMetricsExporter extends MetricsExporter {
+
+	private final MetricsExporter[] exporters;
+
+	public CompositeMetricsExporter(List<MetricsExporter> exporters) {
+		this.exporters = exporters.toArray(new MetricsExporter[exporters.size()]);
+	}
+
+	public void createStreamsMetric(String metricName, StreamsObjectType type, String description) {
+		for (MetricsExporter exporter : exporters) {
+			exporter.createStreamsMetric(metricName, type, description);
+		}
+	}
+
+	public Metric getStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		Metric[] metrics = new Metric[exporters.length];
+		for (int i = 0; i < exporters.length; i++) {
+			metrics[i] = exporters[i].getStreamsMetric(metricName, type, labelValues);
+		}
+		return new CompositeMetric(metricName, labelValues, metrics);
+	}
+
+	public void removeStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		for (MetricsExporter exporter : exporters) {
+			exporter.removeStreamsMetric(metricName, type, labelValues);
+		}
+	}
+
+	public void removeAllChildStreamsMetrics(String... labelValues) {
+		for (MetricsExporter exporter : exporters) {
+			exporter.removeAllChildStreamsMetrics(labelValues);
+		}
+	}
+
+	@Override
+	public void removeStaleChildStreamsMetrics(long mark, String... labelValues) {
+		for (MetricsExporter exporter : exporters) {
+			exporter.removeStaleChildStreamsMetrics(mark, labelValues);
+		}
+	}
+
+	@Override
+	public long nextGeneration() {
+		long generation = 0;
+		for (MetricsExporter exporter : exporters) {
+			generation = Math.max(generation, exporter.nextGeneration());
+		}
+		return generation;
+	}
+
+	class CompositeMetric extends MetricsExporter.Metric {
+		private final Metric[] metrics;
+
+		protected CompositeMetric(String name, String[] labelValues, Metric[] metrics) {
+			super(name, Arrays.asList(labelValues));
+			this.metrics = metrics;
+		}
+
+		public void set(double val) {
+			for (Metric m : metrics) {
+				m.set(val);
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/*
+ * FixedBucketHistogram
+ *
+ * Lock free histogram with fixed upper bounds, used for the exporter's own
+ * metrics.  Observations only touch an AtomicLongArray slot and a DoubleAdder
+ * so it is cheap enough to record on every call.  Exported in the prometheus
+ * histogram form (cumulative buckets, +Inf last).
+ */
+public class FixedBucketHistogram {
+
+	/* Seconds, from a fast JMX attribute read to a slow snapshot of a large instance */
+	public static final double[] LATENCY_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60 };
+
+	/* Bytes, 1KB to 256MB */
+	public static final double[] SIZE_BUCKETS = { 1024, 4096, 16384, 65536, 262144, 1048576, 4194304,
+			16777216, 67108864, 268435456 };
+
+	private final double[] bounds;
+	// Non cumulative, index bounds.length is +Inf
+	private final AtomicLongArray counts;
+	private final DoubleAdder sum = new DoubleAdder();
+
+	public FixedBucketHistogram(double[] bounds) {
+		this.bounds = bounds;
+		this.counts = new AtomicLongArray(bounds.length + 1);
+	}
+
+	public void observe(double value) {
+		int i = 0;
+		while (i < bounds.length && value > bounds[i]) {
+			i++;
+		}
+		counts.incrementAndGet(i);
+		sum.add(value);
+	}
+
+	public void observeNanos(long nanos) {
+		observe(nanos / 1e9);
+	}
+
+	public double[] getBounds() {
+		return bounds;
+	}
+
+	public double getSum() {
+		return sum.sum();
+	}
+
+	/* Cumulative counts for each bound followed by +Inf, the last one is the total count */
+	public long[] getCumulativeCounts() {
+		long[] cumulative = new long[counts.length()];
+		long total = 0;
+		for (int i = 0; i < cumulative.length; i++) {
+			total += counts.get(i);
+			cumulative[i] = total;
+		}
+		return cumulative;
+	}
+}
@@ -0,0 +1,158 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.metrics;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * LabelValueInterner
+ *
+ * Process wide dictionary of metric label values (instance, job, resource,
+ * pe and operator names).  Every json parse creates new String instances for
+ * the same names; passing them through here means series retain one shared
+ * instance per distinct name.  Entries are weak so names of canceled jobs
+ * go away once no series or job details refer to them.
+ *
+ * The dictionary is a ConcurrentHashMap of weak keys, so the refresh threads
+ * of different instances do not serialize on it.  Cleared keys are expunged
+ * from a reference queue on the way in.
+ */
+public class LabelValueInterner {
+
+	private static final ConcurrentHashMap<Object, WeakKey> dictionary = new ConcurrentHashMap<Object, WeakKey>();
+	private static final ReferenceQueue<String> cleared = new ReferenceQueue<String>();
+	private static final LongAdder lookups = new LongAdder();
+	private static final LongAdder hits = new LongAdder();
+
+	private LabelValueInterner() {}
+
+	public static String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		lookups.increment();
+		expunge();
+		WeakKey existing = dictionary.get(new Lookup(value));
+		String canonical = (existing == null ? null : existing.get());
+		if (canonical != null) {
+			hits.increment();
+			return canonical;
+		}
+		WeakKey key = new WeakKey(value, cleared);
+		while (true) {
+			existing = dictionary.putIfAbsent(key, key);
+			if (existing == null) {
+				return value;
+			}
+			canonical = existing.get();
+			if (canonical != null) {
+				hits.increment();
+				return canonical;
+			}
+			// Cleared but not expunged yet.  Remove it rather than replace its value, the map
+			// would keep the cleared key and expunging it later would drop our entry with it
+			dictionary.remove(existing, existing);
+		}
+	}
+
+	/* Interned copy of the label values, the array passed in is left alone */
+	public static String[] internAll(String... values) {
+		String[] interned = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			interned[i] = intern(values[i]);
+		}
+		return interned;
+	}
+
+	public static int size() {
+		expunge();
+		return dictionary.size();
+	}
+
+	public static long getLookups() {
+		return lookups.sum();
+	}
+
+	public static long getHits() {
+		return hits.sum();
+	}
+
+	public static double getHitRatio() {
+		long total = lookups.sum();
+		return (total == 0 ? 0 : (double)hits.sum() / total);
+	}
+
+	private static void expunge() {
+		Reference<? extends String> ref;
+		while ((ref = cleared.poll()) != null) {
+			dictionary.remove(ref, ref);
+		}
+	}
+
+	/* Dictionary key, equal to another key or Lookup of an equal string while its string is reachable */
+	private static final class WeakKey extends WeakReference<String> {
+		private final int hash;
+
+		WeakKey(String value, ReferenceQueue<String> queue) {
+			super(value, queue);
+			this.hash = value.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+			String value = get();
+			if (value == null) {
+				return false;
+			}
+			if (o instanceof WeakKey) {
+				return value.equals(((WeakKey) o).get());
+			}
+			return (o instanceof Lookup && value.equals(((Lookup) o).value));
+		}
+	}
+
+	/* Strong probe for get(), avoids creating a WeakReference per lookup */
+	private static final class Lookup {
+		private final String value;
+
+		Lookup(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return (o instanceof WeakKey && value.equals(((WeakKey) o).get()));
+		}
+	}
+}
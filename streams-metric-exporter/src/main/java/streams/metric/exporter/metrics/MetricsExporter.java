@@ -21,16 +21,28 @@ import org.slf4j.LoggerFactory;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class MetricsExporter {
 	private static final Logger LOGGER = LoggerFactory.getLogger("root." + MetricsExporter.class.getName());
 	
 	// Metric Labels Index, allows us to remove child metrics by label
 	private MetricLabelIndex metricIndex = new MetricLabelIndex();
+
+	// Series churn, counted by the exporters that keep series (the prometheus stores)
+	private final LongAdder seriesCreated = new LongAdder();
+	private final LongAdder seriesRemoved = new LongAdder();
+	private final LongAdder seriesUpdated = new LongAdder();
+
+	// Mark and sweep of series, see nextSweepMark().  Shared by every exporter so a composite needs no marks of its own
+	private static final AtomicLong sweepMark = new AtomicLong();
 	
 	public abstract void createStreamsMetric(String metricName, StreamsObjectType type, String description);
 
@@ -40,12 +52,62 @@ public abstract class MetricsExporter {
 
 	public abstract void removeAllChildStreamsMetrics(String... labelValues);
 
+	/*
+	 * Removes the children of labelValues that were not got (getStreamsMetric)
+	 * since mark was taken with nextSweepMark().  Exporters that only hold the
+	 * metrics of the refresh in progress have nothing to sweep.
+	 */
+	public void removeStaleChildStreamsMetrics(long mark, String... labelValues) {
+	}
+
+	/* Starts a mark and sweep, e.g. of the series of a job: series got from now on are not older than the mark */
+	public static long nextSweepMark() {
+		return sweepMark.incrementAndGet();
+	}
+
+	protected static long currentSweepMark() {
+		return sweepMark.get();
+	}
+
 	static protected String getStreamsMetricFullName(String metricName, StreamsObjectType type, String... labelValues) {
 		return type.metricPrefix() + metricName;
 	}
 	
-	protected void addStreamsMetricToIndex(Metric m) {
-		this.metricIndex.add(m);
+	/* Returns true if the metric was not already in the index */
+	protected boolean addStreamsMetricToIndex(Metric m) {
+		int added = this.metricIndex.add(m);
+		seriesCreated.add(added);
+		return (added > 0);
+	}
+
+	protected void countSeriesRemoved(int count) {
+		seriesRemoved.add(count);
+	}
+
+	protected void countSeriesUpdated() {
+		seriesUpdated.increment();
+	}
+
+	public long getSeriesCreated() {
+		return seriesCreated.sum();
+	}
+
+	public long getSeriesRemoved() {
+		return seriesRemoved.sum();
+	}
+
+	public long getSeriesUpdated() {
+		return seriesUpdated.sum();
+	}
+
+	/* Starts a new generation of series changes (see the metrics delta endpoint), 0 if not tracked */
+	public long nextGeneration() {
+		return 0;
+	}
+
+	/* Number of series currently held */
+	public int getSeriesCount() {
+		return metricIndex.size();
 	}
 	
 	public MetricLabelIndex getMetricIndex() {
@@ -55,6 +117,10 @@ public abstract class MetricsExporter {
 	protected Set<Metric> removeAllChildMetricsFromIndex(String... labelValues) {
 		return this.metricIndex.removeWithChildren(labelValues);
 	}
+
+	protected Set<Metric> removeStaleChildMetricsFromIndex(long mark, String... labelValues) {
+		return this.metricIndex.removeStaleChildren(mark, labelValues);
+	}
 	
 	public enum StreamsObjectType {
 		INSTANCE("streams_instance_", new String[] { "instancename" }),
@@ -85,6 +151,19 @@ public abstract class MetricsExporter {
 			return labels;
 		}
 
+		/* Type a family of full metric name and label names was created for, null if none.
+		 * Several types share labels or a prefix, the longest prefix with the same labels wins. */
+		public static StreamsObjectType forFamily(String familyName, List<String> labelNames) {
+			StreamsObjectType match = null;
+			for (StreamsObjectType type : values()) {
+				if (familyName.startsWith(type.metric_prefix) && labelNames.equals(Arrays.asList(type.labels))
+						&& (match == null || type.metric_prefix.length() > match.metric_prefix.length())) {
+					match = type;
+				}
+			}
+			return match;
+		}
+
 		public String metricDescriptionPrefix() {
 			String description;
 			switch (this) {
@@ -133,6 +212,8 @@ public abstract class MetricsExporter {
 	public abstract class Metric {
 		protected final String name;
 		protected final List<String> labelValues;
+		// Sweep mark when last got, only maintained for the metric held by the MetricLabelIndex
+		private long seenMark = 0;
 
 		protected Metric(String name, List<String> labelValues) {
 			LOGGER.trace("Creating Metric: name={}, labelValues={}",name,String.join(",",labelValues));
@@ -191,18 +272,28 @@ public abstract class MetricsExporter {
 	}
 	
 	public class MetricLabelIndex {
-		private Set<Metric> metrics;
+		// Each metric maps to itself so the indexed one can be marked when an equal metric is added again
+		private Map<Metric, Metric> metrics;
 		
 		public MetricLabelIndex() {
-			this.metrics = new HashSet<Metric>();
+			this.metrics = new HashMap<Metric, Metric>();
 		}
 		
-		public void add(Metric... newMetrics) {
+		/* Returns the number of metrics that were not already in the index, all of them are marked as seen */
+		public int add(Metric... newMetrics) {
+			int added = 0;
+			long mark = currentSweepMark();
 			synchronized (this.metrics){
 				for (Metric m : newMetrics) {
-					this.metrics.add(m);
+					Metric indexed = this.metrics.putIfAbsent(m, m);
+					if (indexed == null) {
+						indexed = m;
+						added++;
+					}
+					indexed.seenMark = mark;
 				}
 			}
+			return added;
 		}
 		
 		public int size() {
@@ -212,7 +303,7 @@ public abstract class MetricsExporter {
 		public Set<Metric> removeWithChildren(String... labelValues) {	
 			Set<Metric> removedMetrics = new HashSet<Metric>();
 			synchronized (this.metrics){
-				Iterator<Metric> it = this.metrics.iterator();
+				Iterator<Metric> it = this.metrics.keySet().iterator();
 				while (it.hasNext()) {
 					Metric metric = it.next();
 					if (metric.labelChildOf(labelValues)) {
@@ -225,6 +316,22 @@ public abstract class MetricsExporter {
 			return removedMetrics;
 			
 		}
+
+		/* Like removeWithChildren, but only the children not seen since mark */
+		public Set<Metric> removeStaleChildren(long mark, String... labelValues) {
+			Set<Metric> removedMetrics = new HashSet<Metric>();
+			synchronized (this.metrics){
+				Iterator<Metric> it = this.metrics.keySet().iterator();
+				while (it.hasNext()) {
+					Metric metric = it.next();
+					if (metric.seenMark < mark && metric.labelChildOf(labelValues)) {
+						removedMetrics.add(metric);
+						it.remove();
+					}
+				}
+			}
+			return removedMetrics;
+		}
 	}
 
 }
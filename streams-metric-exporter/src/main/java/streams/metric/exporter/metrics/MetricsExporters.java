@@ -0,0 +1,65 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+
+/*
+ * MetricsExporters
+ *
+ * The exporter used by the tracker and job details.  Prometheus is always
+ * present, additional exporters are added at startup before the tracker is
+ * created.  With no additional exporters the Prometheus exporter is used
+ * directly.
+ */
+public class MetricsExporters {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + MetricsExporters.class.getName());
+
+	static private final List<MetricsExporter> additionalExporters = new ArrayList<MetricsExporter>();
+	static private MetricsExporter exporter = null;
+
+	private MetricsExporters() {}
+
+	static public synchronized void addExporter(MetricsExporter additionalExporter) {
+		if (exporter != null) {
+			LOGGER.warn("Metrics exporter {} added after metrics were exported, ignoring", additionalExporter.getClass().getSimpleName());
+			return;
+		}
+		additionalExporters.add(additionalExporter);
+	}
+
+	static public synchronized MetricsExporter getExporter() {
+		if (exporter == null) {
+			MetricsExporter prometheus = PrometheusMetricsExporter.getInstance();
+			if (additionalExporters.isEmpty()) {
+				exporter = prometheus;
+			} else {
+				List<MetricsExporter> all = new ArrayList<MetricsExporter>();
+				all.add(prometheus);
+				all.addAll(additionalExporters);
+				exporter = new CompositeMetricsExporter(all);
+			}
+		}
+		return exporter;
+	}
+}
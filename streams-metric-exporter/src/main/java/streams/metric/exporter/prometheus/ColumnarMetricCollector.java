@@ -0,0 +1,705 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.metrics.LabelValueInterner;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+
+/*
+ * ColumnarMetricCollector
+ *
+ * Prometheus collector that keeps every exported series in primitive columns
+ * indexed by an int series id rather than one Gauge.Child (plus label List
+ * and ConcurrentHashMap entry) per series.
+ *   * values[id]   current value
+ *   * family[id]   index into the metric family table
+ *   * labels[id]   label values, stored once per series and interned
+ * Lookup of (family, labels) -> id uses an open addressing int table so no
+ * per-series key or boxed Integer objects are retained.
+ * MetricFamilySamples are only built when the registry is scraped.
+ *
+ * Each series also records the generation in which its value last changed,
+ * and recent removals are kept in a ring, so delta() can return what changed
+ * after a given generation.  The generation is advanced at the start of each
+ * refresh and by every delta() so changes are never missed between calls.
+ * Series are updated in place, so an unchanged value is not a change.  The
+ * sweep mark of each lookup is recorded so series no longer reported (e.g.
+ * of a removed operator) can be removed without touching the others, see
+ * removeStaleChildren().
+ *
+ * The series ids of each family are also kept in a per family list, so a
+ * selective scrape (see MetricSelector) only visits the selected families.
+ * Likewise they are kept in a list per first two label values (instance, then
+ * job or resource), so removing the children of a job and the delta of an
+ * instance only visit the series of that job or instance.
+ */
+public class ColumnarMetricCollector extends Collector {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + ColumnarMetricCollector.class.getName());
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int EMPTY = -1;
+	private static final int DELETED = -2;
+	private static final int REMOVAL_LOG_SIZE = 16384;
+
+	/* Metric family table, small (one entry per metric name) */
+	private final Map<String, Integer> familyIndex = new HashMap<String, Integer>();
+	private final List<String> familyNames = new ArrayList<String>();
+	private final List<String> familyHelp = new ArrayList<String>();
+	private final List<List<String>> familyLabelNames = new ArrayList<List<String>>();
+	private final List<StreamsObjectType> familyTypes = new ArrayList<StreamsObjectType>();
+
+	/* Series ids of each family, familySlot[id] is the position of id in the list of its family */
+	private int[][] familySeries = new int[64][];
+	private int[] familySeriesCount = new int[64];
+
+	/* Series columns */
+	private double[] values = new double[INITIAL_CAPACITY];
+	private int[] family = new int[INITIAL_CAPACITY];
+	private String[][] labels = new String[INITIAL_CAPACITY][];
+	private int highWater = 0; // ids below this have been handed out at least once
+	private int liveSeries = 0;
+
+	/* Series churn since start */
+	private long created = 0;
+	private long removed = 0;
+	private long updated = 0;
+
+	/* Generation of the last value change of each series, see delta() */
+	private long[] changedAt = new long[INITIAL_CAPACITY];
+	/* Sweep mark of the last lookup of each series, see removeStaleChildren() */
+	private long[] seenAt = new long[INITIAL_CAPACITY];
+	private int[] familySlot = new int[INITIAL_CAPACITY];
+
+	/* Series ids by their first two label values, childSlot[id] is the position of id in childList[id] */
+	private final Map<String, Map<String, SeriesList>> children = new HashMap<String, Map<String, SeriesList>>();
+	private SeriesList[] childList = new SeriesList[INITIAL_CAPACITY];
+	private int[] childSlot = new int[INITIAL_CAPACITY];
+
+	private long generation = 1;
+	private final long epoch = System.currentTimeMillis();
+
+	/* Ring of recent removals, removalFloor is the newest generation dropped from it */
+	private final long[] removedAt = new long[REMOVAL_LOG_SIZE];
+	private final int[] removedFamily = new int[REMOVAL_LOG_SIZE];
+	private final String[][] removedLabels = new String[REMOVAL_LOG_SIZE][];
+	private int removalNext = 0;
+	private int removalCount = 0;
+	private long removalFloor = 0;
+
+	/* Recycled series ids */
+	private int[] freeIds = new int[64];
+	private int freeCount = 0;
+
+	/* Open addressing lookup table: slot -> series id */
+	private int[] table = newTable(INITIAL_CAPACITY * 2);
+	private int tableUsed = 0; // live + deleted slots
+
+	/* Returns the family id, creating it if it does not exist yet.  Help text of existing families is left alone */
+	public synchronized int family(String name, String help, String[] labelNames) {
+		Integer id = familyIndex.get(name);
+		if (id == null) {
+			id = familyNames.size();
+			familyNames.add(name);
+			familyHelp.add(help);
+			familyLabelNames.add(Collections.unmodifiableList(Arrays.asList(labelNames.clone())));
+			familyTypes.add(StreamsObjectType.forFamily(name, familyLabelNames.get(id)));
+			familyIndex.put(name, id);
+			if (id == familySeries.length) {
+				familySeries = Arrays.copyOf(familySeries, id * 2);
+				familySeriesCount = Arrays.copyOf(familySeriesCount, id * 2);
+			}
+			familySeries[id] = new int[16];
+		}
+		return id;
+	}
+
+	/* Returns the family id or -1 if the family has never been created */
+	public synchronized int getFamily(String name) {
+		Integer id = familyIndex.get(name);
+		return (id == null ? -1 : id);
+	}
+
+	public synchronized int familyCount() {
+		return familyNames.size();
+	}
+
+	public synchronized int size() {
+		return liveSeries;
+	}
+
+	public synchronized long getCreated() {
+		return created;
+	}
+
+	public synchronized long getRemoved() {
+		return removed;
+	}
+
+	public synchronized long getUpdated() {
+		return updated;
+	}
+
+	/* Returns the series id for the family and label values, creating it if necessary */
+	public int series(int familyId, String... labelValues) {
+		return series(familyId, 0, labelValues);
+	}
+
+	/* As series(familyId, labelValues), and records seenMark for removeStaleChildren() */
+	public synchronized int series(int familyId, long seenMark, String... labelValues) {
+		int expected = familyLabelNames.get(familyId).size();
+		if (labelValues.length != expected) {
+			throw new IllegalArgumentException("Incorrect number of labels for " + familyNames.get(familyId)
+					+ ", expected " + expected + " received " + labelValues.length);
+		}
+		int hash = hash(familyId, labelValues);
+		int mask = table.length - 1;
+		int slot = hash & mask;
+		int firstDeleted = -1;
+		while (true) {
+			int id = table[slot];
+			if (id == EMPTY) {
+				break;
+			}
+			if (id == DELETED) {
+				if (firstDeleted < 0) firstDeleted = slot;
+			} else if (family[id] == familyId && Arrays.equals(labels[id], labelValues)) {
+				seenAt[id] = seenMark;
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		int id = allocateId();
+		family[id] = familyId;
+		labels[id] = LabelValueInterner.internAll(labelValues);
+		values[id] = 0;
+		changedAt[id] = generation;
+		seenAt[id] = seenMark;
+		addToFamily(familyId, id);
+		addToChildren(id);
+		liveSeries++;
+		created++;
+
+		if (firstDeleted >= 0) {
+			table[firstDeleted] = id;
+		} else {
+			table[slot] = id;
+			tableUsed++;
+			if (tableUsed * 4 >= table.length * 3) {
+				// Grow only if live series need it, otherwise just clear out the deleted slots
+				rehash(liveSeries * 2 > table.length ? table.length * 2 : table.length);
+			}
+		}
+		return id;
+	}
+
+	/* Returns the series id or -1 if the series does not exist */
+	public synchronized int findSeries(int familyId, String... labelValues) {
+		int slot = findSlot(familyId, labelValues);
+		return (slot < 0 ? -1 : table[slot]);
+	}
+
+	public synchronized void set(int seriesId, double value) {
+		if (labels[seriesId] != null) {
+			if (Double.doubleToLongBits(values[seriesId]) != Double.doubleToLongBits(value)) {
+				values[seriesId] = value;
+				changedAt[seriesId] = generation;
+			}
+			updated++;
+		}
+	}
+
+	public synchronized double get(int seriesId) {
+		return values[seriesId];
+	}
+
+	public synchronized boolean isLive(int seriesId) {
+		return (seriesId < highWater && labels[seriesId] != null);
+	}
+
+	public synchronized void remove(int familyId, String... labelValues) {
+		int slot = findSlot(familyId, labelValues);
+		if (slot >= 0) {
+			releaseId(table[slot]);
+			table[slot] = DELETED;
+		}
+	}
+
+	/* Remove every series (in every family) whose leading label values match, returns number removed */
+	/* "I1","J1","Op1" is a child of ("I1","J1") */
+	public synchronized int removeWithChildren(String... labelValues) {
+		int removed = removeChildren(Long.MAX_VALUE, labelValues);
+		LOGGER.trace("removeWithChildren({}) removed {} series", Arrays.asList(labelValues), removed);
+		return removed;
+	}
+
+	/* Like removeWithChildren, but only the series not looked up since mark, returns number removed */
+	public synchronized int removeStaleChildren(long mark, String... labelValues) {
+		int removed = removeChildren(mark, labelValues);
+		LOGGER.trace("removeStaleChildren({}, {}) removed {} series", mark, Arrays.asList(labelValues), removed);
+		return removed;
+	}
+
+	/* Starts a new generation, changes from now on are newer than every earlier delta */
+	public synchronized long nextGeneration() {
+		return ++generation;
+	}
+
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/*
+	 * Series whose leading label is instanceName that changed after generation
+	 * since, and those removed after it.  If the removals since then are no
+	 * longer all known (or since is 0, or from the future e.g. before a
+	 * restart) every live series is returned with reset set and no removals.
+	 * The changed series are copied under the lock and the entries built
+	 * outside it, like collect().
+	 */
+	public Delta delta(long since, String instanceName) {
+		Delta delta;
+		List<String> names;
+		List<List<String>> labelNames;
+		int count = 0;
+		int[] changedFamily;
+		double[] changedValues;
+		String[][] changedLabels;
+		synchronized (this) {
+			long current = generation++;
+			boolean reset = (since <= 0 || since > current || since < removalFloor);
+			delta = new Delta(epoch, reset ? 0 : since, current, reset);
+			names = new ArrayList<String>(familyNames);
+			labelNames = new ArrayList<List<String>>(familyLabelNames);
+
+			if (!reset) {
+				for (int n = removalCount, slot = removalNext; n > 0; n--) {
+					slot = (slot == 0 ? REMOVAL_LOG_SIZE : slot) - 1;
+					if (removedAt[slot] <= since) {
+						break; // the rest are older
+					}
+					String[] seriesLabels = removedLabels[slot];
+					if (seriesLabels.length > 0 && instanceName.equals(seriesLabels[0])) {
+						delta.family(removedFamily[slot], names, labelNames).removed.add(seriesLabels);
+					}
+				}
+			}
+
+			List<SeriesList> lists = childLists(new String[] { instanceName });
+			int capacity = 0;
+			for (SeriesList list : lists) {
+				capacity += list.count;
+			}
+			changedFamily = new int[capacity];
+			changedValues = new double[capacity];
+			changedLabels = new String[capacity][];
+			for (SeriesList list : lists) {
+				for (int i = 0; i < list.count; i++) {
+					int id = list.ids[i];
+					if (reset || changedAt[id] > since) {
+						changedFamily[count] = family[id];
+						changedValues[count] = values[id];
+						changedLabels[count++] = labels[id];
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			String[] seriesLabels = changedLabels[i];
+			Object[] entry = new Object[seriesLabels.length + 1];
+			entry[0] = changedValues[i];
+			System.arraycopy(seriesLabels, 0, entry, 1, seriesLabels.length);
+			delta.family(changedFamily[i], names, labelNames).changed.add(entry);
+		}
+		return delta;
+	}
+
+	/* The columns are copied under the lock, the samples are built outside it so refreshes are not held up by a scrape */
+	@Override
+	public List<MetricFamilySamples> collect() {
+		MetricSelector selector = MetricSelector.current();
+		if (selector != null) {
+			return collect(selector);
+		}
+		List<String> names;
+		List<String> help;
+		List<List<String>> labelNames;
+		double[] seriesValues;
+		int[] seriesFamily;
+		String[][] seriesLabels;
+		synchronized (this) {
+			names = new ArrayList<String>(familyNames);
+			help = new ArrayList<String>(familyHelp);
+			labelNames = new ArrayList<List<String>>(familyLabelNames);
+			seriesValues = Arrays.copyOf(values, highWater);
+			seriesFamily = Arrays.copyOf(family, highWater);
+			seriesLabels = Arrays.copyOf(labels, highWater);
+		}
+
+		int familyCount = names.size();
+		List<List<MetricFamilySamples.Sample>> samplesByFamily = new ArrayList<List<MetricFamilySamples.Sample>>(familyCount);
+		for (int f = 0; f < familyCount; f++) {
+			samplesByFamily.add(new ArrayList<MetricFamilySamples.Sample>());
+		}
+		for (int id = 0; id < seriesValues.length; id++) {
+			if (seriesLabels[id] != null) {
+				int f = seriesFamily[id];
+				samplesByFamily.get(f).add(new MetricFamilySamples.Sample(names.get(f),
+						labelNames.get(f), Arrays.asList(seriesLabels[id]), seriesValues[id]));
+			}
+		}
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>(familyCount);
+		for (int f = 0; f < familyCount; f++) {
+			mfs.add(new MetricFamilySamples(names.get(f), Type.GAUGE, help.get(f), samplesByFamily.get(f)));
+		}
+		return mfs;
+	}
+
+	/* The selected families, only the series of those families are visited.  Copied under the lock like collect() */
+	public List<MetricFamilySamples> collect(MetricSelector selector) {
+		List<FamilyColumns> selected = new ArrayList<FamilyColumns>();
+		synchronized (this) {
+			for (int f = 0; f < familyNames.size(); f++) {
+				String name = familyNames.get(f);
+				if (!selector.selectsFamily(name, familyTypes.get(f))) {
+					continue;
+				}
+				FamilyColumns columns = new FamilyColumns(name, familyHelp.get(f), familyLabelNames.get(f), familySeriesCount[f]);
+				int jobLabel = selector.jobLabel(columns.labelNames);
+				int[] ids = familySeries[f];
+				for (int i = 0; i < familySeriesCount[f]; i++) {
+					int id = ids[i];
+					if (jobLabel < 0 || selector.selectsJob(labels[id][jobLabel])) {
+						columns.values[columns.count] = values[id];
+						columns.labels[columns.count++] = labels[id];
+					}
+				}
+				selected.add(columns);
+			}
+		}
+
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>(selected.size());
+		for (FamilyColumns columns : selected) {
+			List<MetricFamilySamples.Sample> samples = new ArrayList<MetricFamilySamples.Sample>(columns.count);
+			for (int i = 0; i < columns.count; i++) {
+				samples.add(new MetricFamilySamples.Sample(columns.name, columns.labelNames, Arrays.asList(columns.labels[i]), columns.values[i]));
+			}
+			mfs.add(new MetricFamilySamples(columns.name, Type.GAUGE, columns.help, samples));
+		}
+		return mfs;
+	}
+
+	/************************* Internal Methods *************************/
+
+	/* Removes the series whose leading label values match prefix and that were not looked up since mark */
+	private int removeChildren(long mark, String[] prefix) {
+		int removed = 0;
+		for (SeriesList list : childLists(prefix)) {
+			// Backwards, removing an id moves the last one of the list into its slot
+			for (int i = list.count - 1; i >= 0; i--) {
+				int id = list.ids[i];
+				if (seenAt[id] < mark && isPrefix(prefix, labels[id])) {
+					int slot = findSlot(family[id], labels[id]);
+					if (slot >= 0) {
+						table[slot] = DELETED;
+					}
+					releaseId(id);
+					removed++;
+				}
+			}
+		}
+		return removed;
+	}
+
+	/* The lists that hold every series whose leading label values may match prefix */
+	private List<SeriesList> childLists(String[] prefix) {
+		List<SeriesList> lists = new ArrayList<SeriesList>();
+		if (prefix.length == 0) {
+			for (Map<String, SeriesList> byFirst : children.values()) {
+				lists.addAll(byFirst.values());
+			}
+			return lists;
+		}
+		Map<String, SeriesList> byFirst = children.get(prefix[0]);
+		if (byFirst != null) {
+			if (prefix.length == 1) {
+				lists.addAll(byFirst.values());
+			} else {
+				SeriesList list = byFirst.get(prefix[1]);
+				if (list != null) {
+					lists.add(list);
+				}
+			}
+		}
+		return lists;
+	}
+
+	private static boolean isPrefix(String[] prefix, String[] seriesLabels) {
+		if (prefix.length > seriesLabels.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (!prefix[i].equals(seriesLabels[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(int familyId, String[] labelValues) {
+		int h = 31 * familyId + Arrays.hashCode(labelValues);
+		// spread bits since we mask with a power of two
+		return h ^ (h >>> 16);
+	}
+
+	private static int[] newTable(int size) {
+		int[] t = new int[size];
+		Arrays.fill(t, EMPTY);
+		return t;
+	}
+
+	private int findSlot(int familyId, String[] labelValues) {
+		int mask = table.length - 1;
+		int slot = hash(familyId, labelValues) & mask;
+		while (true) {
+			int id = table[slot];
+			if (id == EMPTY) {
+				return -1;
+			}
+			if (id != DELETED && family[id] == familyId && Arrays.equals(labels[id], labelValues)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private int allocateId() {
+		if (freeCount > 0) {
+			return freeIds[--freeCount];
+		}
+		if (highWater == values.length) {
+			int newCapacity = values.length * 2;
+			values = Arrays.copyOf(values, newCapacity);
+			family = Arrays.copyOf(family, newCapacity);
+			labels = Arrays.copyOf(labels, newCapacity);
+			changedAt = Arrays.copyOf(changedAt, newCapacity);
+			seenAt = Arrays.copyOf(seenAt, newCapacity);
+			familySlot = Arrays.copyOf(familySlot, newCapacity);
+			childList = Arrays.copyOf(childList, newCapacity);
+			childSlot = Arrays.copyOf(childSlot, newCapacity);
+		}
+		return highWater++;
+	}
+
+	private void releaseId(int id) {
+		logRemoval(family[id], labels[id]);
+		removeFromFamily(family[id], id);
+		removeFromChildren(id);
+		labels[id] = null;
+		family[id] = EMPTY;
+		values[id] = 0;
+		liveSeries--;
+		removed++;
+		if (freeCount == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+		}
+		freeIds[freeCount++] = id;
+	}
+
+	private void addToFamily(int familyId, int id) {
+		int count = familySeriesCount[familyId];
+		if (count == familySeries[familyId].length) {
+			familySeries[familyId] = Arrays.copyOf(familySeries[familyId], count * 2);
+		}
+		familySeries[familyId][count] = id;
+		familySlot[id] = count;
+		familySeriesCount[familyId] = count + 1;
+	}
+
+	/* Moves the last series of the family into the slot of the removed one */
+	private void removeFromFamily(int familyId, int id) {
+		int last = --familySeriesCount[familyId];
+		int lastId = familySeries[familyId][last];
+		familySeries[familyId][familySlot[id]] = lastId;
+		familySlot[lastId] = familySlot[id];
+	}
+
+	private void addToChildren(int id) {
+		String[] seriesLabels = labels[id];
+		String first = (seriesLabels.length > 0 ? seriesLabels[0] : null);
+		String second = (seriesLabels.length > 1 ? seriesLabels[1] : null);
+		Map<String, SeriesList> byFirst = children.get(first);
+		if (byFirst == null) {
+			byFirst = new HashMap<String, SeriesList>();
+			children.put(first, byFirst);
+		}
+		SeriesList list = byFirst.get(second);
+		if (list == null) {
+			list = new SeriesList(first, second);
+			byFirst.put(second, list);
+		}
+		childList[id] = list;
+		childSlot[id] = list.add(id);
+	}
+
+	/* Like removeFromFamily, the list is dropped once its last series is gone */
+	private void removeFromChildren(int id) {
+		SeriesList list = childList[id];
+		int moved = list.removeAt(childSlot[id]);
+		if (moved >= 0) {
+			childSlot[moved] = childSlot[id];
+		}
+		childList[id] = null;
+		if (list.count == 0) {
+			Map<String, SeriesList> byFirst = children.get(list.first);
+			byFirst.remove(list.second);
+			if (byFirst.isEmpty()) {
+				children.remove(list.first);
+			}
+		}
+	}
+
+	private void logRemoval(int familyId, String[] seriesLabels) {
+		if (removalCount == REMOVAL_LOG_SIZE) {
+			removalFloor = removedAt[removalNext]; // overwriting the oldest
+		} else {
+			removalCount++;
+		}
+		removedAt[removalNext] = generation;
+		removedFamily[removalNext] = familyId;
+		removedLabels[removalNext] = seriesLabels;
+		removalNext = (removalNext + 1) % REMOVAL_LOG_SIZE;
+	}
+
+	private void rehash(int newSize) {
+		LOGGER.trace("Rehashing series table from {} to {} slots", table.length, newSize);
+		table = newTable(newSize);
+		tableUsed = 0;
+		int mask = newSize - 1;
+		for (int id = 0; id < highWater; id++) {
+			if (labels[id] != null) {
+				int slot = hash(family[id], labels[id]) & mask;
+				while (table[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = id;
+				tableUsed++;
+			}
+		}
+	}
+
+	/* Series ids sharing their first two label values */
+	private static final class SeriesList {
+		final String first;
+		final String second;
+		int[] ids = new int[8];
+		int count = 0;
+
+		SeriesList(String first, String second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		/* Returns the slot of id */
+		int add(int id) {
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, count * 2);
+			}
+			ids[count] = id;
+			return count++;
+		}
+
+		/* Moves the last id into slot, returns that id or -1 if slot was the last */
+		int removeAt(int slot) {
+			int last = ids[--count];
+			if (slot == count) {
+				return -1;
+			}
+			ids[slot] = last;
+			return last;
+		}
+	}
+
+	/* Copy of the series of one family taken by collect(MetricSelector).  Label arrays are never changed once stored */
+	private static final class FamilyColumns {
+		final String name;
+		final String help;
+		final List<String> labelNames;
+		final double[] values;
+		final String[][] labels;
+		int count = 0;
+
+		FamilyColumns(String name, String help, List<String> labelNames, int capacity) {
+			this.name = name;
+			this.help = help;
+			this.labelNames = labelNames;
+			this.values = new double[capacity];
+			this.labels = new String[capacity][];
+		}
+	}
+
+	/* Result of delta(), serialized as is by the delta endpoint */
+	public static final class Delta {
+		public final long epoch;
+		public final long since;
+		public final long generation;
+		public final boolean reset;
+		public final Map<String, FamilyDelta> families = new LinkedHashMap<String, FamilyDelta>();
+
+		private Delta(long epoch, long since, long generation, boolean reset) {
+			this.epoch = epoch;
+			this.since = since;
+			this.generation = generation;
+			this.reset = reset;
+		}
+
+		private FamilyDelta family(int familyId, List<String> names, List<List<String>> labelNames) {
+			String name = names.get(familyId);
+			FamilyDelta familyDelta = families.get(name);
+			if (familyDelta == null) {
+				familyDelta = new FamilyDelta(labelNames.get(familyId));
+				families.put(name, familyDelta);
+			}
+			return familyDelta;
+		}
+	}
+
+	public static final class FamilyDelta {
+		public final List<String> labels;
+		/* value followed by the label values */
+		public final List<Object[]> changed = new ArrayList<Object[]>();
+		/* label values */
+		public final List<String[]> removed = new ArrayList<String[]>();
+
+		private FamilyDelta(List<String> labels) {
+			this.labels = labels;
+		}
+	}
+}
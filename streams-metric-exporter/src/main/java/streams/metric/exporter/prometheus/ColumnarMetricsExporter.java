@@ -0,0 +1,148 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.metrics.MetricsExporter;
+
+/*
+ * ColumnarMetricsExporter
+ *
+ * MetricsExporter backed by a single ColumnarMetricCollector registered in the
+ * default CollectorRegistry.  The collector is its own label index, so metrics
+ * are not added to the MetricLabelIndex of the base class.
+ */
+public class ColumnarMetricsExporter extends MetricsExporter {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + ColumnarMetricsExporter.class.getName());
+
+	private final ColumnarMetricCollector collector;
+
+	// Per type cache of unsanitized streams metric name to family id, avoids regex work per set
+	private final Map<StreamsObjectType, ConcurrentHashMap<String, Integer>> familyCache =
+			new EnumMap<StreamsObjectType, ConcurrentHashMap<String, Integer>>(StreamsObjectType.class);
+
+	protected ColumnarMetricsExporter() {
+		for (StreamsObjectType type : StreamsObjectType.values()) {
+			familyCache.put(type, new ConcurrentHashMap<String, Integer>());
+		}
+		this.collector = new ColumnarMetricCollector().register();
+	}
+
+	public ColumnarMetricCollector getCollector() {
+		return collector;
+	}
+
+	public void createStreamsMetric(String metricName, StreamsObjectType type, String description) {
+		String metricFullName = getStreamsMetricFullName(PrometheusMetricsExporter.sanitizeMetricName(metricName), type);
+		int familyId = collector.family(metricFullName, description, type.metricLabelNames());
+		familyCache.get(type).putIfAbsent(metricName, familyId);
+	}
+
+	public Metric getStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		int familyId = getFamilyId(metricName, type);
+		int seriesId = -1;
+		try {
+			seriesId = collector.series(familyId, currentSweepMark(), labelValues);
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("Attempting to create Prometheus Metric returned IllegalArgumentException: {}", e.getMessage());
+			LOGGER.error("Metric: name={}, labelValues={}", metricName, String.join(",", labelValues));
+			LOGGER.error("This should not occur.  Usually caused by invalid labels for metric.  Get this fixed!!");
+		}
+		return new ColumnarMetric(metricName, labelValues, seriesId);
+	}
+
+	public void removeAllChildStreamsMetrics(String... labelValues) {
+		LOGGER.trace("COLUMNAR metrics: removeAllChildStreamsMetrics({})", Arrays.asList(labelValues));
+		collector.removeWithChildren(labelValues);
+	}
+
+	@Override
+	public void removeStaleChildStreamsMetrics(long mark, String... labelValues) {
+		LOGGER.trace("COLUMNAR metrics: removeStaleChildStreamsMetrics({}, {})", mark, Arrays.asList(labelValues));
+		collector.removeStaleChildren(mark, labelValues);
+	}
+
+	public void removeStreamsMetric(String metricName, StreamsObjectType type, String... labelValues) {
+		String metricFullName = getStreamsMetricFullName(PrometheusMetricsExporter.sanitizeMetricName(metricName), type);
+		int familyId = collector.getFamily(metricFullName);
+		if (familyId >= 0) {
+			collector.remove(familyId, labelValues);
+		}
+	}
+
+	@Override
+	public long nextGeneration() {
+		return collector.nextGeneration();
+	}
+
+	/* The collector is the index, so the churn counts come from it */
+	@Override
+	public long getSeriesCreated() {
+		return collector.getCreated();
+	}
+
+	@Override
+	public long getSeriesRemoved() {
+		return collector.getRemoved();
+	}
+
+	@Override
+	public long getSeriesUpdated() {
+		return collector.getUpdated();
+	}
+
+	@Override
+	public int getSeriesCount() {
+		return collector.size();
+	}
+
+	private int getFamilyId(String metricName, StreamsObjectType type) {
+		Map<String, Integer> typeCache = familyCache.get(type);
+		Integer familyId = typeCache.get(metricName);
+		if (familyId == null) {
+			// Create with default help text
+			createStreamsMetric(metricName, type, type.metricDescriptionPrefix() + ": " + metricName);
+			familyId = typeCache.get(metricName);
+		}
+		return familyId;
+	}
+
+	/* Short lived handle, only the series id is retained by the collector */
+	class ColumnarMetric extends MetricsExporter.Metric {
+		private final int seriesId;
+
+		protected ColumnarMetric(String name, String[] labelValues, int seriesId) {
+			super(name, Arrays.asList(labelValues));
+			this.seriesId = seriesId;
+		}
+
+		public void set(double val) {
+			if (seriesId >= 0) {
+				collector.set(seriesId, val);
+			} else {
+				LOGGER.debug("Tried to do a set on a series that did not exist name={}", name);
+			}
+		}
+	}
+}
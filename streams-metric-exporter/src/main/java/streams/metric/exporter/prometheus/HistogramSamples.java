@@ -0,0 +1,51 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import streams.metric.exporter.metrics.FixedBucketHistogram;
+
+/*
+ * HistogramSamples
+ *
+ * Converts a FixedBucketHistogram into the _bucket, _count and _sum samples
+ * of a prometheus histogram.
+ */
+public final class HistogramSamples {
+
+	private HistogramSamples() {}
+
+	public static void add(List<MetricFamilySamples.Sample> samples, String name, List<String> labelNames,
+			List<String> labelValues, FixedBucketHistogram histogram) {
+		List<String> bucketLabelNames = new ArrayList<String>(labelNames);
+		bucketLabelNames.add("le");
+		double[] bounds = histogram.getBounds();
+		long[] counts = histogram.getCumulativeCounts();
+		for (int i = 0; i < counts.length; i++) {
+			List<String> bucketLabelValues = new ArrayList<String>(labelValues);
+			bucketLabelValues.add(i < bounds.length ? Collector.doubleToGoString(bounds[i]) : "+Inf");
+			samples.add(new MetricFamilySamples.Sample(name + "_bucket", bucketLabelNames, bucketLabelValues, counts[i]));
+		}
+		// Count from the buckets so that _count always equals the +Inf bucket
+		samples.add(new MetricFamilySamples.Sample(name + "_count", labelNames, labelValues, counts[counts.length - 1]));
+		samples.add(new MetricFamilySamples.Sample(name + "_sum", labelNames, labelValues, histogram.getSum()));
+	}
+}
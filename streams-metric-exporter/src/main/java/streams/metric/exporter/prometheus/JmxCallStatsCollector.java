@@ -0,0 +1,63 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.jmx.JmxCallStats;
+
+/*
+ * JmxCallStatsCollector
+ *
+ * Exports the per method latency, call, error and payload statistics of calls
+ * into the Streams JMX service (and its http server)
+ */
+public class JmxCallStatsCollector extends Collector {
+	private static final List<String> LABEL_NAMES = Arrays.asList("interface", "method");
+
+	private final JmxCallStats callStats;
+
+	public JmxCallStatsCollector(JmxCallStats callStats) {
+		this.callStats = callStats;
+	}
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		List<MetricFamilySamples.Sample> latency = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> errors = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> payload = new ArrayList<MetricFamilySamples.Sample>();
+
+		for (JmxCallStats.MethodStats stats : callStats.getMethodStats()) {
+			List<String> labelValues = Arrays.asList(stats.getInterfaceName(), stats.getMethodName());
+			HistogramSamples.add(latency, "streams_exporter_jmx_call_seconds", LABEL_NAMES, labelValues, stats.getLatency());
+			errors.add(new MetricFamilySamples.Sample("streams_exporter_jmx_call_errors_total", LABEL_NAMES, labelValues, stats.getErrors()));
+			payload.add(new MetricFamilySamples.Sample("streams_exporter_jmx_payload_bytes_total", LABEL_NAMES, labelValues, stats.getPayloadBytes()));
+		}
+
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_call_seconds", Type.HISTOGRAM,
+				"Latency of calls into the Streams JMX service", latency));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_call_errors_total", Type.COUNTER,
+				"Calls into the Streams JMX service that failed", errors));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_payload_bytes_total", Type.COUNTER,
+				"Characters of String results (snapshot urls and http responses) returned", payload));
+		return mfs;
+	}
+}
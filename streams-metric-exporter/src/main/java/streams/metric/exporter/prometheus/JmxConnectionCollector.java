@@ -0,0 +1,87 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.jmx.JmxConnectionPool;
+import streams.metric.exporter.jmx.JmxConnectionStatus;
+
+/*
+ * JmxConnectionCollector
+ *
+ * Exports the connection state machine of each pooled JMX connection:
+ * current state, attempts and how long reconnecting took.
+ */
+public class JmxConnectionCollector extends Collector {
+	private static final List<String> LABEL_NAMES = Collections.singletonList("jmxurl");
+	private static final List<String> STATE_LABEL_NAMES = Arrays.asList("jmxurl", "state");
+
+	private final JmxConnectionPool connectionPool;
+
+	public JmxConnectionCollector(JmxConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+	}
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		List<MetricFamilySamples.Sample> state = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> attempts = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> failures = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> reconnects = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> lastReconnect = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> disconnected = new ArrayList<MetricFamilySamples.Sample>();
+
+		for (JmxConnectionStatus status : connectionPool.getConnectionStatus()) {
+			List<String> labelValues = Collections.singletonList(status.getJmxUri());
+			// One series per state, 1 for the current one
+			for (JmxConnectionPool.ConnectionState s : JmxConnectionPool.ConnectionState.values()) {
+				state.add(new MetricFamilySamples.Sample("streams_exporter_jmx_connection_state", STATE_LABEL_NAMES,
+						Arrays.asList(status.getJmxUri(), s.name().toLowerCase()), status.getState() == s ? 1 : 0));
+			}
+			attempts.add(new MetricFamilySamples.Sample("streams_exporter_jmx_connection_attempts_total", LABEL_NAMES,
+					labelValues, status.getAttempts()));
+			failures.add(new MetricFamilySamples.Sample("streams_exporter_jmx_connection_failures_total", LABEL_NAMES,
+					labelValues, status.getFailures()));
+			reconnects.add(new MetricFamilySamples.Sample("streams_exporter_jmx_reconnects_total", LABEL_NAMES,
+					labelValues, status.getReconnects()));
+			lastReconnect.add(new MetricFamilySamples.Sample("streams_exporter_jmx_last_reconnect_seconds", LABEL_NAMES,
+					labelValues, status.getLastTimeToReconnectMillis() / 1000.0));
+			disconnected.add(new MetricFamilySamples.Sample("streams_exporter_jmx_disconnected_seconds", LABEL_NAMES,
+					labelValues, status.getDisconnectedMillis() / 1000.0));
+		}
+
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_connection_state", Type.GAUGE,
+				"JMX connection state, 1 for the current state", state));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_connection_attempts_total", Type.COUNTER,
+				"JMX connection attempts, initial and reconnects", attempts));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_connection_failures_total", Type.COUNTER,
+				"JMX connection attempts that failed", failures));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_reconnects_total", Type.COUNTER,
+				"Lost JMX connections that were re-established", reconnects));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_last_reconnect_seconds", Type.GAUGE,
+				"Time it took to re-establish the last lost JMX connection", lastReconnect));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_disconnected_seconds", Type.GAUGE,
+				"Time the JMX connection has been down, 0 when connected", disconnected));
+		return mfs;
+	}
+}
@@ -0,0 +1,70 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.jmx.JmxRateLimiter;
+import streams.metric.exporter.jmx.TokenBucket;
+
+/*
+ * JmxRateLimiterCollector
+ *
+ * Exports the token buckets limiting calls into the Streams JMX service
+ */
+public class JmxRateLimiterCollector extends Collector {
+	private static final List<String> LABEL_NAMES = Collections.singletonList("bucket");
+
+	private final JmxRateLimiter rateLimiter;
+
+	public JmxRateLimiterCollector(JmxRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		List<MetricFamilySamples.Sample> calls = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> waited = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> throttled = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> tokens = new ArrayList<MetricFamilySamples.Sample>();
+
+		for (TokenBucket bucket : new TokenBucket[] { rateLimiter.getReadBucket(), rateLimiter.getSnapshotBucket() }) {
+			if (bucket == null) {
+				continue; // not limited
+			}
+			List<String> labelValues = Collections.singletonList(bucket.getName());
+			calls.add(new MetricFamilySamples.Sample("streams_exporter_jmx_rate_limit_calls_total", LABEL_NAMES, labelValues, bucket.getAcquired()));
+			waited.add(new MetricFamilySamples.Sample("streams_exporter_jmx_rate_limit_waited_total", LABEL_NAMES, labelValues, bucket.getWaited()));
+			throttled.add(new MetricFamilySamples.Sample("streams_exporter_jmx_rate_limit_throttled_total", LABEL_NAMES, labelValues, bucket.getRejected()));
+			tokens.add(new MetricFamilySamples.Sample("streams_exporter_jmx_rate_limit_tokens", LABEL_NAMES, labelValues, bucket.getAvailableTokens()));
+		}
+
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_rate_limit_calls_total", Type.COUNTER,
+				"JMX calls allowed by the rate limit", calls));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_rate_limit_waited_total", Type.COUNTER,
+				"JMX calls that waited for the rate limit before they were allowed", waited));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_rate_limit_throttled_total", Type.COUNTER,
+				"JMX calls throttled because no token was available within the maximum wait", throttled));
+		mfs.add(new MetricFamilySamples("streams_exporter_jmx_rate_limit_tokens", Type.GAUGE,
+				"Tokens currently available", tokens));
+		return mfs;
+	}
+}
@@ -0,0 +1,52 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.metrics.LabelValueInterner;
+
+/*
+ * LabelValueInternerCollector
+ *
+ * Exports the size and effectiveness of the label value dictionary
+ */
+public class LabelValueInternerCollector extends Collector {
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(single("streams_exporter_label_intern_entries", Type.GAUGE,
+				"Number of distinct label values in the intern dictionary", LabelValueInterner.size()));
+		mfs.add(single("streams_exporter_label_intern_lookups_total", Type.COUNTER,
+				"Number of label values passed through the intern dictionary", LabelValueInterner.getLookups()));
+		mfs.add(single("streams_exporter_label_intern_hits_total", Type.COUNTER,
+				"Number of label values already present in the intern dictionary", LabelValueInterner.getHits()));
+		mfs.add(single("streams_exporter_label_intern_hit_ratio", Type.GAUGE,
+				"Ratio of intern dictionary hits to lookups", LabelValueInterner.getHitRatio()));
+		return mfs;
+	}
+
+	private static MetricFamilySamples single(String name, Type type, String help, double value) {
+		List<String> empty = Collections.emptyList();
+		return new MetricFamilySamples(name, type, help,
+				Collections.singletonList(new MetricFamilySamples.Sample(name, empty, empty, value)));
+	}
+}
@@ -0,0 +1,283 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.CollectorRegistry;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+
+/*
+ * MetricSelector
+ *
+ * Scrape time selection of metric families and series for /metrics, from the
+ * query parameters level, job and family (comma separated or repeated):
+ *   * level   instance, resource, job, pe, operator and exporter (families
+ *             that are not of a streams object e.g. streams_exporter_*)
+ *   * job     series of these job names, families without a jobname label
+ *             are not restricted by it
+ *   * family  family names, a trailing * matches a prefix
+ * Each given parameter must match, no parameters selects everything.
+ *
+ * Named profiles are preset parameters served as /metrics/{profile}, e.g.
+ *   fast:level=instance,job;detail:level=pe,operator&job=Main
+ * Parameters given with a profile replace the profile's value for that key.
+ *
+ * The ColumnarMetricCollector answers a selection from its family index
+ * (see current()), other collectors are collected and then filtered.
+ */
+public final class MetricSelector {
+
+	public enum Level {
+		INSTANCE, RESOURCE, JOB, PE, OPERATOR, EXPORTER;
+
+		public static Level of(StreamsObjectType type) {
+			if (type == null) {
+				return EXPORTER;
+			}
+			switch (type) {
+			case INSTANCE:
+				return INSTANCE;
+			case RESOURCE:
+			case RESOURCE_ROLE:
+				return RESOURCE;
+			case JOB:
+				return JOB;
+			case PE:
+			case PE_INPUTPORT:
+			case PE_OUTPUTPORT:
+			case PE_OUTPUTPORT_CONNECTION:
+				return PE;
+			default:
+				return OPERATOR;
+			}
+		}
+	}
+
+	public static final String LEVEL = "level";
+	public static final String JOB = "job";
+	public static final String FAMILY = "family";
+	public static final String JOB_LABEL = "jobname";
+
+	private static final List<String> PARAMETERS = Collections.unmodifiableList(Arrays.asList(LEVEL, JOB, FAMILY));
+
+	/* Selection of the scrape running on this thread, see current() */
+	private static final ThreadLocal<MetricSelector> CURRENT = new ThreadLocal<MetricSelector>();
+
+	private static volatile Map<String, Map<String, List<String>>> profiles = Collections.emptyMap();
+
+	/* Empty sets select everything */
+	private final Set<Level> levels;
+	private final Set<String> jobs;
+	private final Set<String> families;
+	private final List<String> familyPrefixes;
+
+	private MetricSelector(Set<Level> levels, Set<String> jobs, Set<String> families, List<String> familyPrefixes) {
+		this.levels = levels;
+		this.jobs = jobs;
+		this.families = families;
+		this.familyPrefixes = familyPrefixes;
+	}
+
+	/* Selector for the level, job and family parameters, other keys are ignored */
+	public static MetricSelector of(Map<String, List<String>> parameters) throws IllegalArgumentException {
+		Set<Level> levels = EnumSet.noneOf(Level.class);
+		for (String level : values(parameters.get(LEVEL))) {
+			try {
+				levels.add(Level.valueOf(level.toUpperCase(Locale.ROOT)));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown level " + level + ", expected one of "
+						+ EnumSet.allOf(Level.class).toString().toLowerCase(Locale.ROOT));
+			}
+		}
+		Set<String> jobs = new HashSet<String>(values(parameters.get(JOB)));
+		Set<String> families = new HashSet<String>();
+		List<String> familyPrefixes = new ArrayList<String>();
+		for (String family : values(parameters.get(FAMILY))) {
+			if (family.endsWith("*")) {
+				familyPrefixes.add(family.substring(0, family.length() - 1));
+			} else {
+				families.add(family);
+			}
+		}
+		return new MetricSelector(levels, jobs, families, familyPrefixes);
+	}
+
+	/* Parses name:query;name:query into the parameters of each profile */
+	public static Map<String, Map<String, List<String>>> parseProfiles(String spec) throws IllegalArgumentException {
+		Map<String, Map<String, List<String>>> parsed = new LinkedHashMap<String, Map<String, List<String>>>();
+		if (spec == null || spec.trim().isEmpty()) {
+			return parsed;
+		}
+		for (String entry : spec.split(";")) {
+			if (entry.trim().isEmpty()) {
+				continue;
+			}
+			int colon = entry.indexOf(':');
+			String name = (colon < 0 ? "" : entry.substring(0, colon).trim());
+			if (name.isEmpty() || name.contains("/")) {
+				throw new IllegalArgumentException("Profile " + entry.trim() + " is not of the form name:query");
+			}
+			if (parsed.containsKey(name)) {
+				throw new IllegalArgumentException("Profile " + name + " is defined more than once");
+			}
+			Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+			for (String parameter : entry.substring(colon + 1).split("&")) {
+				if (parameter.trim().isEmpty()) {
+					continue;
+				}
+				int equals = parameter.indexOf('=');
+				String key = (equals < 0 ? parameter : parameter.substring(0, equals)).trim();
+				if (!PARAMETERS.contains(key)) {
+					throw new IllegalArgumentException("Profile " + name + " has unknown parameter " + key
+							+ ", expected one of " + PARAMETERS);
+				}
+				List<String> values = parameters.get(key);
+				if (values == null) {
+					values = new ArrayList<String>();
+					parameters.put(key, values);
+				}
+				values.add(equals < 0 ? "" : parameter.substring(equals + 1));
+			}
+			of(parameters); // validates the levels
+			parsed.put(name, parameters);
+		}
+		return parsed;
+	}
+
+	public static void setProfiles(String spec) throws IllegalArgumentException {
+		profiles = Collections.unmodifiableMap(parseProfiles(spec));
+	}
+
+	public static Set<String> getProfileNames() {
+		return profiles.keySet();
+	}
+
+	/* Selector of a named profile with the given parameters replacing its own, null if there is no such profile */
+	public static MetricSelector forProfile(String name, Map<String, List<String>> parameters) throws IllegalArgumentException {
+		Map<String, List<String>> profile = profiles.get(name);
+		if (profile == null) {
+			return null;
+		}
+		Map<String, List<String>> merged = new HashMap<String, List<String>>(profile);
+		for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+			if (parameter.getValue() != null && !parameter.getValue().isEmpty()) {
+				merged.put(parameter.getKey(), parameter.getValue());
+			}
+		}
+		return of(merged);
+	}
+
+	/* Selection of the scrape running on this thread, null if it is not a selective scrape */
+	public static MetricSelector current() {
+		return CURRENT.get();
+	}
+
+	public boolean selectsAll() {
+		return levels.isEmpty() && jobs.isEmpty() && families.isEmpty() && familyPrefixes.isEmpty();
+	}
+
+	public boolean selectsFamily(String name, StreamsObjectType type) {
+		if (!levels.isEmpty() && !levels.contains(Level.of(type))) {
+			return false;
+		}
+		if (families.isEmpty() && familyPrefixes.isEmpty()) {
+			return true;
+		}
+		if (families.contains(name)) {
+			return true;
+		}
+		for (String prefix : familyPrefixes) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* Index of the jobname label to check with selectsJob(), -1 if the family's series are not restricted by job */
+	public int jobLabel(List<String> labelNames) {
+		return (jobs.isEmpty() ? -1 : labelNames.indexOf(JOB_LABEL));
+	}
+
+	public boolean selectsJob(String job) {
+		return jobs.contains(job);
+	}
+
+	/* The selected samples of the registry.  Collectors that can select themselves do so through current() */
+	public List<MetricFamilySamples> collect(CollectorRegistry registry) {
+		List<MetricFamilySamples> selected = new ArrayList<MetricFamilySamples>();
+		CURRENT.set(this);
+		try {
+			Enumeration<MetricFamilySamples> all = registry.metricFamilySamples();
+			while (all.hasMoreElements()) {
+				MetricFamilySamples mfs = select(all.nextElement());
+				if (mfs != null) {
+					selected.add(mfs);
+				}
+			}
+		} finally {
+			CURRENT.remove();
+		}
+		return selected;
+	}
+
+	/* The family with only the selected samples, null if the family is not selected */
+	private MetricFamilySamples select(MetricFamilySamples mfs) {
+		List<String> labelNames = (mfs.samples.isEmpty() ? Collections.<String>emptyList() : mfs.samples.get(0).labelNames);
+		if (!selectsFamily(mfs.name, StreamsObjectType.forFamily(mfs.name, labelNames))) {
+			return null;
+		}
+		int jobLabel = jobLabel(labelNames);
+		if (jobLabel < 0) {
+			return mfs;
+		}
+		List<MetricFamilySamples.Sample> samples = new ArrayList<MetricFamilySamples.Sample>();
+		for (MetricFamilySamples.Sample sample : mfs.samples) {
+			if (selectsJob(sample.labelValues.get(jobLabel))) {
+				samples.add(sample);
+			}
+		}
+		return new MetricFamilySamples(mfs.name, mfs.type, mfs.help, samples);
+	}
+
+	private static List<String> values(List<String> parameter) {
+		List<String> values = new ArrayList<String>();
+		if (parameter != null) {
+			for (String value : parameter) {
+				for (String v : value.split(",")) {
+					if (!v.trim().isEmpty()) {
+						values.add(v.trim());
+					}
+				}
+			}
+		}
+		return values;
+	}
+}
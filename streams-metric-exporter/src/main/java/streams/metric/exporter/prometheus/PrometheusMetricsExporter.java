@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import io.prometheus.client.Gauge;
+import streams.metric.exporter.metrics.LabelValueInterner;
 import streams.metric.exporter.metrics.MetricsExporter;
 //import streams.metric.exporter.streamstracker.StreamsDomainTracker;
 
@@ -42,9 +43,37 @@ public class PrometheusMetricsExporter extends MetricsExporter {
 
 	protected PrometheusMetricsExporter(){}
 
-	static public MetricsExporter getInstance() {
+	// Which metric store backs the exporter, must be set before the first getInstance()
+	static private MetricStore metricStore = MetricStore.COLUMNAR;
+
+	public enum MetricStore {
+		GAUGE, COLUMNAR;
+
+		@Override
+		public String toString() {
+			return name().toLowerCase();
+		}
+	}
+
+	static public synchronized void setMetricStore(MetricStore store) {
+		if (singletonExporter != null) {
+			LOGGER.warn("Metric store set to {} after the metrics exporter was created, ignoring", store);
+			return;
+		}
+		metricStore = store;
+	}
+
+	static public synchronized MetricsExporter getInstance() {
 		if (singletonExporter == null) {
-			singletonExporter = new PrometheusMetricsExporter();
+			if (metricStore == MetricStore.COLUMNAR) {
+				singletonExporter = new ColumnarMetricsExporter();
+			} else {
+				singletonExporter = new PrometheusMetricsExporter();
+			}
+			new LabelValueInternerCollector().register();
+			new TrackerStateCollector().register();
+			new RefreshStatisticsCollector().register();
+			new SeriesCollector(singletonExporter).register();
 		}
 		return singletonExporter;
 	}
@@ -60,7 +89,7 @@ public class PrometheusMetricsExporter extends MetricsExporter {
   private static final Pattern SPACES_PATTERN = Pattern.compile("\\s+");
   private static final Pattern NON_SPECIAL_OR_UNDERSCORE = Pattern.compile("(\\W|^_)*");
 
-  private String sanitizeMetricName(String metricName) {
+  static String sanitizeMetricName(String metricName) {
     return Gauge.sanitizeMetricName(
       NON_SPECIAL_OR_UNDERSCORE.matcher(
         SPACES_PATTERN.matcher(metricName).replaceAll("_")
@@ -83,8 +112,14 @@ public class PrometheusMetricsExporter extends MetricsExporter {
 			// Create with default help text
 			createStreamsMetric(metricName, type, type.metricDescriptionPrefix() + ": " + metricName);
 		}
-		PrometheusMetric pm = new PrometheusMetric(metricFullName, Arrays.asList(labelValues));
-		super.addStreamsMetricToIndex(pm);	
+		String[] values = labelValues.clone();
+		PrometheusMetric pm = new PrometheusMetric(metricFullName, Arrays.asList(values));
+		if (super.addStreamsMetricToIndex(pm)) {
+			// New series, the index and the gauge child keep these label values so intern them once
+			for (int i = 0; i < values.length; i++) {
+				values[i] = LabelValueInterner.intern(values[i]);
+			}
+		}
 		return pm;
 	}
 	
@@ -92,7 +127,17 @@ public class PrometheusMetricsExporter extends MetricsExporter {
 		LOGGER.trace("PROMETHEUS metrics: removeAllChildStreamsMetrics({})",Arrays.asList(labelValues));
 		Set<Metric> metricsToRemove;
 		metricsToRemove = super.removeAllChildMetricsFromIndex(labelValues);
+		removeFromGauges(metricsToRemove);
+	}
+
+	public void removeStaleChildStreamsMetrics(long mark, String... labelValues) {
+		LOGGER.trace("PROMETHEUS metrics: removeStaleChildStreamsMetrics({}, {})",mark,Arrays.asList(labelValues));
+		removeFromGauges(super.removeStaleChildMetricsFromIndex(mark, labelValues));
+	}
+
+	private void removeFromGauges(Set<Metric> metricsToRemove) {
 		LOGGER.trace("metricsToRemove.size: {}",metricsToRemove.size());
+		countSeriesRemoved(metricsToRemove.size());
 		Iterator<Metric> it = metricsToRemove.iterator();
 		while (it.hasNext()) {
 			Metric metric = it.next();
@@ -109,6 +154,7 @@ public class PrometheusMetricsExporter extends MetricsExporter {
 		if (gaugeMap.containsKey(metricFullName)) {
 			Gauge g = gaugeMap.get(metricFullName);
 			g.remove(labelValues);
+			countSeriesRemoved(1);
 		}
 	}
 
@@ -127,9 +173,10 @@ public class PrometheusMetricsExporter extends MetricsExporter {
 		public void set(double val) {
 			Gauge g = getGauge(name);
 			try {
-				if (g != null)
+				if (g != null) {
 					g.labels((String[]) labelValues.toArray()).set(val);
-				else {
+					countSeriesUpdated();
+				} else {
 					LOGGER.debug("Tried to do a set on a gauge that did not exist name={}",name);
 				}
 			} catch (IllegalArgumentException e) {
@@ -0,0 +1,78 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.streamstracker.RefreshStatistics;
+import streams.metric.exporter.streamstracker.RefreshStatistics.Payload;
+import streams.metric.exporter.streamstracker.RefreshStatistics.Phase;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+import streams.metric.exporter.streamstracker.StreamsInstanceTrackerRegistry;
+
+/*
+ * RefreshStatisticsCollector
+ *
+ * Exports the refresh pipeline timings of each tracked instance: phase
+ * durations, payload sizes, parse time and waits on the tracker lock.
+ */
+public class RefreshStatisticsCollector extends Collector {
+	private static final List<String> INSTANCE_LABEL_NAMES = Collections.singletonList("instancename");
+	private static final List<String> PHASE_LABEL_NAMES = Arrays.asList("instancename", "phase");
+	private static final List<String> PAYLOAD_LABEL_NAMES = Arrays.asList("instancename", "payload");
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		List<MetricFamilySamples.Sample> phases = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> payloadBytes = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> parseSeconds = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> lockWait = new ArrayList<MetricFamilySamples.Sample>();
+
+		for (StreamsInstanceTracker tracker : StreamsInstanceTrackerRegistry.getInstanceTrackersNoRefresh()) {
+			String instanceName = tracker.getState().getInstanceInfo().getInstanceName();
+			RefreshStatistics stats = tracker.getRefreshStatistics();
+			for (Phase phase : Phase.values()) {
+				HistogramSamples.add(phases, "streams_exporter_refresh_phase_seconds", PHASE_LABEL_NAMES,
+						Arrays.asList(instanceName, phase.toString()), stats.getPhaseSeconds(phase));
+			}
+			for (Payload payload : Payload.values()) {
+				List<String> labelValues = Arrays.asList(instanceName, payload.toString());
+				HistogramSamples.add(payloadBytes, "streams_exporter_payload_bytes", PAYLOAD_LABEL_NAMES,
+						labelValues, stats.getPayloadBytes(payload));
+				HistogramSamples.add(parseSeconds, "streams_exporter_parse_seconds", PAYLOAD_LABEL_NAMES,
+						labelValues, stats.getParseSeconds(payload));
+			}
+			HistogramSamples.add(lockWait, "streams_exporter_tracker_lock_wait_seconds", INSTANCE_LABEL_NAMES,
+					Collections.singletonList(instanceName), stats.getLockWaitSeconds());
+		}
+
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(new MetricFamilySamples("streams_exporter_refresh_phase_seconds", Type.HISTOGRAM,
+				"Duration of each phase of an instance refresh, phase total is the whole refresh", phases));
+		mfs.add(new MetricFamilySamples("streams_exporter_payload_bytes", Type.HISTOGRAM,
+				"Size of the snapshot and metrics json payloads parsed", payloadBytes));
+		mfs.add(new MetricFamilySamples("streams_exporter_parse_seconds", Type.HISTOGRAM,
+				"Time to parse the snapshot and metrics json payloads", parseSeconds));
+		mfs.add(new MetricFamilySamples("streams_exporter_tracker_lock_wait_seconds", Type.HISTOGRAM,
+				"Time a refresh waited for the tracker lock", lockWait));
+		return mfs;
+	}
+}
@@ -0,0 +1,58 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.metrics.MetricsExporter;
+
+/*
+ * SeriesCollector
+ *
+ * Exports the size of the prometheus metrics exporter's series index and
+ * how many series have been created, removed and updated.
+ */
+public class SeriesCollector extends Collector {
+
+	private final MetricsExporter exporter;
+
+	public SeriesCollector(MetricsExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(sample("streams_exporter_series", Type.GAUGE,
+				"Series currently exported", exporter.getSeriesCount()));
+		mfs.add(sample("streams_exporter_series_created_total", Type.COUNTER,
+				"Series created", exporter.getSeriesCreated()));
+		mfs.add(sample("streams_exporter_series_removed_total", Type.COUNTER,
+				"Series removed", exporter.getSeriesRemoved()));
+		mfs.add(sample("streams_exporter_series_updated_total", Type.COUNTER,
+				"Series values set", exporter.getSeriesUpdated()));
+		return mfs;
+	}
+
+	private static MetricFamilySamples sample(String name, Type type, String help, double value) {
+		return new MetricFamilySamples(name, type, help, Collections.singletonList(
+				new MetricFamilySamples.Sample(name, Collections.<String>emptyList(), Collections.<String>emptyList(), value)));
+	}
+}
@@ -0,0 +1,58 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.StartupStatus;
+
+/*
+ * StartupCollector
+ *
+ * Exports how long each startup phase took and the readiness and liveness
+ * reported by /ready and /live.  Phases only appear once they have completed.
+ */
+public class StartupCollector extends Collector {
+	private static final List<String> PHASE_LABEL = Collections.singletonList("phase");
+	private static final List<String> NO_LABELS = Collections.emptyList();
+	private static final List<String> NO_VALUES = Collections.emptyList();
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		List<MetricFamilySamples.Sample> phases = new ArrayList<MetricFamilySamples.Sample>();
+		for (Map.Entry<StartupStatus.Phase, Double> entry : StartupStatus.getPhaseSeconds().entrySet()) {
+			phases.add(new MetricFamilySamples.Sample("streams_exporter_startup_phase_seconds", PHASE_LABEL,
+					Collections.singletonList(entry.getKey().toString()), entry.getValue()));
+		}
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(new MetricFamilySamples("streams_exporter_startup_phase_seconds", Type.GAUGE,
+				"Seconds taken by each startup phase: rest_server, jmx_connect, trackers, first_refresh and total (until ready)", phases));
+		mfs.add(new MetricFamilySamples("streams_exporter_ready", Type.GAUGE,
+				"1 once every instance has completed a full refresh, else 0",
+				Collections.singletonList(new MetricFamilySamples.Sample("streams_exporter_ready", NO_LABELS, NO_VALUES,
+						StartupStatus.isReady() ? 1 : 0))));
+		mfs.add(new MetricFamilySamples("streams_exporter_live", Type.GAUGE,
+				"1 unless startup failed or a refresh has stalled, else 0",
+				Collections.singletonList(new MetricFamilySamples.Sample("streams_exporter_live", NO_LABELS, NO_VALUES,
+						StartupStatus.checkLive() == null ? 1 : 0))));
+		return mfs;
+	}
+}
@@ -0,0 +1,66 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import streams.metric.exporter.streamstracker.InstanceTrackerState;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+import streams.metric.exporter.streamstracker.StreamsInstanceTrackerRegistry;
+
+/*
+ * TrackerStateCollector
+ *
+ * Exports how old the data of each tracked instance is and when it was last refreshed.  While an instance
+ * cannot be reached the exporter keeps serving the last good state, these
+ * make that explicit.
+ */
+public class TrackerStateCollector extends Collector {
+	private static final List<String> LABEL_NAMES = Collections.singletonList("instancename");
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		long now = System.currentTimeMillis();
+		List<MetricFamilySamples.Sample> age = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> degraded = new ArrayList<MetricFamilySamples.Sample>();
+		List<MetricFamilySamples.Sample> lastSuccess = new ArrayList<MetricFamilySamples.Sample>();
+		for (StreamsInstanceTracker tracker : StreamsInstanceTrackerRegistry.getInstanceTrackersNoRefresh()) {
+			InstanceTrackerState state = tracker.getState();
+			List<String> labelValues = Collections.singletonList(state.getInstanceInfo().getInstanceName());
+			// No age until the first good refresh
+			if (state.getLastGoodRefresh() != null) {
+				age.add(new MetricFamilySamples.Sample("streams_exporter_data_age_seconds", LABEL_NAMES, labelValues,
+						(now - state.getLastGoodRefresh()) / 1000.0));
+				lastSuccess.add(new MetricFamilySamples.Sample("streams_exporter_last_success_timestamp_seconds", LABEL_NAMES,
+						labelValues, state.getLastGoodRefresh() / 1000.0));
+			}
+			degraded.add(new MetricFamilySamples.Sample("streams_exporter_degraded", LABEL_NAMES, labelValues,
+					state.isDegraded() ? 1 : 0));
+		}
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(new MetricFamilySamples("streams_exporter_data_age_seconds", Type.GAUGE,
+				"Seconds since the last refresh that completed with the instance available", age));
+		mfs.add(new MetricFamilySamples("streams_exporter_degraded", Type.GAUGE,
+				"1 if the instance cannot be reached and the last good state is being served, else 0", degraded));
+		mfs.add(new MetricFamilySamples("streams_exporter_last_success_timestamp_seconds", Type.GAUGE,
+				"Time of the last refresh that completed with the instance available", lastSuccess));
+		return mfs;
+	}
+}
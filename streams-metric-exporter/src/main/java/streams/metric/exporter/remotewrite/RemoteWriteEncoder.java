@@ -0,0 +1,112 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.remotewrite;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+ * RemoteWriteEncoder
+ *
+ * Hand written protobuf encoding of the Prometheus remote write WriteRequest
+ * so we do not need protoc generated classes for four small messages:
+ *
+ *   message WriteRequest { repeated TimeSeries timeseries = 1; }
+ *   message TimeSeries   { repeated Label labels = 1; repeated Sample samples = 2; }
+ *   message Label        { string name = 1; string value = 2; }
+ *   message Sample       { double value = 1; int64 timestamp = 2; }
+ */
+class RemoteWriteEncoder {
+
+	private static final int WIRE_VARINT = 0;
+	private static final int WIRE_FIXED64 = 1;
+	private static final int WIRE_LENGTH_DELIMITED = 2;
+
+	/* One series with a single sample, labels must already include __name__ and be sorted by name */
+	static class Series {
+		final String[] labelNames;
+		final String[] labelValues;
+		final double value;
+		final long timestamp;
+
+		Series(String[] labelNames, String[] labelValues, double value, long timestamp) {
+			this.labelNames = labelNames;
+			this.labelValues = labelValues;
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+	}
+
+	private RemoteWriteEncoder() {}
+
+	static byte[] encodeWriteRequest(List<Series> seriesList) {
+		ByteArrayOutputStream request = new ByteArrayOutputStream(seriesList.size() * 128);
+		ByteArrayOutputStream timeSeries = new ByteArrayOutputStream(256);
+		ByteArrayOutputStream scratch = new ByteArrayOutputStream(64);
+
+		for (Series series : seriesList) {
+			timeSeries.reset();
+			for (int i = 0; i < series.labelNames.length; i++) {
+				scratch.reset();
+				writeString(scratch, 1, series.labelNames[i]);
+				writeString(scratch, 2, series.labelValues[i]);
+				writeMessage(timeSeries, 1, scratch);
+			}
+			scratch.reset();
+			writeTag(scratch, 1, WIRE_FIXED64);
+			writeFixed64(scratch, Double.doubleToRawLongBits(series.value));
+			writeTag(scratch, 2, WIRE_VARINT);
+			writeVarint(scratch, series.timestamp);
+			writeMessage(timeSeries, 2, scratch);
+
+			writeMessage(request, 1, timeSeries);
+		}
+		return request.toByteArray();
+	}
+
+	private static void writeMessage(ByteArrayOutputStream out, int field, ByteArrayOutputStream message) {
+		writeTag(out, field, WIRE_LENGTH_DELIMITED);
+		writeVarint(out, message.size());
+		out.write(message.toByteArray(), 0, message.size());
+	}
+
+	private static void writeString(ByteArrayOutputStream out, int field, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeTag(out, field, WIRE_LENGTH_DELIMITED);
+		writeVarint(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static void writeTag(ByteArrayOutputStream out, int field, int wireType) {
+		writeVarint(out, (field << 3) | wireType);
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int)value);
+	}
+
+	private static void writeFixed64(ByteArrayOutputStream out, long value) {
+		for (int i = 0; i < 8; i++) {
+			out.write((int)(value >>> (8 * i)) & 0xFF);
+		}
+	}
+}
@@ -0,0 +1,254 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.remotewrite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xerial.snappy.Snappy;
+
+/*
+ * RemoteWriteShard
+ *
+ * Sends the batches of one shard in order.  A series always hashes to the
+ * same shard so its samples are never sent out of order.  Failed sends are
+ * retried with exponential backoff until the receiver accepts them, the
+ * batch stays in the write ahead log while we wait.
+ *
+ * Refresh threads only offer() batches of series to a bounded queue.  The
+ * shard thread encodes, compresses and appends them to the write ahead log,
+ * also while it waits between retries, so a slow receiver never holds up a
+ * refresh.  When the queue is full (the shard is busy posting, or the disk is
+ * slow) the refresh thread writes the queued batches and its own to the log
+ * itself, nothing is dropped before the log is full.
+ */
+class RemoteWriteShard implements Runnable {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + RemoteWriteShard.class.getName());
+
+	static final long MIN_BACKOFF_MS = 100;
+	static final long MAX_BACKOFF_MS = 30000;
+	static final int TIMEOUT_MS = 30000;
+
+	private final URL url;
+	private final RemoteWriteWal wal;
+	private final BlockingQueue<QueuedBatch> incoming;
+	// Serializes refresh threads queueing or spilling batches, so sequence numbers follow queue order
+	private final Object offerLock = new Object();
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	private long sentBatches = 0;
+	private long failedSends = 0;
+	private long spilledBatches = 0;
+
+	RemoteWriteShard(int shard, URL url, RemoteWriteWal wal, int queueCapacity) {
+		this.url = url;
+		this.wal = wal;
+		this.incoming = new ArrayBlockingQueue<QueuedBatch>(queueCapacity);
+		this.thread = new Thread(this, "RemoteWrite-" + shard);
+		this.thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	void stop() {
+		running = false;
+		thread.interrupt();
+	}
+
+	RemoteWriteWal getWal() {
+		return wal;
+	}
+
+	/*
+	 * Queues a batch for the shard thread.  If the queue is full the caller writes the
+	 * queued batches and this one to the log, in order, and false is returned.
+	 */
+	boolean offer(List<RemoteWriteEncoder.Series> batch) {
+		synchronized (offerLock) {
+			QueuedBatch queued = new QueuedBatch(wal.reserve(), batch);
+			if (incoming.offer(queued)) {
+				return true;
+			}
+			// Batches the shard thread polled in the mean time have lower sequence numbers,
+			// it appends them before it reads the log again
+			QueuedBatch older;
+			while ((older = incoming.poll()) != null) {
+				append(older);
+			}
+			append(queued);
+		}
+		synchronized (this) {
+			spilledBatches++;
+		}
+		return false;
+	}
+
+	/* Batches waiting to be written to the log */
+	int getQueued() {
+		return incoming.size();
+	}
+
+	/* Batches written to the log by a refresh thread because the queue was full */
+	synchronized long getSpilledBatches() {
+		return spilledBatches;
+	}
+
+	synchronized long getSentBatches() {
+		return sentBatches;
+	}
+
+	synchronized long getFailedSends() {
+		return failedSends;
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				QueuedBatch batch;
+				while ((batch = incoming.poll()) != null) {
+					append(batch);
+				}
+				long sequence = wal.oldest();
+				if (sequence < 0) {
+					append(incoming.take());
+					continue;
+				}
+				byte[] payload;
+				try {
+					payload = wal.read(sequence);
+				} catch (IOException e) {
+					LOGGER.error("Unable to read remote write batch {}, discarding it: {}", sequence, e.getMessage());
+					wal.remove(sequence);
+					continue;
+				}
+				if (payload != null) {
+					sendWithRetry(sequence, payload);
+				}
+			} catch (InterruptedException e) {
+				// stop() was called
+			}
+		}
+	}
+
+	private void sendWithRetry(long sequence, byte[] payload) throws InterruptedException {
+		long backoff = MIN_BACKOFF_MS;
+		while (running) {
+			int status;
+			try {
+				status = post(payload);
+			} catch (IOException e) {
+				LOGGER.debug("Remote write to {} failed: {}", url, e.getMessage());
+				status = -1;
+			}
+
+			if (status >= 200 && status < 300) {
+				synchronized (this) {
+					sentBatches++;
+				}
+				wal.remove(sequence);
+				return;
+			}
+
+			synchronized (this) {
+				failedSends++;
+			}
+			// 4xx other than 429 will never succeed, retrying would block the shard forever
+			if (status >= 400 && status < 500 && status != 429) {
+				LOGGER.error("Remote write receiver {} rejected batch with HTTP status {}, discarding it", url, status);
+				wal.remove(sequence);
+				return;
+			}
+			LOGGER.debug("Remote write status {}, retrying in {} ms ({} batches pending)", status, backoff, wal.size());
+			appendWhileWaiting(backoff);
+			backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+		}
+	}
+
+	private void append(QueuedBatch batch) {
+		try {
+			wal.append(batch.sequence, Snappy.compress(RemoteWriteEncoder.encodeWriteRequest(batch.series)));
+		} catch (IOException e) {
+			LOGGER.error("Unable to write remote write batch to the write ahead log: {}", e.getMessage());
+		}
+	}
+
+	/* Sleeps for the backoff, logging batches that arrive in the mean time */
+	private void appendWhileWaiting(long millis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			QueuedBatch batch = incoming.poll(remaining, TimeUnit.NANOSECONDS);
+			if (batch != null) {
+				append(batch);
+			}
+		}
+	}
+
+	private int post(byte[] payload) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestMethod("POST");
+		conn.setDoOutput(true);
+		conn.setConnectTimeout(TIMEOUT_MS);
+		conn.setReadTimeout(TIMEOUT_MS);
+		conn.setFixedLengthStreamingMode(payload.length);
+		conn.setRequestProperty("Content-Type", "application/x-protobuf");
+		conn.setRequestProperty("Content-Encoding", "snappy");
+		conn.setRequestProperty("X-Prometheus-Remote-Write-Version", "0.1.0");
+		OutputStream out = conn.getOutputStream();
+		try {
+			out.write(payload);
+		} finally {
+			out.close();
+		}
+		int status = conn.getResponseCode();
+		// Drain the response so the keep-alive connection can be reused
+		InputStream in = (status < 400 ? conn.getInputStream() : conn.getErrorStream());
+		if (in != null) {
+			try {
+				byte[] buffer = new byte[1024];
+				while (in.read(buffer) >= 0) { }
+			} finally {
+				in.close();
+			}
+		}
+		return status;
+	}
+
+	/* A batch and the log sequence number reserved for it when it was queued */
+	private static final class QueuedBatch {
+		final long sequence;
+		final List<RemoteWriteEncoder.Series> series;
+
+		QueuedBatch(long sequence, List<RemoteWriteEncoder.Series> series) {
+			this.sequence = sequence;
+			this.series = series;
+		}
+	}
+}
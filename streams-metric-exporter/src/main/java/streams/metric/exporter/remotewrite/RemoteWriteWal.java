@@ -0,0 +1,163 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.remotewrite;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * RemoteWriteWal
+ *
+ * Write ahead log for one remote write shard, drained by the shard's thread.
+ * Batches are appended by the shard thread, or by a refresh thread when the
+ * shard's queue is full.  A batch gets its sequence number when it is queued
+ * (reserve()) so batches are sent in the order they were published whoever
+ * appends them.  Every compressed batch is written to its own file
+ * (<sequence>.batch, written to a temp file and renamed so a crash never
+ * leaves a partial batch) before it is sent, and the file is only deleted
+ * once the receiver has accepted it.  Batches left over from a previous run
+ * are picked up at startup.
+ *
+ * Only the newest queueCapacity batches are also held in memory, older
+ * pending batches are read back from disk when their turn comes.  When the
+ * log reaches maxBatches the oldest batch is dropped and counted.  Files are
+ * not synced, the log survives a restart of the exporter, not of the host.
+ */
+class RemoteWriteWal {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + RemoteWriteWal.class.getName());
+
+	private static final String SUFFIX = ".batch";
+	private static final byte[] ON_DISK = new byte[0];
+
+	private final Path dir;
+	private final int queueCapacity;
+	private final int maxBatches;
+
+	// sequence -> payload, or ON_DISK when only in the file
+	private final TreeMap<Long, byte[]> pending = new TreeMap<Long, byte[]>();
+	private int inMemory = 0;
+	private long nextSequence = 0;
+	private long dropped = 0;
+
+	RemoteWriteWal(Path dir, int queueCapacity, int maxBatches) throws IOException {
+		this.dir = dir;
+		this.queueCapacity = queueCapacity;
+		this.maxBatches = maxBatches;
+		Files.createDirectories(dir);
+		recover();
+	}
+
+	private void recover() {
+		File[] files = dir.toFile().listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File f : files) {
+			String name = f.getName();
+			if (name.endsWith(SUFFIX)) {
+				try {
+					long sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+					pending.put(sequence, ON_DISK);
+					nextSequence = Math.max(nextSequence, sequence + 1);
+				} catch (NumberFormatException e) {
+					LOGGER.warn("Ignoring unexpected file in remote write log: {}", f);
+				}
+			} else if (name.endsWith(".tmp")) {
+				f.delete();
+			}
+		}
+		if (!pending.isEmpty()) {
+			LOGGER.info("Remote write log {} recovered {} unsent batches", dir, pending.size());
+		}
+	}
+
+	/* Sequence number of the next batch, appended later with append(sequence, payload) */
+	synchronized long reserve() {
+		return nextSequence++;
+	}
+
+	synchronized void append(long sequence, byte[] payload) throws IOException {
+		Path tmp = dir.resolve(sequence + ".tmp");
+		Files.write(tmp, payload);
+		Files.move(tmp, file(sequence), StandardCopyOption.ATOMIC_MOVE);
+
+		pending.put(sequence, payload);
+		inMemory++;
+		// Keep only the newest batches in memory
+		if (inMemory > queueCapacity) {
+			for (Map.Entry<Long, byte[]> entry : pending.entrySet()) {
+				if (entry.getValue() != ON_DISK) {
+					entry.setValue(ON_DISK);
+					inMemory--;
+					break;
+				}
+			}
+		}
+		while (pending.size() > maxBatches) {
+			Map.Entry<Long, byte[]> oldest = pending.firstEntry();
+			LOGGER.warn("Remote write log {} is full ({} batches), dropping oldest batch", dir, maxBatches);
+			remove(oldest.getKey());
+			dropped++;
+		}
+	}
+
+	/* Oldest pending sequence number, -1 if nothing is pending */
+	synchronized long oldest() {
+		return (pending.isEmpty() ? -1 : pending.firstKey());
+	}
+
+	/* Returns null if the batch was dropped in the mean time */
+	synchronized byte[] read(long sequence) throws IOException {
+		byte[] payload = pending.get(sequence);
+		if (payload == ON_DISK) {
+			payload = Files.readAllBytes(file(sequence));
+		}
+		return payload;
+	}
+
+	synchronized void remove(long sequence) {
+		byte[] payload = pending.remove(sequence);
+		if (payload != null && payload != ON_DISK) {
+			inMemory--;
+		}
+		try {
+			Files.deleteIfExists(file(sequence));
+		} catch (IOException e) {
+			LOGGER.warn("Unable to delete remote write log file {}: {}", file(sequence), e.getMessage());
+		}
+	}
+
+	synchronized int size() {
+		return pending.size();
+	}
+
+	synchronized long getDropped() {
+		return dropped;
+	}
+
+	private Path file(long sequence) {
+		return dir.resolve(sequence + SUFFIX);
+	}
+}
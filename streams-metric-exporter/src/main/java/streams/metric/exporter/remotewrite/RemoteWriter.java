@@ -0,0 +1,270 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.remotewrite;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.CollectorRegistry;
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.prometheus.ColumnarMetricCollector;
+import streams.metric.exporter.prometheus.ColumnarMetricsExporter;
+import streams.metric.exporter.prometheus.MetricSelector;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+import streams.metric.exporter.streamstracker.StreamsInstanceRefreshListener;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+
+/*
+ * RemoteWriter
+ *
+ * Optional push mode.  After each refresh of an instance the samples of that
+ * instance that changed since its last push are sent to a Prometheus remote
+ * write endpoint as snappy compressed protobuf.  The changes come from the
+ * generations of the columnar collector (see ColumnarMetricCollector.delta),
+ * so no per series state is kept here.  Every series of the instance is
+ * re-sent every RESEND_UNCHANGED_MS so they do not go stale on the receiver.
+ * The exporter's own metrics (everything that is not a streams object) are
+ * sent in full at most once per interval, whichever instance refreshes.
+ *
+ * Samples are partitioned into shards by series so that each shard can send
+ * in parallel while keeping every series in order.  The refresh thread only
+ * builds the batches, encoding and the write ahead log are left to the shard
+ * threads (see RemoteWriteShard).  Each shard has its own write ahead log
+ * directory under the configured wal directory, holding at most walMaxBatches.
+ */
+public class RemoteWriter implements StreamsInstanceRefreshListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + RemoteWriter.class.getName());
+
+	static final long RESEND_UNCHANGED_MS = 60000;
+	static final int MAX_SAMPLES_PER_BATCH = 2000;
+	static final int QUEUE_CAPACITY = 50;       // batches held in memory per shard
+
+	private static final MetricSelector EXPORTER_METRICS = MetricSelector.of(
+			Collections.singletonMap(MetricSelector.LEVEL, Collections.singletonList(MetricSelector.Level.EXPORTER.name())));
+
+	private final URL url;
+	private final long intervalMs;
+	private final RemoteWriteShard[] shards;
+
+	// instance name -> where its last push left off, only used on that instance's refresh thread
+	private final Map<String, InstanceCursor> cursors = new ConcurrentHashMap<String, InstanceCursor>();
+	private long exporterMetricsSent = 0;
+	private final LongAdder samplesSent = new LongAdder();
+
+	public RemoteWriter(String url, String walDir, int shardCount, int walMaxBatches, long intervalMs) throws IOException {
+		this.url = new URL(url);
+		this.intervalMs = intervalMs;
+		this.shards = new RemoteWriteShard[shardCount];
+		Path walPath = Paths.get(walDir);
+		for (int i = 0; i < shardCount; i++) {
+			RemoteWriteWal wal = new RemoteWriteWal(walPath.resolve("shard-" + i), QUEUE_CAPACITY, walMaxBatches);
+			shards[i] = new RemoteWriteShard(i, this.url, wal, QUEUE_CAPACITY);
+		}
+		new RemoteWriterCollector().register();
+	}
+
+	public void start() {
+		LOGGER.info("Starting remote write to {} with {} shards", url, shards.length);
+		for (RemoteWriteShard shard : shards) {
+			shard.start();
+		}
+	}
+
+	public void stop() {
+		for (RemoteWriteShard shard : shards) {
+			shard.stop();
+		}
+	}
+
+	@Override
+	public void refreshCompleted(StreamsInstanceTracker tracker) {
+		MetricsExporter exporter = PrometheusMetricsExporter.getInstance();
+		if (!(exporter instanceof ColumnarMetricsExporter)) {
+			return; // rejected by the configuration validation
+		}
+		long now = System.currentTimeMillis();
+		List<List<RemoteWriteEncoder.Series>> byShard = newShardLists();
+		addInstanceChanges(((ColumnarMetricsExporter) exporter).getCollector(),
+				tracker.getInstanceInfo().getInstanceName(), now, byShard);
+		addExporterMetrics(now, byShard);
+		publish(byShard);
+	}
+
+	/* Series of the instance that changed since its last push, or all of them when due for a resend */
+	void addInstanceChanges(ColumnarMetricCollector collector, String instanceName, long now,
+			List<List<RemoteWriteEncoder.Series>> byShard) {
+		InstanceCursor cursor = cursors.get(instanceName);
+		if (cursor == null) {
+			cursor = new InstanceCursor();
+			cursors.put(instanceName, cursor);
+		}
+		boolean resend = (now - cursor.lastFullPush >= RESEND_UNCHANGED_MS);
+		ColumnarMetricCollector.Delta delta = collector.delta(resend ? 0 : cursor.generation, instanceName);
+		cursor.generation = delta.generation;
+		if (delta.reset) {
+			cursor.lastFullPush = now;
+		}
+		// Removed series are simply no longer sent
+		for (Map.Entry<String, ColumnarMetricCollector.FamilyDelta> family : delta.families.entrySet()) {
+			if (family.getValue().changed.isEmpty()) {
+				continue;
+			}
+			LabelOrder order = new LabelOrder(family.getKey(), family.getValue().labels);
+			for (Object[] entry : family.getValue().changed) {
+				String[] labelValues = new String[entry.length - 1];
+				for (int i = 1; i < entry.length; i++) {
+					labelValues[i - 1] = (String) entry[i];
+				}
+				byShard.get(shard(family.getKey(), labelValues)).add(order.series(labelValues, (Double) entry[0], now));
+			}
+		}
+	}
+
+	/* The exporter's own metrics, at most once per interval */
+	private void addExporterMetrics(long now, List<List<RemoteWriteEncoder.Series>> byShard) {
+		synchronized (this) {
+			if (now - exporterMetricsSent < intervalMs) {
+				return;
+			}
+			exporterMetricsSent = now;
+		}
+		for (MetricFamilySamples family : EXPORTER_METRICS.collect(CollectorRegistry.defaultRegistry)) {
+			for (MetricFamilySamples.Sample sample : family.samples) {
+				LabelOrder order = new LabelOrder(sample.name, sample.labelNames);
+				String[] labelValues = sample.labelValues.toArray(new String[sample.labelValues.size()]);
+				byShard.get(shard(sample.name, labelValues)).add(order.series(labelValues, sample.value, now));
+			}
+		}
+	}
+
+	List<List<RemoteWriteEncoder.Series>> newShardLists() {
+		List<List<RemoteWriteEncoder.Series>> byShard = new ArrayList<List<RemoteWriteEncoder.Series>>(shards.length);
+		for (int i = 0; i < shards.length; i++) {
+			byShard.add(new ArrayList<RemoteWriteEncoder.Series>());
+		}
+		return byShard;
+	}
+
+	/* Hands the batches to the shard threads */
+	void publish(List<List<RemoteWriteEncoder.Series>> byShard) {
+		for (int i = 0; i < shards.length; i++) {
+			List<RemoteWriteEncoder.Series> series = byShard.get(i);
+			for (int from = 0; from < series.size(); from += MAX_SAMPLES_PER_BATCH) {
+				List<RemoteWriteEncoder.Series> batch = series.subList(from, Math.min(series.size(), from + MAX_SAMPLES_PER_BATCH));
+				if (!shards[i].offer(batch)) {
+					LOGGER.debug("Remote write shard {} is not keeping up, wrote a batch of {} samples to its log", i, batch.size());
+				}
+				samplesSent.add(batch.size());
+			}
+		}
+	}
+
+	private int shard(String name, String[] labelValues) {
+		int hash = 31 * name.hashCode() + Arrays.hashCode(labelValues);
+		return (hash & Integer.MAX_VALUE) % shards.length;
+	}
+
+	private static final class InstanceCursor {
+		long generation = 0;
+		long lastFullPush = 0;
+	}
+
+	/* Remote write requires __name__ and the labels sorted by name, the order is worked out once per family */
+	private static final class LabelOrder {
+		private final String name;
+		private final String[] names;
+		private final int[] source; // index into the label values, -1 for __name__
+
+		LabelOrder(String name, List<String> labelNames) {
+			this.name = name;
+			int count = labelNames.size() + 1;
+			this.names = new String[count];
+			this.source = new int[count];
+			names[0] = "__name__";
+			source[0] = -1;
+			for (int i = 1; i < count; i++) {
+				names[i] = labelNames.get(i - 1);
+				source[i] = i - 1;
+			}
+			// Insertion sort, label lists are short
+			for (int i = 1; i < count; i++) {
+				String labelName = names[i];
+				int from = source[i];
+				int j = i - 1;
+				while (j >= 0 && names[j].compareTo(labelName) > 0) {
+					names[j + 1] = names[j];
+					source[j + 1] = source[j];
+					j--;
+				}
+				names[j + 1] = labelName;
+				source[j + 1] = from;
+			}
+		}
+
+		RemoteWriteEncoder.Series series(String[] labelValues, double value, long timestamp) {
+			String[] values = new String[names.length];
+			for (int i = 0; i < names.length; i++) {
+				values[i] = (source[i] < 0 ? name : labelValues[source[i]]);
+			}
+			return new RemoteWriteEncoder.Series(names, values, value, timestamp);
+		}
+	}
+
+	/* Exports the state of the remote write queues */
+	class RemoteWriterCollector extends Collector {
+		@Override
+		public List<MetricFamilySamples> collect() {
+			long pending = 0, sent = 0, failed = 0, dropped = 0, spilled = 0;
+			for (RemoteWriteShard shard : shards) {
+				pending += shard.getWal().size() + shard.getQueued();
+				dropped += shard.getWal().getDropped();
+				spilled += shard.getSpilledBatches();
+				sent += shard.getSentBatches();
+				failed += shard.getFailedSends();
+			}
+			long samples = samplesSent.sum();
+			List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+			mfs.add(single("streams_exporter_remote_write_pending_batches", Type.GAUGE, "Batches waiting in the remote write log", pending));
+			mfs.add(single("streams_exporter_remote_write_sent_batches_total", Type.COUNTER, "Batches accepted by the remote write receiver", sent));
+			mfs.add(single("streams_exporter_remote_write_failed_sends_total", Type.COUNTER, "Remote write requests that failed and were retried or discarded", failed));
+			mfs.add(single("streams_exporter_remote_write_dropped_batches_total", Type.COUNTER, "Batches dropped because the remote write log was full", dropped));
+			mfs.add(single("streams_exporter_remote_write_spilled_batches_total", Type.COUNTER, "Batches written to the remote write log by a refresh because the queue was full", spilled));
+			mfs.add(single("streams_exporter_remote_write_samples_total", Type.COUNTER, "Samples queued for remote write", samples));
+			return mfs;
+		}
+
+		private MetricFamilySamples single(String name, Type type, String help, double value) {
+			List<String> empty = Collections.emptyList();
+			return new MetricFamilySamples(name, type, help,
+					Collections.singletonList(new MetricFamilySamples.Sample(name, empty, empty, value)));
+		}
+	}
+}
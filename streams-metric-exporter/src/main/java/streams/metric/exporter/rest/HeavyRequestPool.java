@@ -0,0 +1,97 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * HeavyRequestPool
+ *
+ * Runs the expensive endpoints (prometheus scrapes, all metrics or snapshots
+ * of an instance) on their own threads.  The resources suspend the request,
+ * which hands the Grizzly worker thread back, so a burst of scrapes cannot
+ * hold up the light /instance/* requests.  Until started, or with 0
+ * threads, requests run on the calling thread as before.
+ */
+public class HeavyRequestPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger("root."
+            + HeavyRequestPool.class.getName());
+
+    private static volatile ThreadPoolExecutor executor = null;
+
+    private HeavyRequestPool() {
+    }
+
+    /* queueLimit 0 queues without limit, past the limit requests get 503 */
+    public static synchronized void start(int threads, int queueLimit) {
+        if (executor != null || threads < 1) {
+            return;
+        }
+        BlockingQueue<Runnable> queue = (queueLimit > 0 ? new ArrayBlockingQueue<Runnable>(queueLimit)
+                : new LinkedBlockingQueue<Runnable>());
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue, r -> {
+            Thread t = new Thread(r, "HeavyRequest-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        LOGGER.debug("Heavy request pool started with {} threads, queue limit {}", threads, queueLimit);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /* Resumes response with the result of request, or with the exception it threw for the mappers */
+    public static void submit(final AsyncResponse response, final Callable<Response> request) {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            complete(response, request);
+            return;
+        }
+        try {
+            pool.execute(() -> complete(response, request));
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Heavy request queue full, refusing request");
+            response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", "1").build());
+        }
+    }
+
+    private static void complete(AsyncResponse response, Callable<Response> request) {
+        try {
+            response.resume(request.call());
+        } catch (Exception e) {
+            response.resume(e);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/*
+ * LiteEventStream
+ *
+ * Server-sent event sink on a JDK http server exchange for the lite http
+ * engine.  The response headers are sent with the first event, until then
+ * the request can still be answered normally.  Event data is written with
+ * toString(), the metric stream only sends strings.
+ */
+class LiteEventStream implements SseEventSink {
+
+    static final Sse SSE = new Sse() {
+        @Override
+        public OutboundSseEvent.Builder newEventBuilder() {
+            return new LiteEvent();
+        }
+
+        @Override
+        public SseBroadcaster newBroadcaster() {
+            throw new UnsupportedOperationException("Broadcasters are not supported by the lite http engine");
+        }
+    };
+
+    private final HttpExchange exchange;
+    private OutputStream out = null;
+    private boolean closed = false;
+
+    LiteEventStream(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public synchronized CompletionStage<?> send(OutboundSseEvent event) {
+        CompletableFuture<Void> result = new CompletableFuture<Void>();
+        try {
+            if (closed) {
+                throw new IOException("Event stream is closed");
+            }
+            if (out == null) {
+                exchange.getResponseHeaders().set("Content-Type", MediaType.SERVER_SENT_EVENTS);
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, 0);
+                out = exchange.getResponseBody();
+            }
+            out.write(format(event).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            result.complete(null);
+        } catch (IOException e) {
+            close();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            exchange.close();
+        }
+    }
+
+    private static String format(OutboundSseEvent event) {
+        StringBuilder text = new StringBuilder();
+        if (event.getComment() != null) {
+            field(text, "", event.getComment());
+        }
+        if (event.getName() != null) {
+            field(text, "event", event.getName());
+        }
+        if (event.getId() != null) {
+            field(text, "id", event.getId());
+        }
+        if (event.isReconnectDelaySet()) {
+            field(text, "retry", Long.toString(event.getReconnectDelay()));
+        }
+        if (event.getData() != null) {
+            field(text, "data", event.getData().toString());
+        }
+        return text.append('\n').toString();
+    }
+
+    /* Multi line values are one field per line */
+    private static void field(StringBuilder text, String name, String value) {
+        for (String line : value.split("\r\n|\r|\n", -1)) {
+            text.append(name).append(": ").append(line).append('\n');
+        }
+    }
+
+    private static class LiteEvent implements OutboundSseEvent, OutboundSseEvent.Builder {
+        private String id;
+        private String name;
+        private String comment;
+        private long reconnectDelay = RECONNECT_NOT_SET;
+        private MediaType mediaType;
+        private Object data;
+
+        @Override
+        public OutboundSseEvent.Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder reconnectDelay(long milliseconds) {
+            this.reconnectDelay = milliseconds;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder mediaType(MediaType mediaType) {
+            this.mediaType = mediaType;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder comment(String comment) {
+            this.comment = comment;
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public OutboundSseEvent.Builder data(Class type, Object data) {
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public OutboundSseEvent.Builder data(GenericType type, Object data) {
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent.Builder data(Object data) {
+            this.data = data;
+            return this;
+        }
+
+        @Override
+        public OutboundSseEvent build() {
+            return this;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getComment() {
+            return comment;
+        }
+
+        @Override
+        public long getReconnectDelay() {
+            return reconnectDelay;
+        }
+
+        @Override
+        public boolean isReconnectDelaySet() {
+            return reconnectDelay != RECONNECT_NOT_SET;
+        }
+
+        @Override
+        public Class<?> getType() {
+            return (data == null ? null : data.getClass());
+        }
+
+        @Override
+        public Type getGenericType() {
+            return getType();
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        @Override
+        public Object getData() {
+            return data;
+        }
+    }
+}
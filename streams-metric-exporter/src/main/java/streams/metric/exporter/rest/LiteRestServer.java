@@ -0,0 +1,261 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import streams.metric.exporter.ServiceConfig;
+import streams.metric.exporter.rest.resources.LiteRoutes;
+
+/*
+ * LiteRestServer
+ *
+ * The REST endpoints on the JDK http server (--httpengine lite).  There is
+ * no servlet container, Jersey or HK2 to start: requests are matched by
+ * LiteRoutes, which calls the resource methods directly so the responses are
+ * the same as with RestServer.  The worker threads and keep-alive timeout
+ * options apply, the heavy request pool and compression do not (responses
+ * that are already gzip encoded are still sent as is).
+ */
+public class LiteRestServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger("root."
+            + LiteRestServer.class.getName());
+
+    // JDK http server idle timeout in seconds, see setIdleInterval
+    private static final String IDLE_INTERVAL_PROPERTY = "sun.net.httpserver.idleInterval";
+
+    private final String webPath;
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    public LiteRestServer(ServiceConfig config) throws IOException {
+        String path = (config.getWebPath() == null ? "" : config.getWebPath());
+        // Same normalization as RestServer: starts with a slash and does not end with one
+        if (path.length() > 0) {
+            path = (!path.startsWith("/") ? "/" : "") + (path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+        }
+        this.webPath = path;
+
+        setIdleInterval(config.getServerKeepAliveSeconds());
+        InetSocketAddress address = new InetSocketAddress(config.getHost(), Integer.parseInt(config.getPort()));
+        Protocol protocol = config.getServerProtocol();
+        if (protocol == Protocol.HTTPS) {
+            LOGGER.debug("Using https protocol");
+            HttpsServer httpsServer = HttpsServer.create(address, config.getServerMaxQueued());
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(createSslContext(config.getServerKeystore(), config.getServerKeystorePwd())));
+            this.server = httpsServer;
+        } else {
+            LOGGER.debug("Using http protcol");
+            this.server = HttpServer.create(address, config.getServerMaxQueued());
+        }
+
+        int threads = (config.getServerWorkerThreads() > 0 ? config.getServerWorkerThreads()
+                : Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "LiteHttp-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(workers);
+        server.createContext(webPath.isEmpty() ? "/" : webPath, this::handle);
+        server.start();
+
+        LOGGER.info("Lite HTTP Server Rest Endpoints Listening on: {}://{}:{}{}",
+                protocol, config.getHost(), config.getPort(), webPath);
+    }
+
+    /*
+     * The JDK server has no per server idle timeout, only this system property.
+     * It is read once per JVM, when the first JDK http server is created, so
+     * this must run before any other JDK http server (the exporter creates
+     * none).  A value given on the command line (-D) is left alone.
+     */
+    private static void setIdleInterval(int keepAliveSeconds) {
+        if (keepAliveSeconds <= 0) {
+            return;
+        }
+        String explicit = System.getProperty(IDLE_INTERVAL_PROPERTY);
+        if (explicit != null) {
+            LOGGER.info("Using -D{}={} rather than the keep-alive timeout of {} seconds",
+                    IDLE_INTERVAL_PROPERTY, explicit, keepAliveSeconds);
+            return;
+        }
+        System.setProperty(IDLE_INTERVAL_PROPERTY, Integer.toString(keepAliveSeconds));
+    }
+
+    public void stopServer() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        LiteRequest request = new LiteRequest(exchange);
+        Response response = null;
+        try {
+            response = LiteRoutes.route(request);
+            if (response != null) {
+                send(exchange, response);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Lite HTTP request {} failed: {}", exchange.getRequestURI(), e.toString());
+        } finally {
+            if (response != null || request.stream == null) {
+                exchange.close();
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        for (Map.Entry<String, List<String>> header : response.getStringHeaders().entrySet()) {
+            exchange.getResponseHeaders().put(header.getKey(), new ArrayList<String>(header.getValue()));
+        }
+        Object entity = response.getEntity();
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+        if (entity instanceof String && !head) {
+            byte[] body = ((String) entity).getBytes("UTF-8");
+            exchange.sendResponseHeaders(response.getStatus(), body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } else if (entity != null && !head) {
+            // Streamed with chunked encoding
+            exchange.sendResponseHeaders(response.getStatus(), 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                LiteRoutes.writeEntity(entity, out);
+            }
+        } else {
+            exchange.sendResponseHeaders(response.getStatus(), -1);
+        }
+    }
+
+    private static SSLContext createSslContext(String keystore, String password) throws IOException {
+        char[] passphrase = (password == null ? null : password.toCharArray());
+        try (InputStream in = new FileInputStream(keystore)) {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(in, passphrase);
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, passphrase);
+            // One way authentication, as with RestServer
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagers.getKeyManagers(), null, null);
+            return sslContext;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to load server keystore " + keystore + ": " + e.getMessage(), e);
+        }
+    }
+
+    /* Adapts an exchange to LiteRoutes */
+    private class LiteRequest implements LiteRoutes.Request {
+        private final HttpExchange exchange;
+        private Map<String, List<String>> query = null;
+        private LiteEventStream stream = null;
+
+        LiteRequest(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public String getMethod() {
+            return exchange.getRequestMethod();
+        }
+
+        @Override
+        public String getPath() {
+            // The context path is the web path
+            return exchange.getRequestURI().getPath().substring(webPath.length());
+        }
+
+        @Override
+        public List<String> getQueryParameters(String name) {
+            if (query == null) {
+                query = parseQuery(exchange.getRequestURI().getRawQuery());
+            }
+            List<String> values = query.get(name);
+            return (values == null ? Collections.<String>emptyList() : values);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return exchange.getRequestHeaders().getFirst(name);
+        }
+
+        @Override
+        public SseEventSink openEventStream() {
+            if (stream == null) {
+                stream = new LiteEventStream(exchange);
+            }
+            return stream;
+        }
+
+        @Override
+        public Sse getSse() {
+            return LiteEventStream.SSE;
+        }
+    }
+
+    private static Map<String, List<String>> parseQuery(String rawQuery) {
+        Map<String, List<String>> query = new HashMap<String, List<String>>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+                String value = (equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+                query.computeIfAbsent(name, k -> new ArrayList<String>()).add(value);
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                LOGGER.debug("Ignoring malformed query parameter {}", pair);
+            }
+        }
+        return query;
+    }
+}
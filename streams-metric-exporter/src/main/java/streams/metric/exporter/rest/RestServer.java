@@ -20,17 +20,23 @@ import java.io.IOException;
 import java.net.URI;
 
 import javax.net.ssl.SSLContext;
+import javax.ws.rs.core.MediaType;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
 import org.glassfish.grizzly.servlet.ServletRegistration;
 import org.glassfish.grizzly.servlet.WebappContext;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.servlet.ServletContainer;
 
+import streams.metric.exporter.ServiceConfig;
+
 
 public class RestServer {
     private static final Logger LOGGER = LoggerFactory.getLogger("root."
@@ -43,9 +49,12 @@ public class RestServer {
     private Protocol serverProtocol = Protocol.HTTP;
     private String serverKeystore = null;
     private String serverKeystorePwd = null;
+    private ServiceConfig config = null;
     
     
-    public RestServer(String host, String webPort, String webPath, Protocol serverProtocol, String serverKeystore, String serverKeystorePwd) throws IOException {
+    public RestServer(ServiceConfig config) throws IOException {
+        String webPath = config.getWebPath();
+        Protocol serverProtocol = config.getServerProtocol();
         this.webPath = (webPath == null?"":webPath);
         // Ensure webpath starts with a slash and does not end with a slash
         if (this.webPath.length() > 0) {
@@ -53,12 +62,13 @@ public class RestServer {
         }
         LOGGER.debug("RestServer this.webPath set to " + this.webPath);
 
-        this.baseUri = serverProtocol.toString() + "://" + host + ":" + webPort;
+        this.baseUri = serverProtocol.toString() + "://" + config.getHost() + ":" + config.getPort();
         LOGGER.debug("RestServer this.baseUri set to " + this.baseUri);
         
         this.serverProtocol = serverProtocol;
-        this.serverKeystore = serverKeystore;
-        this.serverKeystorePwd = serverKeystorePwd;
+        this.serverKeystore = config.getServerKeystore();
+        this.serverKeystorePwd = config.getServerKeystorePwd();
+        this.config = config;
         
         server = startServer();
 
@@ -84,6 +94,8 @@ public class RestServer {
         registration.setInitParameter("jersey.config.server.provider.packages",
         		"streams.metric.exporter.rest.resources;streams.metric.exporter.rest.errorhandling;streams.metric.exporter.rest.serializers");
         registration.addMapping("/*");
+        // Server-sent event streams hold the request open
+        registration.setAsyncSupported(true);
         
         if (this.serverProtocol == Protocol.HTTPS) {
 
@@ -93,6 +105,9 @@ public class RestServer {
         	LOGGER.debug("Using http protcol");
         	theServer = createHttpServer();
         }
+        configureListener(theServer.getListener("grizzly"));
+        HeavyRequestPool.start(config.getServerHeavyThreads(), config.getServerMaxQueued());
+
         // Prometheus servlet
         // FUTURE: if we go with plugin this needs to be variant if it is created or not
         //ServletRegistration prometheus = context.addServlet("PrometheusContainer",new MetricsServlet());
@@ -136,7 +151,38 @@ public class RestServer {
         return server;
     }
     
+    // Thread pools, keep-alive and compression, 0 for the thread counts keeps the Grizzly defaults
+    private void configureListener(NetworkListener listener) {
+        if (config.getServerSelectorThreads() > 0) {
+            listener.getTransport().setSelectorRunnersCount(config.getServerSelectorThreads());
+        }
+        // Keep the thread factory the jersey factory installed
+        ThreadPoolConfig workers = listener.getTransport().getWorkerThreadPoolConfig();
+        if (config.getServerWorkerThreads() > 0) {
+            workers.setCorePoolSize(config.getServerWorkerThreads()).setMaxPoolSize(config.getServerWorkerThreads());
+        }
+        if (config.getServerMaxQueued() > 0) {
+            workers.setQueueLimit(config.getServerMaxQueued());
+        }
+
+        listener.getKeepAlive().setIdleTimeoutInSeconds(config.getServerKeepAliveSeconds());
+        listener.getKeepAlive().setMaxRequestsCount(config.getServerKeepAliveRequests());
+
+        // Responses that are already encoded (e.g. the retained gzip metrics) are left alone.
+        // Event streams are not listed, compressing them would hold events back
+        if (config.getServerCompressionMinSize() > 0) {
+            listener.getCompressionConfig()
+                    .setCompressionMode(CompressionConfig.CompressionMode.ON)
+                    .setCompressionMinSize(config.getServerCompressionMinSize())
+                    .setCompressableMimeTypes(MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN);
+        }
+        LOGGER.debug("HTTP server selector threads: {}, worker threads: {}, heavy threads: {}, queue limit: {}",
+                config.getServerSelectorThreads(), config.getServerWorkerThreads(), config.getServerHeavyThreads(),
+                config.getServerMaxQueued());
+    }
+    
     public void stopServer() {
         server.shutdownNow();
+        HeavyRequestPool.stop();
     }
 }
@@ -58,14 +58,37 @@ public class StreamsTrackerExceptionMapper implements
             errorMessage.setStatus(Response.Status.NOT_FOUND.getStatusCode());
             break;
         }
+        case PE_NOT_FOUND: {
+            errorMessage.setStatus(Response.Status.NOT_FOUND.getStatusCode());
+            break;
+        }
+        case METRIC_PROFILE_NOT_FOUND: {
+            errorMessage.setStatus(Response.Status.NOT_FOUND.getStatusCode());
+            break;
+        }
+        case INVALID_METRIC_SELECTOR:
+        case INVALID_OBJECT_TYPE: {
+            errorMessage.setStatus(Response.Status.BAD_REQUEST.getStatusCode());
+            break;
+        }
         case ALL_METRICS_NOT_AVAILABLE: {
             errorMessage.setStatus(Response.Status.NOT_FOUND.getStatusCode());
             break;
         }
+        case METRICS_DELTA_NOT_AVAILABLE: {
+            errorMessage.setStatus(Response.Status.NOT_FOUND.getStatusCode());
+            break;
+        }
         case ALL_JOBS_NOT_AVAILABLE: {
             errorMessage.setStatus(Response.Status.NOT_FOUND.getStatusCode());
             break;
         }
+        case METRICS_STREAM_LIMIT:
+        case STREAMS_MONITOR_UNAVAILABLE: {
+            // Still starting up (see /ready) or busy, worth retrying
+            errorMessage.setStatus(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+            break;
+        }
         default: {
             errorMessage.setStatus(Response.Status.INTERNAL_SERVER_ERROR
                     .getStatusCode());
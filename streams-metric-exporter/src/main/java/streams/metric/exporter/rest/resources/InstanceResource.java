@@ -16,24 +16,50 @@
 
 package streams.metric.exporter.rest.resources;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 import javax.ws.rs.WebApplicationException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.annotation.JsonRawValue;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
 
+import streams.metric.exporter.error.StreamsTrackerErrorCode;
 import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+import streams.metric.exporter.prometheus.ColumnarMetricCollector;
+import streams.metric.exporter.prometheus.ColumnarMetricsExporter;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+import streams.metric.exporter.rest.HeavyRequestPool;
+import streams.metric.exporter.stream.MetricUpdateStream;
 import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
-import streams.metric.exporter.streamstracker.metrics.AllJobMetrics;
-import streams.metric.exporter.streamstracker.snapshots.AllJobSnapshots;
+import streams.metric.exporter.streamstracker.InstanceTrackerState;
+import streams.metric.exporter.streamstracker.job.JobTopology;
 
 public class InstanceResource {
 
@@ -57,63 +83,107 @@ public class InstanceResource {
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	public Response getJobStatus() throws StreamsTrackerException, WebApplicationException, JsonProcessingException {
-		ObjectMapper om = new ObjectMapper();
-
 		Map<String, String> m = new HashMap<String, String>();
 		m.put("status", sit.getInstanceInfo().getInstanceStatusString());
 
-		return Response.status(200).entity(om.writeValueAsString(m)).build();
+		return Response.status(200).entity(JsonWriters.WRITER.writeValueAsString(m)).build();
 	}
 
 	@Path("metrics")
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response getJobMetrics() throws StreamsTrackerException, WebApplicationException, JsonProcessingException {
-		ObjectMapper om = new ObjectMapper();
+	public void getJobMetrics(@Suspended final AsyncResponse response,
+			@HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding) {
+		HeavyRequestPool.submit(response, () -> jobMetrics(acceptEncoding));
+	}
 
-		Response r = null;
+	Response jobMetrics(String acceptEncoding)
+			throws StreamsTrackerException, WebApplicationException, JsonProcessingException {
+		// One published state so every field comes from the same refresh
+		InstanceTrackerState state = sit.getState();
 
-		AllJobMetrics ajm = sit.getAllJobMetrics();
-
-		// Create return format
-		InstanceMetricsBody body = new InstanceMetricsBody(sit.getInstanceInfo().getInstanceName(),ajm.getLastMetricsRefresh(), ajm.getLastMetricsFailure(),
-				ajm.isLastMetricsRefreshFailed(), ajm.getAllMetrics());
+		// Create return format, the metrics are streamed from the retained compressed copy
+		InstanceMetricsBody body = new InstanceMetricsBody(state.getInstanceInfo().getInstanceName(),state.getLastMetricsRefresh(), state.getLastMetricsFailure(),
+				state.isLastMetricsRefreshFailed());
 
 		// If the metrics refresh failed, use NOT_MODIFIED so client can
 		// understand we are sending cached info
 		// More cached than it usually is :)
-		if (ajm.isLastMetricsRefreshFailed()) {
-			r = Response.status(Response.Status.NOT_MODIFIED).entity(om.writeValueAsString(body)).build();
-		} else {
-			r = Response.status(Response.Status.OK).entity(om.writeValueAsString(body)).build();
+		Response.Status status = (state.isLastMetricsRefreshFailed() ? Response.Status.NOT_MODIFIED : Response.Status.OK);
+		return RawJsonResponse.build(status, body, "instanceMetrics", state.getAllMetrics(), acceptEncoding);
+
+	}
+
+	// Series of this instance changed or removed after generation since, chain calls with the returned generation
+	@Path("metrics/delta")
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getMetricsDelta(@QueryParam("since") @DefaultValue("0") long since) throws StreamsTrackerException {
+		MetricsExporter exporter = PrometheusMetricsExporter.getInstance();
+		if (!(exporter instanceof ColumnarMetricsExporter)) {
+			throw new StreamsTrackerException(StreamsTrackerErrorCode.METRICS_DELTA_NOT_AVAILABLE,
+					"Metric deltas require --metricstore columnar.");
 		}
-		return r;
+		final ColumnarMetricCollector.Delta delta = ((ColumnarMetricsExporter) exporter).getCollector()
+				.delta(since, sit.getInstanceInfo().getInstanceName());
+
+		return Response.status(Response.Status.OK).entity(new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException, WebApplicationException {
+				JsonWriters.WRITER.writeValue(out, delta);
+			}
+		}).build();
+	}
 
+	// Server-sent events of this instance's series changes after every refresh, see MetricUpdateStream
+	@Path("stream")
+	@GET
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	public void getMetricStream(@Context SseEventSink sink, @Context Sse sse,
+			@QueryParam("job") List<String> jobs, @QueryParam("type") List<String> types,
+			@HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) throws StreamsTrackerException {
+		Set<StreamsObjectType> typeFilter = EnumSet.noneOf(StreamsObjectType.class);
+		for (String type : types) {
+			try {
+				typeFilter.add(StreamsObjectType.valueOf(type.toUpperCase(Locale.ROOT)));
+			} catch (IllegalArgumentException e) {
+				throw new StreamsTrackerException(StreamsTrackerErrorCode.INVALID_OBJECT_TYPE,
+						"Unknown object type " + type + ", expected one of " + EnumSet.allOf(StreamsObjectType.class));
+			}
+		}
+		long resumeFrom = 0;
+		if (lastEventId != null) {
+			try {
+				resumeFrom = Long.parseLong(lastEventId.trim());
+			} catch (NumberFormatException e) {
+				// Not one of ours, start over
+			}
+		}
+		MetricUpdateStream.getInstance().subscribe(sit.getInstanceInfo().getInstanceName(), sink, sse,
+				new HashSet<String>(jobs), typeFilter, resumeFrom);
 	}
 
 	@Path("snapshots")
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response getJobSnapshots() throws StreamsTrackerException, WebApplicationException, JsonProcessingException {
-		ObjectMapper om = new ObjectMapper();
-
-		Response r = null;
+	public void getJobSnapshots(@Suspended final AsyncResponse response,
+			@HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding) {
+		HeavyRequestPool.submit(response, () -> jobSnapshots(acceptEncoding));
+	}
 
-		AllJobSnapshots ajs = sit.getAllJobSnapshots();
+	Response jobSnapshots(String acceptEncoding)
+			throws StreamsTrackerException, WebApplicationException, JsonProcessingException {
+		InstanceTrackerState state = sit.getState();
 
 		// Create return format
-		InstanceSnapshotsBody body = new InstanceSnapshotsBody(sit.getInstanceInfo().getInstanceName(),ajs.getLastSnaphostRefresh(), ajs.getLastSnapshotFailure(),
-				ajs.isLastSnapshotRefreshFailed(), ajs.getAllSnapshots());
+		InstanceSnapshotsBody body = new InstanceSnapshotsBody(state.getInstanceInfo().getInstanceName(),state.getLastSnapshotRefresh(), state.getLastSnapshotFailure(),
+				state.isLastSnapshotRefreshFailed());
 
 		// If the snapshots refresh failed, use NOT_MODIFIED so client can
 		// understand we are sending cached info
 		// More cached than it usually is :)
-		if (ajs.isLastSnapshotRefreshFailed()) {
-			r = Response.status(Response.Status.NOT_MODIFIED).entity(om.writeValueAsString(body)).build();
-		} else {
-			r = Response.status(Response.Status.OK).entity(om.writeValueAsString(body)).build();
-		}
-		return r;
+		Response.Status status = (state.isLastSnapshotRefreshFailed() ? Response.Status.NOT_MODIFIED : Response.Status.OK);
+		return RawJsonResponse.build(status, body, "instanceSnapshots", state.getAllSnapshots(), acceptEncoding);
 
 	}
 
@@ -122,12 +192,38 @@ public class InstanceResource {
 	@Produces(MediaType.APPLICATION_JSON)
 	public Response getInstanceResourceMetrics()
 			throws StreamsTrackerException, WebApplicationException, JsonProcessingException {
-		ObjectMapper om = new ObjectMapper();
-
-		return Response.status(Response.Status.OK).entity(om.writeValueAsString(sit.getInstanceResourceMetrics()))
+		return Response.status(Response.Status.OK).entity(JsonWriters.WRITER.writeValueAsString(sit.getInstanceResourceMetrics()))
 				.build();
 	}
 
+	// Jobs with a snapshot, ordered by job id
+	@Path("jobs")
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getJobs() {
+		final Map<String, JobTopology> jobs = new TreeMap<String, JobTopology>(sit.getState().getJobTopologies());
+
+		return Response.status(Response.Status.OK).entity(new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException, WebApplicationException {
+				JsonGenerator generator = JsonWriters.FACTORY.createGenerator(out);
+				generator.writeStartArray();
+				for (Map.Entry<String, JobTopology> job : jobs.entrySet()) {
+					JobResource.writeJobSummary(generator, job.getKey(), job.getValue());
+				}
+				generator.writeEndArray();
+				generator.close();
+			}
+		}).build();
+	}
+
+	// One job by id or name, if the job is not found returns 404
+	@Path("jobs/{job}")
+	public JobResource getJob(@PathParam("job") String job) throws StreamsTrackerException {
+		InstanceTrackerState state = sit.getState();
+		return new JobResource(state, state.resolveJobId(job));
+	}
+
 
 
 	/******** SUPPORTING CLASSES FOR OUTPUT FORMATTING ********/
@@ -140,17 +236,14 @@ public class InstanceResource {
 		public Date lastMetricsFailure = null;
 		@SuppressWarnings("unused")
 		public boolean lastMetricsRefreshFailed = false;
-		@JsonRawValue
-		public String instanceMetrics;
+		// instanceMetrics is appended by RawJsonResponse
 
-		public InstanceMetricsBody(String instanceName, Date lastMetricsRefresh, Date lastMetricsFailure, boolean lastMetricsRefreshFailed,
-				String instanceMetrics) {
+		public InstanceMetricsBody(String instanceName, Date lastMetricsRefresh, Date lastMetricsFailure, boolean lastMetricsRefreshFailed) {
 			this.instanceName = instanceName;
 
 			this.lastMetricsRefresh = lastMetricsRefresh;
 			this.lastMetricsFailure = lastMetricsFailure;
 			this.lastMetricsRefreshFailed = lastMetricsRefreshFailed;
-			this.instanceMetrics = instanceMetrics;
 		}
 	}
 	/******** SUPPORTING CLASSES FOR OUTPUT FORMATTING ********/
@@ -163,16 +256,13 @@ public class InstanceResource {
 		public Date lastSnapshotsFailure = null;
 		@SuppressWarnings("unused")
 		public boolean lastSnapshotsRefreshFailed = false;
-		@JsonRawValue
-		public String instanceSnapshots;
+		// instanceSnapshots is appended by RawJsonResponse
 
-		public InstanceSnapshotsBody(String instanceName, Date lastSnapshotsRefresh, Date lastSnapshotsFailure, boolean lastSnapshotsRefreshFailed,
-				String instanceSnapshots) {
+		public InstanceSnapshotsBody(String instanceName, Date lastSnapshotsRefresh, Date lastSnapshotsFailure, boolean lastSnapshotsRefreshFailed) {
 			this.instanceName = instanceName;
 			this.lastSnapshotsRefresh = lastSnapshotsRefresh;
 			this.lastSnapshotsFailure = lastSnapshotsFailure;
 			this.lastSnapshotsRefreshFailed = lastSnapshotsRefreshFailed;
-			this.instanceSnapshots = instanceSnapshots;
 		}
 	}
 }
@@ -0,0 +1,266 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest.resources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import streams.metric.exporter.error.StreamsTrackerErrorCode;
+import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.streamstracker.CompressedJson;
+import streams.metric.exporter.streamstracker.InstanceTrackerState;
+import streams.metric.exporter.streamstracker.job.JobTopology;
+
+/*
+ * JobResource
+ *
+ * One job of an instance (/instance/jobs/{jobId|jobName}).  Only the slice of
+ * the job is serialized:
+ *   * snapshot   written from the job's topology in the tracker
+ *   * metrics    the job's object from the retained metrics, found by stream
+ *                parsing them, only that job is materialized
+ *   * pes/{peId} both of the above for one pe
+ * Everything comes from the one published state of the instance.
+ */
+public class JobResource {
+
+	private final InstanceTrackerState state;
+	private final String jobId;
+	private final JobTopology topology;
+
+	public JobResource(InstanceTrackerState state, String jobId) {
+		this.state = state;
+		this.jobId = jobId;
+		this.topology = state.getJobTopologies().get(jobId);
+	}
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getJob() {
+		return Response.status(Response.Status.OK).entity(new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException, WebApplicationException {
+				JsonGenerator generator = JsonWriters.FACTORY.createGenerator(out);
+				writeJobSummary(generator, jobId, topology);
+				generator.close();
+			}
+		}).build();
+	}
+
+	@Path("snapshot")
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getSnapshot() {
+		return Response.status(Response.Status.OK).entity(new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException, WebApplicationException {
+				JsonGenerator generator = JsonWriters.FACTORY.createGenerator(out);
+				generator.writeStartObject();
+				writeJobFields(generator, jobId, topology);
+				generator.writeArrayFieldStart("pes");
+				for (int i = 0; i < topology.getPeCount(); i++) {
+					writePe(generator, topology.getPe(i));
+				}
+				generator.writeEndArray();
+				generator.writeEndObject();
+				generator.close();
+			}
+		}).build();
+	}
+
+	@Path("metrics")
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getMetrics() throws StreamsTrackerException, IOException {
+		JsonNode jobMetrics = findJobMetrics();
+		if (jobMetrics == null) {
+			throw new StreamsTrackerException(StreamsTrackerErrorCode.JOB_NOT_FOUND,
+					"There are no metrics for job " + jobId + " yet.");
+		}
+		return writeNode(jobMetrics);
+	}
+
+	@Path("pes/{peId}")
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getPe(@PathParam("peId") String peId) throws StreamsTrackerException, IOException {
+		JobTopology.Pe pe = topology.getPe(peId);
+		if (pe == null) {
+			throw new StreamsTrackerException(StreamsTrackerErrorCode.PE_NOT_FOUND,
+					"The pe " + peId + " was not found in job " + jobId + ".");
+		}
+
+		ObjectNode body = JsonWriters.MAPPER.createObjectNode();
+		body.set("snapshot", JsonWriters.MAPPER.valueToTree(new PeView(pe)));
+		JsonNode peMetrics = null;
+		JsonNode jobMetrics = findJobMetrics();
+		if (jobMetrics != null && jobMetrics.get("pes") != null) {
+			for (JsonNode peNode : jobMetrics.get("pes")) {
+				JsonNode id = peNode.get("id");
+				if (id != null && peId.equals(id.asText())) {
+					peMetrics = peNode;
+					break;
+				}
+			}
+		}
+		body.set("metrics", peMetrics);
+		return writeNode(body);
+	}
+
+	/************************* Internal Methods *************************/
+
+	private Response writeNode(final JsonNode node) {
+		return Response.status(Response.Status.OK).entity(new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException, WebApplicationException {
+				JsonWriters.WRITER.writeValue(out, node);
+			}
+		}).build();
+	}
+
+	/* The job's object of the retained metrics, null if the job is not in them */
+	private JsonNode findJobMetrics() throws StreamsTrackerException, IOException {
+		CompressedJson allMetrics = state.getAllMetrics();
+		if (allMetrics == null) {
+			return null;
+		}
+		JsonParser parser = JsonWriters.FACTORY.createParser(allMetrics.openStream());
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				if (parser.nextToken() == JsonToken.START_ARRAY && "jobs".equals(field)) {
+					return findById(parser, jobId);
+				}
+				parser.skipChildren();
+			}
+			return null;
+		} finally {
+			parser.close();
+		}
+	}
+
+	/*
+	 * Parser is on START_ARRAY, returns the object element with the given "id".
+	 * "id" is normally the first field, then other elements are skipped without
+	 * being read into a tree.
+	 */
+	static JsonNode findById(JsonParser parser, String id) throws IOException {
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			ObjectNode element = JsonWriters.MAPPER.createObjectNode();
+			boolean skip = false;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				if (skip) {
+					parser.skipChildren();
+					continue;
+				}
+				JsonNode value = parser.readValueAsTree();
+				if ("id".equals(field) && !id.equals(value.asText())) {
+					skip = true;
+					continue;
+				}
+				element.set(field, value);
+			}
+			JsonNode elementId = element.get("id");
+			if (!skip && elementId != null) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	static void writeJobSummary(JsonGenerator generator, String jobId, JobTopology topology) throws IOException {
+		generator.writeStartObject();
+		writeJobFields(generator, jobId, topology);
+		generator.writeNumberField("peCount", topology.getPeCount());
+		generator.writeEndObject();
+	}
+
+	private static void writeJobFields(JsonGenerator generator, String jobId, JobTopology topology) throws IOException {
+		generator.writeStringField("id", jobId);
+		generator.writeStringField("name", topology.getName());
+		generator.writeStringField("instance", topology.getInstance());
+		generator.writeStringField("status", topology.getStatus());
+		generator.writeStringField("health", topology.getHealth());
+		generator.writeNumberField("submitTime", topology.getSubmitTime());
+	}
+
+	private static void writePe(JsonGenerator generator, JobTopology.Pe pe) throws IOException {
+		JsonWriters.WRITER.writeValue(generator, new PeView(pe));
+	}
+
+	/* Serialized form of a pe of the topology */
+	static class PeView {
+		public final String id;
+		public final String resource;
+		public final String status;
+		public final String health;
+		public final long launchCount;
+		public final OperatorView[] operators;
+
+		PeView(JobTopology.Pe pe) {
+			this.id = pe.getId();
+			this.resource = pe.getResource();
+			this.status = pe.getStatus();
+			this.health = pe.getHealth();
+			this.launchCount = pe.getLaunchCount();
+			this.operators = new OperatorView[pe.getOperatorCount()];
+			for (int i = 0; i < operators.length; i++) {
+				operators[i] = new OperatorView(pe.getOperator(i));
+			}
+		}
+	}
+
+	static class OperatorView {
+		public final String name;
+		public final String kind;
+		public final String[] inputPorts;
+		public final String[] outputPorts;
+
+		OperatorView(JobTopology.Operator operator) {
+			this.name = operator.getName();
+			this.kind = operator.getKind();
+			this.inputPorts = new String[operator.getInputPortCount()];
+			for (int i = 0; i < inputPorts.length; i++) {
+				inputPorts[i] = operator.getInputPortName(i);
+			}
+			this.outputPorts = new String[operator.getOutputPortCount()];
+			for (int i = 0; i < outputPorts.length; i++) {
+				outputPorts[i] = operator.getOutputPortName(i);
+			}
+		}
+	}
+}
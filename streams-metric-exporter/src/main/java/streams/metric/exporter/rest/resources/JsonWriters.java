@@ -0,0 +1,51 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest.resources;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import streams.metric.exporter.rest.serializers.StreamsInstanceTrackerSerializer;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+
+/*
+ * JsonWriters
+ *
+ * Mapper, writers and factory shared by the REST resources.  They are
+ * configured once here and are thread safe after that, so resources must not
+ * change their configuration.  Streams written to are left open, they belong
+ * to the container.
+ */
+final class JsonWriters {
+	static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+	static final JsonFactory FACTORY = MAPPER.getFactory();
+
+	static final ObjectWriter WRITER = MAPPER.writer();
+
+	/* Includes the StreamsInstanceTracker serializer for /streamsexporter */
+	static final ObjectWriter TRACKER_WRITER = MAPPER.copy()
+			.registerModule(new SimpleModule("InstanceTrackerModule")
+					.addSerializer(StreamsInstanceTracker.class, new StreamsInstanceTrackerSerializer()))
+			.writer();
+
+	private JsonWriters() {}
+}
@@ -0,0 +1,224 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest.resources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.NotAllowedException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.prometheus.MetricSelector;
+import streams.metric.exporter.rest.errorhandling.GenericExceptionMapper;
+import streams.metric.exporter.rest.errorhandling.StreamsTrackerExceptionMapper;
+
+/*
+ * LiteRoutes
+ *
+ * The routes of RootResource, InstanceResource (with JobResource) and
+ * PrometheusResource for the lite http engine, which has no Jersey to match
+ * them.  The resource methods are called directly so the responses are the
+ * same as with Jersey.  Suspended (heavy) requests run on the calling thread.
+ */
+public final class LiteRoutes {
+
+	/* What the lite server knows about one request */
+	public interface Request {
+		String getMethod();
+
+		/* Path below the web path, e.g. /instance/jobs */
+		String getPath();
+
+		/* Values of a query parameter, empty if not given */
+		List<String> getQueryParameters(String name);
+
+		String getHeader(String name);
+
+		/* Event stream response, its headers are sent with the first event.  Once
+		 * an event stream is opened and routing returns null the stream owns the request */
+		SseEventSink openEventStream() throws IOException;
+
+		Sse getSse();
+	}
+
+	private LiteRoutes() {}
+
+	/* The response, null if the request became an event stream */
+	public static Response route(Request request) {
+		try {
+			if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+				throw new NotAllowedException("GET");
+			}
+			List<String> path = segments(request.getPath());
+			RootResource root = new RootResource();
+			if (path.isEmpty()) {
+				return typed(root.getRoot(), MediaType.TEXT_PLAIN);
+			}
+			String first = path.get(0);
+			if (path.size() == 1) {
+				switch (first) {
+				case "metrics":
+				case "prometheus":
+					return typed(new PrometheusResource().scrape(null, selection(request)), MediaType.TEXT_PLAIN);
+				case "instances":
+					return typed(root.getInstances(), MediaType.APPLICATION_JSON);
+				case "config":
+					return typed(root.getConfiguration(), MediaType.APPLICATION_JSON);
+				case "version":
+					return typed(root.getVersion(), MediaType.APPLICATION_JSON);
+				case "ready":
+					return typed(root.getReady(), MediaType.APPLICATION_JSON);
+				case "live":
+					return typed(root.getLive(), MediaType.APPLICATION_JSON);
+				case "jobtracker":
+				case "streamsexporter":
+					return typed(root.jobtracker(), MediaType.APPLICATION_JSON);
+				default:
+					break;
+				}
+			}
+			if (path.size() == 2 && ("metrics".equals(first) || "prometheus".equals(first))) {
+				return typed(new PrometheusResource().scrape(path.get(1), selection(request)), MediaType.TEXT_PLAIN);
+			}
+			if ("instance".equals(first)) {
+				return instance(root.getInstance(), path.subList(1, path.size()), request);
+			}
+			if ("instances".equals(first)) {
+				return instance(root.getInstance(path.get(1)), path.subList(2, path.size()), request);
+			}
+			throw new NotFoundException();
+		} catch (Exception e) {
+			return error(e);
+		}
+	}
+
+	/* Same mapping as the Jersey exception mappers */
+	public static Response error(Throwable t) {
+		if (t instanceof StreamsTrackerException) {
+			return new StreamsTrackerExceptionMapper().toResponse((StreamsTrackerException) t);
+		}
+		return new GenericExceptionMapper().toResponse(t);
+	}
+
+	/* Writes the entity of a routed response, objects as JSON like the Jersey Jackson provider */
+	public static void writeEntity(Object entity, OutputStream out) throws IOException {
+		if (entity instanceof StreamingOutput) {
+			((StreamingOutput) entity).write(out);
+		} else if (entity instanceof String) {
+			out.write(((String) entity).getBytes(StandardCharsets.UTF_8));
+		} else if (entity instanceof byte[]) {
+			out.write((byte[]) entity);
+		} else if (entity != null) {
+			JsonWriters.WRITER.writeValue(out, entity);
+		}
+	}
+
+	private static Map<String, List<String>> selection(Request request) {
+		return PrometheusResource.selection(request.getQueryParameters(MetricSelector.LEVEL),
+				request.getQueryParameters(MetricSelector.JOB), request.getQueryParameters(MetricSelector.FAMILY));
+	}
+
+	private static Response instance(InstanceResource instance, List<String> path, Request request) throws Exception {
+		if (path.isEmpty()) {
+			return typed(instance.getInstanceTracker(), MediaType.APPLICATION_JSON);
+		}
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+		switch (String.join("/", path)) {
+		case "status":
+			return typed(instance.getJobStatus(), MediaType.APPLICATION_JSON);
+		case "metrics":
+			return typed(instance.jobMetrics(acceptEncoding), MediaType.APPLICATION_JSON);
+		case "metrics/delta":
+			return typed(instance.getMetricsDelta(longParameter(request, "since", 0)), MediaType.APPLICATION_JSON);
+		case "snapshots":
+			return typed(instance.jobSnapshots(acceptEncoding), MediaType.APPLICATION_JSON);
+		case "resourceMetrics":
+			return typed(instance.getInstanceResourceMetrics(), MediaType.APPLICATION_JSON);
+		case "jobs":
+			return typed(instance.getJobs(), MediaType.APPLICATION_JSON);
+		case "stream":
+			// Errors are thrown before the first event, so they are still plain responses
+			instance.getMetricStream(request.openEventStream(), request.getSse(), request.getQueryParameters("job"),
+					request.getQueryParameters("type"), request.getHeader("Last-Event-ID"));
+			return null;
+		default:
+			break;
+		}
+		if ("jobs".equals(path.get(0))) {
+			JobResource job = instance.getJob(path.get(1));
+			List<String> jobPath = path.subList(2, path.size());
+			if (jobPath.isEmpty()) {
+				return typed(job.getJob(), MediaType.APPLICATION_JSON);
+			}
+			if (jobPath.size() == 1 && "snapshot".equals(jobPath.get(0))) {
+				return typed(job.getSnapshot(), MediaType.APPLICATION_JSON);
+			}
+			if (jobPath.size() == 1 && "metrics".equals(jobPath.get(0))) {
+				return typed(job.getMetrics(), MediaType.APPLICATION_JSON);
+			}
+			if (jobPath.size() == 2 && "pes".equals(jobPath.get(0))) {
+				return typed(job.getPe(jobPath.get(1)), MediaType.APPLICATION_JSON);
+			}
+		}
+		throw new NotFoundException();
+	}
+
+	/* As Jersey does for a primitive @QueryParam: the default if missing or empty, 404 if it does not parse */
+	private static long longParameter(Request request, String name, long defaultValue) {
+		List<String> values = request.getQueryParameters(name);
+		if (values.isEmpty() || values.get(0).trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(values.get(0).trim());
+		} catch (NumberFormatException e) {
+			throw new NotFoundException(e);
+		}
+	}
+
+	/* The type the resource method @Produces, unless the response has its own */
+	private static Response typed(Response response, String type) {
+		if (response.getMediaType() != null) {
+			return response;
+		}
+		return Response.fromResponse(response).type(type).build();
+	}
+
+	private static List<String> segments(String path) {
+		if (path == null) {
+			return Collections.emptyList();
+		}
+		List<String> segments = new ArrayList<String>();
+		for (String segment : path.split("/")) {
+			if (!segment.isEmpty()) {
+				segments.add(segment);
+			}
+		}
+		return segments;
+	}
+}
@@ -20,10 +20,19 @@ package streams.metric.exporter.rest.resources;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -32,9 +41,14 @@ import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.WebApplicationException;
 
+import io.prometheus.client.Collector.MetricFamilySamples;
 import io.prometheus.client.CollectorRegistry;
+import streams.metric.exporter.error.StreamsTrackerErrorCode;
 import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.prometheus.MetricSelector;
+import streams.metric.exporter.rest.HeavyRequestPool;
 import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+import streams.metric.exporter.streamstracker.StreamsInstanceTrackerRegistry;
 
 @Path("/{parameter: metrics|prometheus}")
 public class PrometheusResource {
@@ -45,23 +59,69 @@ public class PrometheusResource {
     }
 
     // if Instance does not exist, returns 404
+    // Scrapes run on the heavy request pool, see HeavyRequestPool
+    // level, job and family select part of the metrics, see MetricSelector
     @GET
     @Produces(MediaType.TEXT_PLAIN)
-    public Response getInstanceInfo() throws IOException,
+    public void getInstanceInfo(@Suspended final AsyncResponse response,
+            @QueryParam(MetricSelector.LEVEL) final List<String> levels,
+            @QueryParam(MetricSelector.JOB) final List<String> jobs,
+            @QueryParam(MetricSelector.FAMILY) final List<String> families) {
+        HeavyRequestPool.submit(response, () -> scrape(null, selection(levels, jobs, families)));
+    }
+
+    // Named profile (--metricprofiles), returns 404 if it is not configured
+    @Path("{profile}")
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public void getProfile(@Suspended final AsyncResponse response,
+            @PathParam("profile") final String profile,
+            @QueryParam(MetricSelector.LEVEL) final List<String> levels,
+            @QueryParam(MetricSelector.JOB) final List<String> jobs,
+            @QueryParam(MetricSelector.FAMILY) final List<String> families) {
+        HeavyRequestPool.submit(response, () -> scrape(profile, selection(levels, jobs, families)));
+    }
+
+    static Map<String, List<String>> selection(List<String> levels, List<String> jobs, List<String> families) {
+        Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+        parameters.put(MetricSelector.LEVEL, levels);
+        parameters.put(MetricSelector.JOB, jobs);
+        parameters.put(MetricSelector.FAMILY, families);
+        return parameters;
+    }
+
+    // profile is null for the plain /metrics
+    Response scrape(String profile, Map<String, List<String>> parameters) throws IOException,
             WebApplicationException,
     		StreamsTrackerException{
+        MetricSelector selector;
+        try {
+            selector = (profile == null ? MetricSelector.of(parameters) : MetricSelector.forProfile(profile, parameters));
+        } catch (IllegalArgumentException e) {
+            throw new StreamsTrackerException(StreamsTrackerErrorCode.INVALID_METRIC_SELECTOR, e.getMessage());
+        }
+        if (selector == null) {
+            throw new StreamsTrackerException(StreamsTrackerErrorCode.METRIC_PROFILE_NOT_FOUND,
+                    "Metric profile " + profile + " is not configured, configured profiles: " + MetricSelector.getProfileNames());
+        }
     	
-    	// At this time, if the auto-refresh is turned off, the call to getInstance() will cause the refresh() to occur.
-        StreamsInstanceTracker jobTracker = StreamsInstanceTracker
-                .getInstanceTracker();   
-        
-        LOGGER.trace("/metrics endpoint handler: instanceAvailable={}",jobTracker.isInstanceAvailable());
+    	// At this time, if the auto-refresh is turned off, the call to getInstanceTrackers() will cause the refresh() to occur.
+        // All instances export into the same registry, so this is a single merged scrape
+        // Until the trackers are started (see /ready) only the exporter's own metrics are served
+        if (StreamsInstanceTrackerRegistry.isInitialized()) {
+            for (StreamsInstanceTracker jobTracker : StreamsInstanceTrackerRegistry.getInstanceTrackers()) {
+                LOGGER.trace("/metrics endpoint handler: instance={}, instanceAvailable={}",
+                        jobTracker.getInstanceInfo().getInstanceName(), jobTracker.isInstanceAvailable());
+            }
+        }
         
         // Create streams_exporter_metrics_available and streams_exporter_instance_available
         
     	StringWriter writer = new StringWriter();
     	
-    	io.prometheus.client.exporter.common.TextFormat.write004(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+    	Enumeration<MetricFamilySamples> samples = (selector.selectsAll() ? CollectorRegistry.defaultRegistry.metricFamilySamples()
+    	        : Collections.enumeration(selector.collect(CollectorRegistry.defaultRegistry)));
+    	io.prometheus.client.exporter.common.TextFormat.write004(writer, samples);
 
         return Response.status(200).entity(writer.toString())
                 .build();
@@ -0,0 +1,107 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest.resources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import streams.metric.exporter.streamstracker.CompressedJson;
+
+/*
+ * RawJsonResponse
+ *
+ * Builds a response of a JSON object (header fields) with the retained
+ * payload as its last field, without holding the payload as a String.
+ * Clients that accept gzip get the compressed payload copied straight into
+ * the gzip response, everyone else gets it decompressed as it is written.
+ */
+final class RawJsonResponse {
+	private static final byte[] SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+	private RawJsonResponse() {}
+
+	static Response build(Response.Status status, Object header, String field, final CompressedJson payload,
+			String acceptEncoding) throws JsonProcessingException {
+		String headerJson = JsonWriters.WRITER.writeValueAsString(header);
+		// {"a":1} -> {"a":1,"field":
+		StringBuilder prefix = new StringBuilder(headerJson.length() + field.length() + 8);
+		prefix.append(headerJson, 0, headerJson.lastIndexOf('}'));
+		if (prefix.length() > 1) {
+			prefix.append(',');
+		}
+		prefix.append('"').append(field).append("\":");
+
+		if (payload == null) {
+			return Response.status(status).entity(prefix.append("null}").toString()).build();
+		}
+
+		final byte[] prefixBytes = prefix.toString().getBytes(StandardCharsets.UTF_8);
+		if (acceptsGzip(acceptEncoding)) {
+			return Response.status(status).entity(new StreamingOutput() {
+				@Override
+				public void write(OutputStream out) throws IOException, WebApplicationException {
+					payload.writeGzip(out, prefixBytes, SUFFIX);
+				}
+			}).header(HttpHeaders.CONTENT_ENCODING, "gzip").header("Vary", HttpHeaders.ACCEPT_ENCODING).build();
+		}
+		return Response.status(status).entity(new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException, WebApplicationException {
+				out.write(prefixBytes);
+				payload.writeTo(out);
+				out.write(SUFFIX);
+			}
+		}).header("Vary", HttpHeaders.ACCEPT_ENCODING).build();
+	}
+
+	/* gzip (or *) listed without q=0 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim();
+			if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+				continue;
+			}
+			boolean refused = false;
+			for (int i = 1; i < parts.length; i++) {
+				String param = parts[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						refused = Double.parseDouble(param.substring(2)) <= 0;
+					} catch (NumberFormatException e) {
+						refused = true;
+					}
+				}
+			}
+			if (!refused) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
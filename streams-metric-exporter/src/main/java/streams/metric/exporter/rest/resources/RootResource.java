@@ -18,6 +18,7 @@ package streams.metric.exporter.rest.resources;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -25,29 +26,28 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.WebApplicationException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 
+import streams.metric.exporter.StartupStatus;
 import streams.metric.exporter.Version;
 import streams.metric.exporter.error.StreamsTrackerException;
-import streams.metric.exporter.rest.serializers.StreamsInstanceTrackerSerializer;
+import streams.metric.exporter.streamstracker.InstanceInfo;
 import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import streams.metric.exporter.streamstracker.StreamsInstanceTrackerRegistry;
 
 @Path("/")
 public class RootResource {
 
-    private SimpleModule instanceTrackerModule = new SimpleModule("InstanceTrackerModule");
-
     @Context
     UriInfo uriInfo;
 
     public RootResource() {
-        instanceTrackerModule.addSerializer(StreamsInstanceTracker.class, new StreamsInstanceTrackerSerializer());
     }
     
     // Default page
@@ -58,22 +58,45 @@ public class RootResource {
     }
 
     // if Instance does not exist, returns 404
+    // With more than one instance this is the first instance configured
     @Path("instance")
     public InstanceResource getInstance() throws StreamsTrackerException, JsonProcessingException,
             WebApplicationException {   
-        StreamsInstanceTracker instanceTracker = StreamsInstanceTracker.getInstanceTracker();
+        StreamsInstanceTracker instanceTracker = StreamsInstanceTrackerRegistry.getDefaultInstanceTracker();
     	return new InstanceResource(instanceTracker);
     		
     }
 
+    @Path("instances")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getInstances() throws StreamsTrackerException,
+            WebApplicationException, JsonProcessingException {
+        List<InstanceInfo> instances = new ArrayList<InstanceInfo>();
+        for (StreamsInstanceTracker instanceTracker : StreamsInstanceTrackerRegistry.getInstanceTrackers()) {
+            instances.add(instanceTracker.getInstanceInfo());
+        }
+
+        return Response.status(200).entity(JsonWriters.WRITER.writeValueAsString(instances))
+                .build();
+    }
+
+    // if Instance is not tracked, returns 404
+    @Path("instances/{instanceName}")
+    public InstanceResource getInstance(@PathParam("instanceName") String instanceName) throws StreamsTrackerException,
+            WebApplicationException {
+        StreamsInstanceTracker instanceTracker = StreamsInstanceTrackerRegistry.getInstanceTracker(instanceName);
+    	return new InstanceResource(instanceTracker);
+    }
+
 
     @Path("config")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getConfiguration() throws StreamsTrackerException,
             WebApplicationException {
-        StreamsInstanceTracker instanceTracker = StreamsInstanceTracker
-                .getInstanceTracker();
+        StreamsInstanceTracker instanceTracker = StreamsInstanceTrackerRegistry
+                .getDefaultInstanceTracker();
 
         return Response.status(200).entity(instanceTracker.getConfig())
                 .build();
@@ -85,28 +108,64 @@ public class RootResource {
     public Response getVersion() throws StreamsTrackerException,
             WebApplicationException, JsonProcessingException {
 
-        ObjectMapper om = new ObjectMapper();
         Map<String,String> versionMap = new HashMap<String,String>();
         versionMap.put("title",Version.getImplementationTitle());
         versionMap.put("version",Version.getImplementationVersion());
 
-        return Response.status(200).entity(om.writeValueAsString(versionMap))
+        return Response.status(200).entity(JsonWriters.WRITER.writeValueAsString(versionMap))
                 .build();
     }    
 
 
-    // Internal debugging resource
+    // Readiness probe, 200 once every instance has completed a full refresh, else 503
+    @Path("ready")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReady() throws JsonProcessingException {
+        boolean ready = StartupStatus.isReady();
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("ready", ready);
+        status.put("phase", StartupStatus.getCurrentPhase());
+        if (StartupStatus.getFailure() != null) {
+            status.put("failure", StartupStatus.getFailure());
+        }
+        Map<String, Double> phases = new LinkedHashMap<String, Double>();
+        for (Map.Entry<StartupStatus.Phase, Double> entry : StartupStatus.getPhaseSeconds().entrySet()) {
+            phases.put(entry.getKey().toString(), entry.getValue());
+        }
+        status.put("startupSeconds", phases);
+
+        return Response.status(ready ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE)
+                .entity(JsonWriters.WRITER.writeValueAsString(status)).build();
+    }
+
+    // Liveness probe, 503 if startup failed or instance refreshes have stalled
+    @Path("live")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLive() throws JsonProcessingException {
+        String reason = StartupStatus.checkLive();
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("live", reason == null);
+        status.put("phase", StartupStatus.getCurrentPhase());
+        if (reason != null) {
+            status.put("reason", reason);
+        }
+
+        return Response.status(reason == null ? Response.Status.OK : Response.Status.SERVICE_UNAVAILABLE)
+                .entity(JsonWriters.WRITER.writeValueAsString(status)).build();
+    }
+
+    // Internal debugging resource, first instance configured
     @Path("/{parameter: jobtracker|streamsexporter}")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response jobtracker() throws StreamsTrackerException,
             JsonProcessingException {
-        ObjectMapper om = new ObjectMapper();
-        om.registerModule(instanceTrackerModule);
-        StreamsInstanceTracker instanceTracker = StreamsInstanceTracker
-                .getInstanceTracker();
+        StreamsInstanceTracker instanceTracker = StreamsInstanceTrackerRegistry
+                .getDefaultInstanceTracker();
 
-        String instanceTrackerJson = om.writeValueAsString(instanceTracker);
+        String instanceTrackerJson = JsonWriters.TRACKER_WRITER.writeValueAsString(instanceTracker);
         return Response.status(Response.Status.OK)
                 .entity(instanceTrackerJson).build();
     }
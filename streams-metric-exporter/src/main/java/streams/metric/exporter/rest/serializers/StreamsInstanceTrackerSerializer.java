@@ -30,6 +30,7 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 
 import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
 import streams.metric.exporter.streamstracker.InstanceInfo;
+import streams.metric.exporter.streamstracker.InstanceTrackerState;
 
 /**
  * Serializes a StreamsInstanceJobMonitor instance to JSON.
@@ -39,24 +40,27 @@ public class StreamsInstanceTrackerSerializer extends JsonSerializer<StreamsInst
 	public void serialize(StreamsInstanceTracker monitor, JsonGenerator jgen, SerializerProvider provider)
 			throws IOException, JsonProcessingException {
 
+		// Everything from one published state
+		InstanceTrackerState state = monitor.getState();
+		InstanceInfo instanceInfo = state.getInstanceInfo();
+
 		jgen.writeStartObject();
-		jgen.writeStringField("instance", monitor.getInstanceInfo().getInstanceName());
+		jgen.writeStringField("instance", instanceInfo.getInstanceName());
 		try {
-			jgen.writeObjectField("instanceInfo", monitor.getInstanceInfo());
+			jgen.writeObjectField("instanceInfo", instanceInfo);
 		} catch (Exception e) {
 		}
-		InstanceInfo instanceInfo = monitor.getInstanceInfo();
 		jgen.writeBooleanField("available", instanceInfo.isInstanceAvailable());
 		jgen.writeStringField("name", instanceInfo.getInstanceName());
 		jgen.writeStringField("status", instanceInfo.getInstanceStatus().toString());
 		jgen.writeStringField("instanceStartTime", convertTime(instanceInfo.getInstanceStartTime()));
 
 		jgen.writeStringField("instanceResourceMetricsLastUpdateTime",
-				convertTime(monitor.getInstanceResourceMetricsLastUpdated()));
+				convertTime(state.getInstanceResourceMetricsLastUpdated()));
 
 		jgen.writeArrayFieldStart("jobNameIndex");
 
-		Iterator<Map.Entry<String, String>> it = monitor.getCurrentJobNameIndex().entrySet().iterator();
+		Iterator<Map.Entry<String, String>> it = state.getJobNameIndex().entrySet().iterator();
 
 		while (it.hasNext()) {
 			Map.Entry<String, String> entry = it.next();
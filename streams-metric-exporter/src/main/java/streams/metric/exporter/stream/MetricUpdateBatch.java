@@ -0,0 +1,174 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.stream;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+
+/*
+ * MetricUpdateBatch
+ *
+ * Series of one job (or of the instance and its resources when the job is
+ * null) that changed or were removed.  Merging a newer batch keeps only the
+ * latest state of each series, so a backlog never holds more entries than
+ * there are series.
+ */
+class MetricUpdateBatch {
+	private final String job;
+	private final Map<String, FamilyBatch> families = new LinkedHashMap<String, FamilyBatch>();
+	private int size = 0;
+
+	MetricUpdateBatch(String job) {
+		this.job = job;
+	}
+
+	String getJob() {
+		return job;
+	}
+
+	/* Number of changed and removed series */
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/* entry is the value followed by the label values, as in the metrics delta */
+	void changed(String familyName, StreamsObjectType type, List<String> labels, Object[] entry) {
+		FamilyBatch family = family(familyName, type, labels);
+		size -= family.size();
+		family.changed(entry);
+		size += family.size();
+	}
+
+	void removed(String familyName, StreamsObjectType type, List<String> labels, String[] labelValues) {
+		FamilyBatch family = family(familyName, type, labels);
+		size -= family.size();
+		family.removed(labelValues);
+		size += family.size();
+	}
+
+	/* Families of newer with one of types (all if empty) merged in, newer wins */
+	void merge(MetricUpdateBatch newer, Set<StreamsObjectType> types) {
+		for (FamilyBatch newerFamily : newer.families.values()) {
+			if (!types.isEmpty() && !types.contains(newerFamily.type)) {
+				continue;
+			}
+			FamilyBatch family = family(newerFamily.name, newerFamily.type, newerFamily.labels);
+			size -= family.size();
+			// Removals first, a series removed and created again in newer ends up changed
+			for (String[] labelValues : newerFamily.removed.values()) {
+				family.removed(labelValues);
+			}
+			for (Object[] entry : newerFamily.changed.values()) {
+				family.changed(entry);
+			}
+			size += family.size();
+		}
+	}
+
+	void writeTo(JsonGenerator generator, String instanceName, long generation) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("instance", instanceName);
+		generator.writeStringField("job", job);
+		generator.writeNumberField("generation", generation);
+		generator.writeObjectFieldStart("families");
+		for (FamilyBatch family : families.values()) {
+			if (family.size() == 0) {
+				continue;
+			}
+			generator.writeObjectFieldStart(family.name);
+			generator.writeArrayFieldStart("labels");
+			for (String label : family.labels) {
+				generator.writeString(label);
+			}
+			generator.writeEndArray();
+			generator.writeArrayFieldStart("changed");
+			for (Object[] entry : family.changed.values()) {
+				generator.writeStartArray();
+				generator.writeNumber((Double) entry[0]);
+				for (int i = 1; i < entry.length; i++) {
+					generator.writeString((String) entry[i]);
+				}
+				generator.writeEndArray();
+			}
+			generator.writeEndArray();
+			generator.writeArrayFieldStart("removed");
+			for (String[] labelValues : family.removed.values()) {
+				generator.writeStartArray();
+				for (String value : labelValues) {
+					generator.writeString(value);
+				}
+				generator.writeEndArray();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		generator.writeEndObject();
+		generator.writeEndObject();
+	}
+
+	private FamilyBatch family(String familyName, StreamsObjectType type, List<String> labels) {
+		FamilyBatch family = families.get(familyName);
+		if (family == null) {
+			family = new FamilyBatch(familyName, type, labels);
+			families.put(familyName, family);
+		}
+		return family;
+	}
+
+	private static class FamilyBatch {
+		private final String name;
+		private final StreamsObjectType type; // null if not a streams object family
+		private final List<String> labels;
+		// Keyed by the label values
+		private final Map<List<?>, Object[]> changed = new LinkedHashMap<List<?>, Object[]>();
+		private final Map<List<?>, String[]> removed = new LinkedHashMap<List<?>, String[]>();
+
+		FamilyBatch(String name, StreamsObjectType type, List<String> labels) {
+			this.name = name;
+			this.type = type;
+			this.labels = labels;
+		}
+
+		int size() {
+			return changed.size() + removed.size();
+		}
+
+		void changed(Object[] entry) {
+			List<?> key = Arrays.asList(entry).subList(1, entry.length);
+			removed.remove(key);
+			changed.put(key, entry);
+		}
+
+		void removed(String[] labelValues) {
+			List<?> key = Arrays.asList(labelValues);
+			changed.remove(key);
+			removed.put(key, labelValues);
+		}
+	}
+}
@@ -0,0 +1,209 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.stream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.error.StreamsTrackerErrorCode;
+import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+import streams.metric.exporter.prometheus.ColumnarMetricCollector;
+import streams.metric.exporter.prometheus.ColumnarMetricsExporter;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+import streams.metric.exporter.streamstracker.StreamsInstanceRefreshListener;
+import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
+
+/*
+ * MetricUpdateStream
+ *
+ * Server-sent event streams of metric changes (the /instance/stream
+ * endpoint).  After each refresh of an instance with subscribers, one delta
+ * of the columnar collector is taken since the previous refresh, split into
+ * per job batches and offered to every subscriber of that instance.  Offering
+ * only merges into the subscriber's backlog, the writes happen on the sender
+ * threads.
+ */
+public class MetricUpdateStream implements StreamsInstanceRefreshListener {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + MetricUpdateStream.class.getName());
+
+	static final int MAX_SUBSCRIBERS = 64;
+
+	private static final String JOB_LABEL = "jobname";
+
+	private static final MetricUpdateStream INSTANCE = new MetricUpdateStream();
+
+	private final Map<String, InstanceStream> instances = new ConcurrentHashMap<String, InstanceStream>();
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+	private final ExecutorService senders = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "MetricStreamSender");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private MetricUpdateStream() {
+	}
+
+	public static MetricUpdateStream getInstance() {
+		return INSTANCE;
+	}
+
+	public int getSubscriberCount() {
+		return subscriberCount.get();
+	}
+
+	/*
+	 * Opens a stream of the instance for sink.  Empty jobs or types accepts
+	 * all, resumeFrom is the generation of the last refresh event a
+	 * reconnecting client saw, or 0 to start with the current state.
+	 */
+	public void subscribe(String instanceName, SseEventSink sink, Sse sse, Set<String> jobs,
+			Set<StreamsObjectType> types, long resumeFrom) throws StreamsTrackerException {
+		ColumnarMetricCollector collector = getCollector();
+		if (collector == null) {
+			throw new StreamsTrackerException(StreamsTrackerErrorCode.METRICS_DELTA_NOT_AVAILABLE,
+					"Metric streams require --metricstore columnar.");
+		}
+		if (subscriberCount.incrementAndGet() > MAX_SUBSCRIBERS) {
+			subscriberCount.decrementAndGet();
+			throw new StreamsTrackerException(StreamsTrackerErrorCode.METRICS_STREAM_LIMIT,
+					"Metric stream limit of " + MAX_SUBSCRIBERS + " subscribers reached.");
+		}
+		InstanceStream stream = instances.computeIfAbsent(instanceName,
+				name -> new InstanceStream(name, collector.getGeneration()));
+		MetricUpdateSubscriber subscriber = new MetricUpdateSubscriber(stream, sink, sse, jobs, types, resumeFrom, senders);
+		stream.add(subscriber);
+		subscriber.start();
+		LOGGER.debug("Metric stream opened for instance {}, jobs={}, types={}", instanceName, jobs, types);
+	}
+
+	@Override
+	public void refreshCompleted(StreamsInstanceTracker tracker) {
+		InstanceStream stream = instances.get(tracker.getInstanceInfo().getInstanceName());
+		ColumnarMetricCollector collector = getCollector();
+		if (stream != null && collector != null) {
+			stream.publish(collector);
+		}
+	}
+
+	private static ColumnarMetricCollector getCollector() {
+		MetricsExporter exporter = PrometheusMetricsExporter.getInstance();
+		return (exporter instanceof ColumnarMetricsExporter ? ((ColumnarMetricsExporter) exporter).getCollector() : null);
+	}
+
+	/* Changes of a delta grouped by the job label, series without one under null */
+	static Collection<MetricUpdateBatch> byJob(ColumnarMetricCollector.Delta delta) {
+		Map<String, MetricUpdateBatch> batches = new LinkedHashMap<String, MetricUpdateBatch>();
+		for (Map.Entry<String, ColumnarMetricCollector.FamilyDelta> family : delta.families.entrySet()) {
+			String familyName = family.getKey();
+			List<String> labels = family.getValue().labels;
+			StreamsObjectType type = StreamsObjectType.forFamily(familyName, labels);
+			int jobIndex = labels.indexOf(JOB_LABEL);
+			for (String[] labelValues : family.getValue().removed) {
+				batch(batches, jobIndex < 0 ? null : labelValues[jobIndex]).removed(familyName, type, labels, labelValues);
+			}
+			for (Object[] entry : family.getValue().changed) {
+				batch(batches, jobIndex < 0 ? null : (String) entry[jobIndex + 1]).changed(familyName, type, labels, entry);
+			}
+		}
+		return batches.values();
+	}
+
+	private static MetricUpdateBatch batch(Map<String, MetricUpdateBatch> batches, String job) {
+		MetricUpdateBatch batch = batches.get(job);
+		if (batch == null) {
+			batch = new MetricUpdateBatch(job);
+			batches.put(job, batch);
+		}
+		return batch;
+	}
+
+	/* Subscribers of one instance and the generation deltas are taken from */
+	class InstanceStream {
+		private final String instanceName;
+		private final List<MetricUpdateSubscriber> subscribers = new ArrayList<MetricUpdateSubscriber>();
+		private long lastGeneration;
+
+		InstanceStream(String instanceName, long generation) {
+			this.instanceName = instanceName;
+			this.lastGeneration = generation;
+		}
+
+		String getInstanceName() {
+			return instanceName;
+		}
+
+		synchronized void add(MetricUpdateSubscriber subscriber) {
+			subscribers.add(subscriber);
+		}
+
+		synchronized void remove(MetricUpdateSubscriber subscriber) {
+			if (subscribers.remove(subscriber)) {
+				subscriberCount.decrementAndGet();
+				LOGGER.debug("Metric stream closed for instance {}", instanceName);
+			}
+		}
+
+		/* After a refresh, the subscribers locks are always taken inside this one */
+		synchronized void publish(ColumnarMetricCollector collector) {
+			if (subscribers.isEmpty()) {
+				// Nobody to tell, a new subscriber starts from the current state anyway
+				lastGeneration = collector.getGeneration();
+				return;
+			}
+			ColumnarMetricCollector.Delta delta = collector.delta(lastGeneration, instanceName);
+			lastGeneration = delta.generation;
+			if (delta.reset) {
+				// Removals were lost, only the full state is right now
+				for (MetricUpdateSubscriber subscriber : subscribers) {
+					subscriber.resync();
+				}
+				return;
+			}
+			Collection<MetricUpdateBatch> batches = byJob(delta);
+			for (MetricUpdateSubscriber subscriber : subscribers) {
+				subscriber.offer(batches, delta.generation);
+			}
+		}
+
+		/* Called by the subscriber's sender, see MetricUpdateSubscriber.resynced */
+		synchronized void resync(MetricUpdateSubscriber subscriber) {
+			ColumnarMetricCollector collector = getCollector();
+			if (collector == null) {
+				subscriber.close();
+				return;
+			}
+			ColumnarMetricCollector.Delta delta = collector.delta(subscriber.getResumeFrom(), instanceName);
+			subscriber.resynced(byJob(delta), delta.generation, delta.reset);
+		}
+	}
+}
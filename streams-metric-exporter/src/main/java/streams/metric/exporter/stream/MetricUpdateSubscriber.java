@@ -0,0 +1,260 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.stream;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+
+/*
+ * MetricUpdateSubscriber
+ *
+ * One open event stream.  Batches offered after a refresh are coalesced into
+ * a per job backlog and written by a task on the shared sender executor, so
+ * a slow client only holds up its own task and never the refresh thread.
+ * If the backlog passes MAX_PENDING_SERIES it is dropped and the client is
+ * sent a reset followed by the current state of every series.
+ */
+class MetricUpdateSubscriber {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + MetricUpdateSubscriber.class.getName());
+
+	static final int MAX_PENDING_SERIES = 100000;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final MetricUpdateStream.InstanceStream stream;
+	private final SseEventSink sink;
+	private final Sse sse;
+	private final Set<String> jobs;
+	private final Set<StreamsObjectType> types;
+	private final Executor senders;
+
+	// Guarded by this
+	private final Map<String, MetricUpdateBatch> pending = new LinkedHashMap<String, MetricUpdateBatch>();
+	private int pendingSize = 0;
+	private long pendingGeneration = 0;
+	private long sentGeneration = 0;
+	private long resumeFrom;
+	private boolean resync = true;
+	private boolean reset = false;
+	private boolean draining = false;
+	private boolean closed = false;
+
+	/* Empty jobs or types accepts all, resumeFrom is the Last-Event-ID of a reconnect or 0 */
+	MetricUpdateSubscriber(MetricUpdateStream.InstanceStream stream, SseEventSink sink, Sse sse,
+			Set<String> jobs, Set<StreamsObjectType> types, long resumeFrom, Executor senders) {
+		this.stream = stream;
+		this.sink = sink;
+		this.sse = sse;
+		this.jobs = jobs;
+		this.types = types;
+		this.resumeFrom = resumeFrom;
+		this.senders = senders;
+	}
+
+	/* Called by the refresh thread with the batches of one delta */
+	synchronized void offer(Collection<MetricUpdateBatch> batches, long generation) {
+		if (closed || resync) {
+			return; // the state sent on resync is newer
+		}
+		add(batches);
+		pendingGeneration = generation;
+		if (pendingSize > MAX_PENDING_SERIES) {
+			LOGGER.debug("Metric stream subscriber for instance {} fell behind by {} series, resending its state",
+					stream.getInstanceName(), pendingSize);
+			requestResync(0);
+		}
+		schedule();
+	}
+
+	/* The backlog can no longer be brought up to date with deltas */
+	synchronized void resync() {
+		if (!closed) {
+			requestResync(0);
+			schedule();
+		}
+	}
+
+	synchronized boolean needsResync() {
+		return resync;
+	}
+
+	/* Generation the resync delta starts from, 0 for everything */
+	synchronized long getResumeFrom() {
+		return resumeFrom;
+	}
+
+	/* Called with the stream locked, replaces the backlog with a delta of the current state */
+	synchronized void resynced(Collection<MetricUpdateBatch> batches, long generation, boolean isReset) {
+		pending.clear();
+		pendingSize = 0;
+		add(batches);
+		pendingGeneration = generation;
+		reset = isReset;
+		resync = false;
+	}
+
+	void start() {
+		synchronized (this) {
+			schedule();
+		}
+	}
+
+	void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			pending.clear();
+			pendingSize = 0;
+		}
+		stream.remove(this);
+		try {
+			sink.close();
+		} catch (RuntimeException e) {
+			LOGGER.trace("Closing metric stream: {}", e.getMessage());
+		}
+	}
+
+	private void requestResync(long from) {
+		pending.clear();
+		pendingSize = 0;
+		resumeFrom = from;
+		resync = true;
+	}
+
+	private void add(Collection<MetricUpdateBatch> batches) {
+		for (MetricUpdateBatch batch : batches) {
+			String job = batch.getJob();
+			if (!jobs.isEmpty() && (job == null || !jobs.contains(job))) {
+				continue;
+			}
+			MetricUpdateBatch jobBatch = pending.get(job);
+			if (jobBatch == null) {
+				jobBatch = new MetricUpdateBatch(job);
+			}
+			pendingSize -= jobBatch.size();
+			jobBatch.merge(batch, types);
+			pendingSize += jobBatch.size();
+			if (!jobBatch.isEmpty()) {
+				pending.put(job, jobBatch);
+			}
+		}
+	}
+
+	private void schedule() {
+		if (draining || closed) {
+			return;
+		}
+		draining = true;
+		try {
+			senders.execute(this::drain);
+		} catch (RejectedExecutionException e) {
+			draining = false;
+			LOGGER.debug("Metric stream sender rejected subscriber: {}", e.getMessage());
+		}
+	}
+
+	private void drain() {
+		try {
+			while (true) {
+				if (needsResync()) {
+					stream.resync(this);
+				}
+				List<MetricUpdateBatch> batches;
+				long generation;
+				boolean isReset;
+				synchronized (this) {
+					if (resync && !closed) {
+						continue; // requested again while taking the state
+					}
+					if (closed || (pending.isEmpty() && !reset && pendingGeneration == sentGeneration)) {
+						draining = false;
+						return;
+					}
+					batches = new ArrayList<MetricUpdateBatch>(pending.values());
+					generation = pendingGeneration;
+					isReset = reset;
+					pending.clear();
+					pendingSize = 0;
+					reset = false;
+				}
+
+				String instanceName = stream.getInstanceName();
+				if (isReset) {
+					send("reset", null, marker(instanceName, generation));
+				}
+				for (MetricUpdateBatch batch : batches) {
+					StringWriter json = new StringWriter();
+					try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+						batch.writeTo(generator, instanceName, generation);
+					}
+					send("update", null, json.toString());
+				}
+				// The id lets a reconnecting client carry on from here
+				send("refresh", Long.toString(generation), marker(instanceName, generation));
+				sentGeneration = generation;
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.debug("Metric stream for instance {} closed: {}", stream.getInstanceName(), e.getMessage());
+			close();
+		}
+	}
+
+	private void send(String name, String id, String data) {
+		if (sink.isClosed()) {
+			throw new IllegalStateException("client disconnected");
+		}
+		OutboundSseEvent.Builder builder = sse.newEventBuilder().name(name).data(String.class, data);
+		if (id != null) {
+			builder.id(id);
+		}
+		// Only this subscriber's task waits on a slow client
+		sink.send(builder.build()).toCompletableFuture().join();
+	}
+
+	private static String marker(String instanceName, long generation) throws IOException {
+		StringWriter json = new StringWriter();
+		try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+			generator.writeStartObject();
+			generator.writeStringField("instance", instanceName);
+			generator.writeNumberField("generation", generation);
+			generator.writeEndObject();
+		}
+		return json.toString();
+	}
+}
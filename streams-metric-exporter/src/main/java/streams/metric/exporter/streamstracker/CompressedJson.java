@@ -0,0 +1,252 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/*
+ * CompressedJson
+ * Immutable, deflate compressed copy of a JSON payload (UTF-8) retained for
+ * the REST endpoints instead of the String.  Metrics and snapshot JSON is
+ * very repetitive and typically compresses 10-20x.
+ *
+ * The raw deflate data is sync flushed and has no final block, so it can be
+ * spliced between other deflate data into a single gzip member.  That lets a
+ * response wrapping the payload be sent to gzip capable clients without
+ * decompressing it (see writeGzip).
+ */
+public final class CompressedJson {
+
+    private static final byte[] GZIP_HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+    // Empty final block (fixed huffman), ends the stream for an InflaterInputStream
+    private static final byte[] FINAL_BLOCK = { 0x03, 0x00 };
+    private static final int BUFFER_SIZE = 8192;
+
+    private final byte[] deflated;
+    private final long crc;
+    private final long length;
+
+    private CompressedJson(byte[] deflated, long crc, long length) {
+        this.deflated = deflated;
+        this.crc = crc;
+        this.length = length;
+    }
+
+    public static CompressedJson compress(String json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, json.length() / 8));
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        CRC32 crc = new CRC32();
+        try {
+            // syncFlush, flush() ends on a byte boundary and never writes the final block
+            Writer writer = new OutputStreamWriter(new CheckedOutputStream(
+                    new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE, true), crc), StandardCharsets.UTF_8);
+            writer.write(json);
+            writer.flush();
+            return new CompressedJson(compressed.toByteArray(), crc.getValue(), deflater.getBytesRead());
+        } catch (IOException e) {
+            // Only writes to memory
+            throw new IllegalStateException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /* Uncompressed size in bytes */
+    public long getLength() {
+        return length;
+    }
+
+    public int getCompressedLength() {
+        return deflated.length;
+    }
+
+    /* Decompresses the payload onto out */
+    public void writeTo(OutputStream out) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(deflated);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (true) {
+                int n = inflater.inflate(buffer);
+                if (n > 0) {
+                    out.write(buffer, 0, n);
+                } else {
+                    // No final block, the end of the input is the end of the payload
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed json: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /* Decompressing stream of the payload, e.g. to stream parse it */
+    public InputStream openStream() {
+        final Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(new SequenceInputStream(new ByteArrayInputStream(deflated),
+                new ByteArrayInputStream(FINAL_BLOCK)), inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+    }
+
+    /*
+     * Writes prefix, the payload and suffix as one gzip member.  Only prefix
+     * and suffix are compressed here, the payload is copied as is.
+     */
+    public void writeGzip(OutputStream out, byte[] prefix, byte[] suffix) throws IOException {
+        out.write(GZIP_HEADER);
+        out.write(deflate(prefix, false));
+        out.write(deflated);
+        out.write(deflate(suffix, true));
+
+        long total = crc32Combine(crc32Combine(crc32(prefix), crc, length), crc32(suffix), suffix.length);
+        writeIntLE(out, total);
+        writeIntLE(out, prefix.length + length + suffix.length);
+    }
+
+    public String toJson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(length, Integer.MAX_VALUE - 8));
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedJson [length=" + length + ", compressedLength=" + deflated.length + "]";
+    }
+
+    /************************* Internal Methods *************************/
+
+    private static byte[] deflate(byte[] data, boolean last) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 16);
+            byte[] buffer = new byte[512];
+            deflater.setInput(data);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static long crc32(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    private static void writeIntLE(OutputStream out, long value) throws IOException {
+        out.write((int) (value & 0xff));
+        out.write((int) ((value >>> 8) & 0xff));
+        out.write((int) ((value >>> 16) & 0xff));
+        out.write((int) ((value >>> 24) & 0xff));
+    }
+
+    /* CRC-32 of A followed by B from crc(A), crc(B) and length(B), as zlib crc32_combine() */
+    static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        // operator for one zero bit
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // two and four zero bits
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // apply length2 zero bytes to crc1
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+}
@@ -40,6 +40,18 @@ public class InstanceInfo {
     private Long instanceStartTime = null;
 
 
+    public InstanceInfo() {
+    }
+
+    /* Copy used for the published InstanceTrackerState */
+    public InstanceInfo(InstanceInfo other) {
+        this.instanceName = other.instanceName;
+        this.instanceExists = other.instanceExists;
+        this.instanceAvailable = other.instanceAvailable;
+        this.instanceStatus = other.instanceStatus;
+        this.instanceHealth = other.instanceHealth;
+        this.instanceStartTime = other.instanceStartTime;
+    }
 
     public String getInstanceName() {
         return instanceName;
@@ -0,0 +1,229 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import streams.metric.exporter.error.StreamsTrackerErrorCode;
+import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.streamstracker.job.JobMap;
+import streams.metric.exporter.streamstracker.job.JobTopology;
+import streams.metric.exporter.streamstracker.metrics.AllJobMetrics;
+import streams.metric.exporter.streamstracker.snapshots.AllJobSnapshots;
+
+/*
+ * InstanceTrackerState
+ * Immutable point-in-time view of a StreamsInstanceTracker.
+ * The tracker builds a new one at the end of each refresh (and reset) and
+ * publishes it through a single volatile reference, so REST readers never
+ * wait on a refresh in progress and always see values from the same cycle.
+ */
+public final class InstanceTrackerState {
+
+    private final InstanceInfo instanceInfo;
+    private final Map<String, Map<String, Long>> instanceResourceMetrics;
+    private final Long instanceResourceMetricsLastUpdated;
+    private final Map<String, String> jobNameIndex;
+    /* Job id to topology, the topologies are immutable so they are shared, not copied */
+    private final Map<String, JobTopology> jobTopologies;
+
+    /* Degraded mode, the state is from the last good refresh */
+    private final Long lastGoodRefresh;
+    private final Long degradedSince;
+
+    /* Job Metrics Info, allMetrics is null if never retrieved */
+    private final boolean metricsAvailable;
+    private final CompressedJson allMetrics;
+    private final Date lastMetricsRefresh;
+    private final Date lastMetricsFailure;
+    private final boolean lastMetricsRefreshFailed;
+
+    /* Job Snapshots Info, allSnapshots is null if never retrieved */
+    private final boolean snapshotsAvailable;
+    private final CompressedJson allSnapshots;
+    private final Date lastSnapshotRefresh;
+    private final Date lastSnapshotFailure;
+    private final boolean lastSnapshotRefreshFailed;
+
+    /* Copies everything it needs, must be called while holding the tracker lock */
+    InstanceTrackerState(InstanceInfo instanceInfo,
+            Map<String, Map<String, Long>> instanceResourceMetrics,
+            Long instanceResourceMetricsLastUpdated, JobMap jobMap,
+            AllJobMetrics allJobMetrics, AllJobSnapshots allJobSnapshots,
+            Long lastGoodRefresh, Long degradedSince) {
+        this.instanceInfo = new InstanceInfo(instanceInfo);
+        this.lastGoodRefresh = lastGoodRefresh;
+        this.degradedSince = degradedSince;
+
+        Map<String, Map<String, Long>> resources = new HashMap<String, Map<String, Long>>();
+        for (Map.Entry<String, Map<String, Long>> entry : instanceResourceMetrics.entrySet()) {
+            resources.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<String, Long>(entry.getValue())));
+        }
+        this.instanceResourceMetrics = Collections.unmodifiableMap(resources);
+        this.instanceResourceMetricsLastUpdated = instanceResourceMetricsLastUpdated;
+
+        if (jobMap != null) {
+            this.jobNameIndex = Collections.unmodifiableMap(jobMap.getCurrentJobNameIndex());
+            this.jobTopologies = Collections.unmodifiableMap(jobMap.getCurrentTopologies());
+        } else {
+            this.jobNameIndex = Collections.emptyMap();
+            this.jobTopologies = Collections.emptyMap();
+        }
+
+        this.metricsAvailable = (allJobMetrics != null);
+        if (allJobMetrics != null) {
+            this.allMetrics = allJobMetrics.getAllMetrics();
+            this.lastMetricsRefresh = copy(allJobMetrics.getLastMetricsRefresh());
+            this.lastMetricsFailure = copy(allJobMetrics.getLastMetricsFailure());
+            this.lastMetricsRefreshFailed = allJobMetrics.isLastMetricsRefreshFailed();
+        } else {
+            this.allMetrics = null;
+            this.lastMetricsRefresh = null;
+            this.lastMetricsFailure = null;
+            this.lastMetricsRefreshFailed = false;
+        }
+
+        this.snapshotsAvailable = (allJobSnapshots != null);
+        if (allJobSnapshots != null) {
+            this.allSnapshots = allJobSnapshots.getAllSnapshots();
+            this.lastSnapshotRefresh = copy(allJobSnapshots.getLastSnaphostRefresh());
+            this.lastSnapshotFailure = copy(allJobSnapshots.getLastSnapshotFailure());
+            this.lastSnapshotRefreshFailed = allJobSnapshots.isLastSnapshotRefreshFailed();
+        } else {
+            this.allSnapshots = null;
+            this.lastSnapshotRefresh = null;
+            this.lastSnapshotFailure = null;
+            this.lastSnapshotRefreshFailed = false;
+        }
+    }
+
+    /* Do not modify, it is shared by every reader of this state */
+    public InstanceInfo getInstanceInfo() {
+        return instanceInfo;
+    }
+
+    public boolean isInstanceAvailable() {
+        return instanceInfo.isInstanceAvailable();
+    }
+
+    public Map<String, Map<String, Long>> getInstanceResourceMetrics() throws StreamsTrackerException {
+        if (!instanceInfo.isInstanceExists()) {
+            throw new StreamsTrackerException(
+                    StreamsTrackerErrorCode.INSTANCE_NOT_FOUND,
+                    "The Streams instance "
+                            + instanceInfo.getInstanceName()
+                            + " does not exist.");
+        }
+        return instanceResourceMetrics;
+    }
+
+    public Long getInstanceResourceMetricsLastUpdated() {
+        return instanceResourceMetricsLastUpdated;
+    }
+
+    public Map<String, String> getJobNameIndex() {
+        return jobNameIndex;
+    }
+
+    /* Job ids with a topology, in no particular order */
+    public Map<String, JobTopology> getJobTopologies() {
+        return jobTopologies;
+    }
+
+    /* Job id of a job given by id or name, the id wins if a job name is another job's id */
+    public String resolveJobId(String jobIdOrName) throws StreamsTrackerException {
+        if (jobTopologies.containsKey(jobIdOrName)) {
+            return jobIdOrName;
+        }
+        String jobId = jobNameIndex.get(jobIdOrName);
+        if (jobId == null || !jobTopologies.containsKey(jobId)) {
+            throw new StreamsTrackerException(StreamsTrackerErrorCode.JOB_NOT_FOUND,
+                    "The job " + jobIdOrName + " was not found in the Streams instance "
+                            + instanceInfo.getInstanceName() + ".");
+        }
+        return jobId;
+    }
+
+    /* Epoch milliseconds of the last refresh that completed with the instance available, null if never */
+    public Long getLastGoodRefresh() {
+        return lastGoodRefresh;
+    }
+
+    /* True while the tracker is serving retained state because the instance cannot be reached */
+    public boolean isDegraded() {
+        return degradedSince != null;
+    }
+
+    public Long getDegradedSince() {
+        return degradedSince;
+    }
+
+    public CompressedJson getAllMetrics() throws StreamsTrackerException {
+        verifyAvailable(metricsAvailable, StreamsTrackerErrorCode.ALL_METRICS_NOT_AVAILABLE,
+                "The allJobMetrics object does not exist. Metrics have never been able to be retrieved.");
+        return allMetrics;
+    }
+
+    public Date getLastMetricsRefresh() {
+        return copy(lastMetricsRefresh);
+    }
+
+    public Date getLastMetricsFailure() {
+        return copy(lastMetricsFailure);
+    }
+
+    public boolean isLastMetricsRefreshFailed() {
+        return lastMetricsRefreshFailed;
+    }
+
+    public CompressedJson getAllSnapshots() throws StreamsTrackerException {
+        verifyAvailable(snapshotsAvailable, StreamsTrackerErrorCode.ALL_SNAPSHOTS_NOT_AVAILABLE,
+                "The allJobSnapshots object does not exist. Snapshots have never been able to be retrieved.");
+        return allSnapshots;
+    }
+
+    public Date getLastSnapshotRefresh() {
+        return copy(lastSnapshotRefresh);
+    }
+
+    public Date getLastSnapshotFailure() {
+        return copy(lastSnapshotFailure);
+    }
+
+    public boolean isLastSnapshotRefreshFailed() {
+        return lastSnapshotRefreshFailed;
+    }
+
+    private void verifyAvailable(boolean available, StreamsTrackerErrorCode errorCode, String message)
+            throws StreamsTrackerException {
+        if (!instanceInfo.isInstanceExists()) {
+            throw new StreamsTrackerException(errorCode,
+                    "The Streams instance "
+                            + instanceInfo.getInstanceName()
+                            + " does not exist.");
+        } else if (!available) {
+            throw new StreamsTrackerException(errorCode, message);
+        }
+    }
+
+    private static Date copy(Date date) {
+        return (date == null ? null : new Date(date.getTime()));
+    }
+}
@@ -0,0 +1,95 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import streams.metric.exporter.metrics.FixedBucketHistogram;
+
+/*
+ * RefreshStatistics
+ * Always on timings of the refresh pipeline of one StreamsInstanceTracker.
+ * Recorded on every refresh (not just when debug logging is on) and read by
+ * the prometheus self metrics collector.  All recording is lock free.
+ */
+public class RefreshStatistics {
+
+    public enum Phase {
+        INSTANCE_INFO, RESOURCE_METRICS, JOB_SNAPSHOTS, JOB_METRICS, JOBS, TOTAL;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    public enum Payload {
+        SNAPSHOTS, METRICS;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final Map<Phase, FixedBucketHistogram> phaseSeconds = new EnumMap<Phase, FixedBucketHistogram>(Phase.class);
+    private final Map<Payload, FixedBucketHistogram> payloadBytes = new EnumMap<Payload, FixedBucketHistogram>(Payload.class);
+    private final Map<Payload, FixedBucketHistogram> parseSeconds = new EnumMap<Payload, FixedBucketHistogram>(Payload.class);
+    private final FixedBucketHistogram lockWaitSeconds = new FixedBucketHistogram(FixedBucketHistogram.LATENCY_BUCKETS);
+
+    public RefreshStatistics() {
+        // Populated up front, the maps are only read after construction
+        for (Phase phase : Phase.values()) {
+            phaseSeconds.put(phase, new FixedBucketHistogram(FixedBucketHistogram.LATENCY_BUCKETS));
+        }
+        for (Payload payload : Payload.values()) {
+            payloadBytes.put(payload, new FixedBucketHistogram(FixedBucketHistogram.SIZE_BUCKETS));
+            parseSeconds.put(payload, new FixedBucketHistogram(FixedBucketHistogram.LATENCY_BUCKETS));
+        }
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        phaseSeconds.get(phase).observeNanos(nanos);
+    }
+
+    /* Size in characters of a payload and the time it took to parse it */
+    public void recordParse(Payload payload, int size, long nanos) {
+        payloadBytes.get(payload).observe(size);
+        parseSeconds.get(payload).observeNanos(nanos);
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWaitSeconds.observeNanos(nanos);
+    }
+
+    public FixedBucketHistogram getPhaseSeconds(Phase phase) {
+        return phaseSeconds.get(phase);
+    }
+
+    public FixedBucketHistogram getPayloadBytes(Payload payload) {
+        return payloadBytes.get(payload);
+    }
+
+    public FixedBucketHistogram getParseSeconds(Payload payload) {
+        return parseSeconds.get(payload);
+    }
+
+    public FixedBucketHistogram getLockWaitSeconds() {
+        return lockWaitSeconds;
+    }
+}
@@ -19,25 +19,24 @@ package streams.metric.exporter.streamstracker;
 import java.net.MalformedURLException;
 import java.text.Format;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Date;
 import java.text.SimpleDateFormat;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.lang.reflect.UndeclaredThrowableException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.InstanceNotFoundException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.json.simple.JSONObject;
-import org.json.simple.JSONArray;
 import org.json.simple.parser.JSONParser;
-import org.apache.commons.lang.time.StopWatch;
 import com.ibm.streams.management.instance.InstanceMXBean;
 import com.ibm.streams.management.resource.ResourceMXBean;
 
@@ -46,13 +45,17 @@ import streams.metric.exporter.Constants;
 import streams.metric.exporter.error.StreamsTrackerErrorCode;
 import streams.metric.exporter.error.StreamsTrackerException;
 import streams.metric.exporter.jmx.JmxServiceContext;
+import streams.metric.exporter.jmx.JmxThrottledException;
 import streams.metric.exporter.jmx.MXBeanSource;
 import streams.metric.exporter.jmx.MXBeanSourceProviderListener;
 import streams.metric.exporter.metrics.MetricsExporter;
 import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
-import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
-import streams.metric.exporter.streamstracker.job.JobDetails;
+import streams.metric.exporter.metrics.MetricsExporters;
+import streams.metric.exporter.streamstracker.RefreshStatistics.Payload;
+import streams.metric.exporter.streamstracker.RefreshStatistics.Phase;
+import streams.metric.exporter.streamstracker.capture.PayloadCapture;
 import streams.metric.exporter.streamstracker.job.JobMap;
+import streams.metric.exporter.streamstracker.job.JobTopologyStore;
 import streams.metric.exporter.streamstracker.metrics.AllJobMetrics;
 import streams.metric.exporter.streamstracker.snapshots.AllJobSnapshots;
 import com.ibm.streams.management.Metric;
@@ -67,27 +70,14 @@ import com.ibm.streams.management.Metric;
  *  		* Get Metrics Snapshot
  *  		* Get Jobs Snapshot
  *  		* Update JobMap using snapshot lists
- *  Pattern: Modified Singleton Pattern
- *  Driver: The Singleton pattern is used to allow JERSEY rest classes to get the instance
- *          easily without introducing Java Dependency Injection (could do that in the future)
- *          The modification is required because the instance needs some parameters and the 
- *          traditional singleton pattern does not support that
- *  Options: Could have used property file but due to time constraints and evolution stuck with
- *           parameters
- *  Usage: StreamsInstanceTracker.initInstance(param1, param2, param3, ...)
- *         StreamsInstanceTracker.getInstance() 
- *           throws exception if streams instance was not initalized yet
+ *  One tracker per Streams instance.  Trackers are created, scheduled and
+ *  looked up through the StreamsInstanceTrackerRegistry so that JERSEY rest
+ *  classes can get them easily without introducing Java Dependency Injection.
 */
 public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         private static final Logger LOGGER = LoggerFactory.getLogger("root."
             + StreamsInstanceTracker.class.getName());
 
-    /*****************************************
-     * SINGLETON PATTERN
-     *****************************************/
-    private static StreamsInstanceTracker instanceTrackerSingleton = null;
-    private static boolean isInitialized = false;
-
     /*****************************************
      * JMX
      *****************************************/
@@ -111,8 +101,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
     /*****************************************
      * Metrics Exporter for non REST JSON 
      **************************************/
-    // Future change to plugin
-	private MetricsExporter metricsExporter = PrometheusMetricsExporter.getInstance();
+	private MetricsExporter metricsExporter = MetricsExporters.getExporter();
 
     /*****************************************
      * Tracking Information 
@@ -130,61 +119,32 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
     /* Job Map */
     private JobMap jobMap = null;
 
+    /* Degraded mode: last good state is kept across JMX/HTTP errors */
+    private Long lastGoodRefresh = null;      // Last refresh that completed with the instance available
+    private Long retainedStartTime = null;    // Instance start time the retained job state belongs to
+    private Long degradedSince = null;        // null when not degraded
 
-    /*************************************************************
-     * SINGLETON METHODS
-     *************************************************************/
-    public static StreamsInstanceTracker initInstanceTracker(
-            JmxServiceContext jmxContext, String instanceName,
-            int refreshRateSeconds, String protocol, ServiceConfig config)
-            throws StreamsTrackerException {
-        if (instanceTrackerSingleton != null) {
-            LOGGER.warn("Re-Initializing StreamsInstanceTracker");
-        } else {
-            LOGGER.debug("Initializing StreamsInstanceTracker");
-        }
+    /* State published for readers at the end of each refresh, never null after construction */
+    private volatile InstanceTrackerState state = null;
 
-        try {
-            instanceTrackerSingleton = new StreamsInstanceTracker(jmxContext,
-                    instanceName, refreshRateSeconds, protocol, config);
-            StreamsInstanceTracker.isInitialized = true;
-        } catch (StreamsTrackerException e) {
-            LOGGER.error("Initalization of StreamsInstanceTracker instance FAILED!!");
-            throw e;
-        }
+    /* Notified after each refresh (e.g. remote write) */
+    private final List<StreamsInstanceRefreshListener> refreshListeners = new CopyOnWriteArrayList<StreamsInstanceRefreshListener>();
 
-        return instanceTrackerSingleton;
-    }    
+    private final RefreshStatistics refreshStatistics = new RefreshStatistics();
 
-    // If refresh rate is 0 (NO_REFRESH) then perform a refresh.
-    public static StreamsInstanceTracker getInstanceTracker()
-            throws StreamsTrackerException {
-        if (!StreamsInstanceTracker.isInitialized) {
-            LOGGER.warn("An attempt to retrieve the singleton instance of StreamsInstanceTracker was made before it was initialized");
-            throw new StreamsTrackerException(
-                    StreamsTrackerErrorCode.STREAMS_MONITOR_UNAVAILABLE,
-                    "StreamsInstanceTracker is not initialized");
-        }
-        
-        if (instanceTrackerSingleton.refreshRateSeconds == Constants.NO_REFRESH) {
-        		LOGGER.debug("INSTANCE: On-demand refresh of metrics and snapshots...");
-        		instanceTrackerSingleton.refresh();
-        }   
-        return instanceTrackerSingleton;
-    }       
+    /* Refresh progress for the liveness check, milliseconds since the epoch */
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long refreshStartedAt = 0;     // 0 when no refresh is running
+    private volatile long lastRefreshCompletedAt = 0;
 
+    /* Raw payload recording for offline replay, null when --capturedir is not set */
+    private PayloadCapture capture = null;
 
-    /***************************************************************
-     * AUTOMATIC REFRESH TIMER TASK
-     ***************************************************************/
-    
-    private TimerTask refresher = new TimerTask() {
-        @Override
-        public void run() {
-    			LOGGER.debug("INSTANCE: Automatic refresh of metrics and snapshots...");
-            refresh();
-        }
-    };
+    /* Warm start, null when --warmstartdir is not set */
+    private JobTopologyStore warmStart = null;
+    private boolean warmStartChecked = false;  // only the first initialization loads the file
+    private boolean warmStartPending = false;  // jobs loaded, skip the snapshots of the next refresh
+    private long lastWarmStartSave = 0;
 
 
     /**************************************************************************
@@ -193,7 +153,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
      * Note: InstanceNotFoundException is a jmx exception we use not to be
      * confused with streams instance
      ***************************************************************************/
-    public StreamsInstanceTracker(JmxServiceContext jmxContext,
+    StreamsInstanceTracker(JmxServiceContext jmxContext,
             String instanceName, int refreshRateSeconds, String protocol,
             ServiceConfig config) throws StreamsTrackerException {
 
@@ -209,29 +169,90 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
             this.autoRefresh = true;
         }
 
+        openCapture();
+        openWarmStart();
+
         // Get Instance
         instanceInfo = new InstanceInfo();
         this.instanceInfo.setInstanceName(instanceName);
+        publishState();
 
         initStreamsInstanceTracker();
 
         if (this.instanceInfo.isInstanceAvailable()) {
             updateInstanceResourceMetrics();
         }
+        publishState();
 
-        if (this.autoRefresh != true) {
-        	LOGGER.debug("Refresh rate set to {}, setting up timer process",this.refreshRateSeconds);
-        	// Create timer to automatically refresh the status and metrics
-        	Timer timer = new Timer("Refresher");
-        	timer.scheduleAtFixedRate(refresher, this.refreshRateSeconds * 1000,
-                refreshRateSeconds * 1000);
-        } else {
-        	LOGGER.debug("Refresh rate set to NO_REFRESH, Refreshes will be on-demand, not automatic");
-        }
+        // Automatic refreshes are scheduled by the StreamsInstanceTrackerRegistry
+    }
     
 
+    private void openCapture() {
+        String captureDir = config.getCaptureDir();
+        if (captureDir == null || captureDir.isEmpty()) {
+            return;
+        }
+        try {
+            capture = new PayloadCapture(Paths.get(captureDir, instanceName), instanceName,
+                    config.getCaptureSegmentMb() * 1024L * 1024L, config.getCaptureMaxSegments());
+        } catch (IOException e) {
+            // Capture is a diagnostic aid, the tracker runs without it
+            LOGGER.error("Unable to capture payloads of instance {} to {}: {}", instanceName, captureDir, e.getMessage());
+        }
     }
-    
+
+
+    private void openWarmStart() {
+        String warmStartDir = config.getWarmStartDir();
+        if (warmStartDir == null || warmStartDir.isEmpty()) {
+            return;
+        }
+        try {
+            warmStart = new JobTopologyStore(Paths.get(warmStartDir), instanceName);
+        } catch (IOException e) {
+            LOGGER.error("Unable to use warm start directory {} for instance {}: {}", warmStartDir, instanceName, e.getMessage());
+        }
+    }
+
+    /*
+     * Fill the new job map from the warm start file, the first refresh then
+     * only retrieves metrics.  The deep snapshot of the refresh after that
+     * adds, removes and revalidates the jobs.
+     */
+    private void loadWarmStart() {
+        if (warmStart == null || warmStartChecked || !this.instanceInfo.isInstanceAvailable()) {
+            return;
+        }
+        warmStartChecked = true;
+        if (warmStart.load(this.instanceInfo.getInstanceStartTime(), jobMap) > 0) {
+            warmStartPending = true;
+            // What was loaded is what is on disk
+            lastWarmStartSave = System.currentTimeMillis();
+        }
+    }
+
+    /* Save the job topology of the last good refresh, also called on shutdown */
+    public synchronized void saveWarmStart() {
+        // Nothing new to save until the warm start jobs have been through a snapshot
+        if (warmStart == null || jobMap == null || retainedStartTime == null || warmStartPending) {
+            return;
+        }
+        try {
+            warmStart.save(retainedStartTime, jobMap);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save warm start topology to {}: {}", warmStart.getFile(), e.getMessage());
+        }
+        lastWarmStartSave = System.currentTimeMillis();
+    }
+
+    private void saveWarmStartIfDue() {
+        if (warmStart != null
+                && System.currentTimeMillis() - lastWarmStartSave >= config.getWarmStartInterval() * 1000L) {
+            saveWarmStart();
+        }
+    }
+
 
     /*******************************************************************************
      * 
@@ -248,8 +269,26 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         LOGGER.debug("initStreamsInstanceTracker()");
 
         // Initialize the Instance Info and get current info from the InstanceMXBean if available
+        Long previousStartTime = retainedStartTime;
         setInstanceInfo();
 
+        // Reconnected after a JMX or HTTP error, only start over if the instance restarted
+        if (previousStartTime != null && this.instanceInfo.isInstanceAvailable()) {
+            if (previousStartTime.equals(this.instanceInfo.getInstanceStartTime())) {
+                LOGGER.info("Streams Instance '{}' reconnected after {} ms, reconciling retained state",
+                        this.instanceInfo.getInstanceName(),
+                        (degradedSince != null ? System.currentTimeMillis() - degradedSince : 0));
+                degradedSince = null;
+                createExportedInstanceMetrics();
+                return;
+            }
+            LOGGER.info("Streams Instance '{}' restarted since the last good refresh, discarding retained state",
+                    this.instanceInfo.getInstanceName());
+            retainedStartTime = null;
+            degradedSince = null;
+            clearTrackedState();
+        }
+
         // Initialize Snapshots Handler
         LOGGER.debug("  Initialize or clear Snapshots Handler (allJobSnapshots)");
 
@@ -259,6 +298,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
                 this.instanceName,
                 this.config.getJmxHttpHost(), 
                 this.config.getJmxHttpPort());
+                allJobSnapshots.setCapture(capture);
             } else {
                 allJobSnapshots.clear();
             }
@@ -275,6 +315,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
                 this.instanceInfo.getInstanceName(),
                 this.config.getJmxHttpHost(), 
                 this.config.getJmxHttpPort());
+                allJobMetrics.setCapture(capture);
             } else {
                 allJobMetrics.clear();
             }
@@ -290,6 +331,8 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         } else {
             jobMap.clear();
         }
+        warmStartPending = false;
+        loadWarmStart();
         
         // Create the metrics we will set for the instance
         LOGGER.debug("  Create Exported Instance Metrics");
@@ -357,7 +400,10 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         } catch (UndeclaredThrowableException e) {
             // Sometimes instance issues are burried in UndeclaredThrowableExceptions from the JMX API
             Throwable t = e.getUndeclaredThrowable();
-            if (t instanceof InstanceNotFoundException) {
+            if (t instanceof JmxThrottledException) {
+                // Rate limited, not an error, keep the previous instance info
+                LOGGER.debug("Instance ({}) info retrieval throttled, keeping the previous info", instanceName);
+            } else if (t instanceof InstanceNotFoundException) {
                 LOGGER.warn(
                     "Instance '{}' not found when initializing.  Continuing assuming it will be created in the future",
                     this.instanceInfo.getInstanceName());
@@ -373,10 +419,12 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
             resetTracker();
             throw new StreamsTrackerException(
                     "Invalid JMX URL when initializing instance", me);
+        } catch (JmxThrottledException te) {
+            LOGGER.debug("Instance ({}) info retrieval throttled, keeping the previous info", instanceName);
         } catch (IOException ioe) {
             // JMX Error, cannot initialize streams instance so ensure state
             LOGGER.warn("JMX IO Exception when initializing instance, Continuing to wait for reconnect");
-            resetTracker();
+            degradeTracker();
         }
     }
 
@@ -390,7 +438,15 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
     public synchronized void resetTracker() {
         LOGGER.debug("*** resetTracker ***");
         this.instanceInfo.setInstanceAvailable(false);
+        this.retainedStartTime = null;
+        this.degradedSince = null;
+
+        clearTrackedState();
+        publishState();
+        LOGGER.debug("*** DONE...resetTracker()");
+    }
 
+    private void clearTrackedState() {
         // Set Metrics Failure on metrics Object
         if (this.allJobMetrics != null) {
         	this.allJobMetrics.setLastMetricsFailure(new Date());
@@ -407,11 +463,43 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         if (this.jobMap != null) {
             this.jobMap.clear();
         }
+        this.warmStartPending = false;
         LOGGER.debug("  removeExportedInstanceMetrics()...");
         removeExportedInstanceMetrics();
         LOGGER.debug("  createExportedInstanceMetrics()...");
         createExportedInstanceMetrics();
-        LOGGER.debug("*** DONE...resetTracker()");
+    }
+
+
+    /****************************************************************************
+     * degradeTracker In the case of a JMX or HTTP error that does not mean
+     * the instance went away, keep the last good state (jobs and exported
+     * metrics) and serve it until we reconnect.  The next refresh
+     * re-initializes and reconciles incrementally, unless the instance start
+     * time changed.  Without any good state there is nothing to keep, so reset.
+     ****************************************************************************/
+    public synchronized void degradeTracker() {
+        if (retainedStartTime == null) {
+            resetTracker();
+            return;
+        }
+        if (degradedSince == null) {
+            degradedSince = System.currentTimeMillis();
+            LOGGER.warn("Streams Instance '{}' unreachable, serving state from the last good refresh",
+                    this.instanceInfo.getInstanceName());
+        }
+        this.instanceInfo.setInstanceAvailable(false);
+
+        Date now = new Date();
+        if (this.allJobMetrics != null) {
+            this.allJobMetrics.setLastMetricsFailure(now);
+            this.allJobMetrics.setLastMetricsRefreshFailed(true);
+        }
+        if (this.allJobSnapshots != null) {
+            this.allJobSnapshots.setLastSnapshotFailure(now);
+            this.allJobSnapshots.setLastSnapshotRefreshFailed(true);
+        }
+        publishState();
     }
 
     
@@ -428,21 +516,47 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
      * level.
      * Unexpected exceptions should be thrown
      *****************************************************************/
-    public synchronized void refresh() {
-        LOGGER.debug("** INSTANCE Refresh: {}",this.getInstanceInfo().getInstanceName());
-        LOGGER.trace("** INSTANCE INFO: " + this.getInstanceInfo().toString());
-        StopWatch totaltimer = null;
-        StopWatch stopwatch = null;
+    public void refresh() {
+        refreshStartedAt = System.currentTimeMillis();
+        try {
+            // Time spent waiting on the tracker monitor (e.g. a reset or another refresh)
+            long lockRequested = System.nanoTime();
+            synchronized (this) {
+                refreshStatistics.recordLockWait(System.nanoTime() - lockRequested);
+                refreshLocked();
+            }
+        } finally {
+            lastRefreshCompletedAt = System.currentTimeMillis();
+            refreshStartedAt = 0;
+        }
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /* Start of the refresh in progress (including waiting for the tracker lock), 0 if none */
+    public long getRefreshStartedAt() {
+        return refreshStartedAt;
+    }
+
+    /* End of the last refresh whatever its outcome, 0 before the first */
+    public long getLastRefreshCompletedAt() {
+        return lastRefreshCompletedAt;
+    }
+
+    private void refreshLocked() {
+        LOGGER.debug("** INSTANCE Refresh: {}",this.instanceInfo.getInstanceName());
+        LOGGER.trace("** INSTANCE INFO: " + this.instanceInfo.toString());
+        // Phase timings are always recorded, only logged when debug is enabled
         LinkedHashMap<String, Long> timers = null;
         if (LOGGER.isDebugEnabled()) {
-            totaltimer = new StopWatch();
-            stopwatch = new StopWatch();
             timers = new LinkedHashMap<String, Long>();
-            totaltimer.reset();
-            totaltimer.start();
-            stopwatch.reset();
-            stopwatch.start();
         }
+        long refreshStart = System.nanoTime();
+        long phaseStart = refreshStart;
+        // Series changes of this refresh are newer than any delta already served
+        metricsExporter.nextGeneration();
         
         try {
             // If something made the instance unavailable initialize it
@@ -450,21 +564,11 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
                 LOGGER.debug("Streams Instance Refresh: Instance not available, try and initialize it.");
                 initStreamsInstanceTracker();
 
-                if (LOGGER.isDebugEnabled()) {
-                    stopwatch.stop();
-                    timers.put("Intialize Streams Instance and set Info",stopwatch.getTime());
-                    stopwatch.reset();
-                    stopwatch.start();
-                }
+                phaseStart = endPhase(Phase.INSTANCE_INFO, phaseStart, timers, "Intialize Streams Instance and set Info");
             } else {
                 // Update Instance Info
                 setInstanceInfo();
-                if (LOGGER.isDebugEnabled()) {
-                    stopwatch.stop();
-                    timers.put("Set Streams Instance Info",stopwatch.getTime());
-                    stopwatch.reset();
-                    stopwatch.start();
-                }
+                phaseStart = endPhase(Phase.INSTANCE_INFO, phaseStart, timers, "Set Streams Instance Info");
             }
 
             if (instanceInfo.isInstanceAvailable()) {
@@ -482,45 +586,44 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
                 LOGGER.trace("** Calling updateInstanceResourceMetrics()");
                 updateInstanceResourceMetrics();
             
-                if (LOGGER.isDebugEnabled()) {
-                    stopwatch.stop();
-                    timers.put("Update Instance Resource Metrics",stopwatch.getTime());
-                    stopwatch.reset();
-                    stopwatch.start();
-                }
-
-                LOGGER.trace("** Calling updateAllJobSnapshots(true)");
-                updateAllJobSnapshots(true);
-                if (LOGGER.isDebugEnabled()) {
-                    stopwatch.stop();
-                    timers.put("Update All Job Snapshots",stopwatch.getTime());
-                    stopwatch.reset();
-                    stopwatch.start();
+                phaseStart = endPhase(Phase.RESOURCE_METRICS, phaseStart, timers, "Update Instance Resource Metrics");
+
+                if (warmStartPending) {
+                    // Jobs came from the warm start file, go straight to the metrics
+                    LOGGER.debug("Warm start, skipping the job snapshots of the first refresh");
+                    warmStartPending = false;
+                } else {
+                    LOGGER.trace("** Calling updateAllJobSnapshots(true)");
+                    updateAllJobSnapshots(true);
                 }
+                phaseStart = endPhase(Phase.JOB_SNAPSHOTS, phaseStart, timers, "Update All Job Snapshots");
 
                 LOGGER.trace("** Calling updateAllJobMetrics(true)");
                 updateAllJobMetrics(true);
-                if (LOGGER.isDebugEnabled()) {
-                    stopwatch.stop();
-                    timers.put("Update All Job Metrics",stopwatch.getTime());
-                    stopwatch.reset();
-                    stopwatch.start();
-                }
+                phaseStart = endPhase(Phase.JOB_METRICS, phaseStart, timers, "Update All Job Metrics");
             
 
-                LOGGER.trace("** Calling refreshAllJobs()");
-                refreshAllJobs();
-                if (LOGGER.isDebugEnabled()) {
-                    stopwatch.stop();
-                    timers.put("Refresh All Jobs",stopwatch.getTime());
-                    stopwatch.reset();
-                    stopwatch.start();
+                // A failed metrics refresh degrades the tracker, keep the series of the jobs as they are
+                if (instanceInfo.isInstanceAvailable()
+                        && (allJobMetrics == null || !allJobMetrics.isLastMetricsRefreshFailed())) {
+                    LOGGER.trace("** Calling refreshAllJobs()");
+                    refreshAllJobs();
+                } else {
+                    LOGGER.debug("Instance refresh: metrics refresh failed, not refreshing the jobs");
                 }
+                phaseStart = endPhase(Phase.JOBS, phaseStart, timers, "Refresh All Jobs");
 
                 // Refresh job count metric
                 metricsExporter.getStreamsMetric("jobCount", StreamsObjectType.INSTANCE,
                         this.instanceInfo.getInstanceName()).set(jobMap.size());            
 
+                // Errors during the refresh degrade the tracker and make the instance unavailable
+                if (instanceInfo.isInstanceAvailable()) {
+                    lastGoodRefresh = System.currentTimeMillis();
+                    retainedStartTime = instanceInfo.getInstanceStartTime();
+                    saveWarmStartIfDue();
+                }
+
             } else {
                 LOGGER.debug("Instance refresh: Instance was not available for this refresh");
             }
@@ -528,14 +631,17 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
             LOGGER.debug(
                     "INSTANCE Refresh StreamsMonitorException: {}.",
                     e);
-            resetTracker();
+            degradeTracker();
         } catch (UndeclaredThrowableException e) {
 
             LOGGER.debug("INSTANCE Refresh UndeclaredThrowableException and unwrapping it");
             Throwable t = e.getUndeclaredThrowable();
-            if (t instanceof IOException) {
+            if (t instanceof JmxThrottledException) {
+                // Rate limited read without its own handling, the instance is still there
+                LOGGER.debug("INSTANCE Refresh throttled, keeping the previous state until the next refresh");
+            } else if (t instanceof IOException) {
                 LOGGER.debug("INSTANCE Refresh unwrapped IOException, we will ignore and let JMC Connecton Pool reconnect");
-                resetTracker();
+                degradeTracker();
             } else {
                 LOGGER.debug("INSTANCE Refresh unwrapped "
                         + t.getClass()
@@ -549,60 +655,69 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
             resetTracker();
         }		
 
+        long refreshNanos = System.nanoTime() - refreshStart;
+        refreshStatistics.recordPhase(Phase.TOTAL, refreshNanos);
         if (LOGGER.isDebugEnabled()) {
-            totaltimer.stop();
-            stopwatch.stop();
             LOGGER.debug("** INSTANCE refresh timing (ms):");
             for (Map.Entry<String,Long> entry : timers.entrySet()) {
                 LOGGER.debug("   " + entry.getKey() + " timing: " + entry.getValue());
             }
-            LOGGER.debug("Total instance (" + this.instanceInfo.getInstanceName() + ") Refresh Time (ms) :" + totaltimer.getTime());              
+            LOGGER.debug("Total instance (" + this.instanceInfo.getInstanceName() + ") Refresh Time (ms) :" + TimeUnit.NANOSECONDS.toMillis(refreshNanos));
+        }
+
+        publishState();
+
+        for (StreamsInstanceRefreshListener listener : refreshListeners) {
+            try {
+                listener.refreshCompleted(this);
+            } catch (Exception e) {
+                LOGGER.warn("Refresh listener {} failed: {}", listener.getClass().getSimpleName(), e);
+            }
         }
-        
     }
 
+    /* Records the phase that started at phaseStart and returns the start of the next one */
+    private long endPhase(Phase phase, long phaseStart, Map<String, Long> timers, String description) {
+        long now = System.nanoTime();
+        refreshStatistics.recordPhase(phase, now - phaseStart);
+        if (timers != null) {
+            timers.put(description, TimeUnit.NANOSECONDS.toMillis(now - phaseStart));
+        }
+        return now;
+    }
 
+    public RefreshStatistics getRefreshStatistics() {
+        return refreshStatistics;
+    }
 
-    private void refreshAllJobs() {
-        // Get currently tracked jobs
-        if (jobMap != null) {
-            Set<String> currentJobIds = new HashSet<String>(jobMap.getJobIds());
+    /* Replace the published state with a copy of the current one */
+    private synchronized void publishState() {
+        state = new InstanceTrackerState(instanceInfo, instanceResourceMetrics,
+                instanceResourceMetricsLastUpdated, jobMap, allJobMetrics, allJobSnapshots,
+                lastGoodRefresh, degradedSince);
+    }
 
-            LOGGER.debug("Refresh All Jobs, number of jobs: {}", currentJobIds.size());
-            for (String jobId : currentJobIds) {
-                JobDetails jd = jobMap.getJob(jobId);
-                jd.refresh(jd.getJobSnapshot(),jd.getJobMetrics());
-            }
-        }
+    /* Consistent view as of the last refresh, never blocks on a refresh in progress */
+    public InstanceTrackerState getState() {
+        return state;
     }
 
-    
-    /***********************************************************
-     * Add Job to job map
-     ***********************************************************/
-    private synchronized void addJobToMap(String jobid, String jobname, String jobSnapshot) {
-        LOGGER.trace("AddJobToMap({})...", jobid);
-
-        JobDetails jd = new JobDetails(this, jobid, jobname);
-        jd.setJobSnapshot(jobSnapshot);
-        jobMap.addJobToMap(jobid, jd);
-        
-		metricsExporter.getStreamsMetric("jobCount", StreamsObjectType.INSTANCE, this.instanceInfo.getInstanceName()).set(jobMap.size());
+    public void addRefreshListener(StreamsInstanceRefreshListener listener) {
+        refreshListeners.add(listener);
+    }
 
+    public void removeRefreshListener(StreamsInstanceRefreshListener listener) {
+        refreshListeners.remove(listener);
     }
 
-    /***********************************************************
-     * Remove Job from job map
-     ***********************************************************/
 
-    private synchronized void removeJobFromMap(String jobid) {
-        LOGGER.trace("removeJobFromMap({})...", jobid);
 
-        jobMap.removeJobFromMap(jobid);
+    private void refreshAllJobs() {
+        if (jobMap != null) {
+            jobMap.refreshJobs();
+        }
+    }
 
-		metricsExporter.getStreamsMetric("jobCount", StreamsObjectType.INSTANCE, this.instanceInfo.getInstanceName()).set(jobMap.size());
-    }       
-    
     /********************************************************************************
      * updateAllJobSnapshots
      * 
@@ -614,18 +729,15 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         LOGGER.trace("***** Entered updateAllJobSnapshots, refreshFromServer {}",
                 refreshFromServer);
         
-        // Current Job IDs for use in determine missing jobs or jobs that need to be removed
-        Set<String> currentJobIds = null;
-        
         if (this.allJobSnapshots != null) {
             // Refresh Snapshots if requested
             if (refreshFromServer) {
                 try {
                     this.allJobSnapshots.refresh();
                 } catch (IOException e) {
-                    LOGGER.error("Updating all snapshots received IO Exception from JMX Connection Pool.  Resetting monitor.  Exception Message: "
+                    LOGGER.error("Updating all snapshots received IO Exception from JMX Connection Pool.  Degrading monitor.  Exception Message: "
                             + e.getLocalizedMessage());
-                    resetTracker();
+                    degradeTracker();
                 }
             }
 
@@ -633,49 +745,23 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
                 LOGGER.debug("updateAllJobSnapshots, isLastSnapshotRefreshFailed is true");
             } else {
                 // We retrieved them successfully
-                
-                    // Get currently tracked jobs
-                    currentJobIds = new HashSet<String>(jobMap.getJobIds());
-                    
-                    // Get the snapshot json
-                String allSnapshots = this.allJobSnapshots.getAllSnapshots();
+                // Get the snapshot json
+                String allSnapshots = this.allJobSnapshots.takeAllSnapshotsJson();
 
                 // Parse and update each jobInfo
                 if (allSnapshots != null) {
 
                     try {
+                        long parseStart = System.nanoTime();
                         JSONParser parser = new JSONParser();
                         JSONObject snapshotsObject = (JSONObject) parser
                                 .parse(allSnapshots);
-                        JSONArray jobArray = (JSONArray) snapshotsObject
-                                .get("jobs");
-
-                        for (int j = 0; j < jobArray.size(); j++) {
-                            JSONObject jobObject = (JSONObject) jobArray.get(j);
-                            String jobId = (String) jobObject.get("id");
-                            String jobname = (String) jobObject.get("name");
-                            JobDetails jd = jobMap.getJob(jobId);
-                            if (jd != null) {
-                                jd.setJobSnapshot(jobObject.toString());
-                                // Remove it from our set we are using to check for jobs no longer existing
-                                LOGGER.trace("Updated snapshot for jobId({}), removing from set used to track leftovers",jobId);
-                                currentJobIds.remove(jobId);
-
-                            } else {
-                                LOGGER.info("Adding new job({}): {}", jobId, jobname);
-                                addJobToMap(jobId,jobname,jobObject.toString());
-                            }
-                        }
-                        
-                        // Are there any jobs in the map that we did not get snapshots for?  Remove them
-                        if (!currentJobIds.isEmpty()) {
-                                LOGGER.trace("There are jobs in the job map that we did not receive a snapshot for, removing them...");
-                                for (String jobId : currentJobIds) {
-                                    LOGGER.warn("Removing JobId({})",jobId);
-                                    removeJobFromMap(jobId);
-                                }
-                        }
-                        
+                        refreshStatistics.recordParse(Payload.SNAPSHOTS, allSnapshots.length(), System.nanoTime() - parseStart);
+                        jobMap.updateSnapshots(snapshotsObject);
+
+                        metricsExporter.getStreamsMetric("jobCount", StreamsObjectType.INSTANCE,
+                                this.instanceInfo.getInstanceName()).set(jobMap.size());
+
                     } catch (Exception e) {
                         LOGGER.error("Exception Parsing Snapsnots JSON...exiting");
                         LOGGER.error(e.toString());
@@ -707,9 +793,9 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
                 try {
                     this.allJobMetrics.refresh();
                 } catch (IOException e) {
-                    LOGGER.error("Updating all metrics received IO Exception from JMX Connection Pool.  Resetting monitor.  Exception Message: "
+                    LOGGER.error("Updating all metrics received IO Exception from JMX Connection Pool.  Degrading monitor.  Exception Message: "
                             + e.getLocalizedMessage());
-                    resetTracker();
+                    degradeTracker();
                 }
             }
 
@@ -718,29 +804,18 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
 
             } else {
                 // We retrieved them successfully
-                String allMetrics = this.allJobMetrics.getAllMetrics();
+                String allMetrics = this.allJobMetrics.takeAllMetricsJson();
 
                 // Parse and update each jobInfo
                 if (allMetrics != null) {
 
                     try {
+                        long parseStart = System.nanoTime();
                         JSONParser parser = new JSONParser();
                         JSONObject metricsObject = (JSONObject) parser
                                 .parse(allMetrics);
-                        JSONArray jobArray = (JSONArray) metricsObject
-                                .get("jobs");
-                        for (int j = 0; j < jobArray.size(); j++) {
-                            JSONObject jobObject = (JSONObject) jobArray.get(j);
-                            String jobId = (String) jobObject.get("id");
-                            JobDetails jd = jobMap.getJob(jobId);
-                            if (jd != null) {
-                                jd.setJobMetrics(jobObject.toString());
-                            } else {
-                                LOGGER.warn(
-                                        "Received Metrics for jobId({}) that is not found in the current job map, should be rectified by updateAllSnapshots, if it persists, report an issue.",
-                                        jobId);
-                            }
-                        }
+                        refreshStatistics.recordParse(Payload.METRICS, allMetrics.length(), System.nanoTime() - parseStart);
+                        jobMap.updateMetrics(metricsObject);
                     } catch (Exception e) {
                         LOGGER.error("Exception Parsing Metrics JSON...exiting");
                         LOGGER.error(e.toString());
@@ -760,7 +835,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
     
     
     public boolean isInstanceAvailable() {
-        return this.instanceInfo.isInstanceAvailable();
+        return state.isInstanceAvailable();
     }
     
     
@@ -782,22 +857,25 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         return jmxContext;
     }
 
-    public synchronized boolean isAutoRefresh() {
-        return autoRefresh;
+    public int getRefreshRateSeconds() {
+        return refreshRateSeconds;
     }
 
-    public synchronized Long getInstanceResourceMetricsLastUpdated() {
-        return instanceResourceMetricsLastUpdated;
+    public boolean isAutoRefresh() {
+        return autoRefresh;
     }
 
-    public synchronized Map<String, String> getCurrentJobNameIndex() {
-        return jobMap.getCurrentJobNameIndex();
+    public Long getInstanceResourceMetricsLastUpdated() {
+        return state.getInstanceResourceMetricsLastUpdated();
     }
 
-    public synchronized InstanceInfo getInstanceInfo() {
-        //verifyInstanceExists();
+    public Map<String, String> getCurrentJobNameIndex() {
+        return state.getJobNameIndex();
+    }
 
-        return instanceInfo;
+    /* Published copy, the tracker keeps its working InstanceInfo to itself */
+    public InstanceInfo getInstanceInfo() {
+        return state.getInstanceInfo();
     }
 
     private void verifyInstanceExists() throws StreamsTrackerException {
@@ -814,12 +892,8 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         }
     }
 
-    public synchronized Map<String, Map<String, Long>> getInstanceResourceMetrics() throws StreamsTrackerException {
-        verifyInstanceExists();
-
-        synchronized (instanceResourceMetrics) {
-            return instanceResourceMetrics;
-        }
+    public Map<String, Map<String, Long>> getInstanceResourceMetrics() throws StreamsTrackerException {
+        return state.getInstanceResourceMetrics();
     }
 
     
@@ -830,6 +904,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         MXBeanSource beanSource = null;
         
         Map<String, Map<String, Long>> prevInstanceResourceMetrics = new HashMap<String, Map<String, Long>>(instanceResourceMetrics);
+        boolean retrieved = false;
                 
         try {
             beanSource = jmxContext.getBeanSourceProvider().getBeanSource();
@@ -848,6 +923,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
             }
             
             instanceResourceMetricsLastUpdated = System.currentTimeMillis();
+            retrieved = true;
 
 
             // Attempt to get resource status by retrieving each resourceMXBean
@@ -875,10 +951,26 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
 
 
 
+        }
+        catch (UndeclaredThrowableException e) {
+            if (!(e.getUndeclaredThrowable() instanceof JmxThrottledException)) {
+                throw e;
+            }
+            // Rate limited, not an error, keep the previous resource metrics (and status if they are new)
+            LOGGER.debug("Instance ({}) resource metrics retrieval throttled, keeping the previous values", this.instanceName);
+            if (!retrieved) {
+                return;
+            }
         }
         catch (MalformedURLException me) {
             throw new StreamsTrackerException("Invalid JMX URL when retrieving instance bean", me);
         }
+        catch (JmxThrottledException te) {
+            LOGGER.debug("Instance ({}) resource metrics retrieval throttled, keeping the previous values", this.instanceName);
+            if (!retrieved) {
+                return;
+            }
+        }
         catch (IOException ioe) {
             throw new StreamsTrackerException("JMX IO Exception when retrieving instance bean", ioe);
         }
@@ -901,42 +993,6 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
         }
     }
 
-    public synchronized AllJobMetrics getAllJobMetrics() throws StreamsTrackerException {
-
-        if ((this.instanceInfo == null)
-                || (!this.instanceInfo.isInstanceExists())) {
-            throw new StreamsTrackerException(
-                    StreamsTrackerErrorCode.ALL_METRICS_NOT_AVAILABLE,
-                    "The Streams instance "
-                            + this.instanceInfo.getInstanceName()
-                            + " does not exist.");
-        } else if (allJobMetrics == null) {
-            throw new StreamsTrackerException(
-                    StreamsTrackerErrorCode.ALL_METRICS_NOT_AVAILABLE,
-                    "The allJobMetrics object does not exist. Metrics have never been able to be retrieved.");
-        }
-
-        return allJobMetrics;
-    }
-    
-    public synchronized AllJobSnapshots getAllJobSnapshots() throws StreamsTrackerException {
-
-        if ((this.instanceInfo == null)
-                || (!this.instanceInfo.isInstanceExists())) {
-            throw new StreamsTrackerException(
-                    StreamsTrackerErrorCode.ALL_SNAPSHOTS_NOT_AVAILABLE,
-                    "The Streams instance "
-                            + this.instanceInfo.getInstanceName()
-                            + " does not exist.");
-        } else if (allJobMetrics == null) {
-            throw new StreamsTrackerException(
-                    StreamsTrackerErrorCode.ALL_SNAPSHOTS_NOT_AVAILABLE,
-                    "The allJobSnapshots object does not exist. Snapshots have never been able to be retrieved.");
-        }
-
-        return allJobSnapshots;
-    }    
-
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
@@ -971,7 +1027,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
     
     private void createExportedInstanceMetrics() {
         LOGGER.trace("createExportedInstanceMetrics...");
-        LOGGER.trace("  INSTANCE INFO: " + this.getInstanceInfo().toString());
+        LOGGER.trace("  INSTANCE INFO: " + this.instanceInfo.toString());
     	metricsExporter.createStreamsMetric("status", StreamsObjectType.INSTANCE, "Instance status, 1: running, .5: partially up, 0: stopped, failed, unknown");
     	metricsExporter.getStreamsMetric("status", StreamsObjectType.INSTANCE, this.instanceInfo.getInstanceName()).set(getInstanceStatusAsMetric());
     	metricsExporter.createStreamsMetric("health", StreamsObjectType.INSTANCE, "Instance health, 1: healthy, .5: partially healthy, 0: unhealthy, unknown");
@@ -1042,7 +1098,7 @@ public class StreamsInstanceTracker implements MXBeanSourceProviderListener {
 
     @Override
     public void beanSourceInterrupted(MXBeanSource bs) {
-        LOGGER.warn("*** Streams Instance Tracker BeanSource interrupted, resetting streamsInstanceTracker ...");
-        resetTracker();
+        LOGGER.warn("*** Streams Instance Tracker BeanSource interrupted, degrading streamsInstanceTracker until reconnect ...");
+        degradeTracker();
     }
 }
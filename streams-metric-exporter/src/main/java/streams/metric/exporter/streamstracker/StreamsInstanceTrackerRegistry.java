@@ -0,0 +1,224 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.Constants;
+import streams.metric.exporter.ServiceConfig;
+import streams.metric.exporter.error.StreamsTrackerErrorCode;
+import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.jmx.JmxServiceContext;
+
+/*
+ * StreamsInstanceTrackerRegistry
+ *  One StreamsInstanceTracker per configured Streams instance, all sharing
+ *  the JMX connection pool and web client of the JmxServiceContext.
+ *  Automatic refreshes run on one shared, bounded scheduler.  Each instance
+ *  has its own fixed rate schedule, offset so that instances do not all
+ *  refresh at the same moment.
+ *  Refresh listeners passed to initInstanceTrackers are attached before any
+ *  refresh is scheduled, so none of them misses the first one.
+ *  Usage: StreamsInstanceTrackerRegistry.initInstanceTrackers(param1, param2, param3, ...)
+ *         StreamsInstanceTrackerRegistry.getInstanceTracker(name)
+ *           throws exception if the trackers were not initalized yet
+ */
+public class StreamsInstanceTrackerRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger("root."
+            + StreamsInstanceTrackerRegistry.class.getName());
+
+    private static volatile Map<String, StreamsInstanceTracker> trackers = Collections.emptyMap();
+    private static ScheduledExecutorService refreshExecutor = null;
+    private static ServiceConfig config = null;
+    private static volatile boolean isInitialized = false;
+
+    private StreamsInstanceTrackerRegistry() {}
+
+    public static synchronized void initInstanceTrackers(
+            JmxServiceContext jmxContext, Set<String> instanceNames,
+            int refreshRateSeconds, String protocol, ServiceConfig serviceConfig,
+            List<StreamsInstanceRefreshListener> refreshListeners)
+            throws StreamsTrackerException {
+        if (isInitialized) {
+            LOGGER.warn("Re-Initializing StreamsInstanceTrackerRegistry");
+            shutdown();
+        }
+        config = serviceConfig;
+
+        Map<String, StreamsInstanceTracker> newTrackers = new LinkedHashMap<String, StreamsInstanceTracker>();
+        for (String instanceName : instanceNames) {
+            StreamsInstanceTracker tracker;
+            try {
+                tracker = new StreamsInstanceTracker(jmxContext,
+                        instanceName, refreshRateSeconds, protocol, serviceConfig);
+            } catch (StreamsTrackerException e) {
+                LOGGER.error("Initalization of StreamsInstanceTracker for instance {} FAILED!!", instanceName);
+                throw e;
+            }
+            // Before the trackers are published, an on-demand refresh could otherwise run without them
+            for (StreamsInstanceRefreshListener listener : refreshListeners) {
+                tracker.addRefreshListener(listener);
+            }
+            newTrackers.put(instanceName, tracker);
+        }
+        trackers = Collections.unmodifiableMap(newTrackers);
+        isInitialized = true;
+
+        if (refreshRateSeconds == Constants.NO_REFRESH) {
+            LOGGER.debug("Refresh rate set to NO_REFRESH, Refreshes will be on-demand, not automatic");
+            return;
+        }
+
+        int threads = Math.min(newTrackers.size(), Constants.MAX_REFRESH_THREADS);
+        LOGGER.debug("Refresh rate set to {}, scheduling {} instance(s) on {} refresh thread(s)",
+                refreshRateSeconds, newTrackers.size(), threads);
+        refreshExecutor = Executors.newScheduledThreadPool(threads, new RefresherThreadFactory());
+        long periodMs = refreshRateSeconds * 1000L;
+        long offsetMs = periodMs / newTrackers.size();
+        // First refresh right away (staggered) so the exporter becomes ready without waiting a full period
+        int i = 0;
+        for (final StreamsInstanceTracker tracker : newTrackers.values()) {
+            refreshExecutor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    LOGGER.debug("INSTANCE: Automatic refresh of metrics and snapshots...");
+                    try {
+                        tracker.refresh();
+                    } catch (RuntimeException e) {
+                        // Keep the schedule alive, the next refresh will reset the tracker if needed
+                        LOGGER.error("INSTANCE " + tracker.getInstanceInfo().getInstanceName()
+                                + " refresh failed with unexpected exception", e);
+                    }
+                }
+            }, i++ * offsetMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+        trackers = Collections.emptyMap();
+        isInitialized = false;
+    }
+
+    /* Save the warm start topology of every tracker, e.g. on shutdown */
+    public static void saveWarmStart() {
+        for (StreamsInstanceTracker tracker : trackers.values()) {
+            tracker.saveWarmStart();
+        }
+    }
+
+    // If refresh rate is 0 (NO_REFRESH) then perform a refresh.
+    public static StreamsInstanceTracker getInstanceTracker(String instanceName)
+            throws StreamsTrackerException {
+        verifyInitialized();
+        StreamsInstanceTracker tracker = trackers.get(instanceName);
+        if (tracker == null) {
+            throw new StreamsTrackerException(
+                    StreamsTrackerErrorCode.INSTANCE_NOT_FOUND,
+                    "The Streams instance " + instanceName + " is not tracked by this exporter.");
+        }
+        refreshOnDemand(tracker);
+        return tracker;
+    }
+
+    // The first configured instance, used by the single instance /instance paths
+    public static StreamsInstanceTracker getDefaultInstanceTracker()
+            throws StreamsTrackerException {
+        verifyInitialized();
+        StreamsInstanceTracker tracker = trackers.values().iterator().next();
+        refreshOnDemand(tracker);
+        return tracker;
+    }
+
+    // All trackers in configured order, refreshed first if refresh rate is 0 (NO_REFRESH)
+    public static Collection<StreamsInstanceTracker> getInstanceTrackers()
+            throws StreamsTrackerException {
+        verifyInitialized();
+        Collection<StreamsInstanceTracker> all = new ArrayList<StreamsInstanceTracker>(trackers.values());
+        for (StreamsInstanceTracker tracker : all) {
+            refreshOnDemand(tracker);
+        }
+        return all;
+    }
+
+    // All trackers in configured order without an on-demand refresh (e.g. for exporter self metrics)
+    public static Collection<StreamsInstanceTracker> getInstanceTrackersNoRefresh() {
+        return trackers.values();
+    }
+
+    public static boolean isInitialized() {
+        return isInitialized;
+    }
+
+    public static Set<String> getInstanceNames() {
+        return trackers.keySet();
+    }
+
+    public static ServiceConfig getConfig() {
+        return config;
+    }
+
+    /* Only sees refreshes that complete after it was added, see initInstanceTrackers */
+    public static void addRefreshListener(StreamsInstanceRefreshListener listener) {
+        for (StreamsInstanceTracker tracker : trackers.values()) {
+            tracker.addRefreshListener(listener);
+        }
+    }
+
+    private static void verifyInitialized() throws StreamsTrackerException {
+        if (!isInitialized || trackers.isEmpty()) {
+            LOGGER.warn("An attempt to retrieve a StreamsInstanceTracker was made before they were initialized");
+            throw new StreamsTrackerException(
+                    StreamsTrackerErrorCode.STREAMS_MONITOR_UNAVAILABLE,
+                    "StreamsInstanceTracker is not initialized");
+        }
+    }
+
+    private static void refreshOnDemand(StreamsInstanceTracker tracker) {
+        if (tracker.getRefreshRateSeconds() == Constants.NO_REFRESH) {
+            LOGGER.debug("INSTANCE: On-demand refresh of metrics and snapshots...");
+            tracker.refresh();
+        }
+    }
+
+    private static class RefresherThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            // Not a daemon, like the Timer it replaces this keeps the exporter running
+            return new Thread(r, "Refresher-" + count.incrementAndGet());
+        }
+    }
+}
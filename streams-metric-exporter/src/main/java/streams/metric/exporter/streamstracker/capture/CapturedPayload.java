@@ -0,0 +1,62 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker.capture;
+
+import streams.metric.exporter.streamstracker.RefreshStatistics.Payload;
+
+/*
+ * CapturedPayload
+ * One raw job snapshots or metrics payload read back from a capture, with the
+ * time it was retrieved and how long the JMX call and HTTP download took.
+ */
+public class CapturedPayload {
+
+    private final Payload type;
+    private final long timestamp;
+    private final long jmxNanos;
+    private final long httpNanos;
+    private final String payload;
+
+    public CapturedPayload(Payload type, long timestamp, long jmxNanos, long httpNanos, String payload) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.jmxNanos = jmxNanos;
+        this.httpNanos = httpNanos;
+        this.payload = payload;
+    }
+
+    public Payload getType() {
+        return type;
+    }
+
+    /* Milliseconds since the epoch when the payload was retrieved */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getJmxNanos() {
+        return jmxNanos;
+    }
+
+    public long getHttpNanos() {
+        return httpNanos;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,183 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.streamstracker.RefreshStatistics.Payload;
+
+/*
+ * PayloadCapture
+ * Records every raw job snapshots and metrics payload downloaded for one
+ * instance so a slow or misbehaving refresh can be replayed offline.
+ *
+ * Payloads are appended to gzip segment files (<sequence>.capture.gz) in the
+ * capture directory of the instance.  Each segment starts with a header
+ * (magic, version, instance name) followed by records of:
+ *   type, timestamp (ms), jmx call nanos, http download nanos, length, UTF-8 payload
+ * The stream is sync flushed after each record, so a segment cut short by a
+ * crash can still be read up to its last complete record.  A segment is
+ * closed once it reaches segmentBytes on disk and only the newest
+ * maxSegments are kept.
+ *
+ * Capture never fails a refresh, on an IO error it logs and turns itself off.
+ */
+public class PayloadCapture implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger("root." + PayloadCapture.class.getName());
+
+    static final int MAGIC = 0x53584350; // "SXCP"
+    static final int VERSION = 1;
+    static final String SUFFIX = ".capture.gz";
+
+    private final Path dir;
+    private final String instanceName;
+    private final long segmentBytes;
+    private final int maxSegments;
+
+    // sequence -> segment file, oldest first
+    private final TreeMap<Long, File> segments = new TreeMap<Long, File>();
+    private long nextSequence = 0;
+
+    private FileOutputStream segmentFile = null;
+    private DataOutputStream out = null;
+    private boolean disabled = false;
+    private long records = 0;
+
+    public PayloadCapture(Path dir, String instanceName, long segmentBytes, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.instanceName = instanceName;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(dir);
+        recover();
+        LOGGER.info("Capturing job snapshots and metrics payloads of instance {} to {}", instanceName, dir);
+    }
+
+    /* Segments from a previous run are kept, new ones continue the sequence */
+    private void recover() {
+        File[] files = dir.toFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            Long sequence = sequenceOf(f);
+            if (sequence != null) {
+                segments.put(sequence, f);
+                nextSequence = Math.max(nextSequence, sequence + 1);
+            }
+        }
+    }
+
+    static Long sequenceOf(File f) {
+        String name = f.getName();
+        if (!name.endsWith(SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring unexpected file in capture directory: {}", f);
+            return null;
+        }
+    }
+
+    public synchronized void record(Payload type, long timestamp, long jmxNanos, long httpNanos, String payload) {
+        if (disabled || payload == null) {
+            return;
+        }
+        try {
+            if (out == null) {
+                openSegment();
+            }
+            byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+            out.writeUTF(type.name());
+            out.writeLong(timestamp);
+            out.writeLong(jmxNanos);
+            out.writeLong(httpNanos);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+            records++;
+            if (segmentFile.getChannel().size() >= segmentBytes) {
+                closeSegment();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Capture of instance {} payloads to {} failed, capture is turned off: {}",
+                    instanceName, dir, e.getMessage());
+            disabled = true;
+            closeQuietly();
+        }
+    }
+
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() {
+        disabled = true;
+        closeQuietly();
+    }
+
+    private void openSegment() throws IOException {
+        long sequence = nextSequence++;
+        File file = dir.resolve(sequence + SUFFIX).toFile();
+        segmentFile = new FileOutputStream(file);
+        out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(segmentFile, 64 * 1024, true)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(instanceName);
+        segments.put(sequence, file);
+        while (segments.size() > maxSegments) {
+            File oldest = segments.pollFirstEntry().getValue();
+            LOGGER.debug("Capture of instance {} has {} segments, deleting oldest {}", instanceName, maxSegments, oldest);
+            if (!oldest.delete()) {
+                LOGGER.warn("Could not delete capture segment {}", oldest);
+            }
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        DataOutputStream closing = out;
+        out = null;
+        segmentFile = null;
+        closing.close();
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                closeSegment();
+            } catch (IOException e) {
+                LOGGER.debug("Error closing capture segment: {}", e.getMessage());
+            }
+        }
+    }
+}
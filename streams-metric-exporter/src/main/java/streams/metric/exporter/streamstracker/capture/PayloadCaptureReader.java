@@ -0,0 +1,148 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import streams.metric.exporter.streamstracker.RefreshStatistics.Payload;
+
+/*
+ * PayloadCaptureReader
+ * Reads the payloads written by PayloadCapture back in the order they were
+ * recorded.  The path may be the capture directory of one instance (all
+ * segments are read oldest first) or a single segment file.  A segment that
+ * ends part way through a record (the exporter was stopped while writing)
+ * is read up to its last complete record.
+ */
+public class PayloadCaptureReader implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger("root." + PayloadCaptureReader.class.getName());
+
+    private final Deque<File> remaining = new ArrayDeque<File>();
+    private DataInputStream in = null;
+    private File current = null;
+    private String instanceName = null;
+
+    public PayloadCaptureReader(Path path) throws IOException {
+        File file = path.toFile();
+        if (file.isDirectory()) {
+            TreeMap<Long, File> segments = new TreeMap<Long, File>();
+            File[] files = file.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    Long sequence = PayloadCapture.sequenceOf(f);
+                    if (sequence != null) {
+                        segments.put(sequence, f);
+                    }
+                }
+            }
+            remaining.addAll(segments.values());
+        } else if (file.isFile()) {
+            remaining.add(file);
+        } else {
+            throw new IOException("Capture " + path + " does not exist");
+        }
+        if (remaining.isEmpty()) {
+            throw new IOException("Capture directory " + path + " has no " + PayloadCapture.SUFFIX + " segments");
+        }
+    }
+
+    /* Instance name from the first segment header, null until next() has opened a segment */
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    /* Returns the next payload or null when the capture is exhausted */
+    public CapturedPayload next() throws IOException {
+        while (true) {
+            if (in == null && !openNextSegment()) {
+                return null;
+            }
+            try {
+                Payload type = Payload.valueOf(in.readUTF());
+                long timestamp = in.readLong();
+                long jmxNanos = in.readLong();
+                long httpNanos = in.readLong();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new CapturedPayload(type, timestamp, jmxNanos, httpNanos,
+                        new String(bytes, StandardCharsets.UTF_8));
+            } catch (EOFException e) {
+                // End of this segment, either clean or cut short
+                closeSegment();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        remaining.clear();
+        closeSegment();
+    }
+
+    private boolean openNextSegment() throws IOException {
+        while (!remaining.isEmpty()) {
+            current = remaining.poll();
+            FileInputStream file = new FileInputStream(current);
+            try {
+                in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file, 64 * 1024)));
+                if (in.readInt() != PayloadCapture.MAGIC) {
+                    closeSegment();
+                    throw new IOException(current + " is not a payload capture segment");
+                }
+                int version = in.readInt();
+                if (version != PayloadCapture.VERSION) {
+                    closeSegment();
+                    throw new IOException(current + " has unsupported capture version " + version);
+                }
+                String segmentInstance = in.readUTF();
+                if (instanceName == null) {
+                    instanceName = segmentInstance;
+                }
+                LOGGER.debug("Reading capture segment {}", current);
+                return true;
+            } catch (EOFException e) {
+                LOGGER.debug("Skipping empty capture segment {}", current);
+                file.close();
+                closeSegment();
+            }
+        }
+        return false;
+    }
+
+    private void closeSegment() throws IOException {
+        if (in != null) {
+            DataInputStream closing = in;
+            in = null;
+            closing.close();
+        }
+    }
+}
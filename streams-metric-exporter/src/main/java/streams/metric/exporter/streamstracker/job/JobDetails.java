@@ -16,25 +16,21 @@
 
 package streams.metric.exporter.streamstracker.job;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 import com.ibm.streams.management.job.JobMXBean;
 import com.ibm.streams.management.job.PeMXBean;
 
+import streams.metric.exporter.metrics.LabelValueInterner;
 import streams.metric.exporter.metrics.MetricsExporter;
 import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
-import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporters;
 import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
 
-/* Job Details including map of port names so metrics can have names for ports rather than just ids */
+/* Job Details, typed topology of the last snapshot is used to give metrics names for ports rather than just ids */
 public class JobDetails {
 	private static final Logger LOGGER = LoggerFactory.getLogger("root." + StreamsInstanceTracker.class.getName());
 
@@ -48,131 +44,108 @@ public class JobDetails {
 	private String jobname = null;
 	//private long submitTime = 0;
 
+	/* Built when the snapshot changes, null until the first snapshot */
+	private JobTopology topology = null;
+	private int snapshotHash = 0;
+	/* Topology was loaded at warm start and has not been checked against a snapshot yet */
+	private boolean warmTopology = false;
+
+	/* Metrics of the current refresh, released once processed */
+	private JSONObject pendingMetrics = null;
+
+	/* Raw json is only retained for toString() when asked for (--retainrawjson), it is large */
+	private static volatile boolean retainRawJson = false;
 	private String jobSnapshot = null;
 	private String jobMetrics = null;
 
-	private final Map<String, Map<String, String>> peInfoMap = new HashMap<String, Map<String, String>>();
-	private final Map<String, String> operatorKindMap = new HashMap<String, String>();
-	// port maps <operatorname, map<indexWithinOperator,portname>>
-	private final Map<String, Map<Long, String>> operatorInputPortNames = new HashMap<String, Map<Long, String>>();
-	private final Map<String, Map<Long, String>> operatorOutputPortNames = new HashMap<String, Map<Long, String>>();
-
 		/* Metrics Exporter*/
-	/* Temporary solution: always use Prometheus exporter */
-	/* Future: Make this pluggable, add Elasticsearch exporter */
-	private MetricsExporter metricsExporter = PrometheusMetricsExporter.getInstance();
+	/* Prometheus plus any additional exporters (e.g. Elasticsearch) */
+	private MetricsExporter metricsExporter = MetricsExporters.getExporter();
 
 	
 	public JobDetails(StreamsInstanceTracker monitor, String jobid, String jobname) {
+		this(monitor.getInstanceInfo().getInstanceName(), jobid, jobname);
+	}
+
+	/* Only the instance name is needed, this allows job details without a tracker (e.g. benchmarks) */
+	public JobDetails(String streamsInstanceName, String jobid, String jobname) {
 		LOGGER.trace("jobDetails constructor: jobid {}, jobname {}",jobid,jobname);
 		//this.monitor = monitor;
 		//this.config = monitor.getConfig();
 
-		this.streamsInstanceName = monitor.getInstanceInfo().getInstanceName();
+		this.streamsInstanceName = streamsInstanceName;
 
 		setJobid(jobid);
-		setJobname(jobname);
+		setJobname(LabelValueInterner.intern(jobname));
 		//setStatus(JobMXBean.Status.UNKNOWN);
-		setJobMetrics(null);
-		setJobSnapshot(null);
 
 		createExportedMetrics();
 	}
 	
-	// Called by Instance to pass in snapshot and metrics to update exported metrics
-	public void refresh(String jobSnapshot, String jobMetrics) {
+	// Called by Instance once the snapshot and metrics of this refresh are set to update exported metrics
+	public void refresh() {
 		LOGGER.trace("refresh job: {}", this.jobname);
 
-		// Remove old metrics in case things moved around and new labels for things like resource are required
-		this.removeExportedMetrics();
-		this.createExportedMetrics();
+		// Series are updated in place.  Those not set again (the pe, operator or port is gone, the pe
+		// moved to another resource or is not healthy) are swept afterwards, rather than removing
+		// and re-creating every series of the job
+		long mark = MetricsExporter.nextSweepMark();
 
-		setJobSnapshot(jobSnapshot);
-		setJobMetrics(jobMetrics);
+		// Without new metrics (failed or throttled metrics refresh) nothing would be set again,
+		// keep the last values rather than sweeping every series of the job
+		boolean sweep = (pendingMetrics != null && topology != null);
 
-		this.processSnapshot(jobSnapshot);
-		this.processMetrics(jobMetrics);
+		this.processSnapshot();
+		this.processMetrics(pendingMetrics);
+		pendingMetrics = null;
+
+		if (sweep) {
+			metricsExporter.removeStaleChildStreamsMetrics(mark, this.streamsInstanceName, this.jobname);
+		}
 	}
 
-	// Create Mappings for Metric Lookup and Snapshot based metrics
-	private void processSnapshot(String jobSnapshot) {
+	// Set snapshot based metrics from the topology
+	private void processSnapshot() {
 		LOGGER.trace("processSnapshot job: {}", this.jobname);
 
-		// clear maps
-		peInfoMap.clear();
-		operatorKindMap.clear();
-		operatorInputPortNames.clear();
-		operatorOutputPortNames.clear();
-
-		if (jobSnapshot != null) {
-
-			JSONParser parser = new JSONParser();
-			try {
-				JSONObject snapshotObject = (JSONObject) parser.parse(jobSnapshot);
-
-				String instance = (String)snapshotObject.get("instance");
-				String status = (String)snapshotObject.get("status");
-				String health = (String)snapshotObject.get("health");
-				String jobname = (String)snapshotObject.get("name");
-				Long submitTime = (Long)snapshotObject.get("submitTime");
-
-				this.instance = instance;
-				this.status = status;
-				this.health = health;
-				this.jobname = jobname;
-
-				metricsExporter.getStreamsMetric("submitTime", StreamsObjectType.JOB, instance, jobname).set(submitTime);
-				metricsExporter.getStreamsMetric("healthy", StreamsObjectType.JOB, instance, jobname).set(getHealthAsMetric(health));
-				metricsExporter.getStreamsMetric("health", StreamsObjectType.JOB, instance, jobname).set(getHealthAsMetric(health));
-				metricsExporter.getStreamsMetric("status", StreamsObjectType.JOB, instance, jobname).set(getStatusAsMetric(status));
-
-				JSONArray peArray = (JSONArray) snapshotObject.get("pes");
-				
-				/* PE Loop */
-				for (int i = 0; i < peArray.size(); i++) {
-					JSONObject pe = (JSONObject) peArray.get(i);
-
-					String peid = (String)pe.get("id");
-					String resource = (String)pe.get("resource");
-					String pestatus = (String)pe.get("status");
-					String pehealth = (String)pe.get("health");
-					long launchCount = (long)pe.get("launchCount");
-
-
-					// Capture peInfo for metrics
-					HashMap<String, String> peInfo = new HashMap<String, String>();
-					peInfo.put("status",(String)pe.get("status"));
-					peInfo.put("health",(String)pe.get("health"));
-					peInfo.put("resource",(String)pe.get("resource"));
-					peInfoMap.put(peid, peInfo);
-
-					mapOperatorKindAndPortNames(pe);
-
-					metricsExporter.getStreamsMetric("status",
-							StreamsObjectType.PE,
-							instance,
-							jobname,
-							resource,
-							peid).set(getPEStatusAsMetric(pestatus));	
-
-					metricsExporter.getStreamsMetric("health",
-							StreamsObjectType.PE,
-							instance,
-							jobname,
-							resource,
-							peid).set(getPEHealthAsMetric(pehealth));	
-							
-					metricsExporter.getStreamsMetric("launchCount",
-							StreamsObjectType.PE,
-							instance,
-							jobname,
-							resource,
-							peid).set(launchCount);	
-				} // End pe loop
-			} catch (ParseException e) {
-				throw new IllegalStateException(e);
-			}
-		} // end if snapshot != null
+		// Status and health of a warm start topology may be out of date, wait for the snapshot
+		if (topology != null && !warmTopology) {
+			String instance = topology.getInstance();
+			String jobname = topology.getName();
+			String status = topology.getStatus();
+			String health = topology.getHealth();
+
+			metricsExporter.getStreamsMetric("submitTime", StreamsObjectType.JOB, instance, jobname).set(topology.getSubmitTime());
+			metricsExporter.getStreamsMetric("healthy", StreamsObjectType.JOB, instance, jobname).set(getHealthAsMetric(health));
+			metricsExporter.getStreamsMetric("health", StreamsObjectType.JOB, instance, jobname).set(getHealthAsMetric(health));
+			metricsExporter.getStreamsMetric("status", StreamsObjectType.JOB, instance, jobname).set(getStatusAsMetric(status));
+
+			/* PE Loop */
+			for (int i = 0; i < topology.getPeCount(); i++) {
+				JobTopology.Pe pe = topology.getPe(i);
+
+				metricsExporter.getStreamsMetric("status",
+						StreamsObjectType.PE,
+						instance,
+						jobname,
+						pe.getResource(),
+						pe.getId()).set(getPEStatusAsMetric(pe.getStatus()));	
+
+				metricsExporter.getStreamsMetric("health",
+						StreamsObjectType.PE,
+						instance,
+						jobname,
+						pe.getResource(),
+						pe.getId()).set(getPEHealthAsMetric(pe.getHealth()));	
+						
+				metricsExporter.getStreamsMetric("launchCount",
+						StreamsObjectType.PE,
+						instance,
+						jobname,
+						pe.getResource(),
+						pe.getId()).set(pe.getLaunchCount());	
+			} // End pe loop
+		} // end if topology != null
 	}
 
 	/* Stop/unregister anything you need to */
@@ -180,12 +153,17 @@ public class JobDetails {
 		removeExportedMetrics();
 	}
 
+	public static void setRetainRawJson(boolean retain) {
+		retainRawJson = retain;
+	}
+
 	public String getJobMetrics() {
 		return this.jobMetrics;
 	}
 
-	public void setJobMetrics(String jobMetrics) {
-		this.jobMetrics = jobMetrics;
+	public void setJobMetrics(JSONObject jobMetrics) {
+		this.pendingMetrics = jobMetrics;
+		this.jobMetrics = (jobMetrics != null && retainRawJson ? jobMetrics.toJSONString() : null);
 	}
 
 	public String getJobid() {
@@ -201,8 +179,53 @@ public class JobDetails {
 		return jobSnapshot;
 	}
 
-	public void setJobSnapshot(String jobSnapshot) {
-		this.jobSnapshot = jobSnapshot;
+	/* Rebuilds the topology only when the snapshot content changed */
+	public void setJobSnapshot(JSONObject jobSnapshot) {
+		if (jobSnapshot == null) {
+			this.topology = null;
+			this.snapshotHash = 0;
+			this.jobSnapshot = null;
+			return;
+		}
+		int hash = jobSnapshot.hashCode();
+		if (topology == null || hash != snapshotHash) {
+			LOGGER.trace("Snapshot of job {} changed, rebuilding topology", this.jobname);
+			setTopology(JobTopology.fromSnapshot(jobSnapshot), hash);
+		} else if (warmTopology) {
+			LOGGER.trace("Warm start topology of job {} matches the snapshot", this.jobname);
+		}
+		this.warmTopology = false;
+		this.jobSnapshot = (retainRawJson ? jobSnapshot.toJSONString() : null);
+	}
+
+	/*
+	 * Topology persisted by a previous run, used to label metrics until the
+	 * first snapshot.  If that snapshot hashes the same the topology is kept.
+	 */
+	public void setWarmTopology(JobTopology topology, int snapshotHash) {
+		setTopology(topology, snapshotHash);
+		this.warmTopology = true;
+	}
+
+	public boolean isWarmTopology() {
+		return warmTopology;
+	}
+
+	int getSnapshotHash() {
+		return snapshotHash;
+	}
+
+	private void setTopology(JobTopology topology, int snapshotHash) {
+		this.topology = topology;
+		this.snapshotHash = snapshotHash;
+		this.instance = topology.getInstance();
+		this.status = topology.getStatus();
+		this.health = topology.getHealth();
+		this.jobname = topology.getName();
+	}
+
+	public JobTopology getTopology() {
+		return topology;
 	}
 
 	public String getInstance() {
@@ -244,56 +267,12 @@ public class JobDetails {
 		// String newline = System.getProperty("line.separator");
 		result.append("Job id: " + this.getJobid());
 		result.append("Job name: " + this.getJobname());
-		result.append(" Metrics: " + this.getJobMetrics());
-		result.append(" Snapshot: " + this.getJobSnapshot());
-		return result.toString();
-	}
-
-/*****************************************************************
- * Create Maps for easy reference when processing metrics
- * Some information is only found in the snapshot json
- *****************************************************************/
-
-	private void mapOperatorKindAndPortNames(JSONObject peObject) {
-
-		JSONArray operatorArray = (JSONArray) peObject.get("operators");
-		
-		/* Operator Loop */
-		for (int i = 0; i < operatorArray.size(); i++) {
-			JSONObject operator = (JSONObject) operatorArray.get(i);
-			String operatorName = (String)operator.get("name");
-			String operatorKind = (String)operator.get("operatorKind");
-			operatorKindMap.put(operatorName,operatorKind);
-			mapOperatorInputPortNames(operator, operatorName);
-			mapOperatorOutputPortNames(operator, operatorName);
-		}
-	}
-
-	// port maps <operatorname, map<indexWithinOperator,portname>>
-	private void mapOperatorInputPortNames(JSONObject operator, String operatorName) {
-		JSONArray inputPortsArray = (JSONArray) operator.get("inputPorts");
-		Map<Long,String> inputPortNames = new HashMap<Long,String>();
-
-		for (int i = 0; i < inputPortsArray.size(); i++) {
-			JSONObject ip = (JSONObject) inputPortsArray.get(i);
-			Long indexWithinOperator = (Long)ip.get("indexWithinOperator");
-			String inputPortName = (String)ip.get("name");
-			inputPortNames.put(indexWithinOperator,inputPortName);
-		}
-		operatorInputPortNames.put(operatorName,inputPortNames);
-	}
-
-	private void mapOperatorOutputPortNames(JSONObject operator, String operatorName) {
-		JSONArray outputPortsArray = (JSONArray) operator.get("outputPorts");
-		Map<Long,String> outputPortNames = new HashMap<Long,String>();
-
-		for (int i = 0; i < outputPortsArray.size(); i++) {
-			JSONObject ip = (JSONObject) outputPortsArray.get(i);
-			Long indexWithinOperator = (Long)ip.get("indexWithinOperator");
-			String outputPortName = (String)ip.get("name");
-			outputPortNames.put(indexWithinOperator,outputPortName);
+		result.append(" Pes: " + (topology != null ? topology.getPeCount() : 0));
+		if (retainRawJson) {
+			result.append(" Metrics: " + this.getJobMetrics());
+			result.append(" Snapshot: " + this.getJobSnapshot());
 		}
-		operatorOutputPortNames.put(operatorName,outputPortNames);
+		return result.toString();
 	}
 
 	private void createExportedMetrics() {
@@ -328,225 +307,225 @@ public class JobDetails {
 	}
 
 
-	private void processMetrics(String jobMetrics) {
+	private void processMetrics(JSONObject metricsObject) {
 		LOGGER.trace("processMetrics job: {}", this.jobname);
 		
-		if (jobMetrics != null) {
-			JSONParser parser = new JSONParser();
-			try {
-				JSONObject metricsObject = (JSONObject) parser.parse(this.jobMetrics);
-				JSONArray peArray = (JSONArray) metricsObject.get("pes");
-				
-				// Job Metrics 
-				long ncpu = 0, nrmc = 0, nmc = 0;
-				long numconnections = 0, totalcongestion = 0, curcongestion = 0;
-				long maxcongestion = 0 , avgcongestion = 0, mincongestion = 999;
-
-				// PE Loop 
-				for (int i = 0; i < peArray.size(); i++) {
-					JSONObject pe = (JSONObject) peArray.get(i);
-					String peid = (String)pe.get("id");
-
-					// Get info from peInfoMap
-					Map<String,String> peInfo = peInfoMap.get(peid);
-
-					String health = peInfo.get("health");
-					String resource = peInfo.get("resource");
-
-					// If the PE is not healthy, then its resource may not be correct while it is being
-					// relocated, and we cannot create / update those metrics
-					if (!health.equalsIgnoreCase("healthy")) {
-						LOGGER.info("Job ({}: {}) Metrics, pe: " + peid + " is NOT healthy, NOT setting metrics",this.jobid,this.jobname);
-						continue; // skip to next pe in loop
+		if (metricsObject != null && topology != null) {
+			JSONArray peArray = (JSONArray) metricsObject.get("pes");
+			
+			// Job Metrics 
+			long ncpu = 0, nrmc = 0, nmc = 0;
+			long numconnections = 0, totalcongestion = 0, curcongestion = 0;
+			long maxcongestion = 0 , avgcongestion = 0, mincongestion = 999;
+
+			// PE Loop 
+			for (int i = 0; i < peArray.size(); i++) {
+				JSONObject pe = (JSONObject) peArray.get(i);
+				JobTopology.Pe peTopology = topology.getPe((String)pe.get("id"));
+				if (peTopology == null) {
+					LOGGER.debug("Job ({}: {}) Metrics, pe: {} is not in the snapshot yet, NOT setting metrics",this.jobid,this.jobname,pe.get("id"));
+					continue; // skip to next pe in loop
+				}
+
+				String peid = peTopology.getId();
+				String health = peTopology.getHealth();
+				String resource = peTopology.getResource();
+
+				// If the PE is not healthy, then its resource may not be correct while it is being
+				// relocated, and we cannot create / update those metrics
+				if (!health.equalsIgnoreCase("healthy")) {
+					LOGGER.info("Job ({}: {}) Metrics, pe: " + peid + " is NOT healthy, NOT setting metrics",this.jobid,this.jobname);
+					continue; // skip to next pe in loop
+				}
+
+				JSONArray peMetricsArray = (JSONArray) pe.get("metrics");
+				/* PE Metrics Loop */
+				for (int j = 0; j < peMetricsArray.size(); j++) {
+					JSONObject metric = (JSONObject) peMetricsArray.get(j);
+					String metricName = (String)metric.get("name");
+					switch (metricName) {
+					case "nCpuMilliseconds":
+						ncpu += (long)metric.get("value");
+						break;
+					case "nResidentMemoryConsumption":
+						nrmc += (long)metric.get("value");
+						break;
+					case "nMemoryConsumption":
+						nmc += (long)metric.get("value");
+						break;
 					}
-
-					JSONArray peMetricsArray = (JSONArray) pe.get("metrics");
-					/* PE Metrics Loop */
-					for (int j = 0; j < peMetricsArray.size(); j++) {
-						JSONObject metric = (JSONObject) peMetricsArray.get(j);
+					metricsExporter.getStreamsMetric(metricName,
+							StreamsObjectType.PE,
+							this.streamsInstanceName,
+							this.jobname,
+							resource,
+							peid).set((long)metric.get("value"));
+				}
+				
+				/* PE inputPorts Loop */
+				JSONArray inputPorts = (JSONArray) pe.get("inputPorts");
+				for (int portnum = 0; portnum < inputPorts.size(); portnum++) {
+					JSONObject port = (JSONObject)inputPorts.get(portnum);
+					String indexWithinPE = peTopology.getInputPortLabel((long)port.get("indexWithinPE"));
+					JSONArray metricsArray = (JSONArray) port.get("metrics");
+					for (int m = 0; m < metricsArray.size(); m++) {
+						JSONObject metric = (JSONObject) metricsArray.get(m);
 						String metricName = (String)metric.get("name");
-						switch (metricName) {
-						case "nCpuMilliseconds":
-							ncpu += (long)metric.get("value");
-							break;
-						case "nResidentMemoryConsumption":
-							nrmc += (long)metric.get("value");
-							break;
-						case "nMemoryConsumption":
-							nmc += (long)metric.get("value");
-							break;
-						}
 						metricsExporter.getStreamsMetric(metricName,
-								StreamsObjectType.PE,
+								StreamsObjectType.PE_INPUTPORT,
 								this.streamsInstanceName,
 								this.jobname,
 								resource,
-								peid).set((long)metric.get("value"));
-					}
+								peid,
+								indexWithinPE).set((long)metric.get("value"));
+					}	// End PE Input Ports Metrics Loop		
+				} // End PE inputPorts loop			
+								
+				/* PE outputPorts Loop */
+				JSONArray outputPorts = (JSONArray) pe.get("outputPorts");
+				for (int portnum = 0; portnum < outputPorts.size(); portnum++) {
+					JSONObject port = (JSONObject)outputPorts.get(portnum);
 					
-					/* PE inputPorts Loop */
-					JSONArray inputPorts = (JSONArray) pe.get("inputPorts");
-					for (int portnum = 0; portnum < inputPorts.size(); portnum++) {
-						JSONObject port = (JSONObject)inputPorts.get(portnum);
-						String indexWithinPE = Long.toString((long)port.get("indexWithinPE"));
-						JSONArray metricsArray = (JSONArray) port.get("metrics");
-						for (int m = 0; m < metricsArray.size(); m++) {
-							JSONObject metric = (JSONObject) metricsArray.get(m);
+					long portIndex = (long)port.get("indexWithinPE");
+					String indexWithinPE = peTopology.getOutputPortLabel(portIndex);
+					JSONArray metricsArray = (JSONArray) port.get("metrics");
+					for (int m = 0; m < metricsArray.size(); m++) {
+						JSONObject metric = (JSONObject) metricsArray.get(m);
+						String metricName = (String)metric.get("name");
+						metricsExporter.getStreamsMetric(metricName,
+								StreamsObjectType.PE_OUTPUTPORT,
+								this.streamsInstanceName,
+								this.jobname,
+								resource,
+								peid,
+								indexWithinPE).set((long)metric.get("value"));
+					}	// End PE Output Ports Metrics Loop		
+					
+					
+					/* PE outputPorts Connections Loop */
+					JSONArray connections = (JSONArray) port.get("connections");
+					for (int con = 0; con < connections.size(); con++) {
+						numconnections++;
+						JSONObject connection = (JSONObject)connections.get(con);
+						String connectionId = peTopology.getConnectionId(portIndex, (String)connection.get("id"));
+						JSONArray cMetricsArray = (JSONArray) connection.get("metrics");
+						for (int m = 0; m < cMetricsArray.size(); m++) {
+							JSONObject metric = (JSONObject) cMetricsArray.get(m);
 							String metricName = (String)metric.get("name");
+							switch (metricName) {
+							case "congestionFactor":
+								curcongestion = (long)metric.get("value");
+								totalcongestion += curcongestion;
+								if (curcongestion > maxcongestion) maxcongestion = curcongestion;
+								if (curcongestion < mincongestion) mincongestion = curcongestion;
+							}
 							metricsExporter.getStreamsMetric(metricName,
-									StreamsObjectType.PE_INPUTPORT,
+									StreamsObjectType.PE_OUTPUTPORT_CONNECTION,
 									this.streamsInstanceName,
 									this.jobname,
 									resource,
 									peid,
-									indexWithinPE).set((long)metric.get("value"));
-						}	// End PE Input Ports Metrics Loop		
-					} // End PE inputPorts loop			
-									
-					/* PE outputPorts Loop */
-					JSONArray outputPorts = (JSONArray) pe.get("outputPorts");
-					for (int portnum = 0; portnum < outputPorts.size(); portnum++) {
-						JSONObject port = (JSONObject)outputPorts.get(portnum);
-						
-						String indexWithinPE = Long.toString((long)port.get("indexWithinPE"));
-						JSONArray metricsArray = (JSONArray) port.get("metrics");
-						for (int m = 0; m < metricsArray.size(); m++) {
-							JSONObject metric = (JSONObject) metricsArray.get(m);
-							String metricName = (String)metric.get("name");
-							metricsExporter.getStreamsMetric(metricName,
-									StreamsObjectType.PE_OUTPUTPORT,
+									indexWithinPE,
+									connectionId).set((long)metric.get("value"));								
+						}
+					} // End PE outputPort Connectdions Loop
+				} // End PE outputPort loop
+
+				/* PE operator Loop */
+				JSONArray operatorArray = (JSONArray)pe.get("operators");
+				for (int op = 0; op < operatorArray.size(); op++) {
+					JSONObject operator = (JSONObject) operatorArray.get(op);
+					JobTopology.Operator operatorTopology = peTopology.getOperator((String)operator.get("name"));
+					if (operatorTopology == null) {
+						LOGGER.debug("Job ({}: {}) Metrics, operator: {} is not in the snapshot yet, NOT setting metrics",this.jobid,this.jobname,operator.get("name"));
+						continue; // skip to next operator in loop
+					}
+					String operatorName = operatorTopology.getName();
+					String operatorKind = operatorTopology.getKind();
+					JSONArray opMetricsArray = (JSONArray) operator.get("metrics");
+
+					/* Operator Metrics Loop, these are non-standard metrics */
+					for (int om = 0; om < opMetricsArray.size(); om++) {
+						JSONObject metric = (JSONObject) opMetricsArray.get(om);
+						String operatorMetricName = (String)metric.get("name");
+						switch (operatorMetricName) {
+						default:
+							metricsExporter.getStreamsMetric(operatorMetricName,
+									StreamsObjectType.OPERATOR,
 									this.streamsInstanceName,
 									this.jobname,
 									resource,
 									peid,
-									indexWithinPE).set((long)metric.get("value"));
-						}	// End PE Output Ports Metrics Loop		
-						
-						
-						/* PE outputPorts Connections Loop */
-						JSONArray connections = (JSONArray) port.get("connections");
-						for (int con = 0; con < connections.size(); con++) {
-							numconnections++;
-							JSONObject connection = (JSONObject)connections.get(con);
-							String connectionId = (String)connection.get("id");
-							JSONArray cMetricsArray = (JSONArray) connection.get("metrics");
-							for (int m = 0; m < cMetricsArray.size(); m++) {
-								JSONObject metric = (JSONObject) cMetricsArray.get(m);
-								String metricName = (String)metric.get("name");
-								switch (metricName) {
-								case "congestionFactor":
-									curcongestion = (long)metric.get("value");
-									totalcongestion += curcongestion;
-									if (curcongestion > maxcongestion) maxcongestion = curcongestion;
-									if (curcongestion < mincongestion) mincongestion = curcongestion;
-								}
+									operatorName,
+									operatorKind).set((long)metric.get("value"));
+							break;
+						}
+					}	// End Operator Metrics Loop		
+					
+					// Loop over Operator Input Ports
+					JSONArray opipArray = (JSONArray) operator.get("inputPorts");
+					for (int opip = 0; opip < opipArray.size(); opip++) {
+						JSONObject inputPort = (JSONObject)opipArray.get(opip);
+						String inputPortName = operatorTopology.getInputPortName((long)inputPort.get("indexWithinOperator"));
+						JSONArray ipMetrics = (JSONArray)inputPort.get("metrics");
+						for (int opipm = 0; opipm < ipMetrics.size(); opipm++) {
+							JSONObject metric = (JSONObject) ipMetrics.get(opipm);
+							String metricName = (String)metric.get("name");
+							switch (metricName) {
+							default:
 								metricsExporter.getStreamsMetric(metricName,
-										StreamsObjectType.PE_OUTPUTPORT_CONNECTION,
+										StreamsObjectType.OPERATOR_INPUTPORT,
 										this.streamsInstanceName,
 										this.jobname,
 										resource,
 										peid,
-										indexWithinPE,
-										connectionId).set((long)metric.get("value"));								
+										operatorName,
+										operatorKind,
+										inputPortName).set((long)metric.get("value"));
+								break;
 							}
-						} // End PE outputPort Connectdions Loop
-					} // End PE outputPort loop
-
-					/* PE operator Loop */
-					JSONArray operatorArray = (JSONArray)pe.get("operators");
-					for (int op = 0; op < operatorArray.size(); op++) {
-						JSONObject operator = (JSONObject) operatorArray.get(op);
-						String operatorName = (String)operator.get("name");
-						String operatorKind = this.operatorKindMap.get(operatorName);
-						JSONArray opMetricsArray = (JSONArray) operator.get("metrics");
-
-						/* Operator Metrics Loop, these are non-standard metrics */
-						for (int om = 0; om < opMetricsArray.size(); om++) {
-							JSONObject metric = (JSONObject) opMetricsArray.get(om);
-							String operatorMetricName = (String)metric.get("name");
-							switch (operatorMetricName) {
+						} // End Input Port Metrics Loop
+					} // End Operator Input Port Loop
+
+					// Loop over Operator Output Ports
+					JSONArray opopArray = (JSONArray) operator.get("outputPorts");
+					for (int opop = 0; opop < opopArray.size(); opop++) {
+						JSONObject outputPort = (JSONObject)opopArray.get(opop);
+						String outputPortName = operatorTopology.getOutputPortName((long)outputPort.get("indexWithinOperator"));
+						JSONArray opMetrics = (JSONArray)outputPort.get("metrics");
+						for (int opopm = 0; opopm < opMetrics.size(); opopm++) {
+							JSONObject metric = (JSONObject) opMetrics.get(opopm);
+							String metricName = (String)metric.get("name");
+							switch (metricName) {
 							default:
-								metricsExporter.getStreamsMetric(operatorMetricName,
-										StreamsObjectType.OPERATOR,
+								metricsExporter.getStreamsMetric(metricName,
+										StreamsObjectType.OPERATOR_OUTPUTPORT,
 										this.streamsInstanceName,
 										this.jobname,
 										resource,
 										peid,
 										operatorName,
-										operatorKind).set((long)metric.get("value"));
+										operatorKind,
+										outputPortName).set((long)metric.get("value"));
 								break;
 							}
-						}	// End Operator Metrics Loop		
-						
-						// Loop over Operator Input Ports
-						JSONArray opipArray = (JSONArray) operator.get("inputPorts");
-						for (int opip = 0; opip < opipArray.size(); opip++) {
-							JSONObject inputPort = (JSONObject)opipArray.get(opip);
-							Long indexWithinOperator = (Long)inputPort.get("indexWithinOperator");
-							String inputPortName = this.operatorInputPortNames.get(operatorName).get(indexWithinOperator);
-							JSONArray ipMetrics = (JSONArray)inputPort.get("metrics");
-							for (int opipm = 0; opipm < ipMetrics.size(); opipm++) {
-								JSONObject metric = (JSONObject) ipMetrics.get(opipm);
-								String metricName = (String)metric.get("name");
-								switch (metricName) {
-								default:
-									metricsExporter.getStreamsMetric(metricName,
-											StreamsObjectType.OPERATOR_INPUTPORT,
-											this.streamsInstanceName,
-											this.jobname,
-											resource,
-											peid,
-											operatorName,
-											operatorKind,
-											inputPortName).set((long)metric.get("value"));
-									break;
-								}
-							} // End Input Port Metrics Loop
-						} // End Operator Input Port Loop
-
-						// Loop over Operator Output Ports
-						JSONArray opopArray = (JSONArray) operator.get("outputPorts");
-						for (int opop = 0; opop < opopArray.size(); opop++) {
-							JSONObject outputPort = (JSONObject)opopArray.get(opop);
-							Long indexWithinOperator = (Long)outputPort.get("indexWithinOperator");
-							String outputPortName = this.operatorOutputPortNames.get(operatorName).get(indexWithinOperator);
-							JSONArray opMetrics = (JSONArray)outputPort.get("metrics");
-							for (int opopm = 0; opopm < opMetrics.size(); opopm++) {
-								JSONObject metric = (JSONObject) opMetrics.get(opopm);
-								String metricName = (String)metric.get("name");
-								switch (metricName) {
-								default:
-									metricsExporter.getStreamsMetric(metricName,
-											StreamsObjectType.OPERATOR_OUTPUTPORT,
-											this.streamsInstanceName,
-											this.jobname,
-											resource,
-											peid,
-											operatorName,
-											operatorKind,
-											outputPortName).set((long)metric.get("value"));
-									break;
-								}
-							} // End Output Port Metrics Loop
-						} // End Operator Output Port Loop						
-						
-					} // End Operator Loop
-				} // End PE Loop
-				metricsExporter.getStreamsMetric("pecount", StreamsObjectType.JOB,this.streamsInstanceName, this.jobname).set(peArray.size());
-				metricsExporter.getStreamsMetric("nCpuMilliseconds", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(ncpu);
-				metricsExporter.getStreamsMetric("nResidentMemoryConsumption", StreamsObjectType.JOB, this.streamsInstanceName,this.jobname).set(nrmc);
-				metricsExporter.getStreamsMetric("nMemoryConsumption", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(nmc);
-				if (numconnections > 0)
-					avgcongestion = totalcongestion / numconnections;
-				// else it was initialized to 0;
-				metricsExporter.getStreamsMetric("sum_congestionFactor", StreamsObjectType.JOB,this.streamsInstanceName, this.jobname).set(totalcongestion);
-				metricsExporter.getStreamsMetric("avg_congestionFactor", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(avgcongestion);
-				metricsExporter.getStreamsMetric("max_congestionFactor", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(maxcongestion);
-				if (mincongestion == 999) mincongestion = 0;
-				metricsExporter.getStreamsMetric("min_congestionFactor", StreamsObjectType.JOB, this.streamsInstanceName,this.jobname).set(mincongestion);
-			} catch (ParseException e) {
-				throw new IllegalStateException(e);
-			}
+						} // End Output Port Metrics Loop
+					} // End Operator Output Port Loop						
+					
+				} // End Operator Loop
+			} // End PE Loop
+			metricsExporter.getStreamsMetric("pecount", StreamsObjectType.JOB,this.streamsInstanceName, this.jobname).set(peArray.size());
+			metricsExporter.getStreamsMetric("nCpuMilliseconds", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(ncpu);
+			metricsExporter.getStreamsMetric("nResidentMemoryConsumption", StreamsObjectType.JOB, this.streamsInstanceName,this.jobname).set(nrmc);
+			metricsExporter.getStreamsMetric("nMemoryConsumption", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(nmc);
+			if (numconnections > 0)
+				avgcongestion = totalcongestion / numconnections;
+			// else it was initialized to 0;
+			metricsExporter.getStreamsMetric("sum_congestionFactor", StreamsObjectType.JOB,this.streamsInstanceName, this.jobname).set(totalcongestion);
+			metricsExporter.getStreamsMetric("avg_congestionFactor", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(avgcongestion);
+			metricsExporter.getStreamsMetric("max_congestionFactor", StreamsObjectType.JOB,this.streamsInstanceName,this.jobname).set(maxcongestion);
+			if (mincongestion == 999) mincongestion = 0;
+			metricsExporter.getStreamsMetric("min_congestionFactor", StreamsObjectType.JOB, this.streamsInstanceName,this.jobname).set(mincongestion);
 		} // end if metrics != null
 	}
 	
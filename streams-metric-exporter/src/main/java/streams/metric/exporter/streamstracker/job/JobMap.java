@@ -16,13 +16,21 @@
 
 package streams.metric.exporter.streamstracker.job;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListMap;
 
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,7 +45,6 @@ import streams.metric.exporter.streamstracker.StreamsInstanceTracker;
 public class JobMap {
 	private static final Logger LOGGER = LoggerFactory.getLogger("root." + StreamsInstanceTracker.class.getName());
 
-	@SuppressWarnings("unused")
 	private String streamsInstanceName = null;
 	/*****************************************
 	 * JOB MAP and INDEXES
@@ -81,6 +88,18 @@ public class JobMap {
 		return new HashMap<String, String>(jobNameIndex);
 	}
 
+	/* Return a copy of job id to topology, jobs without a snapshot yet are left out */
+	public synchronized Map<String, JobTopology> getCurrentTopologies() {
+		Map<String, JobTopology> topologies = new HashMap<String, JobTopology>(jobDetailsMap.size() * 4 / 3 + 1);
+		for (Map.Entry<String, JobDetails> entry : jobDetailsMap.entrySet()) {
+			JobTopology topology = entry.getValue().getTopology();
+			if (topology != null) {
+				topologies.put(entry.getKey(), topology);
+			}
+		}
+		return topologies;
+	}
+
 	/* Return job details of a job */
 	public synchronized JobDetails getJob(String jobid) {
 		return jobDetailsMap.get(jobid);
@@ -102,6 +121,108 @@ public class JobMap {
 		jobNameIndex.values().removeAll(Collections.singleton(jobid));
 	}
 
+	/*
+	 * Apply the "jobs" of an all jobs snapshot: update the snapshot of known
+	 * jobs, add new jobs and remove jobs that are no longer in the snapshot
+	 */
+	public synchronized void updateSnapshots(JSONObject snapshotsObject) {
+		// Current Job IDs for use in determine missing jobs or jobs that need to be removed
+		Set<String> currentJobIds = new HashSet<String>(jobDetailsMap.keySet());
+
+		JSONArray jobArray = (JSONArray) snapshotsObject.get("jobs");
+		for (int j = 0; j < jobArray.size(); j++) {
+			JSONObject jobObject = (JSONObject) jobArray.get(j);
+			String jobId = (String) jobObject.get("id");
+			String jobname = (String) jobObject.get("name");
+			JobDetails jd = jobDetailsMap.get(jobId);
+			if (jd != null) {
+				jd.setJobSnapshot(jobObject);
+				// Remove it from our set we are using to check for jobs no longer existing
+				LOGGER.trace("Updated snapshot for jobId({}), removing from set used to track leftovers",jobId);
+				currentJobIds.remove(jobId);
+			} else {
+				LOGGER.info("Adding new job({}): {}", jobId, jobname);
+				jd = new JobDetails(streamsInstanceName, jobId, jobname);
+				jd.setJobSnapshot(jobObject);
+				addJobToMap(jobId, jd);
+			}
+		}
+
+		// Are there any jobs in the map that we did not get snapshots for?  Remove them
+		if (!currentJobIds.isEmpty()) {
+			LOGGER.trace("There are jobs in the job map that we did not receive a snapshot for, removing them...");
+			for (String jobId : currentJobIds) {
+				LOGGER.warn("Removing JobId({})",jobId);
+				removeJobFromMap(jobId);
+			}
+		}
+	}
+
+	/* Hand each job its part of an all jobs metrics snapshot, applied on the next refreshJobs() */
+	public synchronized void updateMetrics(JSONObject metricsObject) {
+		JSONArray jobArray = (JSONArray) metricsObject.get("jobs");
+		for (int j = 0; j < jobArray.size(); j++) {
+			JSONObject jobObject = (JSONObject) jobArray.get(j);
+			String jobId = (String) jobObject.get("id");
+			JobDetails jd = jobDetailsMap.get(jobId);
+			if (jd != null) {
+				jd.setJobMetrics(jobObject);
+			} else {
+				LOGGER.warn(
+						"Received Metrics for jobId({}) that is not found in the current job map, should be rectified by updateAllSnapshots, if it persists, report an issue.",
+						jobId);
+			}
+		}
+	}
+
+	/* Update the exported metrics of every job */
+	public synchronized void refreshJobs() {
+		LOGGER.debug("Refresh All Jobs, number of jobs: {}", jobDetailsMap.size());
+		for (JobDetails jd : jobDetailsMap.values()) {
+			jd.refresh();
+		}
+	}
+
+	/* Warm start: write the id, name, snapshot hash and topology of every job that has a topology */
+	public synchronized int writeTopology(DataOutput out) throws IOException {
+		List<JobDetails> jobs = new ArrayList<JobDetails>();
+		for (JobDetails jd : jobDetailsMap.values()) {
+			if (jd.getTopology() != null) {
+				jobs.add(jd);
+			}
+		}
+		out.writeInt(jobs.size());
+		for (JobDetails jd : jobs) {
+			out.writeUTF(jd.getJobid());
+			out.writeUTF(jd.getJobname());
+			out.writeInt(jd.getSnapshotHash());
+			jd.getTopology().writeTo(out);
+		}
+		return jobs.size();
+	}
+
+	/*
+	 * Warm start: add the jobs written by writeTopology.  Nothing is added
+	 * unless the whole input can be read.  The next updateSnapshots() adds,
+	 * removes and revalidates them like any other job.
+	 */
+	public synchronized int readTopology(DataInput in) throws IOException {
+		int count = in.readInt();
+		List<JobDetails> jobs = new ArrayList<JobDetails>(count);
+		for (int i = 0; i < count; i++) {
+			String jobId = in.readUTF();
+			String jobname = in.readUTF();
+			int snapshotHash = in.readInt();
+			JobTopology topology = JobTopology.readFrom(in);
+			JobDetails jd = new JobDetails(streamsInstanceName, jobId, jobname);
+			jd.setWarmTopology(topology, snapshotHash);
+			jobs.add(jd);
+		}
+		for (JobDetails jd : jobs) {
+			addJobToMap(jd.getJobid(), jd);
+		}
+		return count;
+	}
 
 	@Override
 	public String toString() {
@@ -0,0 +1,416 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker.job;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import streams.metric.exporter.metrics.LabelValueInterner;
+
+/*
+ * JobTopology
+ *
+ * Immutable typed view of a job snapshot: Job -> PE -> Operator -> Port -> Connection.
+ * Built once each time the snapshot of a job changes and used to resolve the
+ * labels (resource, operator kind, port names) of the job metrics.
+ *   * names are interned so each distinct name is held once
+ *   * ports are indexed by their index within the operator / pe in plain arrays
+ *   * pes and operators are stored in arrays, the maps only hold array indexes
+ * The topology can be written in a compact binary form (writeTo / readFrom)
+ * so it survives an exporter restart, see JobTopologyStore.
+ */
+public final class JobTopology {
+
+	private final String instance;
+	private final String name;
+	private final String status;
+	private final String health;
+	private final long submitTime;
+	private final Pe[] pes;
+	private final Map<String, Integer> peIndex;
+
+	private JobTopology(JSONObject snapshotObject) {
+		this.instance = LabelValueInterner.intern((String)snapshotObject.get("instance"));
+		this.name = LabelValueInterner.intern((String)snapshotObject.get("name"));
+		this.status = (String)snapshotObject.get("status");
+		this.health = (String)snapshotObject.get("health");
+		this.submitTime = toLong(snapshotObject.get("submitTime"));
+
+		JSONArray peArray = array(snapshotObject, "pes");
+		this.pes = new Pe[peArray.size()];
+		this.peIndex = new HashMap<String, Integer>(peArray.size() * 4 / 3 + 1);
+		for (int i = 0; i < peArray.size(); i++) {
+			pes[i] = new Pe((JSONObject)peArray.get(i));
+			peIndex.put(pes[i].id, i);
+		}
+	}
+
+	private JobTopology(DataInput in) throws IOException {
+		this.instance = readLabel(in);
+		this.name = readLabel(in);
+		this.status = readString(in);
+		this.health = readString(in);
+		this.submitTime = in.readLong();
+		this.pes = new Pe[in.readInt()];
+		this.peIndex = new HashMap<String, Integer>(pes.length * 4 / 3 + 1);
+		for (int i = 0; i < pes.length; i++) {
+			pes[i] = new Pe(in);
+			peIndex.put(pes[i].id, i);
+		}
+	}
+
+	public static JobTopology fromSnapshot(JSONObject snapshotObject) {
+		return new JobTopology(snapshotObject);
+	}
+
+	public static JobTopology readFrom(DataInput in) throws IOException {
+		return new JobTopology(in);
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		writeString(out, instance);
+		writeString(out, name);
+		writeString(out, status);
+		writeString(out, health);
+		out.writeLong(submitTime);
+		out.writeInt(pes.length);
+		for (Pe pe : pes) {
+			pe.writeTo(out);
+		}
+	}
+
+	public String getInstance() {
+		return instance;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public String getHealth() {
+		return health;
+	}
+
+	public long getSubmitTime() {
+		return submitTime;
+	}
+
+	public int getPeCount() {
+		return pes.length;
+	}
+
+	public Pe getPe(int index) {
+		return pes[index];
+	}
+
+	/* Returns null if the pe is not part of this snapshot */
+	public Pe getPe(String peid) {
+		Integer index = peIndex.get(peid);
+		return (index == null ? null : pes[index]);
+	}
+
+	/************************* Topology Elements *************************/
+
+	public static final class Pe {
+		private final String id;
+		private final String resource;
+		private final String status;
+		private final String health;
+		private final long launchCount;
+		private final String[] inputPortLabels;   // by indexWithinPE
+		private final String[] outputPortLabels;  // by indexWithinPE
+		private final String[][] connectionIds;    // by output port indexWithinPE
+		private final Operator[] operators;
+		private final Map<String, Integer> operatorIndex;
+
+		private Pe(JSONObject pe) {
+			this.id = LabelValueInterner.intern((String)pe.get("id"));
+			this.resource = LabelValueInterner.intern((String)pe.get("resource"));
+			this.status = (String)pe.get("status");
+			this.health = (String)pe.get("health");
+			this.launchCount = toLong(pe.get("launchCount"));
+
+			JSONArray inputPorts = array(pe, "inputPorts");
+			this.inputPortLabels = new String[maxIndex(inputPorts, "indexWithinPE") + 1];
+			for (int i = 0; i < inputPorts.size(); i++) {
+				int index = (int)toLong(((JSONObject)inputPorts.get(i)).get("indexWithinPE"));
+				inputPortLabels[index] = LabelValueInterner.intern(Integer.toString(index));
+			}
+
+			JSONArray outputPorts = array(pe, "outputPorts");
+			this.outputPortLabels = new String[maxIndex(outputPorts, "indexWithinPE") + 1];
+			this.connectionIds = new String[outputPortLabels.length][];
+			for (int i = 0; i < outputPorts.size(); i++) {
+				JSONObject port = (JSONObject)outputPorts.get(i);
+				int index = (int)toLong(port.get("indexWithinPE"));
+				outputPortLabels[index] = LabelValueInterner.intern(Integer.toString(index));
+				JSONArray connections = array(port, "connections");
+				String[] ids = new String[connections.size()];
+				for (int c = 0; c < connections.size(); c++) {
+					ids[c] = LabelValueInterner.intern((String)((JSONObject)connections.get(c)).get("id"));
+				}
+				connectionIds[index] = ids;
+			}
+
+			JSONArray operatorArray = array(pe, "operators");
+			this.operators = new Operator[operatorArray.size()];
+			this.operatorIndex = new HashMap<String, Integer>(operatorArray.size() * 4 / 3 + 1);
+			for (int i = 0; i < operatorArray.size(); i++) {
+				operators[i] = new Operator((JSONObject)operatorArray.get(i));
+				operatorIndex.put(operators[i].name, i);
+			}
+		}
+
+		private Pe(DataInput in) throws IOException {
+			this.id = readLabel(in);
+			this.resource = readLabel(in);
+			this.status = readString(in);
+			this.health = readString(in);
+			this.launchCount = in.readLong();
+			this.inputPortLabels = readLabels(in);
+			this.outputPortLabels = readLabels(in);
+			this.connectionIds = new String[in.readInt()][];
+			for (int i = 0; i < connectionIds.length; i++) {
+				connectionIds[i] = readLabels(in);
+			}
+			this.operators = new Operator[in.readInt()];
+			this.operatorIndex = new HashMap<String, Integer>(operators.length * 4 / 3 + 1);
+			for (int i = 0; i < operators.length; i++) {
+				operators[i] = new Operator(in);
+				operatorIndex.put(operators[i].name, i);
+			}
+		}
+
+		private void writeTo(DataOutput out) throws IOException {
+			writeString(out, id);
+			writeString(out, resource);
+			writeString(out, status);
+			writeString(out, health);
+			out.writeLong(launchCount);
+			writeLabels(out, inputPortLabels);
+			writeLabels(out, outputPortLabels);
+			out.writeInt(connectionIds.length);
+			for (String[] ids : connectionIds) {
+				writeLabels(out, ids);
+			}
+			out.writeInt(operators.length);
+			for (Operator operator : operators) {
+				operator.writeTo(out);
+			}
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getResource() {
+			return resource;
+		}
+
+		public String getStatus() {
+			return status;
+		}
+
+		public String getHealth() {
+			return health;
+		}
+
+		public long getLaunchCount() {
+			return launchCount;
+		}
+
+		/* Port index label, falls back to a new string for ports missing from the snapshot */
+		public String getInputPortLabel(long indexWithinPE) {
+			return label(inputPortLabels, indexWithinPE);
+		}
+
+		public String getOutputPortLabel(long indexWithinPE) {
+			return label(outputPortLabels, indexWithinPE);
+		}
+
+		/* Interned connection id if the connection is part of the snapshot, else the id passed in */
+		public String getConnectionId(long indexWithinPE, String connectionId) {
+			if (indexWithinPE >= 0 && indexWithinPE < connectionIds.length && connectionIds[(int)indexWithinPE] != null) {
+				for (String id : connectionIds[(int)indexWithinPE]) {
+					if (id.equals(connectionId)) {
+						return id;
+					}
+				}
+			}
+			return connectionId;
+		}
+
+		public int getOperatorCount() {
+			return operators.length;
+		}
+
+		public Operator getOperator(int index) {
+			return operators[index];
+		}
+
+		/* Returns null if the operator is not part of this pe */
+		public Operator getOperator(String operatorName) {
+			Integer index = operatorIndex.get(operatorName);
+			return (index == null ? null : operators[index]);
+		}
+
+		private static String label(String[] labels, long index) {
+			if (index >= 0 && index < labels.length && labels[(int)index] != null) {
+				return labels[(int)index];
+			}
+			return Long.toString(index);
+		}
+	}
+
+	public static final class Operator {
+		private final String name;
+		private final String kind;
+		private final String[] inputPortNames;   // by indexWithinOperator
+		private final String[] outputPortNames;  // by indexWithinOperator
+
+		private Operator(JSONObject operator) {
+			this.name = LabelValueInterner.intern((String)operator.get("name"));
+			this.kind = LabelValueInterner.intern((String)operator.get("operatorKind"));
+			this.inputPortNames = portNames(array(operator, "inputPorts"));
+			this.outputPortNames = portNames(array(operator, "outputPorts"));
+		}
+
+		private Operator(DataInput in) throws IOException {
+			this.name = readLabel(in);
+			this.kind = readLabel(in);
+			this.inputPortNames = readLabels(in);
+			this.outputPortNames = readLabels(in);
+		}
+
+		private void writeTo(DataOutput out) throws IOException {
+			writeString(out, name);
+			writeString(out, kind);
+			writeLabels(out, inputPortNames);
+			writeLabels(out, outputPortNames);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getKind() {
+			return kind;
+		}
+
+		public int getInputPortCount() {
+			return inputPortNames.length;
+		}
+
+		public int getOutputPortCount() {
+			return outputPortNames.length;
+		}
+
+		/* Returns null if there is no such port */
+		public String getInputPortName(long indexWithinOperator) {
+			return portName(inputPortNames, indexWithinOperator);
+		}
+
+		public String getOutputPortName(long indexWithinOperator) {
+			return portName(outputPortNames, indexWithinOperator);
+		}
+
+		private static String[] portNames(JSONArray ports) {
+			String[] names = new String[maxIndex(ports, "indexWithinOperator") + 1];
+			for (int i = 0; i < ports.size(); i++) {
+				JSONObject port = (JSONObject)ports.get(i);
+				names[(int)toLong(port.get("indexWithinOperator"))] = LabelValueInterner.intern((String)port.get("name"));
+			}
+			return names;
+		}
+
+		private static String portName(String[] names, long index) {
+			return (index >= 0 && index < names.length ? names[(int)index] : null);
+		}
+	}
+
+	/************************* Internal Methods *************************/
+
+	private static final JSONArray EMPTY = new JSONArray();
+
+	private static JSONArray array(JSONObject object, String key) {
+		JSONArray array = (JSONArray)object.get(key);
+		return (array == null ? EMPTY : array);
+	}
+
+	private static long toLong(Object value) {
+		return (value instanceof Number ? ((Number)value).longValue() : 0);
+	}
+
+	/* Strings are written with a presence flag so missing (null) values survive the round trip */
+	private static void writeString(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return (in.readBoolean() ? in.readUTF() : null);
+	}
+
+	private static String readLabel(DataInput in) throws IOException {
+		return LabelValueInterner.intern(readString(in));
+	}
+
+	/* A null array is written as length -1 */
+	private static void writeLabels(DataOutput out, String[] labels) throws IOException {
+		if (labels == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(labels.length);
+		for (String label : labels) {
+			writeString(out, label);
+		}
+	}
+
+	private static String[] readLabels(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		String[] labels = new String[length];
+		for (int i = 0; i < length; i++) {
+			labels[i] = readLabel(in);
+		}
+		return labels;
+	}
+
+	private static int maxIndex(JSONArray ports, String key) {
+		int max = -1;
+		for (int i = 0; i < ports.size(); i++) {
+			int index = (int)toLong(((JSONObject)ports.get(i)).get(key));
+			if (index > max) max = index;
+		}
+		return max;
+	}
+}
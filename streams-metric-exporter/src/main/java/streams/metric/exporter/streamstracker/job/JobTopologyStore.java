@@ -0,0 +1,117 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker.job;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * JobTopologyStore
+ *
+ * Warm start file of one instance (<dir>/<instance>.topology).  Holds the
+ * job name index and the topology of every job (operator kinds, port names,
+ * pe to resource placement) so that after a restart the first refresh can
+ * label the job metrics without waiting for a deep snapshotJobs.
+ *
+ * The file is gzip compressed, written to a temp file and renamed so a crash
+ * never leaves a partial file.  It records the start time of the instance it
+ * was taken from and is ignored when the instance has been restarted since.
+ */
+public class JobTopologyStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger("root." + JobTopologyStore.class.getName());
+
+	private static final int MAGIC = 0x53585754; // "SXWT"
+	private static final int VERSION = 1;
+	private static final String SUFFIX = ".topology";
+
+	private final Path file;
+	private final String instanceName;
+
+	public JobTopologyStore(Path dir, String instanceName) throws IOException {
+		Files.createDirectories(dir);
+		this.file = dir.resolve(instanceName + SUFFIX);
+		this.instanceName = instanceName;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/* Returns the number of jobs saved */
+	public int save(long instanceStartTime, JobMap jobMap) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		int jobs;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(instanceName);
+			out.writeLong(instanceStartTime);
+			out.writeLong(System.currentTimeMillis());
+			jobs = jobMap.writeTopology(out);
+		} finally {
+			out.close();
+		}
+		Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		LOGGER.debug("Saved warm start topology of {} jobs to {}", jobs, file);
+		return jobs;
+	}
+
+	/* Returns the number of jobs added to the job map, 0 if there is no usable file */
+	public int load(long instanceStartTime, JobMap jobMap) {
+		if (!Files.isRegularFile(file)) {
+			LOGGER.debug("No warm start topology in {}", file);
+			return 0;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+					LOGGER.warn("Ignoring warm start topology {}, it is not a version {} topology file", file, VERSION);
+					return 0;
+				}
+				String savedInstance = in.readUTF();
+				long savedStartTime = in.readLong();
+				long savedAt = in.readLong();
+				if (!instanceName.equals(savedInstance) || instanceStartTime != savedStartTime) {
+					LOGGER.info("Ignoring warm start topology {}, instance {} has been restarted since it was saved", file, instanceName);
+					return 0;
+				}
+				int jobs = jobMap.readTopology(in);
+				LOGGER.info("Loaded warm start topology of {} jobs saved {} seconds ago from {}",
+						jobs, (System.currentTimeMillis() - savedAt) / 1000, file);
+				return jobs;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Ignoring unreadable warm start topology {}: {}", file, e.getMessage());
+			return 0;
+		}
+	}
+}
@@ -27,10 +27,13 @@ import java.util.Date;
 import org.apache.commons.lang.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.fasterxml.jackson.annotation.JsonRawValue;
 import streams.metric.exporter.error.StreamsTrackerException;
 import streams.metric.exporter.httpclient.WebClientException;
 import streams.metric.exporter.jmx.JmxServiceContext;
+import streams.metric.exporter.jmx.JmxThrottledException;
+import streams.metric.exporter.streamstracker.CompressedJson;
+import streams.metric.exporter.streamstracker.RefreshStatistics.Payload;
+import streams.metric.exporter.streamstracker.capture.PayloadCapture;
 
 import com.ibm.streams.management.instance.InstanceMXBean;
 
@@ -51,16 +54,34 @@ public class AllJobMetrics {
     private Date lastMetricsRefresh = null;
     private Date lastMetricsFailure = null;
     private boolean lastMetricsRefreshFailed = false;
-    private String allMetrics = null;
+    // Retained compressed, the uncompressed payload is only kept until it has been parsed
+    private CompressedJson allMetrics = null;
+    private String latestMetrics = null;
 
-    // @JsonValue
-    @JsonRawValue
-    public String getAllMetrics() {
+    // Optional recording of every downloaded payload for offline replay
+    private PayloadCapture capture = null;
+
+    public CompressedJson getAllMetrics() {
         return allMetrics;
     }
 
+    /*
+     * Payload of the last refresh for parsing, released by this call so only
+     * the compressed copy stays on the heap.  If it was already taken (e.g. the
+     * refresh was throttled) the retained copy is decompressed.
+     */
+    public String takeAllMetricsJson() {
+        String json = latestMetrics;
+        latestMetrics = null;
+        if (json == null && allMetrics != null) {
+            json = allMetrics.toJson();
+        }
+        return json;
+    }
+
     private void setAllMetrics(String allMetrics) {
-        this.allMetrics = allMetrics;
+        this.latestMetrics = allMetrics;
+        this.allMetrics = (allMetrics == null ? null : CompressedJson.compress(allMetrics));
     }
 
     public Date getLastMetricsRefresh() {
@@ -101,8 +122,13 @@ public class AllJobMetrics {
 
     }
 
+    public void setCapture(PayloadCapture capture) {
+        this.capture = capture;
+    }
+
     public void clear() {
         this.allMetrics = null;
+        this.latestMetrics = null;
 
     }
 
@@ -128,6 +154,8 @@ public class AllJobMetrics {
         }
 
         // JMX Interaction
+        long jmxStart = System.nanoTime();
+        long jmxNanos = 0;
         try {
             LOGGER.trace("* AllJobMetrcs * Get instance object from jmxContext");
 
@@ -157,11 +185,16 @@ public class AllJobMetrics {
                     throw e;
                 }
             }
+            jmxNanos = System.nanoTime() - jmxStart;
             if (LOGGER.isTraceEnabled()) {
                 stopwatch.stop();
                 timers.put("jmx call to snapshotJobMetrics", stopwatch.getTime());
             }
 
+        } catch (JmxThrottledException e) {
+            // Rate limited, not an error, keep serving the previous metrics
+            LOGGER.debug("Instance ({}) metrics retrieval throttled, keeping the previous metrics", this.instanceName);
+            return;
         } catch (IOException e) {
             // IOException from JMX usually means server restarted or domain
             LOGGER.warn("Metrics snapshot received JMX IO Error.  Recording that metrics failed.");
@@ -178,6 +211,7 @@ public class AllJobMetrics {
         }
 
         /******* HTTPS Interaction ********/
+        long httpStart = System.nanoTime();
         try {
             LOGGER.debug("Instance ({}) Metrics HTTP Retrieve from URI ({}) ...",this.instanceName,uri);
 
@@ -185,6 +219,11 @@ public class AllJobMetrics {
             this.setLastMetricsRefresh(new Date());
             this.setLastMetricsRefreshFailed(false);
 
+            if (capture != null) {
+                capture.record(Payload.METRICS, this.lastMetricsRefresh.getTime(), jmxNanos,
+                        System.nanoTime() - httpStart, this.latestMetrics);
+            }
+
             if (LOGGER.isTraceEnabled()) {
                 stopwatch.stop();
                 timers.put("connect jmx(http server) and retrieve metrics", stopwatch.getTime());
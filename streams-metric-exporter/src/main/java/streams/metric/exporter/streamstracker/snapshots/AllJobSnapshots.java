@@ -27,10 +27,13 @@ import java.util.Date;
 import org.apache.commons.lang.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.fasterxml.jackson.annotation.JsonRawValue;
 import streams.metric.exporter.error.StreamsTrackerException;
 import streams.metric.exporter.httpclient.WebClientException;
 import streams.metric.exporter.jmx.JmxServiceContext;
+import streams.metric.exporter.jmx.JmxThrottledException;
+import streams.metric.exporter.streamstracker.CompressedJson;
+import streams.metric.exporter.streamstracker.RefreshStatistics.Payload;
+import streams.metric.exporter.streamstracker.capture.PayloadCapture;
 
 import com.ibm.streams.management.instance.InstanceMXBean;
 
@@ -50,16 +53,34 @@ public class AllJobSnapshots {
     private Date lastSnapshotRefresh = null;
     private Date lastSnapshotFailure = null;
     private boolean lastSnapshotRefreshFailed = false;
-    private String allSnapshots = null;
+    // Retained compressed, the uncompressed payload is only kept until it has been parsed
+    private CompressedJson allSnapshots = null;
+    private String latestSnapshots = null;
 
-    // @JsonValue
-    @JsonRawValue
-    public String getAllSnapshots() {
+    // Optional recording of every downloaded payload for offline replay
+    private PayloadCapture capture = null;
+
+    public CompressedJson getAllSnapshots() {
         return allSnapshots;
     }
 
+    /*
+     * Payload of the last refresh for parsing, released by this call so only
+     * the compressed copy stays on the heap.  If it was already taken (e.g. the
+     * refresh was throttled) the retained copy is decompressed.
+     */
+    public String takeAllSnapshotsJson() {
+        String json = latestSnapshots;
+        latestSnapshots = null;
+        if (json == null && allSnapshots != null) {
+            json = allSnapshots.toJson();
+        }
+        return json;
+    }
+
     private void setAllSnapshots(String allSnapshots) {
-        this.allSnapshots = allSnapshots;
+        this.latestSnapshots = allSnapshots;
+        this.allSnapshots = (allSnapshots == null ? null : CompressedJson.compress(allSnapshots));
     }
 
     public Date getLastSnaphostRefresh() {
@@ -100,8 +121,13 @@ public class AllJobSnapshots {
 
     }
 
+    public void setCapture(PayloadCapture capture) {
+        this.capture = capture;
+    }
+
     public void clear() {
         this.allSnapshots = null;
+        this.latestSnapshots = null;
 
     }
 
@@ -127,6 +153,8 @@ public class AllJobSnapshots {
         }
 
         // JMX Interaction
+        long jmxStart = System.nanoTime();
+        long jmxNanos = 0;
         try {
             LOGGER.trace("* AllJobSnapshots * Get instance object from jmxContext");
 
@@ -155,11 +183,16 @@ public class AllJobSnapshots {
                     throw e;
                 }
             }
+            jmxNanos = System.nanoTime() - jmxStart;
             if (LOGGER.isTraceEnabled()) {
                 stopwatch.stop();
                 timers.put("jmx call to snapshotJobs(null,1,false)", stopwatch.getTime());
             }
 
+        } catch (JmxThrottledException e) {
+            // Rate limited, not an error, keep serving the previous snapshots
+            LOGGER.debug("Instance ({}) snapshots retrieval throttled, keeping the previous snapshots", this.instanceName);
+            return;
         } catch (IOException e) {
             // IOException from JMX usually means server restarted or domain
             LOGGER.warn("snapshotJobs received JMX IO Error.  Recording that snapshots failed.");
@@ -176,6 +209,7 @@ public class AllJobSnapshots {
         }
 
         /******* HTTPS Interaction ********/
+        long httpStart = System.nanoTime();
         try {
             LOGGER.debug("Instance ({}) Snapshots HTTP Retrieve from URI ({}) ...",this.instanceName,uri);
 
@@ -183,6 +217,11 @@ public class AllJobSnapshots {
             this.setLastSnapshotRefresh(new Date());
             this.setLastSnapshotRefreshFailed(false);
 
+            if (capture != null) {
+                capture.record(Payload.SNAPSHOTS, this.lastSnapshotRefresh.getTime(), jmxNanos,
+                        System.nanoTime() - httpStart, this.latestSnapshots);
+            }
+
             if (LOGGER.isTraceEnabled()) {
                 stopwatch.stop();
                 timers.put("connect jmx(http server) and retrieve snapshots", stopwatch.getTime());
@@ -0,0 +1,91 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.elasticsearch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * ElasticsearchStubReceiver
+ *
+ * Not a unit test.  Minimal _bulk endpoint for trying out the elasticsearch
+ * exporter without a cluster:
+ *   java ... streams.metric.exporter.elasticsearch.ElasticsearchStubReceiver [port] [delayMs]
+ * then start the exporter with --elasticsearchurl http://localhost:<port>
+ * delayMs slows every response down to exercise backpressure.
+ */
+public class ElasticsearchStubReceiver {
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 9200;
+		final long delayMs = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		final AtomicInteger requests = new AtomicInteger();
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/_bulk", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				InputStream body = exchange.getRequestBody();
+				if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+					body = new GZIPInputStream(body);
+				}
+				BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+				int lines = 0;
+				String first = null;
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (lines == 1) {
+						first = line;
+					}
+					lines++;
+				}
+				reader.close();
+				System.out.println("request " + requests.incrementAndGet() + ": documents=" + lines / 2);
+				if (first != null) {
+					System.out.println("  " + first);
+				}
+				if (delayMs > 0) {
+					try {
+						Thread.sleep(delayMs);
+					} catch (InterruptedException e) {
+					}
+				}
+				byte[] response = "{\"took\":1,\"errors\":false,\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, response.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(response);
+				out.close();
+			}
+		});
+		server.start();
+		System.out.println("Elasticsearch stub receiver listening on port " + port);
+	}
+}
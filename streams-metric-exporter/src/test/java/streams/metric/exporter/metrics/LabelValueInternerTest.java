@@ -0,0 +1,73 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.metrics;
+
+import junit.framework.TestCase;
+
+public class LabelValueInternerTest extends TestCase {
+
+	public void testEqualValuesShareOneInstance() {
+		String first = LabelValueInterner.intern(new String("internerJob"));
+		String second = LabelValueInterner.intern(new String("internerJob"));
+		assertSame(first, second);
+		assertNull(LabelValueInterner.intern(null));
+	}
+
+	public void testInternAllLeavesArgumentAlone() {
+		String canonical = LabelValueInterner.intern(new String("internerOp"));
+		String[] values = { new String("internerOp"), "other" };
+		String original = values[0];
+		String[] interned = LabelValueInterner.internAll(values);
+		assertSame(original, values[0]);
+		assertNotSame(values, interned);
+		assertSame(canonical, interned[0]);
+	}
+
+	public void testHitsAreCounted() {
+		LabelValueInterner.intern(new String("internerPe"));
+		long lookups = LabelValueInterner.getLookups();
+		long hits = LabelValueInterner.getHits();
+		LabelValueInterner.intern(new String("internerPe"));
+		assertEquals(lookups + 1, LabelValueInterner.getLookups());
+		assertEquals(hits + 1, LabelValueInterner.getHits());
+	}
+
+	public void testConcurrentInternsAgree() throws InterruptedException {
+		final String[][] results = new String[8][];
+		Thread[] threads = new Thread[results.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int n = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					results[n] = new String[1000];
+					for (int i = 0; i < 1000; i++) {
+						results[n][i] = LabelValueInterner.intern(new String("concurrent" + i));
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int t = 1; t < results.length; t++) {
+			for (int i = 0; i < 1000; i++) {
+				assertSame(results[0][i], results[t][i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.List;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import junit.framework.TestCase;
+
+public class ColumnarMetricCollectorTest extends TestCase {
+
+	private static final String[] JOB_LABELS = { "instancename", "jobname" };
+	private static final String[] PE_LABELS = { "instancename", "jobname", "resource", "peid" };
+
+	private ColumnarMetricCollector collector;
+	private int jobFamily;
+	private int peFamily;
+
+	@Override
+	protected void setUp() {
+		collector = new ColumnarMetricCollector();
+		jobFamily = collector.family("streams_job_healthy", "help", JOB_LABELS);
+		peFamily = collector.family("streams_pe_nCpuMilliseconds", "help", PE_LABELS);
+	}
+
+	public void testSameLabelsReturnSameSeries() {
+		int id = collector.series(jobFamily, "I1", "J1");
+		assertEquals(id, collector.series(jobFamily, "I1", "J1"));
+		assertEquals(id, collector.findSeries(jobFamily, "I1", "J1"));
+		assertEquals(-1, collector.findSeries(jobFamily, "I1", "J2"));
+		assertEquals(1, collector.size());
+		assertEquals(1, collector.getCreated());
+	}
+
+	public void testFamilyIsPartOfTheKey() {
+		int other = collector.family("streams_job_status", "help", JOB_LABELS);
+		assertTrue(collector.series(jobFamily, "I1", "J1") != collector.series(other, "I1", "J1"));
+		assertEquals(2, collector.size());
+	}
+
+	public void testWrongLabelCountIsRejected() {
+		try {
+			collector.series(jobFamily, "I1");
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testRehashOnGrowthKeepsSeries() {
+		int count = 20000; // well past the initial table size
+		int[] ids = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = collector.series(jobFamily, "I1", "J" + i);
+			collector.set(ids[i], i);
+		}
+		assertEquals(count, collector.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(ids[i], collector.findSeries(jobFamily, "I1", "J" + i));
+			assertEquals((double)i, collector.get(ids[i]), 0);
+		}
+	}
+
+	public void testRemovedSlotsAreReused() {
+		// Each series is removed before the next is created, so the table fills with tombstones
+		// unless they are reused or cleared.  Lookups must still terminate and miss removed series.
+		for (int i = 0; i < 100000; i++) {
+			collector.series(jobFamily, "I1", "J" + i);
+			collector.remove(jobFamily, "I1", "J" + i);
+		}
+		assertEquals(0, collector.size());
+		assertEquals(100000, collector.getRemoved());
+		assertEquals(-1, collector.findSeries(jobFamily, "I1", "J0"));
+		assertEquals(-1, collector.findSeries(jobFamily, "I1", "J99999"));
+
+		int id = collector.series(jobFamily, "I1", "J5");
+		assertEquals(id, collector.findSeries(jobFamily, "I1", "J5"));
+		assertEquals(1, collector.size());
+	}
+
+	public void testRemoveThenCreateDoesNotDuplicate() {
+		collector.series(jobFamily, "I1", "J1");
+		int other = collector.series(jobFamily, "I1", "J2");
+		collector.remove(jobFamily, "I1", "J1");
+		int id = collector.series(jobFamily, "I1", "J1");
+		assertEquals(id, collector.series(jobFamily, "I1", "J1"));
+		assertEquals(other, collector.findSeries(jobFamily, "I1", "J2"));
+		assertEquals(2, collector.size());
+	}
+
+	public void testIdsAreRecycled() {
+		int first = collector.series(jobFamily, "I1", "J1");
+		collector.set(first, 42);
+		collector.remove(jobFamily, "I1", "J1");
+		assertFalse(collector.isLive(first));
+
+		int second = collector.series(jobFamily, "I1", "J2");
+		assertEquals(first, second);
+		assertTrue(collector.isLive(second));
+		assertEquals(0.0, collector.get(second), 0);
+	}
+
+	public void testRemoveWithChildren() {
+		collector.series(jobFamily, "I1", "J1");
+		collector.series(jobFamily, "I1", "J2");
+		collector.series(peFamily, "I1", "J1", "host", "1");
+		collector.series(peFamily, "I1", "J1", "host", "2");
+		int keep = collector.series(peFamily, "I1", "J2", "host", "3");
+
+		assertEquals(3, collector.removeWithChildren("I1", "J1"));
+		assertEquals(2, collector.size());
+		assertEquals(-1, collector.findSeries(jobFamily, "I1", "J1"));
+		assertEquals(-1, collector.findSeries(peFamily, "I1", "J1", "host", "1"));
+		assertEquals(keep, collector.findSeries(peFamily, "I1", "J2", "host", "3"));
+
+		// a prefix that is not a whole label value does not match
+		assertEquals(0, collector.removeWithChildren("I1", "J"));
+		assertEquals(2, collector.removeWithChildren("I1"));
+		assertEquals(0, collector.size());
+	}
+
+	public void testRemoveStaleChildrenKeepsSeriesSeenSinceMark() {
+		collector.series(jobFamily, 1, "I1", "J1");
+		collector.series(peFamily, 1, "I1", "J1", "host", "1");
+		collector.series(peFamily, 1, "I1", "J1", "host", "2");
+		int other = collector.series(peFamily, 1, "I1", "J2", "host", "3");
+
+		// next refresh of J1 only sees pe 1
+		int job = collector.series(jobFamily, 2, "I1", "J1");
+		int pe = collector.series(peFamily, 2, "I1", "J1", "host", "1");
+		assertEquals(1, collector.removeStaleChildren(2, "I1", "J1"));
+		assertEquals(job, collector.findSeries(jobFamily, "I1", "J1"));
+		assertEquals(pe, collector.findSeries(peFamily, "I1", "J1", "host", "1"));
+		assertEquals(-1, collector.findSeries(peFamily, "I1", "J1", "host", "2"));
+		assertEquals(other, collector.findSeries(peFamily, "I1", "J2", "host", "3"));
+		assertEquals(3, collector.size());
+	}
+
+	public void testChildrenAreTrackedThroughIdReuse() {
+		for (int i = 0; i < 100; i++) {
+			collector.series(peFamily, "I1", "J" + (i % 3), "host", Integer.toString(i));
+			collector.series(peFamily, "I2", "J" + (i % 3), "host", Integer.toString(i));
+		}
+		// free ids of J0 and reuse them for J1
+		assertEquals(34, collector.removeWithChildren("I1", "J0"));
+		for (int i = 100; i < 110; i++) {
+			collector.series(peFamily, "I1", "J1", "host", Integer.toString(i));
+		}
+		collector.remove(peFamily, "I1", "J1", "host", "1");
+
+		assertEquals(0, collector.removeWithChildren("I1", "J0"));
+		assertEquals(33 + 10 - 1, collector.removeWithChildren("I1", "J1"));
+		assertEquals(100, collector.delta(0, "I2").families.get("streams_pe_nCpuMilliseconds").changed.size());
+		assertEquals(33, collector.delta(0, "I1").families.get("streams_pe_nCpuMilliseconds").changed.size());
+		assertEquals(33, collector.removeWithChildren("I1"));
+		assertTrue(collector.delta(0, "I1").families.isEmpty());
+		assertEquals(100, collector.size());
+	}
+
+	public void testCollectReturnsLiveSeriesOnly() {
+		collector.set(collector.series(jobFamily, "I1", "J1"), 1);
+		collector.set(collector.series(jobFamily, "I1", "J2"), 2);
+		collector.set(collector.series(peFamily, "I1", "J2", "host", "3"), 3);
+		collector.remove(jobFamily, "I1", "J1");
+
+		List<MetricFamilySamples> mfs = collector.collect();
+		assertEquals(2, mfs.size());
+		assertEquals("streams_job_healthy", mfs.get(0).name);
+		assertEquals(1, mfs.get(0).samples.size());
+		assertEquals("J2", mfs.get(0).samples.get(0).labelValues.get(1));
+		assertEquals(2.0, mfs.get(0).samples.get(0).value, 0);
+		assertEquals(1, mfs.get(1).samples.size());
+	}
+}
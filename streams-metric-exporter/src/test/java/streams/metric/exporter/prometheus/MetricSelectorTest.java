@@ -0,0 +1,166 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+
+public class MetricSelectorTest extends TestCase {
+
+	@Override
+	protected void tearDown() {
+		MetricSelector.setProfiles(null);
+	}
+
+	public void testNoParametersSelectsAll() {
+		assertTrue(MetricSelector.of(Collections.<String, List<String>>emptyMap()).selectsAll());
+		assertTrue(MetricSelector.of(parameters(MetricSelector.LEVEL, "", " , ")).selectsAll());
+	}
+
+	public void testRepeatedAndCommaSeparatedValuesAreCombined() {
+		Map<String, List<String>> parameters = parameters(MetricSelector.LEVEL, "instance", "job, PE");
+		parameters.put(MetricSelector.JOB, Arrays.asList("a", "b,c"));
+		MetricSelector selector = MetricSelector.of(parameters);
+		assertFalse(selector.selectsAll());
+		assertTrue(selector.selectsFamily("streams_instance_jobCount", StreamsObjectType.INSTANCE));
+		assertTrue(selector.selectsFamily("streams_job_health", StreamsObjectType.JOB));
+		assertTrue(selector.selectsFamily("streams_pe_ip_nTuplesProcessed", StreamsObjectType.PE_INPUTPORT));
+		assertFalse(selector.selectsFamily("streams_operator_nTuplesProcessed", StreamsObjectType.OPERATOR));
+		assertFalse(selector.selectsFamily("streams_exporter_series", null));
+		for (String job : new String[] { "a", "b", "c" }) {
+			assertTrue(job, selector.selectsJob(job));
+		}
+		assertFalse(selector.selectsJob("d"));
+	}
+
+	public void testFamilyPrefix() {
+		MetricSelector selector = MetricSelector.of(parameters(MetricSelector.FAMILY, "streams_job_*,streams_pe_nCpuMilliseconds"));
+		assertTrue(selector.selectsFamily("streams_job_health", StreamsObjectType.JOB));
+		assertTrue(selector.selectsFamily("streams_pe_nCpuMilliseconds", StreamsObjectType.PE));
+		assertFalse(selector.selectsFamily("streams_pe_nCpuMillisecondsTotal", StreamsObjectType.PE));
+		assertFalse(selector.selectsFamily("streams_jobs", StreamsObjectType.JOB));
+
+		// * alone matches every family
+		assertTrue(MetricSelector.of(parameters(MetricSelector.FAMILY, "*")).selectsFamily("anything", null));
+	}
+
+	public void testLevelAndFamilyMustBothMatch() {
+		Map<String, List<String>> parameters = parameters(MetricSelector.LEVEL, "pe");
+		parameters.put(MetricSelector.FAMILY, Arrays.asList("streams_*"));
+		MetricSelector selector = MetricSelector.of(parameters);
+		assertTrue(selector.selectsFamily("streams_pe_nCpuMilliseconds", StreamsObjectType.PE));
+		assertFalse(selector.selectsFamily("streams_job_health", StreamsObjectType.JOB));
+	}
+
+	public void testJobLabelOnlyWithJobs() {
+		List<String> labelNames = Arrays.asList(StreamsObjectType.PE.metricLabelNames());
+		assertEquals(-1, MetricSelector.of(parameters(MetricSelector.LEVEL, "pe")).jobLabel(labelNames));
+		MetricSelector selector = MetricSelector.of(parameters(MetricSelector.JOB, "Main"));
+		assertEquals(1, selector.jobLabel(labelNames));
+		assertEquals(-1, selector.jobLabel(Arrays.asList(StreamsObjectType.INSTANCE.metricLabelNames())));
+	}
+
+	public void testBadLevelIsRejected() {
+		try {
+			MetricSelector.of(parameters(MetricSelector.LEVEL, "job,bogus"));
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("bogus"));
+		}
+	}
+
+	public void testParseProfiles() {
+		Map<String, Map<String, List<String>>> profiles = MetricSelector.parseProfiles(
+				"fast:level=instance,job;detail:level=pe&level=operator&job=Main;");
+		assertEquals(Arrays.asList("fast", "detail"), Arrays.asList(profiles.keySet().toArray()));
+		assertEquals(Arrays.asList("instance,job"), profiles.get("fast").get(MetricSelector.LEVEL));
+		assertEquals(Arrays.asList("pe", "operator"), profiles.get("detail").get(MetricSelector.LEVEL));
+		assertEquals(Arrays.asList("Main"), profiles.get("detail").get(MetricSelector.JOB));
+
+		assertTrue(MetricSelector.parseProfiles(null).isEmpty());
+		assertTrue(MetricSelector.parseProfiles("  ").isEmpty());
+	}
+
+	public void testParseProfilesRejectsBadSpecs() {
+		String[] specs = {
+			"nocolon",                      // not name:query
+			":level=job",                   // no name
+			"a/b:level=job",                // not a single path segment
+			"a:level=job;a:level=pe",       // defined twice
+			"a:level=job&since=1",          // unknown parameter
+			"a:level=bogus"                 // unknown level
+		};
+		for (String spec : specs) {
+			try {
+				MetricSelector.parseProfiles(spec);
+				fail("expected IllegalArgumentException for " + spec);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testRequestParametersOverrideProfile() {
+		MetricSelector.setProfiles("detail:level=pe&job=Main");
+		assertEquals(Collections.singleton("detail"), MetricSelector.getProfileNames());
+
+		// Parameters not given (null or empty) keep the profile's value
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		parameters.put(MetricSelector.LEVEL, Collections.<String>emptyList());
+		parameters.put(MetricSelector.FAMILY, null);
+		MetricSelector selector = MetricSelector.forProfile("detail", parameters);
+		assertTrue(selector.selectsJob("Main"));
+		assertFalse(selector.selectsFamily("streams_job_health", StreamsObjectType.JOB));
+
+		// A given parameter replaces the profile's value for that key only
+		parameters.put(MetricSelector.JOB, Arrays.asList("Other"));
+		selector = MetricSelector.forProfile("detail", parameters);
+		assertTrue(selector.selectsJob("Other"));
+		assertFalse(selector.selectsJob("Main"));
+		assertTrue(selector.selectsFamily("streams_pe_nCpuMilliseconds", StreamsObjectType.PE));
+		assertFalse(selector.selectsFamily("streams_job_health", StreamsObjectType.JOB));
+
+		parameters.put(MetricSelector.LEVEL, Arrays.asList("job"));
+		selector = MetricSelector.forProfile("detail", parameters);
+		assertTrue(selector.selectsFamily("streams_job_health", StreamsObjectType.JOB));
+		assertFalse(selector.selectsFamily("streams_pe_nCpuMilliseconds", StreamsObjectType.PE));
+
+		assertNull(MetricSelector.forProfile("missing", parameters));
+	}
+
+	public void testBadLevelOverrideOfProfileIsRejected() {
+		MetricSelector.setProfiles("detail:level=pe");
+		try {
+			MetricSelector.forProfile("detail", parameters(MetricSelector.LEVEL, "bogus"));
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static Map<String, List<String>> parameters(String key, String... values) {
+		Map<String, List<String>> parameters = new HashMap<String, List<String>>();
+		parameters.put(key, Arrays.asList(values));
+		return parameters;
+	}
+}
@@ -0,0 +1,72 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.prometheus;
+
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+
+/*
+ * MetricStoreFootprint
+ *
+ * Not a unit test.  Run as a java main to compare heap retained by the gauge
+ * and columnar metric stores for the same set of operator input port series:
+ *   java ... streams.metric.exporter.prometheus.MetricStoreFootprint [jobs] [operators] [ports] [metrics]
+ */
+public class MetricStoreFootprint {
+
+	// Holds the exporter being measured so it cannot be collected before the measurement (java 8 has no reachabilityFence)
+	private static volatile MetricsExporter measured;
+
+	public static void main(String[] args) {
+		int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int operators = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int ports = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int metrics = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+		long series = (long)jobs * operators * ports * metrics;
+
+		System.out.println("Series: " + series);
+		System.out.println("gauge:    " + measure(new PrometheusMetricsExporter(), jobs, operators, ports, metrics) / 1024 + " KB");
+		System.out.println("columnar: " + measure(new ColumnarMetricsExporter(), jobs, operators, ports, metrics) / 1024 + " KB");
+	}
+
+	private static long measure(MetricsExporter exporter, int jobs, int operators, int ports, int metrics) {
+		measured = exporter;
+		long before = usedHeap();
+		for (int j = 0; j < jobs; j++) {
+			for (int o = 0; o < operators; o++) {
+				for (int p = 0; p < ports; p++) {
+					for (int m = 0; m < metrics; m++) {
+						exporter.getStreamsMetric("metric" + m, StreamsObjectType.OPERATOR_INPUTPORT,
+								"instance", "job_" + j, "resource", "pe_" + o, "op_" + o, "Functor", "port_" + p).set(m);
+					}
+				}
+			}
+		}
+		long used = usedHeap() - before;
+		measured = null;
+		return used;
+	}
+
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try { Thread.sleep(100); } catch (InterruptedException e) { }
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
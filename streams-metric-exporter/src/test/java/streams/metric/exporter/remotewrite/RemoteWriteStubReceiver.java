@@ -0,0 +1,83 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.remotewrite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xerial.snappy.Snappy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * RemoteWriteStubReceiver
+ *
+ * Not a unit test.  Minimal remote write receiver for trying out push mode
+ * without a Prometheus server:
+ *   java ... streams.metric.exporter.remotewrite.RemoteWriteStubReceiver [port] [failFirst]
+ * then start the exporter with --remotewriteurl http://localhost:<port>/api/v1/write
+ * The first failFirst requests are answered with 503 to exercise retry and
+ * the write-ahead log.
+ */
+public class RemoteWriteStubReceiver {
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 9201;
+		final int failFirst = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+		final AtomicInteger requests = new AtomicInteger();
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/api/v1/write", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = readAll(exchange.getRequestBody());
+				int n = requests.incrementAndGet();
+				int status = 204;
+				if (n <= failFirst) {
+					status = 503;
+				} else if (!"snappy".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+					status = 400;
+				}
+				String detail = "";
+				if (status == 204) {
+					detail = " uncompressed=" + Snappy.uncompress(body).length;
+				}
+				System.out.println("request " + n + ": status=" + status + " compressed=" + body.length + detail);
+				exchange.sendResponseHeaders(status, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+		System.out.println("Remote write stub receiver listening on port " + port);
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, read);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,64 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.rest.resources;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import streams.metric.exporter.error.StreamsTrackerErrorCode;
+import streams.metric.exporter.error.StreamsTrackerException;
+import streams.metric.exporter.prometheus.MetricSelector;
+import streams.metric.exporter.rest.errorhandling.StreamsTrackerExceptionMapper;
+
+/* Invalid selections are refused before anything is scraped */
+public class PrometheusResourceTest extends TestCase {
+
+	@Override
+	protected void tearDown() {
+		MetricSelector.setProfiles(null);
+	}
+
+	public void testBadLevelIsBadRequest() throws Exception {
+		assertStatus(400, StreamsTrackerErrorCode.INVALID_METRIC_SELECTOR, null, selection(Arrays.asList("job", "bogus")));
+	}
+
+	public void testBadLevelOverrideOfProfileIsBadRequest() throws Exception {
+		MetricSelector.setProfiles("detail:level=pe");
+		assertStatus(400, StreamsTrackerErrorCode.INVALID_METRIC_SELECTOR, "detail", selection(Arrays.asList("bogus")));
+	}
+
+	public void testUnknownProfileIsNotFound() throws Exception {
+		assertStatus(404, StreamsTrackerErrorCode.METRIC_PROFILE_NOT_FOUND, "missing", selection(null));
+	}
+
+	private static Map<String, List<String>> selection(List<String> levels) {
+		return PrometheusResource.selection(levels, null, null);
+	}
+
+	private static void assertStatus(int status, StreamsTrackerErrorCode code, String profile,
+			Map<String, List<String>> parameters) throws Exception {
+		try {
+			new PrometheusResource().scrape(profile, parameters);
+			fail("expected StreamsTrackerException");
+		} catch (StreamsTrackerException e) {
+			assertEquals(code, e.getErrorCode());
+			assertEquals(status, new StreamsTrackerExceptionMapper().toResponse(e).getStatus());
+		}
+	}
+}
@@ -0,0 +1,287 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.stream;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import junit.framework.TestCase;
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporter.StreamsObjectType;
+import streams.metric.exporter.prometheus.ColumnarMetricCollector;
+import streams.metric.exporter.prometheus.ColumnarMetricsExporter;
+import streams.metric.exporter.prometheus.PrometheusMetricsExporter;
+
+/* Deltas of the columnar collector through byJob and a subscriber, with the sender run by hand */
+public class MetricUpdateStreamTest extends TestCase {
+
+	private static final String FAMILY = "streams_job_streamTest";
+	private static final String[] JOB_LABELS = { "instancename", "jobname" };
+	private static final Set<String> ALL_JOBS = Collections.emptySet();
+	private static final Set<StreamsObjectType> ALL_TYPES = Collections.emptySet();
+
+	private ColumnarMetricCollector collector;
+	private int family;
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+	private final List<Map<String, String>> events = new ArrayList<Map<String, String>>();
+	private final Map<MetricUpdateStream.InstanceStream, MetricUpdateSubscriber> subscribers =
+			new HashMap<MetricUpdateStream.InstanceStream, MetricUpdateSubscriber>();
+
+	@Override
+	protected void setUp() {
+		MetricsExporter exporter = PrometheusMetricsExporter.getInstance();
+		assertTrue("tests need the columnar metric store", exporter instanceof ColumnarMetricsExporter);
+		collector = ((ColumnarMetricsExporter) exporter).getCollector();
+		family = collector.family(FAMILY, "help", JOB_LABELS);
+	}
+
+	public void testByJobSplitsDelta() {
+		String instance = "streamByJob";
+		collector.set(collector.series(family, instance, "j1"), 1);
+		collector.set(collector.series(family, instance, "j2"), 2);
+		int instanceFamily = collector.family("streams_instance_streamTest", "help", new String[] { "instancename" });
+		collector.set(collector.series(instanceFamily, instance), 3);
+		long since = collector.delta(0, instance).generation;
+		collector.remove(family, instance, "j2");
+		collector.set(collector.series(family, instance, "j1"), 4);
+
+		Map<String, MetricUpdateBatch> batches = new HashMap<String, MetricUpdateBatch>();
+		for (MetricUpdateBatch batch : MetricUpdateStream.byJob(collector.delta(0, instance))) {
+			batches.put(batch.getJob(), batch);
+		}
+		assertEquals(2, batches.size());
+		assertEquals(1, batches.get("j1").size());
+		assertEquals(1, batches.get(null).size());
+
+		batches.clear();
+		for (MetricUpdateBatch batch : MetricUpdateStream.byJob(collector.delta(since, instance))) {
+			batches.put(batch.getJob(), batch);
+		}
+		assertEquals(2, batches.size());
+		assertEquals(1, batches.get("j1").size()); // changed
+		assertEquals(1, batches.get("j2").size()); // removed
+	}
+
+	public void testBacklogIsCoalesced() {
+		String instance = "streamCoalesce";
+		int j1 = collector.series(family, instance, "j1");
+		collector.set(j1, 1);
+		collector.set(collector.series(family, instance, "j2"), 2);
+		MetricUpdateStream.InstanceStream stream = subscribe(instance);
+		assertEquals(names("reset", "update", "update", "refresh"), eventNames());
+		events.clear();
+
+		// Two refreshes before the sender runs: j1 changes twice, j2 is removed and created again
+		collector.set(j1, 3);
+		collector.remove(family, instance, "j2");
+		stream.publish(collector);
+		collector.set(j1, 4);
+		collector.set(collector.series(family, instance, "j2"), 5);
+		stream.publish(collector);
+		assertEquals(1, tasks.size());
+		runTasks();
+
+		assertEquals(names("update", "update", "refresh"), eventNames());
+		String j1Update = update("j1");
+		assertTrue(j1Update, j1Update.contains("[4.0,\"streamCoalesce\",\"j1\"]"));
+		assertFalse(j1Update, j1Update.contains("3.0"));
+		String j2Update = update("j2");
+		assertTrue(j2Update, j2Update.contains("\"changed\":[[5.0,\"streamCoalesce\",\"j2\"]]"));
+		assertTrue(j2Update, j2Update.contains("\"removed\":[]"));
+		assertEquals(Long.toString(collector.getGeneration() - 1), events.get(2).get("id"));
+	}
+
+	public void testBacklogOverLimitDropsToReset() {
+		String instance = "streamBacklog";
+		collector.set(collector.series(family, instance, "j1"), 1);
+		MetricUpdateSubscriber subscriber = subscriber(subscribe(instance));
+		events.clear();
+
+		// More series than a subscriber may have pending, e.g. a client that stopped reading
+		MetricUpdateBatch backlog = new MetricUpdateBatch("j1");
+		List<String> labels = Arrays.asList(JOB_LABELS);
+		for (int i = 0; i <= MetricUpdateSubscriber.MAX_PENDING_SERIES; i++) {
+			backlog.changed(FAMILY, StreamsObjectType.JOB, labels, new Object[] { (double) i, instance, "backlog" + i });
+		}
+		subscriber.offer(Collections.singletonList(backlog), collector.getGeneration());
+		assertTrue(subscriber.needsResync());
+		runTasks();
+
+		// The backlog is gone, the client starts over from the current state
+		assertEquals(names("reset", "update", "refresh"), eventNames());
+		assertTrue(update("j1"), update("j1").contains("[1.0,\"streamBacklog\",\"j1\"]"));
+	}
+
+	public void testLostRemovalsDropToReset() {
+		String instance = "streamLostRemovals";
+		collector.set(collector.series(family, instance, "j1"), 1);
+		MetricUpdateStream.InstanceStream stream = subscribe(instance);
+		events.clear();
+
+		// More removals than the collector remembers, the delta can only be a reset
+		for (int i = 0; i < 20000; i++) {
+			collector.series(family, instance, "removed" + i);
+		}
+		for (int i = 0; i < 20000; i++) {
+			collector.remove(family, instance, "removed" + i);
+		}
+		stream.publish(collector);
+		runTasks();
+
+		assertEquals(names("reset", "update", "refresh"), eventNames());
+	}
+
+	/************************* Helpers *************************/
+
+	/* Subscribes to instance and sends the initial state */
+	private MetricUpdateStream.InstanceStream subscribe(String instance) {
+		MetricUpdateStream.InstanceStream stream = MetricUpdateStream.getInstance().new InstanceStream(instance,
+				collector.getGeneration());
+		Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable task) {
+				tasks.add(task);
+			}
+		};
+		MetricUpdateSubscriber subscriber = new MetricUpdateSubscriber(stream, sink(), sse(), ALL_JOBS, ALL_TYPES, 0, executor);
+		stream.add(subscriber);
+		subscriber.start();
+		runTasks();
+		subscribers.put(stream, subscriber);
+		return stream;
+	}
+
+	private MetricUpdateSubscriber subscriber(MetricUpdateStream.InstanceStream stream) {
+		return subscribers.get(stream);
+	}
+
+	private void runTasks() {
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+	}
+
+	private List<String> eventNames() {
+		List<String> names = new ArrayList<String>();
+		for (Map<String, String> event : events) {
+			names.add(event.get("name"));
+		}
+		return names;
+	}
+
+	private static List<String> names(String... names) {
+		return Arrays.asList(names);
+	}
+
+	/* Data of the update event of job */
+	private String update(String job) {
+		for (Map<String, String> event : events) {
+			if ("update".equals(event.get("name")) && event.get("data").contains("\"job\":\"" + job + "\"")) {
+				return event.get("data");
+			}
+		}
+		fail("no update of job " + job + " in " + events);
+		return null;
+	}
+
+	/* Records every event sent, the client is never slow */
+	private SseEventSink sink() {
+		return proxy(SseEventSink.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				switch (method.getName()) {
+				case "isClosed":
+					return false;
+				case "send":
+					OutboundSseEvent event = (OutboundSseEvent) args[0];
+					Map<String, String> fields = new HashMap<String, String>();
+					fields.put("name", event.getName());
+					fields.put("id", event.getId());
+					fields.put("data", (String) event.getData());
+					events.add(fields);
+					return CompletableFuture.completedFuture(null);
+				default:
+					return null;
+				}
+			}
+		});
+	}
+
+	private static Sse sse() {
+		return proxy(Sse.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return ("newEventBuilder".equals(method.getName()) ? builder() : null);
+			}
+		});
+	}
+
+	/* Builder of events that keep their name, id and data */
+	private static OutboundSseEvent.Builder builder() {
+		final Map<String, String> fields = new HashMap<String, String>();
+		return proxy(OutboundSseEvent.Builder.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				switch (method.getName()) {
+				case "name":
+				case "id":
+					fields.put(method.getName(), (String) args[0]);
+					return proxy;
+				case "data":
+					fields.put("data", String.valueOf(args[args.length - 1]));
+					return proxy;
+				case "build":
+					return proxy(OutboundSseEvent.class, new InvocationHandler() {
+						@Override
+						public Object invoke(Object event, Method getter, Object[] getterArgs) {
+							switch (getter.getName()) {
+							case "getName":
+								return fields.get("name");
+							case "getId":
+								return fields.get("id");
+							case "getData":
+								return fields.get("data");
+							default:
+								return null;
+							}
+						}
+					});
+				default:
+					return proxy;
+				}
+			}
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(MetricUpdateStreamTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+}
@@ -0,0 +1,157 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+public class CompressedJsonTest extends TestCase {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	public void testRoundTrip() throws IOException {
+		String json = randomJson(1000, 1);
+		CompressedJson compressed = CompressedJson.compress(json);
+		assertEquals(json, compressed.toJson());
+		assertEquals(json.getBytes(StandardCharsets.UTF_8).length, compressed.getLength());
+		assertEquals(json, new String(readAll(compressed.openStream()), StandardCharsets.UTF_8));
+	}
+
+	public void testGzipWithoutPrefixOrSuffix() throws IOException {
+		checkGzip(randomJson(100, 2), EMPTY, EMPTY);
+	}
+
+	public void testGzipWithPrefixAndSuffix() throws IOException {
+		checkGzip(randomJson(100, 3), bytes("{\"jobs\":["), bytes("]}"));
+	}
+
+	public void testGzipWithOnlyPrefix() throws IOException {
+		checkGzip(randomJson(100, 4), bytes("{\"metrics\":"), EMPTY);
+	}
+
+	public void testGzipWithOnlySuffix() throws IOException {
+		checkGzip(randomJson(100, 5), EMPTY, bytes("}"));
+	}
+
+	public void testGzipOfEmptyPayload() throws IOException {
+		checkGzip("", bytes("{\"jobs\":["), bytes("]}"));
+		checkGzip("", EMPTY, EMPTY);
+	}
+
+	public void testGzipOfPayloadLargerThanOneBuffer() throws IOException {
+		// Random values keep the compressed payload well beyond the 8 KB deflate buffer too
+		String json = randomJson(50000, 6);
+		CompressedJson compressed = CompressedJson.compress(json);
+		assertTrue(compressed.getCompressedLength() > 8192);
+		checkGzip(json, bytes("{\"jobs\":["), bytes("]}"));
+	}
+
+	public void testGzipWithPrefixAndSuffixLargerThanOneBuffer() throws IOException {
+		checkGzip(randomJson(100, 7), bytes(randomJson(5000, 8)), bytes(randomJson(5000, 9)));
+	}
+
+	public void testCrc32Combine() {
+		Random random = new Random(10);
+		for (int lengthA : new int[] { 0, 1, 7, 1000 }) {
+			for (int lengthB : new int[] { 0, 1, 3, 4096, 100000 }) {
+				byte[] a = new byte[lengthA];
+				byte[] b = new byte[lengthB];
+				random.nextBytes(a);
+				random.nextBytes(b);
+				assertEquals("lengths " + lengthA + "+" + lengthB, crc32(a, b),
+						CompressedJson.crc32Combine(crc32(a), crc32(b), lengthB));
+			}
+		}
+	}
+
+	/************************* Helpers *************************/
+
+	private static void checkGzip(String json, byte[] prefix, byte[] suffix) throws IOException {
+		byte[] payload = bytes(json);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompressedJson.compress(json).writeGzip(out, prefix, suffix);
+		byte[] gzip = out.toByteArray();
+
+		// GZIPInputStream verifies the trailer as well, check it explicitly for a clear failure
+		long expectedCrc = crc32(prefix, payload, suffix);
+		long expectedSize = prefix.length + payload.length + suffix.length;
+		assertEquals(expectedCrc, readIntLE(gzip, gzip.length - 8));
+		assertEquals(expectedSize, readIntLE(gzip, gzip.length - 4));
+
+		byte[] expected = new byte[(int) expectedSize];
+		System.arraycopy(prefix, 0, expected, 0, prefix.length);
+		System.arraycopy(payload, 0, expected, prefix.length, payload.length);
+		System.arraycopy(suffix, 0, expected, prefix.length + payload.length, suffix.length);
+		byte[] actual = readAll(new GZIPInputStream(new ByteArrayInputStream(gzip)));
+		assertEquals(expected.length, actual.length);
+		assertTrue(Arrays.equals(expected, actual));
+	}
+
+	/* A json array of objects with random values, roughly 50 bytes per entry */
+	private static String randomJson(int entries, long seed) {
+		Random random = new Random(seed);
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < entries; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"name\":\"nTuplesProcessed\",\"value\":").append(random.nextLong())
+				.append(",\"op\":\"\u00f6p").append(Integer.toHexString(random.nextInt())).append("\"}");
+		}
+		return json.append(']').toString();
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static long crc32(byte[]... parts) {
+		CRC32 crc = new CRC32();
+		for (byte[] part : parts) {
+			crc.update(part, 0, part.length);
+		}
+		return crc.getValue();
+	}
+
+	private static long readIntLE(byte[] data, int offset) {
+		return (data[offset] & 0xffL) | (data[offset + 1] & 0xffL) << 8
+				| (data[offset + 2] & 0xffL) << 16 | (data[offset + 3] & 0xffL) << 24;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
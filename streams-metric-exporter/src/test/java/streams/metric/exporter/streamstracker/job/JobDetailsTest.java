@@ -0,0 +1,222 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package streams.metric.exporter.streamstracker.job;
+
+import java.util.Arrays;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import junit.framework.TestCase;
+import streams.metric.exporter.metrics.MetricsExporter;
+import streams.metric.exporter.metrics.MetricsExporters;
+import streams.metric.exporter.prometheus.ColumnarMetricCollector;
+import streams.metric.exporter.prometheus.ColumnarMetricCollector.Delta;
+import streams.metric.exporter.prometheus.ColumnarMetricCollector.FamilyDelta;
+import streams.metric.exporter.prometheus.ColumnarMetricsExporter;
+
+/* Refreshes update the series of a job in place, only what is gone or moved is removed */
+public class JobDetailsTest extends TestCase {
+
+	private static final String OPERATOR_FAMILY = "streams_operator_nTuplesProcessed";
+	private static final String PE_FAMILY = "streams_pe_nCpuMilliseconds";
+
+	private ColumnarMetricCollector collector;
+
+	@Override
+	protected void setUp() {
+		MetricsExporter exporter = MetricsExporters.getExporter();
+		assertTrue("tests need the columnar metric store", exporter instanceof ColumnarMetricsExporter);
+		collector = ((ColumnarMetricsExporter) exporter).getCollector();
+	}
+
+	public void testUnchangedRefreshHasEmptyDelta() {
+		String instance = "jobDetailsUnchanged";
+		JobDetails job = new JobDetails(instance, "1", "job1");
+		refresh(job, instance, "r1", 10, "opA", "opB");
+		long created = collector.getCreated();
+		long removed = collector.getRemoved();
+		long since = collector.delta(0, instance).generation;
+
+		refresh(job, instance, "r1", 10, "opA", "opB");
+		Delta delta = collector.delta(since, instance);
+		assertFalse(delta.reset);
+		assertTrue("unexpected changes in " + delta.families.keySet(), delta.families.isEmpty());
+		assertEquals(created, collector.getCreated());
+		assertEquals(removed, collector.getRemoved());
+	}
+
+	public void testChangedValueIsOnlyChange() {
+		String instance = "jobDetailsChanged";
+		JobDetails job = new JobDetails(instance, "1", "job1");
+		refresh(job, instance, "r1", 10, "opA", "opB");
+		long since = collector.delta(0, instance).generation;
+
+		refresh(job, instance, "r1", 11, "opA", "opB");
+		Delta delta = collector.delta(since, instance);
+		assertEquals(Arrays.asList(OPERATOR_FAMILY), Arrays.asList(delta.families.keySet().toArray()));
+		FamilyDelta operators = delta.families.get(OPERATOR_FAMILY);
+		assertEquals(2, operators.changed.size());
+		assertTrue(operators.removed.isEmpty());
+	}
+
+	public void testRemovedOperatorIsOnlyRemoval() {
+		String instance = "jobDetailsRemoved";
+		JobDetails job = new JobDetails(instance, "1", "job1");
+		refresh(job, instance, "r1", 10, "opA", "opB");
+		long since = collector.delta(0, instance).generation;
+
+		refresh(job, instance, "r1", 10, "opA");
+		Delta delta = collector.delta(since, instance);
+		assertFalse(delta.reset);
+		assertEquals(Arrays.asList(OPERATOR_FAMILY), Arrays.asList(delta.families.keySet().toArray()));
+		FamilyDelta operators = delta.families.get(OPERATOR_FAMILY);
+		assertTrue(operators.changed.isEmpty());
+		assertEquals(1, operators.removed.size());
+		assertEquals(Arrays.asList(instance, "job1", "r1", "1", "opB", "spl.relational::Functor"),
+				Arrays.asList(operators.removed.get(0)));
+	}
+
+	public void testMovedPeIsReplaced() {
+		String instance = "jobDetailsMoved";
+		JobDetails job = new JobDetails(instance, "1", "job1");
+		refresh(job, instance, "r1", 10, "opA");
+		long since = collector.delta(0, instance).generation;
+
+		refresh(job, instance, "r2", 10, "opA");
+		Delta delta = collector.delta(since, instance);
+		for (String familyName : new String[] { OPERATOR_FAMILY, PE_FAMILY }) {
+			FamilyDelta family = delta.families.get(familyName);
+			assertEquals(1, family.removed.size());
+			assertEquals("r1", family.removed.get(0)[2]);
+			assertEquals(1, family.changed.size());
+			assertEquals("r2", family.changed.get(0)[3]); // after the value
+		}
+	}
+
+	public void testRefreshWithoutMetricsKeepsSeries() {
+		String instance = "jobDetailsNoMetrics";
+		JobDetails job = new JobDetails(instance, "1", "job1");
+		refresh(job, instance, "r1", 10, "opA", "opB");
+		long removed = collector.getRemoved();
+		long since = collector.delta(0, instance).generation;
+
+		// e.g. the metrics refresh failed or was throttled, only the snapshot is set
+		job.setJobSnapshot(snapshot(instance, "r1", "opA", "opB"));
+		job.refresh();
+		Delta delta = collector.delta(since, instance);
+		assertFalse(delta.reset);
+		assertTrue("unexpected changes in " + delta.families.keySet(), delta.families.isEmpty());
+		assertEquals(removed, collector.getRemoved());
+		assertEquals(2, collector.delta(0, instance).families.get(OPERATOR_FAMILY).changed.size());
+	}
+
+	public void testCloseRemovesEverySeries() {
+		String instance = "jobDetailsClosed";
+		JobDetails job = new JobDetails(instance, "1", "job1");
+		refresh(job, instance, "r1", 10, "opA");
+		long since = collector.delta(0, instance).generation;
+
+		job.close();
+		Delta delta = collector.delta(since, instance);
+		for (FamilyDelta family : delta.families.values()) {
+			assertTrue(family.changed.isEmpty());
+		}
+		assertEquals(1, delta.families.get(OPERATOR_FAMILY).removed.size());
+		assertEquals(0, collector.delta(0, instance).families.size());
+	}
+
+	/************************* Helpers *************************/
+
+	/* One pe on resource with one operator per name, every operator processed tuples */
+	private static void refresh(JobDetails job, String instance, String resource, long tuples, String... operatorNames) {
+		job.setJobSnapshot(snapshot(instance, resource, operatorNames));
+		job.setJobMetrics(metrics(tuples, operatorNames));
+		job.refresh();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject snapshot(String instance, String resource, String... operatorNames) {
+		JSONArray operators = new JSONArray();
+		for (String operatorName : operatorNames) {
+			JSONObject operator = new JSONObject();
+			operator.put("name", operatorName);
+			operator.put("operatorKind", "spl.relational::Functor");
+			operator.put("inputPorts", new JSONArray());
+			operator.put("outputPorts", new JSONArray());
+			operators.add(operator);
+		}
+		JSONObject pe = new JSONObject();
+		pe.put("id", "1");
+		pe.put("resource", resource);
+		pe.put("status", "running");
+		pe.put("health", "healthy");
+		pe.put("launchCount", 1L);
+		pe.put("inputPorts", new JSONArray());
+		pe.put("outputPorts", new JSONArray());
+		pe.put("operators", operators);
+
+		JSONObject job = new JSONObject();
+		job.put("id", "1");
+		job.put("instance", instance);
+		job.put("name", "job1");
+		job.put("status", "running");
+		job.put("health", "healthy");
+		job.put("submitTime", 1000L);
+		job.put("pes", list(pe));
+		return job;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject metrics(long tuples, String... operatorNames) {
+		JSONArray operators = new JSONArray();
+		for (String operatorName : operatorNames) {
+			JSONObject operator = new JSONObject();
+			operator.put("name", operatorName);
+			operator.put("metrics", list(metric("nTuplesProcessed", tuples)));
+			operator.put("inputPorts", new JSONArray());
+			operator.put("outputPorts", new JSONArray());
+			operators.add(operator);
+		}
+		JSONObject pe = new JSONObject();
+		pe.put("id", "1");
+		pe.put("metrics", list(metric("nCpuMilliseconds", 500L)));
+		pe.put("inputPorts", new JSONArray());
+		pe.put("outputPorts", new JSONArray());
+		pe.put("operators", operators);
+
+		JSONObject job = new JSONObject();
+		job.put("id", "1");
+		job.put("pes", list(pe));
+		return job;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONObject metric(String name, long value) {
+		JSONObject metric = new JSONObject();
+		metric.put("name", name);
+		metric.put("value", value);
+		return metric;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONArray list(JSONObject... elements) {
+		JSONArray array = new JSONArray();
+		array.addAll(Arrays.asList(elements));
+		return array;
+	}
+}